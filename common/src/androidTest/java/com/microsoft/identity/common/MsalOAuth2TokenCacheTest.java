@@ -944,6 +944,28 @@ public class MsalOAuth2TokenCacheTest extends AndroidSecretKeyEnabledHelper {
         assertNull(wrongClientIdResult.getAccessToken());
     }
 
+    @Test
+    public void testRetrieveFrtSkipsRefreshTokenWithoutFamilyId() throws ClientException {
+        // The default bundle's refresh token is not a family refresh token
+        mOauth2TokenCache.save(
+                mockStrategy,
+                mockRequest,
+                mockResponse
+        );
+
+        final ICacheRecord otherClientResult = mOauth2TokenCache.loadByFamilyId(
+                "12345",
+                null,
+                defaultTestBundle.mGeneratedAccount
+        );
+
+        assertNotNull(otherClientResult);
+        assertNotNull(otherClientResult.getAccount());
+        assertNull(otherClientResult.getRefreshToken());
+        assertNull(otherClientResult.getIdToken());
+        assertNull(otherClientResult.getAccessToken());
+    }
+
     @Test
     public void testOnlyOneFrtMayExistAcrossClientsForAccount() throws ClientException {
         // Save an FRT
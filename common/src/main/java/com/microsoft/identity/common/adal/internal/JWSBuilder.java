@@ -31,6 +31,7 @@ import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.exception.ErrorStrings;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
 
 import java.io.UnsupportedEncodingException;
 import java.security.InvalidKeyException;
@@ -130,7 +131,7 @@ public class JWSBuilder {
             throw new IllegalArgumentException("pubKey");
         }
 
-        Gson gson = new Gson();
+        Gson gson = GsonRegistry.getDefault();
         Claims claims = new Claims();
         claims.mNonce = nonce;
         claims.mAudience = audience;
@@ -34,6 +34,11 @@ import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
 import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.internal.metrics.Counter;
+import com.microsoft.identity.common.internal.metrics.Histogram;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+import com.microsoft.identity.common.internal.tracing.Span;
+import com.microsoft.identity.common.internal.tracing.Tracer;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -57,6 +62,7 @@ import java.security.spec.AlgorithmParameterSpec;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -70,6 +76,11 @@ import javax.security.auth.x500.X500Principal;
 public class StorageHelper implements IStorageHelper {
     private static final String TAG = "StorageHelper";
 
+    private static final Counter ENCRYPT_COUNTER = MetricsRegistry.counter("storage.encrypt.count");
+    private static final Counter DECRYPT_COUNTER = MetricsRegistry.counter("storage.decrypt.count");
+    private static final Counter DECRYPT_FAILURE_COUNTER = MetricsRegistry.counter("storage.decrypt.failures");
+    private static final Histogram DECRYPT_LATENCY = MetricsRegistry.histogram("storage.decrypt.latency_us");
+
     /**
      * HMac key hashing algorithm.
      */
@@ -165,6 +176,7 @@ public class StorageHelper implements IStorageHelper {
     public String encrypt(final String clearText)
             throws GeneralSecurityException, IOException {
         Log.v(TAG, "Starting encryption");
+        ENCRYPT_COUNTER.increment();
 
         if (StringExtensions.isNullOrBlank(clearText)) {
             throw new IllegalArgumentException("Input is empty or null");
@@ -220,6 +232,23 @@ public class StorageHelper implements IStorageHelper {
     @Override
     public String decrypt(final String encryptedBlob)
             throws GeneralSecurityException, IOException {
+        final Span span = Tracer.startSpan("StorageHelper.decrypt");
+        final long startNanos = System.nanoTime();
+        DECRYPT_COUNTER.increment();
+        try {
+            return decryptInternal(encryptedBlob);
+        } catch (final GeneralSecurityException | IOException | RuntimeException e) {
+            DECRYPT_FAILURE_COUNTER.increment();
+            span.setError(e);
+            throw e;
+        } finally {
+            DECRYPT_LATENCY.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            span.end();
+        }
+    }
+
+    private String decryptInternal(final String encryptedBlob)
+            throws GeneralSecurityException, IOException {
         Log.v(TAG, "Starting decryption");
 
         if (StringExtensions.isNullOrBlank(encryptedBlob)) {
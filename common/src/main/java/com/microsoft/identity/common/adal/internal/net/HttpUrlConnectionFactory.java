@@ -58,6 +58,13 @@ public final class HttpUrlConnectionFactory {
         }
     }
 
+    /**
+     * @return True if a mocked {@link HttpURLConnection} has been set.
+     */
+    static boolean hasMockedHttpUrlConnection() {
+        return sMockedConnection != null;
+    }
+
     /**
      * Constructor of HttpURLConnection.
      *
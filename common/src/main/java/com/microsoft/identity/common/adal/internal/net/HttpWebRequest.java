@@ -24,22 +24,23 @@ package com.microsoft.identity.common.adal.internal.net;
 
 import android.content.Context;
 import android.os.Debug;
+import android.support.annotation.NonNull;
 
 import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.HttpUrlConnectionTransport;
+import com.microsoft.identity.common.internal.net.IHttpTransport;
 
 import java.io.BufferedReader;
-import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Webrequest are called in background thread from API level. HttpWebRequest
@@ -52,6 +53,18 @@ public class HttpWebRequest {
     private static final int DEBUG_SIMULATE_DELAY = 0;
     private static final int CONNECT_TIME_OUT = AuthenticationSettings.INSTANCE.getConnectTimeOut();
     private static final int READ_TIME_OUT = AuthenticationSettings.INSTANCE.getReadTimeOut();
+
+    /**
+     * Transport opening connections through {@link HttpUrlConnectionFactory}, used when a mocked
+     * connection has been set.
+     */
+    private static final IHttpTransport MOCKED_CONNECTION_TRANSPORT = new HttpUrlConnectionTransport() {
+        @Override
+        protected HttpURLConnection openConnection(@NonNull final URL requestUrl) throws IOException {
+            return HttpUrlConnectionFactory.createHttpUrlConnection(requestUrl);
+        }
+    };
+
     private final String mRequestMethod;
     private final URL mUrl;
     private final byte[] mRequestContent;
@@ -96,9 +109,12 @@ public class HttpWebRequest {
     }
 
     /**
-     * setupConnection before sending the request.
+     * Send the request.
+     *
+     * @return HttpWebResponse
+     * @throws IOException throws if the input stream is null.
      */
-    private HttpURLConnection setupConnection() throws IOException {
+    public HttpWebResponse send() throws IOException {
         if (mUrl == null) {
             throw new IllegalArgumentException("requestURL");
         }
@@ -106,77 +122,61 @@ public class HttpWebRequest {
                 && !mUrl.getProtocol().equalsIgnoreCase("https")) {
             throw new IllegalArgumentException("requestURL");
         }
-        HttpURLConnection.setFollowRedirects(true);
-        final HttpURLConnection connection = HttpUrlConnectionFactory.createHttpUrlConnection(mUrl);
-        connection.setConnectTimeout(CONNECT_TIME_OUT);
-        connection.setRequestProperty("Connection", "close");
 
+        final Map<String, String> requestHeaders = new HashMap<>();
+        if (!HttpRequest.isConnectionReuseEnabled()) {
+            requestHeaders.put("Connection", "close");
+        }
+        requestHeaders.putAll(mRequestHeaders);
+
+        final HttpResponse response = getTransport().execute(mRequestMethod, mUrl, requestHeaders,
+                mRequestContent, mRequestContentType, CONNECT_TIME_OUT, READ_TIME_OUT, null);
 
-        // Apply the request headers
-        final Set<Map.Entry<String, String>> headerEntries = mRequestHeaders.entrySet();
-        for (final Map.Entry<String, String> entry : headerEntries) {
-            connection.setRequestProperty(entry.getKey(), entry.getValue());
+        if (response.getBody() == null) {
+            // The server answered with an error status but no body. Failures to get any response at
+            // all, e.g. a failed TLS handshake, are thrown by the transport as they are.
+            throw new IOException("No response body received, status code: " + response.getStatusCode());
         }
 
-        connection.setReadTimeout(READ_TIME_OUT);
-        connection.setInstanceFollowRedirects(true);
-        connection.setUseCaches(false);
-        connection.setRequestMethod(mRequestMethod);
-        connection.setDoInput(true); // it will at least read status
-        // code. Default is true.
-        setRequestBody(connection, mRequestContent, mRequestContentType);
+        // It will only run in debugger and set from outside for testing
+        if (DEBUG_SIMULATE_DELAY > 0 && Debug.isDebuggerConnected()) {
+            // sleep background thread in debugging mode
+            try {
+                Thread.sleep(DEBUG_SIMULATE_DELAY);
+            } catch (InterruptedException e) {
+                // Do nothing.
+            }
+        }
 
-        return connection;
+        return new HttpWebResponse(response.getStatusCode(), normalizeLineBreaks(response.getBody()),
+                response.getHeaders());
     }
 
     /**
-     * Send the request.
-     *
-     * @return HttpWebResponse
-     * @throws IOException throws if the input stream is null.
+     * Join the lines of the body with a single '\n', dropping carriage returns and the trailing
+     * line break, as the body has always been read by ADAL.
      */
-    public HttpWebResponse send() throws IOException {
-        final HttpURLConnection connection = setupConnection();
-        final HttpWebResponse response;
-        InputStream responseStream = null;
-        try {
-            try {
-                responseStream = connection.getInputStream();
-            } catch (IOException ex) {
-                // If it does not get the error stream, it will return
-                // exception in the httpresponse
-                responseStream = connection.getErrorStream();
-                if (responseStream == null) {
-                    throw ex;
-                }
+    private static String normalizeLineBreaks(final String body) throws IOException {
+        final BufferedReader reader = new BufferedReader(new StringReader(body));
+        final StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (sb.length() > 0) {
+                sb.append('\n');
             }
-            // GET request should read status after getInputStream to make
-            // this work for different SDKs
-            final int statusCode = connection.getResponseCode();
-            final String responseBody = convertStreamToString(responseStream);
+            sb.append(line);
+        }
 
-            // It will only run in debugger and set from outside for testing
-            if (Debug.isDebuggerConnected() && DEBUG_SIMULATE_DELAY > 0) {
-                // sleep background thread in debugging mode
-                try {
-                    Thread.sleep(DEBUG_SIMULATE_DELAY);
-                } catch (InterruptedException e) {
-                    // Do nothing.
-                }
-            }
+        return sb.toString();
+    }
 
-            response = new HttpWebResponse(statusCode, responseBody, connection.getHeaderFields());
-        } finally {
-            safeCloseStream(responseStream);
-            // We are not disconnecting from network to allow connection to be returned into the
-            // connection pool. If we call disconnect due to buggy implementation we are not reusing
-            // connections.
-            //if (connection != null) {
-            //	connection.disconnect();
-            //}
+    private static IHttpTransport getTransport() {
+        // Honor a connection mocked through the ADAL factory, otherwise share the MSAL transport
+        if (HttpUrlConnectionFactory.hasMockedHttpUrlConnection()) {
+            return MOCKED_CONNECTION_TRANSPORT;
         }
 
-        return response;
+        return HttpRequest.getTransport();
     }
 
     /**
@@ -205,69 +205,4 @@ public class HttpWebRequest {
             }
         }
     }
-
-    /**
-     * Convert stream into the string.
-     *
-     * @param inputStream {@link InputStream} to be converted to be a string.
-     * @return The converted string
-     * @throws IOException Thrown when failing to access inputStream stream.
-     */
-    private static String convertStreamToString(InputStream inputStream) throws IOException {
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (sb.length() > 0) {
-                    sb.append('\n');
-                }
-                sb.append(line);
-            }
-
-            return sb.toString();
-        } finally {
-            if (reader != null) {
-                reader.close();
-            }
-        }
-    }
-
-    private static void setRequestBody(HttpURLConnection connection, byte[] contentRequest, String requestContentType) throws IOException {
-        if (null != contentRequest) {
-            connection.setDoOutput(true);
-
-            if (null != requestContentType && !requestContentType.isEmpty()) {
-                connection.setRequestProperty("Content-Type", requestContentType);
-            }
-
-            connection.setRequestProperty("Content-Length",
-                    Integer.toString(contentRequest.length));
-            connection.setFixedLengthStreamingMode(contentRequest.length);
-
-            OutputStream out = null;
-            try {
-                out = connection.getOutputStream();
-                out.write(contentRequest);
-            } finally {
-                safeCloseStream(out);
-            }
-        }
-    }
-
-    /**
-     * Close the stream safely.
-     *
-     * @param stream stream to be closed
-     */
-    private static void safeCloseStream(Closeable stream) {
-        if (stream != null) {
-            try {
-                stream.close();
-            } catch (IOException e) {
-                // swallow error in this case
-            }
-        }
-    }
 }
@@ -115,6 +115,11 @@ public class ClientException extends BaseException {
      */
     public static final String UNKNOWN_ERROR = "unknown_error";
 
+    /**
+     * The request was turned away because too many requests are already pending.
+     */
+    public static final String REQUEST_REJECTED = "request_rejected";
+
     /**
      * Temporary non-exposed error code to indicate that ADFS authority validation fails. ADFS as authority is not supported
      * for preview.
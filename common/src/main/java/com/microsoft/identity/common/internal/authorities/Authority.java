@@ -192,10 +192,9 @@ public abstract class Authority {
                 TAG + methodName,
                 "Performing cloud discovery..."
         );
-        synchronized (sLock) {
-            if (!AzureActiveDirectory.isInitialized()) {
-                AzureActiveDirectory.performCloudDiscovery();
-            }
+        // Concurrent callers are coalesced into a single request by AzureActiveDirectory
+        if (!AzureActiveDirectory.isInitialized()) {
+            AzureActiveDirectory.performCloudDiscovery();
         }
     }
 
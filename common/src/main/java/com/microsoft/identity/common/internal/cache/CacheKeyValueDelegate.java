@@ -38,6 +38,7 @@ import com.microsoft.identity.common.internal.dto.Credential;
 import com.microsoft.identity.common.internal.dto.IdTokenRecord;
 import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -75,7 +76,7 @@ public class CacheKeyValueDelegate implements ICacheKeyValueDelegate {
      * Default constructor of CacheKeyValueDelegate.
      */
     public CacheKeyValueDelegate() {
-        mGson = new Gson();
+        mGson = GsonRegistry.getDefault();
         Logger.verbose(TAG, "Init: " + TAG);
     }
 
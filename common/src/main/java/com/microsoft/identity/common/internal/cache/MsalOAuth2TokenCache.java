@@ -37,10 +37,14 @@ import com.microsoft.identity.common.internal.dto.IdTokenRecord;
 import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
 import com.microsoft.identity.common.internal.logging.Logger;
 import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAccount;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.ClientInfo;
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
 import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
+import com.microsoft.identity.common.internal.tracing.Span;
+import com.microsoft.identity.common.internal.tracing.Tracer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -98,6 +102,20 @@ public class MsalOAuth2TokenCache
     public ICacheRecord save(@NonNull final GenericOAuth2Strategy oAuth2Strategy,
                              @NonNull final GenericAuthorizationRequest request,
                              @NonNull final GenericTokenResponse response) throws ClientException {
+        final Span span = Tracer.startSpan("MsalOAuth2TokenCache.save");
+        try {
+            return saveInternal(oAuth2Strategy, request, response);
+        } catch (final ClientException | RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private ICacheRecord saveInternal(@NonNull final GenericOAuth2Strategy oAuth2Strategy,
+                                      @NonNull final GenericAuthorizationRequest request,
+                                      @NonNull final GenericTokenResponse response) throws ClientException {
         final String methodName = ":save";
         // Create the Account
         final AccountRecord accountToSave =
@@ -223,6 +241,19 @@ public class MsalOAuth2TokenCache
     @Override
     public ICacheRecord save(@NonNull final AccountRecord accountToSave,
                              @NonNull final IdTokenRecord idTokenToSave) {
+        final Span span = Tracer.startSpan("MsalOAuth2TokenCache.save");
+        try {
+            return saveInternal(accountToSave, idTokenToSave);
+        } catch (final RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private ICacheRecord saveInternal(@NonNull final AccountRecord accountToSave,
+                                      @NonNull final IdTokenRecord idTokenToSave) {
         final String methodName = ":save";
 
         Logger.verbose(
@@ -321,24 +352,22 @@ public class MsalOAuth2TokenCache
                 }
             }
 
-            Logger.info(
-                    TAG + methodName,
-                    "Found [" + allRefreshTokens.size() + "] RTs"
-            );
+            Logger.event(TAG + methodName, Logger.LogLevel.INFO, "refresh_tokens_found")
+                    .field("count", allRefreshTokens.size())
+                    .log();
 
             // Iterate over those refresh tokens and see if any are in the family...
             final List<RefreshTokenRecord> familyRefreshTokens = new ArrayList<>();
 
             for (final RefreshTokenRecord refreshToken : allRefreshTokens) {
-                if (refreshToken.getFamilyId().equals(familyId)) {
+                if (familyId.equals(refreshToken.getFamilyId())) {
                     familyRefreshTokens.add(refreshToken);
                 }
             }
 
-            Logger.info(
-                    TAG + methodName,
-                    "Found [" + familyRefreshTokens.size() + "] foci RTs"
-            );
+            Logger.event(TAG + methodName, Logger.LogLevel.INFO, "family_refresh_tokens_found")
+                    .field("count", familyRefreshTokens.size())
+                    .log();
 
             // Iterate over the family refresh tokens and filter for the current environment...
             final List<RefreshTokenRecord> familyRtsForEnvironment = new ArrayList<>();
@@ -349,10 +378,10 @@ public class MsalOAuth2TokenCache
                 }
             }
 
-            Logger.info(
-                    TAG + methodName,
-                    "Found [" + familyRtsForEnvironment.size() + "] foci RTs"
-            );
+            Logger.event(TAG + methodName, Logger.LogLevel.INFO, "environment_family_refresh_tokens_found")
+                    .field("count", familyRtsForEnvironment.size())
+                    .piiField("environment", accountRecord.getEnvironment())
+                    .log();
 
             IdTokenRecord idTokenRecord = null;
             AccessTokenRecord accessTokenRecord = null;
@@ -392,6 +421,20 @@ public class MsalOAuth2TokenCache
     public ICacheRecord load(@NonNull final String clientId,
                              @Nullable final String target,
                              @NonNull final AccountRecord account) {
+        final Span span = Tracer.startSpan("MsalOAuth2TokenCache.load");
+        try {
+            return loadInternal(clientId, target, account);
+        } catch (final RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private ICacheRecord loadInternal(@NonNull final String clientId,
+                                      @Nullable final String target,
+                                      @NonNull final AccountRecord account) {
         final boolean isMultiResourceCapable = MicrosoftAccount.AUTHORITY_TYPE_V1_V2.equals(
                 account.getAuthorityType()
         );
@@ -446,31 +489,21 @@ public class MsalOAuth2TokenCache
                 TAG + methodName,
                 "Removing credential..."
         );
-        Logger.infoPII(
-                TAG + methodName,
-                "ClientId: [" + credential.getClientId() + "]"
-        );
-        Logger.infoPII(
-                TAG + methodName,
-                "CredentialType: [" + credential.getCredentialType() + "]"
-        );
-        Logger.infoPII(
-                TAG + methodName,
-                "CachedAt: [" + credential.getCachedAt() + "]"
-        );
-        Logger.infoPII(
-                TAG + methodName,
-                "Environment: [" + credential.getEnvironment() + "]"
-        );
-        Logger.infoPII(
-                TAG + methodName,
-                "HomeAccountId: [" + credential.getHomeAccountId() + "]"
-        );
-        Logger.infoPII(
-                TAG + methodName,
-                "IsExpired?: [" + credential.isExpired() + "]"
-        );
-        return mAccountCredentialCache.removeCredential(credential);
+        Logger.event(TAG + methodName, Logger.LogLevel.INFO, "credential_removing")
+                .piiField("client_id", credential.getClientId())
+                .piiField("credential_type", credential.getCredentialType())
+                .piiField("cached_at", credential.getCachedAt())
+                .piiField("environment", credential.getEnvironment())
+                .piiField("home_account_id", credential.getHomeAccountId())
+                .piiField("expired", String.valueOf(credential.isExpired()))
+                .log();
+        final boolean removed = mAccountCredentialCache.removeCredential(credential);
+
+        if (removed) {
+            clearParsedTokens();
+        }
+
+        return removed;
     }
 
     @Override
@@ -480,32 +513,15 @@ public class MsalOAuth2TokenCache
                                     @Nullable final String realm) {
         final String methodName = ":getAccount";
 
-        Logger.infoPII(
-                TAG + methodName,
-                "Environment: [" + environment + "]"
-        );
-
-        Logger.infoPII(
-                TAG + methodName,
-                "ClientId: [" + clientId + "]"
-        );
-
-        Logger.infoPII(
-                TAG + methodName,
-                "HomeAccountId: [" + homeAccountId + "]"
-        );
-
-        Logger.infoPII(
-                TAG + methodName,
-                "Realm: [" + realm + "]"
-        );
-
         final List<AccountRecord> allAccounts = getAccounts(environment, clientId);
 
-        Logger.info(
-                TAG + methodName,
-                "Found " + allAccounts.size() + " accounts"
-        );
+        Logger.event(TAG + methodName, Logger.LogLevel.INFO, "accounts_found")
+                .piiField("environment", environment)
+                .piiField("client_id", clientId)
+                .piiField("home_account_id", homeAccountId)
+                .piiField("realm", realm)
+                .field("count", allAccounts.size())
+                .log();
 
         // Return the sought Account matching the supplied homeAccountId and realm, if applicable
         for (final AccountRecord account : allAccounts) {
@@ -749,6 +765,9 @@ public class MsalOAuth2TokenCache
             }
         }
 
+        // Claims and client_info parsed from the removed tokens must not outlive them
+        clearParsedTokens();
+
         final String[][] logInfo = new String[][]{
                 {"Access tokens", String.valueOf(atsRemoved)},
                 {"Refresh tokens", String.valueOf(rtsRemoved)},
@@ -806,6 +825,15 @@ public class MsalOAuth2TokenCache
         return credentialsRemoved;
     }
 
+    /**
+     * Drops the ID token claims and client_info values parsed in this process. The caches are not
+     * keyed by account, so they are cleared whole; tokens still in use are parsed again on demand.
+     */
+    private static void clearParsedTokens() {
+        IDToken.clearParsedTokens();
+        ClientInfo.clearParsedClientInfos();
+    }
+
     private void saveAccounts(final AccountRecord... accounts) {
         for (final AccountRecord account : accounts) {
             mAccountCredentialCache.saveAccount(account);
@@ -33,7 +33,12 @@ import com.microsoft.identity.common.internal.dto.CredentialType;
 import com.microsoft.identity.common.internal.dto.IAccountRecord;
 import com.microsoft.identity.common.internal.dto.IdTokenRecord;
 import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.logging.ILogMessageSupplier;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.Counter;
+import com.microsoft.identity.common.internal.metrics.Gauge;
+import com.microsoft.identity.common.internal.metrics.Histogram;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -42,6 +47,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate.CACHE_VALUE_SEPARATOR;
 
@@ -88,6 +94,14 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
 
     private final ICacheKeyValueDelegate mCacheValueDelegate;
 
+    private static final Counter LOOKUP_HIT_COUNTER = MetricsRegistry.counter("cache.credential_lookup.hit");
+    private static final Counter LOOKUP_MISS_COUNTER = MetricsRegistry.counter("cache.credential_lookup.miss");
+
+    // Updated by every full scan of the file, as the scans see every entry anyway
+    private final Gauge mEntryCountGauge;
+    private final Gauge mContentSizeGauge;
+    private final Histogram mScanLatency;
+
     /**
      * Constructor of SharedPreferencesAccountCredentialCache.
      *
@@ -100,6 +114,11 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
         Logger.verbose(TAG, "Init: " + TAG);
         mSharedPreferencesFileManager = sharedPreferencesFileManager;
         mCacheValueDelegate = accountCacheValueDelegate;
+
+        final String fileName = sharedPreferencesFileManager.getSharedPreferencesFileName();
+        mEntryCountGauge = MetricsRegistry.gauge(MetricsRegistry.name("cache.entries", "file", fileName));
+        mContentSizeGauge = MetricsRegistry.gauge(MetricsRegistry.name("cache.content_bytes", "file", fileName));
+        mScanLatency = MetricsRegistry.histogram(MetricsRegistry.name("cache.scan.latency_us", "file", fileName));
     }
 
     @Override
@@ -191,11 +210,14 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
     @NonNull
     private Map<String, AccountRecord> getAccountsWithKeys() {
         Logger.verbose(TAG, "Loading Accounts + keys...");
+        final long startNanos = System.nanoTime();
         final Map<String, ?> cacheValues = mSharedPreferencesFileManager.getAll();
         final Map<String, AccountRecord> accounts = new HashMap<>();
+        long contentSize = 0;
 
         for (Map.Entry<String, ?> cacheValue : cacheValues.entrySet()) {
             final String cacheKey = cacheValue.getKey();
+            contentSize += cacheKey.length() + cacheValue.getValue().toString().length();
             if (isAccount(cacheKey)) {
                 final AccountRecord account = mCacheValueDelegate.fromCacheValue(
                         cacheValue.getValue().toString(),
@@ -213,7 +235,10 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             }
         }
 
-        Logger.verbose(TAG, "Returning [" + accounts.size() + "] Accounts w/ keys...");
+        recordScan(startNanos, cacheValues.size(), contentSize);
+        Logger.event(TAG, Logger.LogLevel.VERBOSE, "accounts_with_keys_loaded")
+                .field("count", accounts.size())
+                .log();
 
         return accounts;
     }
@@ -224,7 +249,9 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
         Logger.verbose(TAG, "Loading Accounts...(no arg)");
         final Map<String, AccountRecord> allAccounts = getAccountsWithKeys();
         final List<AccountRecord> accounts = new ArrayList<>(allAccounts.values());
-        Logger.info(TAG, "Found [" + accounts.size() + "] Accounts...");
+        Logger.event(TAG, Logger.LogLevel.INFO, "accounts_found")
+                .field("count", accounts.size())
+                .log();
         return accounts;
     }
 
@@ -245,7 +272,9 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
                 allAccounts
         );
 
-        Logger.info(TAG, "Found [" + matchingAccounts.size() + "] matching Accounts...");
+        Logger.event(TAG, Logger.LogLevel.INFO, "matching_accounts_found")
+                .field("count", matchingAccounts.size())
+                .log();
 
         return matchingAccounts;
     }
@@ -253,11 +282,14 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
     @NonNull
     private Map<String, Credential> getCredentialsWithKeys() {
         Logger.verbose(TAG, "Loading Credentials with keys...");
+        final long startNanos = System.nanoTime();
         final Map<String, ?> cacheValues = mSharedPreferencesFileManager.getAll();
         final Map<String, Credential> credentials = new HashMap<>();
+        long contentSize = 0;
 
         for (Map.Entry<String, ?> cacheValue : cacheValues.entrySet()) {
             final String cacheKey = cacheValue.getKey();
+            contentSize += cacheKey.length() + cacheValue.getValue().toString().length();
             if (isCredential(cacheKey)) {
                 final Credential credential = mCacheValueDelegate.fromCacheValue(
                         cacheValue.getValue().toString(),
@@ -275,7 +307,10 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             }
         }
 
-        Logger.verbose(TAG, "Loaded [" + credentials.size() + "] Credentials...");
+        recordScan(startNanos, cacheValues.size(), contentSize);
+        Logger.event(TAG, Logger.LogLevel.VERBOSE, "credentials_with_keys_loaded")
+                .field("count", credentials.size())
+                .log();
 
         return credentials;
     }
@@ -286,7 +321,9 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
         Logger.verbose(TAG, "Loading Credentials...");
         final Map<String, Credential> allCredentials = getCredentialsWithKeys();
         final List<Credential> creds = new ArrayList<>(allCredentials.values());
-        Logger.verbose(TAG, "Found [" + creds.size() + "] Credentials");
+        Logger.event(TAG, Logger.LogLevel.VERBOSE, "credentials_found")
+                .field("count", creds.size())
+                .log();
         return creds;
     }
 
@@ -314,11 +351,29 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
                 allCredentials
         );
 
-        Logger.info(TAG, "Found [" + matchingCredentials.size() + "] matching Credentials...");
+        if (matchingCredentials.isEmpty()) {
+            LOOKUP_MISS_COUNTER.increment();
+        } else {
+            LOOKUP_HIT_COUNTER.increment();
+        }
+
+        Logger.event(TAG, Logger.LogLevel.INFO, "matching_credentials_found")
+                .field("count", matchingCredentials.size())
+                .log();
 
         return matchingCredentials;
     }
 
+    /**
+     * Record the size of the file and the time taken by a full scan of it. The size is counted in
+     * characters, which matches bytes for the mostly ASCII keys and values.
+     */
+    private void recordScan(final long startNanos, final int entryCount, final long contentSize) {
+        mScanLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        mEntryCountGauge.set(entryCount);
+        mContentSizeGauge.set(contentSize);
+    }
+
     @Override
     public boolean removeAccount(@NonNull final AccountRecord accountToRemove) {
         Logger.info(TAG, "Removing Account...");
@@ -328,7 +383,9 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
 
         Logger.verbose(TAG, "Loading Accounts + keys...");
         final Map<String, AccountRecord> accounts = getAccountsWithKeys();
-        Logger.info(TAG, "Found [" + accounts.size() + "] Accounts...");
+        Logger.event(TAG, Logger.LogLevel.INFO, "accounts_found")
+                .field("count", accounts.size())
+                .log();
 
         boolean accountRemoved = false;
         for (final Map.Entry<String, AccountRecord> entry : accounts.entrySet()) {
@@ -342,7 +399,9 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             }
         }
 
-        Logger.info(TAG, "Account was removed? [" + accountRemoved + "]");
+        Logger.event(TAG, Logger.LogLevel.INFO, "account_removed")
+                .field("removed", accountRemoved)
+                .log();
 
         return accountRemoved;
     }
@@ -356,7 +415,9 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
 
         Logger.verbose(TAG, "Loading Credentials + keys...");
         final Map<String, Credential> credentials = getCredentialsWithKeys();
-        Logger.info(TAG, "Found [" + credentials.size() + "] Credentials...");
+        Logger.event(TAG, Logger.LogLevel.INFO, "credentials_found")
+                .field("count", credentials.size())
+                .log();
 
         boolean credentialRemoved = false;
         for (final Map.Entry<String, Credential> entry : credentials.entrySet()) {
@@ -370,7 +431,9 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             }
         }
 
-        Logger.info(TAG, "Credential was removed? [" + credentialRemoved + "]");
+        Logger.event(TAG, Logger.LogLevel.INFO, "credential_removed")
+                .field("removed", credentialRemoved)
+                .log();
 
         return credentialRemoved;
     }
@@ -384,11 +447,21 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
 
     private Class<? extends Credential> credentialClassForType(@NonNull final String cacheKey) {
         Logger.verbose(TAG, "Resolving class for key/CredentialType...");
-        Logger.verbosePII(TAG, "Supplied key: [" + cacheKey + "]");
+        Logger.verbosePII(TAG, new ILogMessageSupplier() {
+            @Override
+            public String getMessage() {
+                return "Supplied key: [" + cacheKey + "]";
+            }
+        });
 
         final CredentialType targetType = getCredentialTypeForCredentialCacheKey(cacheKey);
 
-        Logger.verbose(TAG, "CredentialType matched: [" + targetType + "]");
+        Logger.verbose(TAG, new ILogMessageSupplier() {
+            @Override
+            public String getMessage() {
+                return "CredentialType matched: [" + targetType + "]";
+            }
+        });
 
         return getTargetClassForCredentialType(cacheKey, targetType);
     }
@@ -404,7 +477,12 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             throw new IllegalArgumentException("Param [cacheKey] cannot be null.");
         }
 
-        Logger.verbosePII(TAG, "Evaluating cache key for CredentialType [" + cacheKey + "]");
+        Logger.verbosePII(TAG, new ILogMessageSupplier() {
+            @Override
+            public String getMessage() {
+                return "Evaluating cache key for CredentialType [" + cacheKey + "]";
+            }
+        });
 
         final Set<String> credentialTypesLowerCase = new HashSet<>();
 
@@ -435,22 +513,48 @@ public class SharedPreferencesAccountCredentialCache extends AbstractAccountCred
             }
         }
 
-        Logger.info(TAG, "Cache key was type: [" + type + "]");
+        final CredentialType matchedType = type;
+        Logger.info(TAG, new ILogMessageSupplier() {
+            @Override
+            public String getMessage() {
+                return "Cache key was type: [" + matchedType + "]";
+            }
+        });
 
         return type;
     }
 
     private boolean isAccount(@NonNull final String cacheKey) {
-        Logger.verbosePII(TAG, "Evaluating cache key: [" + cacheKey + "]");
-        boolean isAccount = null == getCredentialTypeForCredentialCacheKey(cacheKey);
-        Logger.info(TAG, "isAccount? [" + isAccount + "]");
+        Logger.verbosePII(TAG, new ILogMessageSupplier() {
+            @Override
+            public String getMessage() {
+                return "Evaluating cache key: [" + cacheKey + "]";
+            }
+        });
+        final boolean isAccount = null == getCredentialTypeForCredentialCacheKey(cacheKey);
+        Logger.info(TAG, new ILogMessageSupplier() {
+            @Override
+            public String getMessage() {
+                return "isAccount? [" + isAccount + "]";
+            }
+        });
         return isAccount;
     }
 
-    private boolean isCredential(@NonNull String cacheKey) {
-        Logger.verbosePII(TAG, "Evaluating cache key: [" + cacheKey + "]");
-        boolean isCredential = null != getCredentialTypeForCredentialCacheKey(cacheKey);
-        Logger.info(TAG, "isCredential? [" + isCredential + "]");
+    private boolean isCredential(@NonNull final String cacheKey) {
+        Logger.verbosePII(TAG, new ILogMessageSupplier() {
+            @Override
+            public String getMessage() {
+                return "Evaluating cache key: [" + cacheKey + "]";
+            }
+        });
+        final boolean isCredential = null != getCredentialTypeForCredentialCacheKey(cacheKey);
+        Logger.info(TAG, new ILogMessageSupplier() {
+            @Override
+            public String getMessage() {
+                return "isCredential? [" + isCredential + "]";
+            }
+        });
         return isCredential;
     }
 
@@ -0,0 +1,484 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
+import com.microsoft.identity.common.exception.BaseException;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.IAccountRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
+import com.microsoft.identity.common.internal.util.IClock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refreshes cached access tokens in the background shortly before they expire, so that silent
+ * requests find a fresh token in the cache instead of paying for the refresh themselves.
+ * <p>
+ * Tracked tokens are grouped per account: once the first token of an account enters the refresh
+ * window, every token of that account which would enter it before the next batch is allowed to
+ * run is refreshed in the same batch. Batches for an account are at least
+ * {@link Builder#setMinRefreshIntervalMillis(long)} apart, and failed refreshes are retried no
+ * sooner than that until the token expires.
+ */
+public final class AccessTokenRefreshScheduler {
+
+    private static final String TAG = AccessTokenRefreshScheduler.class.getSimpleName();
+
+    private static final long DEFAULT_MIN_REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ScheduledExecutorService mExecutor;
+    private final IAccessTokenRefresher mRefresher;
+    private final IClock mClock;
+    private final long mRefreshWindowMillis;
+    private final long mMinRefreshIntervalMillis;
+
+    /**
+     * Refresh state of every tracked account, keyed by account. Guarded by this.
+     */
+    private final Map<String, AccountState> mAccounts = new HashMap<>();
+
+    private final AtomicLong mRefreshCount = new AtomicLong();
+    private final AtomicLong mFailedRefreshCount = new AtomicLong();
+
+    private AccessTokenRefreshScheduler(@NonNull final Builder builder) {
+        mExecutor = null != builder.mExecutor
+                ? builder.mExecutor
+                : Executors.newSingleThreadScheduledExecutor();
+        mRefresher = builder.mRefresher;
+        mClock = builder.mClock;
+        mRefreshWindowMillis = builder.mRefreshWindowMillis;
+        mMinRefreshIntervalMillis = builder.mMinRefreshIntervalMillis;
+    }
+
+    /**
+     * Tracks an access token, replacing any token previously tracked for the same account, client,
+     * realm and scopes.
+     *
+     * @param parameters  The silent request the token was acquired for; passed back to the
+     *                    {@link IAccessTokenRefresher} when the token is due.
+     * @param accessToken The cached access token.
+     */
+    public void track(@NonNull final AcquireTokenSilentOperationParameters parameters,
+                      @NonNull final AccessTokenRecord accessToken) {
+        final long expiresOnMillis = parseEpochMillis(accessToken.getExpiresOn());
+
+        if (expiresOnMillis > 0) {
+            track(new TrackedToken(parameters, accessToken, expiresOnMillis - mRefreshWindowMillis, expiresOnMillis));
+        }
+    }
+
+    /**
+     * Tracks an access token which was served past its expiry, within its extended lifetime,
+     * because it could not be refreshed. It is refreshed as soon as the rate limit allows, and
+     * dropped once its extended lifetime has passed.
+     *
+     * @param parameters  The silent request the token was served for.
+     * @param accessToken The stale access token.
+     */
+    public void trackStale(@NonNull final AcquireTokenSilentOperationParameters parameters,
+                           @NonNull final AccessTokenRecord accessToken) {
+        final long extendedExpiresOnMillis = parseEpochMillis(accessToken.getExtendedExpiresOn());
+
+        if (extendedExpiresOnMillis > 0) {
+            track(new TrackedToken(parameters, accessToken, Long.MIN_VALUE, extendedExpiresOnMillis));
+        }
+    }
+
+    private void track(@NonNull final TrackedToken token) {
+        final String methodName = ":track";
+        final IAccountRecord account = token.mParameters.getAccount();
+
+        if (null == account) {
+            Logger.verbose(
+                    TAG + methodName,
+                    "Access token cannot be tracked without an account."
+            );
+            return;
+        }
+
+        final String accountKey = getAccountKey(account);
+        final String tokenKey = getTokenKey(token.mParameters.getClientId(), token.mAccessToken);
+
+        synchronized (this) {
+            AccountState state = mAccounts.get(accountKey);
+
+            if (null == state) {
+                state = new AccountState();
+                mAccounts.put(accountKey, state);
+            }
+
+            state.mTokens.put(tokenKey, token);
+            scheduleLocked(accountKey, state);
+        }
+    }
+
+    /**
+     * Stops tracking the tokens of an account, e.g. after it was removed.
+     *
+     * @param account The account.
+     */
+    public void untrack(@NonNull final IAccountRecord account) {
+        synchronized (this) {
+            final AccountState state = mAccounts.remove(getAccountKey(account));
+
+            if (null != state && null != state.mScheduledRefresh) {
+                state.mScheduledRefresh.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Stops tracking all tokens and shuts down the executor.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            for (final AccountState state : mAccounts.values()) {
+                if (null != state.mScheduledRefresh) {
+                    state.mScheduledRefresh.cancel(false);
+                }
+            }
+
+            mAccounts.clear();
+        }
+
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * @return The number of access tokens currently tracked.
+     */
+    public synchronized int getTrackedTokenCount() {
+        int count = 0;
+
+        for (final AccountState state : mAccounts.values()) {
+            count += state.mTokens.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * @return The number of background refreshes which renewed a token.
+     */
+    public long getRefreshCount() {
+        return mRefreshCount.get();
+    }
+
+    /**
+     * @return The number of background refreshes which failed.
+     */
+    public long getFailedRefreshCount() {
+        return mFailedRefreshCount.get();
+    }
+
+    /**
+     * Schedules the next batch of an account for when its earliest token enters the refresh
+     * window, no sooner than the minimum interval after the previous batch.
+     */
+    private void scheduleLocked(@NonNull final String accountKey, @NonNull final AccountState state) {
+        final String methodName = ":scheduleLocked";
+
+        if (state.mTokens.isEmpty()) {
+            if (null != state.mScheduledRefresh) {
+                state.mScheduledRefresh.cancel(false);
+                state.mScheduledRefresh = null;
+            }
+
+            if (!state.mRefreshing) {
+                // Keep the state of a running batch, so re-tracked tokens honour its rate limit
+                mAccounts.remove(accountKey);
+            }
+
+            return;
+        }
+
+        final long now = mClock.currentTimeMillis();
+        long refreshAtMillis = Long.MAX_VALUE;
+
+        for (final TrackedToken token : state.mTokens.values()) {
+            refreshAtMillis = Math.min(refreshAtMillis, token.mRefreshAtMillis);
+        }
+
+        refreshAtMillis = Math.max(refreshAtMillis, state.mLastRefreshMillis + mMinRefreshIntervalMillis);
+        refreshAtMillis = Math.max(refreshAtMillis, now);
+
+        if (null != state.mScheduledRefresh) {
+            if (state.mScheduledRefreshAtMillis <= refreshAtMillis) {
+                return;
+            }
+
+            state.mScheduledRefresh.cancel(false);
+        }
+
+        try {
+            state.mScheduledRefresh = mExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    refreshAccount(accountKey);
+                }
+            }, refreshAtMillis - now, TimeUnit.MILLISECONDS);
+            state.mScheduledRefreshAtMillis = refreshAtMillis;
+        } catch (final RejectedExecutionException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Background refresh could not be scheduled."
+            );
+            state.mScheduledRefresh = null;
+        }
+    }
+
+    private void refreshAccount(@NonNull final String accountKey) {
+        final String methodName = ":refreshAccount";
+        final List<TrackedToken> dueTokens = new ArrayList<>();
+        final AccountState state;
+
+        synchronized (this) {
+            state = mAccounts.get(accountKey);
+
+            if (null == state) {
+                return;
+            }
+
+            state.mScheduledRefresh = null;
+            final long now = mClock.currentTimeMillis();
+            final Iterator<TrackedToken> tokens = state.mTokens.values().iterator();
+
+            while (tokens.hasNext()) {
+                final TrackedToken token = tokens.next();
+
+                if (token.mExpiresOnMillis <= now) {
+                    // Already expired: the next silent request refreshes it in the foreground
+                    tokens.remove();
+                } else if (token.mRefreshAtMillis <= now + mMinRefreshIntervalMillis) {
+                    // Due now, or before the next batch of this account would be allowed to run
+                    dueTokens.add(token);
+                    tokens.remove();
+                }
+            }
+
+            if (!dueTokens.isEmpty()) {
+                state.mLastRefreshMillis = now;
+                state.mRefreshing = true;
+            }
+
+            scheduleLocked(accountKey, state);
+        }
+
+        if (dueTokens.isEmpty()) {
+            return;
+        }
+
+        Logger.verbose(
+                TAG + methodName,
+                "Refreshing " + dueTokens.size() + " access token(s) in the background."
+        );
+
+        for (final TrackedToken token : dueTokens) {
+            AccessTokenRecord renewedToken = null;
+
+            boolean failed = false;
+
+            try {
+                renewedToken = mRefresher.refresh(token.mParameters);
+                mRefreshCount.incrementAndGet();
+            } catch (final IOException | BaseException | RuntimeException e) {
+                mFailedRefreshCount.incrementAndGet();
+                Logger.warn(
+                        TAG + methodName,
+                        "Background refresh failed: " + e.getClass().getSimpleName()
+                );
+                failed = true;
+            }
+
+            synchronized (this) {
+                if (state != mAccounts.get(accountKey)) {
+                    // Untracked while the batch was running
+                    return;
+                }
+            }
+
+            if (failed) {
+                // Keep the current token; it is retried after the minimum interval
+                track(token);
+            } else if (null != renewedToken) {
+                track(token.mParameters, renewedToken);
+            }
+        }
+
+        synchronized (this) {
+            state.mRefreshing = false;
+
+            if (state == mAccounts.get(accountKey)) {
+                scheduleLocked(accountKey, state);
+            }
+        }
+    }
+
+    private static long parseEpochMillis(final String epochSeconds) {
+        final String methodName = ":parseEpochMillis";
+
+        if (null == epochSeconds) {
+            return -1;
+        }
+
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(epochSeconds));
+        } catch (final NumberFormatException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Access token has a malformed expiry and cannot be tracked."
+            );
+            return -1;
+        }
+    }
+
+    private static String getAccountKey(@NonNull final IAccountRecord account) {
+        return account.getHomeAccountId() + "|" + account.getEnvironment();
+    }
+
+    private static String getTokenKey(final String clientId, @NonNull final AccessTokenRecord accessToken) {
+        return clientId + "|" + accessToken.getRealm() + "|" + accessToken.getTarget();
+    }
+
+    /**
+     * Tracked tokens of one account and the state of its batches.
+     */
+    private static final class AccountState {
+
+        private final Map<String, TrackedToken> mTokens = new HashMap<>();
+        private ScheduledFuture<?> mScheduledRefresh;
+        private long mScheduledRefreshAtMillis;
+        private long mLastRefreshMillis = Long.MIN_VALUE / 2;
+        private boolean mRefreshing;
+    }
+
+    private static final class TrackedToken {
+
+        private final AcquireTokenSilentOperationParameters mParameters;
+        private final AccessTokenRecord mAccessToken;
+
+        /**
+         * When the token becomes due for a refresh.
+         */
+        private final long mRefreshAtMillis;
+
+        /**
+         * When the token can no longer be used and is dropped.
+         */
+        private final long mExpiresOnMillis;
+
+        TrackedToken(@NonNull final AcquireTokenSilentOperationParameters parameters,
+                     @NonNull final AccessTokenRecord accessToken,
+                     final long refreshAtMillis,
+                     final long expiresOnMillis) {
+            mParameters = parameters;
+            mAccessToken = accessToken;
+            mRefreshAtMillis = refreshAtMillis;
+            mExpiresOnMillis = expiresOnMillis;
+        }
+    }
+
+    /**
+     * Builder for {@link AccessTokenRefreshScheduler}.
+     */
+    public static final class Builder {
+
+        private final IAccessTokenRefresher mRefresher;
+        private ScheduledExecutorService mExecutor;
+        private IClock mClock = IClock.SYSTEM;
+        private long mRefreshWindowMillis =
+                TimeUnit.SECONDS.toMillis(AuthenticationSettings.INSTANCE.getExpirationBuffer());
+        private long mMinRefreshIntervalMillis = DEFAULT_MIN_REFRESH_INTERVAL_MILLIS;
+
+        /**
+         * Constructor of Builder.
+         *
+         * @param refresher Renews the tracked access tokens.
+         */
+        public Builder(@NonNull final IAccessTokenRefresher refresher) {
+            mRefresher = refresher;
+        }
+
+        /**
+         * Sets the executor on which refreshes run. Defaults to a single background thread, which
+         * also bounds the number of concurrent refreshes to one.
+         *
+         * @param executor The executor.
+         * @return This builder.
+         */
+        public Builder setExecutor(@NonNull final ScheduledExecutorService executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Sets how long before expiry a token is refreshed. Defaults to the expiration buffer of
+         * {@link AuthenticationSettings}.
+         *
+         * @param refreshWindowMillis The refresh window.
+         * @return This builder.
+         */
+        public Builder setRefreshWindowMillis(final long refreshWindowMillis) {
+            mRefreshWindowMillis = refreshWindowMillis;
+            return this;
+        }
+
+        /**
+         * Sets the minimum time between two refresh batches of the same account. Defaults to one
+         * minute.
+         *
+         * @param minRefreshIntervalMillis The minimum interval.
+         * @return This builder.
+         */
+        public Builder setMinRefreshIntervalMillis(final long minRefreshIntervalMillis) {
+            mMinRefreshIntervalMillis = minRefreshIntervalMillis;
+            return this;
+        }
+
+        @VisibleForTesting
+        public Builder setClock(@NonNull final IClock clock) {
+            mClock = clock;
+            return this;
+        }
+
+        public AccessTokenRefreshScheduler build() {
+            return new AccessTokenRefreshScheduler(this);
+        }
+    }
+}
@@ -22,31 +22,215 @@
 //  THE SOFTWARE.
 package com.microsoft.identity.common.internal.controllers;
 
+import android.content.Context;
 import android.content.Intent;
 import android.os.Handler;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Pair;
 
 import com.microsoft.identity.common.exception.BaseException;
+import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.exception.UserCancelException;
+import com.microsoft.identity.common.internal.authorities.AzureActiveDirectoryAuthority;
 import com.microsoft.identity.common.internal.logging.DiagnosticContext;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.Counter;
+import com.microsoft.identity.common.internal.metrics.IGauge;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectory;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.OpenIDProviderConfigurationClient;
 import com.microsoft.identity.common.internal.request.AcquireTokenOperationParameters;
 import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
+import com.microsoft.identity.common.internal.request.OperationParameters;
 import com.microsoft.identity.common.internal.result.AcquireTokenResult;
 import com.microsoft.identity.common.internal.result.ILocalAuthenticationResult;
 
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 public class ApiDispatcher {
 
     private static final String TAG = ApiDispatcher.class.getSimpleName();
 
-    private static final ExecutorService sInteractiveExecutor = Executors.newSingleThreadExecutor();
-    private static final ExecutorService sSilentExecutor = Executors.newCachedThreadPool();
+    private static final String INTERACTIVE_EXECUTOR_NAME = "ApiDispatcher-interactive";
+    private static final String SILENT_EXECUTOR_NAME = "ApiDispatcher-silent";
+
+    /**
+     * Interactive requests run one at a time, with up to 16 more waiting.
+     */
+    private static final ExecutorPolicy DEFAULT_INTERACTIVE_POLICY = new ExecutorPolicy.Builder()
+            .setCorePoolSize(1)
+            .setMaximumPoolSize(1)
+            .setQueueCapacity(16)
+            .build();
+
+    /**
+     * Silent requests run 4 at a time; up to 4 more threads are started once 64 requests are waiting.
+     */
+    private static final ExecutorPolicy DEFAULT_SILENT_POLICY = new ExecutorPolicy.Builder()
+            .setCorePoolSize(4)
+            .setMaximumPoolSize(8)
+            .setQueueCapacity(64)
+            .build();
+
     private static final Object sLock = new Object();
     private static InteractiveTokenCommand sCommand = null;
+    private static volatile InstrumentedExecutor sInteractiveExecutor =
+            InstrumentedExecutor.create(INTERACTIVE_EXECUTOR_NAME, DEFAULT_INTERACTIVE_POLICY);
+    private static volatile InstrumentedExecutor sSilentExecutor =
+            InstrumentedExecutor.create(SILENT_EXECUTOR_NAME, DEFAULT_SILENT_POLICY);
+    private static volatile Handler sMainThreadHandler;
+
+    /**
+     * Silent requests answered from the cache, and those which had to go to the network or failed.
+     */
+    private static final Counter SILENT_CACHE_HIT_COUNTER = MetricsRegistry.counter("silent_request.cache_hit");
+    private static final Counter SILENT_CACHE_MISS_COUNTER = MetricsRegistry.counter("silent_request.cache_miss");
+    private static final Counter REJECTED_COUNTER = MetricsRegistry.counter("dispatcher.rejected");
+
+    static {
+        MetricsRegistry.registerGauge("dispatcher.interactive.queue_depth", new IGauge() {
+            @Override
+            public long getValue() {
+                return sInteractiveExecutor.getMetrics().getQueueDepth();
+            }
+        });
+        MetricsRegistry.registerGauge("dispatcher.interactive.active", new IGauge() {
+            @Override
+            public long getValue() {
+                return sInteractiveExecutor.getMetrics().getActiveCount();
+            }
+        });
+        MetricsRegistry.registerGauge("dispatcher.silent.queue_depth", new IGauge() {
+            @Override
+            public long getValue() {
+                return sSilentExecutor.getMetrics().getQueueDepth();
+            }
+        });
+        MetricsRegistry.registerGauge("dispatcher.silent.active", new IGauge() {
+            @Override
+            public long getValue() {
+                return sSilentExecutor.getMetrics().getActiveCount();
+            }
+        });
+    }
+
+    /**
+     * Replaces the pool running interactive requests with a bounded pool built from the given
+     * policy. Requests already accepted by the previous pool still run.
+     *
+     * @param policy The pool configuration.
+     */
+    public static void setInteractiveExecutorPolicy(@NonNull final ExecutorPolicy policy) {
+        replaceInteractiveExecutor(InstrumentedExecutor.create(INTERACTIVE_EXECUTOR_NAME, policy));
+    }
+
+    /**
+     * Runs interactive requests on the given executor, which should run them one at a time.
+     *
+     * @param executor The executor, or null to restore the default pool.
+     */
+    public static void setInteractiveExecutor(@Nullable final Executor executor) {
+        replaceInteractiveExecutor(null == executor
+                ? InstrumentedExecutor.create(INTERACTIVE_EXECUTOR_NAME, DEFAULT_INTERACTIVE_POLICY)
+                : new InstrumentedExecutor(INTERACTIVE_EXECUTOR_NAME, executor)
+        );
+    }
+
+    /**
+     * Replaces the pool running silent requests with a bounded pool built from the given policy.
+     * Requests already accepted by the previous pool still run.
+     *
+     * @param policy The pool configuration.
+     */
+    public static void setSilentExecutorPolicy(@NonNull final ExecutorPolicy policy) {
+        replaceSilentExecutor(InstrumentedExecutor.create(SILENT_EXECUTOR_NAME, policy));
+    }
+
+    /**
+     * Runs silent requests on the given executor.
+     *
+     * @param executor The executor, or null to restore the default pool.
+     */
+    public static void setSilentExecutor(@Nullable final Executor executor) {
+        replaceSilentExecutor(null == executor
+                ? InstrumentedExecutor.create(SILENT_EXECUTOR_NAME, DEFAULT_SILENT_POLICY)
+                : new InstrumentedExecutor(SILENT_EXECUTOR_NAME, executor)
+        );
+    }
+
+    /**
+     * @return A snapshot of the queue depth, active count and latency of interactive requests.
+     */
+    public static ExecutorMetrics getInteractiveExecutorMetrics() {
+        return sInteractiveExecutor.getMetrics();
+    }
+
+    /**
+     * @return A snapshot of the queue depth, active count and latency of silent requests.
+     */
+    public static ExecutorMetrics getSilentExecutorMetrics() {
+        return sSilentExecutor.getMetrics();
+    }
+
+    private static void replaceInteractiveExecutor(@NonNull final InstrumentedExecutor executor) {
+        final InstrumentedExecutor previous;
+
+        synchronized (sLock) {
+            previous = sInteractiveExecutor;
+            sInteractiveExecutor = executor;
+        }
+
+        previous.shutdown();
+    }
+
+    private static void replaceSilentExecutor(@NonNull final InstrumentedExecutor executor) {
+        final InstrumentedExecutor previous;
+
+        synchronized (sLock) {
+            previous = sSilentExecutor;
+            sSilentExecutor = executor;
+        }
+
+        previous.shutdown();
+    }
+
+    /**
+     * Hands a request to the current interactive or silent executor. The executor is read under
+     * the lock, but the request is submitted outside it so that no submit waits on another one or
+     * on an executor being replaced. A request rejected by an executor which was replaced and shut
+     * down in the meantime is handed to its replacement.
+     *
+     * @param interactive True to run the request on the interactive executor, false for silent.
+     * @param request     The request.
+     * @throws RejectedExecutionException if the current executor is saturated.
+     */
+    private static void execute(final boolean interactive, @NonNull final Runnable request) {
+        InstrumentedExecutor executor = getExecutor(interactive);
+
+        while (true) {
+            try {
+                executor.execute(request);
+                return;
+            } catch (final RejectedExecutionException e) {
+                final InstrumentedExecutor current = getExecutor(interactive);
+                if (current == executor) {
+                    throw e;
+                }
+
+                executor = current;
+            }
+        }
+    }
+
+    private static InstrumentedExecutor getExecutor(final boolean interactive) {
+        synchronized (sLock) {
+            return interactive ? sInteractiveExecutor : sSilentExecutor;
+        }
+    }
 
     public static void beginInteractive(final InteractiveTokenCommand command) {
         final String methodName = ":beginInteractive";
@@ -54,11 +238,14 @@ public class ApiDispatcher {
                 TAG + methodName,
                 "Beginning interactive request"
         );
-        synchronized (sLock) {
-            sInteractiveExecutor.execute(new Runnable() {
+        try {
+            execute(true, new Runnable() {
                 @Override
                 public void run() {
                     initializeDiagnosticContext();
+                    AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(command.getContext());
+                    OpenIDProviderConfigurationClient.initializePersistentCache(command.getContext());
+                    prefetchOpenIDProviderConfiguration(command.mParameters);
 
                     if (command.mParameters instanceof AcquireTokenOperationParameters) {
                         logInteractiveRequestParameters(methodName, (AcquireTokenOperationParameters) command.mParameters);
@@ -85,62 +272,123 @@ public class ApiDispatcher {
                         }
                     }
 
-                    Handler handler = new Handler(command.getContext().getMainLooper());
-
-                    if (baseException != null) {
-                        //Post On Error
-                        final BaseException finalException = baseException;
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                command.getCallback().onError(finalException);
-                            }
-                        });
-                    } else {
-                        if (null != result && result.getSucceeded()) {
-                            //Post Success
-                            final ILocalAuthenticationResult authenticationResult = result.getLocalAuthenticationResult();
-                            handler.post(new Runnable() {
-                                @Override
-                                public void run() {
-                                    command.getCallback().onSuccess(authenticationResult);
-                                }
-                            });
-                        } else {
-                            //Get MsalException from Authorization and/or Token Error Response
-                            baseException = ExceptionAdapter.exceptionFromAcquireTokenResult(result);
-                            final BaseException finalException = baseException;
-                            if (finalException instanceof UserCancelException) {
-                                //Post Cancel
-                                handler.post(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        command.getCallback().onCancel();
-                                    }
-                                });
-                            } else {
-                                handler.post(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        command.getCallback().onError(finalException);
-                                    }
-                                });
-                            }
-                        }
-                    }
+                    postResult(command, result, baseException);
                 }
             });
+        } catch (final RejectedExecutionException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Interactive request rejected, too many requests are pending."
+            );
+            postRejection(command, e);
+        }
+    }
+
+    private static void postResult(@NonNull final TokenCommand command,
+                                   @Nullable final AcquireTokenResult result,
+                                   @Nullable BaseException baseException) {
+        final Handler handler = getMainThreadHandler(command.getContext());
+
+        if (baseException != null) {
+            //Post On Error
+            final BaseException finalException = baseException;
+            handler.post(DiagnosticContext.wrap(new Runnable() {
+                @Override
+                public void run() {
+                    command.getCallback().onError(finalException);
+                }
+            }));
+        } else {
+            if (null != result && result.getSucceeded()) {
+                //Post Success
+                final ILocalAuthenticationResult authenticationResult = result.getLocalAuthenticationResult();
+                handler.post(DiagnosticContext.wrap(new Runnable() {
+                    @Override
+                    public void run() {
+                        command.getCallback().onSuccess(authenticationResult);
+                    }
+                }));
+            } else {
+                //Get MsalException from Authorization and/or Token Error Response
+                baseException = ExceptionAdapter.exceptionFromAcquireTokenResult(result);
+                final BaseException finalException = baseException;
+                if (finalException instanceof UserCancelException) {
+                    //Post Cancel
+                    handler.post(DiagnosticContext.wrap(new Runnable() {
+                        @Override
+                        public void run() {
+                            command.getCallback().onCancel();
+                        }
+                    }));
+                } else {
+                    handler.post(DiagnosticContext.wrap(new Runnable() {
+                        @Override
+                        public void run() {
+                            command.getCallback().onError(finalException);
+                        }
+                    }));
+                }
+            }
+        }
+    }
+
+    /**
+     * A successful silent request without a token response was answered from the cache.
+     */
+    private static void recordSilentResult(@Nullable final AcquireTokenResult result) {
+        if (null != result && result.getSucceeded() && null == result.getTokenResult()) {
+            SILENT_CACHE_HIT_COUNTER.increment();
+        } else {
+            SILENT_CACHE_MISS_COUNTER.increment();
+        }
+    }
+
+    private static void postRejection(@NonNull final TokenCommand command,
+                                      @NonNull final RejectedExecutionException rejection) {
+        REJECTED_COUNTER.increment();
+        postResult(
+                command,
+                null,
+                new ClientException(
+                        ClientException.REQUEST_REJECTED,
+                        "Too many requests are pending, try again later.",
+                        rejection
+                )
+        );
+    }
+
+    /**
+     * Every context of the process shares the main looper, so a single handler serves all requests.
+     */
+    private static Handler getMainThreadHandler(@NonNull final Context context) {
+        Handler handler = sMainThreadHandler;
+
+        if (null == handler) {
+            handler = new Handler(context.getMainLooper());
+            sMainThreadHandler = handler;
+        }
+
+        return handler;
+    }
+
+    /**
+     * Starts fetching the OpenID configuration of the request's authority in the background, so
+     * that the strategy created for this or a later request resolves its endpoints from the cache.
+     */
+    private static void prefetchOpenIDProviderConfiguration(@Nullable final OperationParameters parameters) {
+        if (null != parameters && parameters.getAuthority() instanceof AzureActiveDirectoryAuthority) {
+            MicrosoftStsOAuth2Strategy.prefetchOpenIDProviderConfiguration(
+                    parameters.getAuthority().getAuthorityURL()
+            );
         }
     }
 
     private static void logInteractiveRequestParameters(final String methodName,
                                                         final AcquireTokenOperationParameters params) {
-        Logger.verbose(
-                TAG + methodName,
-                "Requested "
-                        + params.getScopes().size()
-                        + " scopes"
-        );
+        Logger.event(TAG + methodName, Logger.LogLevel.VERBOSE, "interactive_request_started")
+                .field("scope_count", params.getScopes().size())
+                .field("authorization_agent", params.getAuthorizationAgent())
+                .log();
 
         Logger.verbosePII(
                 TAG + methodName,
@@ -195,11 +443,6 @@ public class ApiDispatcher {
             }
         }
 
-        Logger.verbose(
-                TAG + methodName,
-                "Using authorization agent: " + params.getAuthorizationAgent().toString()
-        );
-
         if (null != params.getAccount()) {
             Logger.verbosePII(
                     TAG + methodName,
@@ -237,10 +480,10 @@ public class ApiDispatcher {
             );
         }
 
-        Logger.verbose(
-                TAG + methodName,
-                "Force refresh? [" + parameters.getForceRefresh() + "]"
-        );
+        Logger.event(TAG + methodName, Logger.LogLevel.VERBOSE, "silent_request_started")
+                .field("scope_count", parameters.getScopes().size())
+                .field("force_refresh", parameters.getForceRefresh())
+                .log();
     }
 
     public static void completeInteractive(int requestCode, int resultCode, final Intent data) {
@@ -253,80 +496,51 @@ public class ApiDispatcher {
                 TAG + methodName,
                 "Beginning silent request"
         );
-        sSilentExecutor.execute(new Runnable() {
-            @Override
-            public void run() {
-                initializeDiagnosticContext();
 
-                if (command.mParameters instanceof AcquireTokenSilentOperationParameters) {
-                    logSilentRequestParams(methodName, (AcquireTokenSilentOperationParameters) command.mParameters);
-                }
+        try {
+            execute(false, new Runnable() {
+                @Override
+                public void run() {
+                    initializeDiagnosticContext();
+                    AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(command.getContext());
+                    OpenIDProviderConfigurationClient.initializePersistentCache(command.getContext());
+                    prefetchOpenIDProviderConfiguration(command.mParameters);
 
-                AcquireTokenResult result = null;
-                BaseException baseException = null;
-
-                try {
-                    //Try executing request
-                    result = command.execute();
-                } catch (Exception e) {
-                    //Capture any resulting exception and map to MsalException type
-                    Logger.errorPII(
-                            TAG + methodName,
-                            "Silent request failed with Exception",
-                            e
-                    );
-                    if (e instanceof BaseException) {
-                        baseException = (BaseException) e;
-                    } else {
-                        baseException = ExceptionAdapter.baseExceptionFromException(e);
+                    if (command.mParameters instanceof AcquireTokenSilentOperationParameters) {
+                        logSilentRequestParams(methodName, (AcquireTokenSilentOperationParameters) command.mParameters);
                     }
-                }
 
-                Handler handler = new Handler(command.getContext().getMainLooper());
+                    AcquireTokenResult result = null;
+                    BaseException baseException = null;
 
-                if (baseException != null) {
-                    //Post On Error
-                    final BaseException finalException = baseException;
-                    handler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            command.getCallback().onError(finalException);
-                        }
-                    });
-                } else {
-                    if (null != result && result.getSucceeded()) {
-                        //Post Success
-                        final ILocalAuthenticationResult authenticationResult = result.getLocalAuthenticationResult();
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                command.getCallback().onSuccess(authenticationResult);
-                            }
-                        });
-                    } else {
-                        //Get MsalException from Authorization and/or Token Error Response
-                        baseException = ExceptionAdapter.exceptionFromAcquireTokenResult(result);
-                        final BaseException finalException = baseException;
-                        if (finalException instanceof UserCancelException) {
-                            //Post Cancel
-                            handler.post(new Runnable() {
-                                @Override
-                                public void run() {
-                                    command.getCallback().onCancel();
-                                }
-                            });
+                    try {
+                        //Try executing request
+                        result = command.execute();
+                    } catch (Exception e) {
+                        //Capture any resulting exception and map to MsalException type
+                        Logger.errorPII(
+                                TAG + methodName,
+                                "Silent request failed with Exception",
+                                e
+                        );
+                        if (e instanceof BaseException) {
+                            baseException = (BaseException) e;
                         } else {
-                            handler.post(new Runnable() {
-                                @Override
-                                public void run() {
-                                    command.getCallback().onError(finalException);
-                                }
-                            });
+                            baseException = ExceptionAdapter.baseExceptionFromException(e);
                         }
                     }
+
+                    recordSilentResult(result);
+                    postResult(command, result, baseException);
                 }
-            }
-        });
+            });
+        } catch (final RejectedExecutionException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Silent request rejected, too many requests are pending."
+            );
+            postRejection(command, e);
+        }
     }
 
     public static String initializeDiagnosticContext() {
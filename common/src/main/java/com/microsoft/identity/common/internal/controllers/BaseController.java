@@ -27,13 +27,21 @@ import android.content.Intent;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.microsoft.identity.common.exception.ArgumentException;
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.exception.UiRequiredException;
+import com.microsoft.identity.common.internal.authorities.Authority;
 import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.IAccountRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
 import com.microsoft.identity.common.internal.logging.DiagnosticContext;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.Counter;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+import com.microsoft.identity.common.internal.net.CircuitBreakerOpenException;
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationResponse;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
@@ -45,19 +53,56 @@ import com.microsoft.identity.common.internal.request.AcquireTokenOperationParam
 import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
 import com.microsoft.identity.common.internal.request.OperationParameters;
 import com.microsoft.identity.common.internal.result.AcquireTokenResult;
+import com.microsoft.identity.common.internal.result.LocalAuthenticationResult;
+import com.microsoft.identity.common.internal.tracing.Span;
+import com.microsoft.identity.common.internal.tracing.Tracer;
 import com.microsoft.identity.common.internal.util.StringUtil;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.UnknownServiceException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 public abstract class BaseController {
 
     private static final String TAG = BaseController.class.getSimpleName();
 
+    /**
+     * Refresh token grants currently in flight, keyed by the client, account and scopes they
+     * were requested for.
+     */
+    private static final ConcurrentMap<RefreshTokenRequestKey, FutureTask<RenewedTokens>> sInFlightRefreshRequests =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Number of silent requests which joined an in-flight refresh token grant.
+     */
+    private static final Counter COALESCED_REFRESH_COUNTER =
+            MetricsRegistry.counter("token.refresh_grant.coalesced");
+
+    /**
+     * Number of refresh token grants sent to the token endpoint.
+     */
+    private static final Counter REFRESH_GRANT_COUNTER = MetricsRegistry.counter("token.refresh_grant.count");
+
+    /**
+     * Scheduler which renews stale access tokens in the background, if any.
+     */
+    private static volatile AccessTokenRefreshScheduler sAccessTokenRefreshScheduler;
+
     public abstract AcquireTokenResult acquireToken(AcquireTokenOperationParameters request) throws ExecutionException, InterruptedException, ClientException, IOException, ArgumentException;
 
     public abstract void completeAcquireToken(int requestCode, int resultCode, final Intent data);
@@ -87,11 +132,7 @@ public abstract class BaseController {
                                                          @NonNull final OperationParameters parameters) {
         AuthorizationRequest.Builder builder = strategy.createAuthorizationRequestBuilder(parameters.getAccount());
 
-        List<String> msalScopes = new ArrayList<>();
-        msalScopes.add("openid");
-        msalScopes.add("profile");
-        msalScopes.add("offline_access");
-        msalScopes.addAll(parameters.getScopes());
+        List<String> msalScopes = getMsalScopes(parameters);
 
         UUID correlationId = null;
 
@@ -139,11 +180,259 @@ public abstract class BaseController {
         TokenRequest tokenRequest = strategy.createTokenRequest(request, response);
         tokenRequest.setGrantType(TokenRequest.GrantTypes.AUTHORIZATION_CODE);
 
-        TokenResult tokenResult = null;
+        final Span span = Tracer.startSpan("BaseController.performTokenRequest");
+        try {
+            return strategy.requestToken(tokenRequest);
+        } catch (final IOException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Gets the number of silent requests which joined an in-flight refresh token grant instead of
+     * redeeming the refresh token themselves.
+     *
+     * @return The coalesced request count.
+     */
+    public static long getCoalescedRefreshTokenRequestCount() {
+        return COALESCED_REFRESH_COUNTER.get();
+    }
+
+    /**
+     * Sets the scheduler used to renew access tokens in the background after a stale access token
+     * was served in extended expiry resilience mode.
+     *
+     * @param scheduler The scheduler, or null for none.
+     */
+    public static void setAccessTokenRefreshScheduler(@Nullable final AccessTokenRefreshScheduler scheduler) {
+        sAccessTokenRefreshScheduler = scheduler;
+    }
+
+    protected TokenResult performSilentTokenRequest(@NonNull final OAuth2Strategy strategy,
+                                                    @NonNull final RefreshTokenRecord refreshToken,
+                                                    @NonNull final AcquireTokenSilentOperationParameters parameters)
+            throws ClientException, IOException {
+        final String methodName = ":performSilentTokenRequest";
+        Logger.verbose(
+                TAG + methodName,
+                "Requesting tokens with refresh token..."
+        );
+        throwIfNetworkNotAvailable(parameters.getAppContext());
+
+        final List<String> msalScopes = getMsalScopes(parameters);
+        msalScopes.removeAll(Arrays.asList("", null));
+
+        final TokenRequest refreshTokenRequest = strategy.createRefreshTokenRequest();
+        refreshTokenRequest.setClientId(parameters.getClientId());
+        refreshTokenRequest.setScope(StringUtil.join(' ', msalScopes));
+        refreshTokenRequest.setRefreshToken(refreshToken.getSecret());
+
+        REFRESH_GRANT_COUNTER.increment();
+        return strategy.requestToken(refreshTokenRequest);
+    }
+
+    /**
+     * Redeems the cached refresh token and saves the result. Concurrent silent requests for the
+     * same client, account and scopes share a single refresh token grant: only the first caller
+     * hits the network and saves the tokens, the rest wait for and observe its outcome.
+     * <p>
+     * If the request opted in to {@link AcquireTokenSilentOperationParameters#setExtendedExpiryResilienceEnabled(boolean)}
+     * and the service is unavailable, the cached access token is served instead as long as it is
+     * within its extended lifetime.
+     *
+     * @param parameters               The silent request.
+     * @param acquireTokenSilentResult Receives the token result and, on success, the saved tokens.
+     * @param tokenCache               The cache to save the tokens to.
+     * @param strategy                 The strategy used to redeem the refresh token.
+     * @param cacheRecord              The cache record holding the refresh token.
+     * @throws IOException     If the refresh token grant fails.
+     * @throws ClientException If the network is unavailable or the tokens cannot be saved.
+     */
+    protected void renewAccessToken(@NonNull final AcquireTokenSilentOperationParameters parameters,
+                                    @NonNull final AcquireTokenResult acquireTokenSilentResult,
+                                    @NonNull final OAuth2TokenCache tokenCache,
+                                    @NonNull final OAuth2Strategy strategy,
+                                    @NonNull final ICacheRecord cacheRecord) throws IOException, ClientException {
+        final String methodName = ":renewAccessToken";
+        final FutureTask<RenewedTokens> renewTask = new FutureTask<>(new Callable<RenewedTokens>() {
+            @Override
+            public RenewedTokens call() throws IOException, ClientException {
+                return redeemRefreshToken(parameters, tokenCache, strategy, cacheRecord);
+            }
+        });
+
+        final RefreshTokenRequestKey key = RefreshTokenRequestKey.create(parameters);
+        final FutureTask<RenewedTokens> inFlightTask = null == key
+                ? null
+                : sInFlightRefreshRequests.putIfAbsent(key, renewTask);
+
+        if (null == inFlightTask) {
+            try {
+                renewTask.run();
+            } finally {
+                if (null != key) {
+                    sInFlightRefreshRequests.remove(key, renewTask);
+                }
+            }
+        } else {
+            COALESCED_REFRESH_COUNTER.increment();
+            Logger.verbose(
+                    TAG + methodName,
+                    "Joining in-flight refresh token request."
+            );
+        }
+
+        final RenewedTokens renewedTokens;
+
+        try {
+            renewedTokens = awaitRenewedTokens(null == inFlightTask ? renewTask : inFlightTask);
+        } catch (final IOException e) {
+            if (isServiceUnavailable(e)
+                    && serveStaleAccessToken(parameters, acquireTokenSilentResult, cacheRecord)) {
+                return;
+            }
+
+            throw e;
+        }
+
+        if (!renewedTokens.mTokenResult.getSuccess()
+                && isServerError(renewedTokens.mTokenResult.getStatusCode())
+                && serveStaleAccessToken(parameters, acquireTokenSilentResult, cacheRecord)) {
+            return;
+        }
+
+        acquireTokenSilentResult.setTokenResult(renewedTokens.mTokenResult);
+
+        if (null != renewedTokens.mCacheRecord) {
+            acquireTokenSilentResult.setLocalAuthenticationResult(
+                    new LocalAuthenticationResult(renewedTokens.mCacheRecord)
+            );
+        }
+    }
+
+    /**
+     * Serves the cached access token after the refresh failed because the service is unavailable,
+     * if the request opted in to the extended expiry resilience mode and the token is within its
+     * extended lifetime. A background refresh is scheduled for the served token.
+     *
+     * @return True if the cached access token was served.
+     */
+    private static boolean serveStaleAccessToken(@NonNull final AcquireTokenSilentOperationParameters parameters,
+                                                 @NonNull final AcquireTokenResult acquireTokenSilentResult,
+                                                 @NonNull final ICacheRecord cacheRecord) {
+        final String methodName = ":serveStaleAccessToken";
+        final AccessTokenRecord accessToken = cacheRecord.getAccessToken();
+
+        if (!parameters.getExtendedExpiryResilienceEnabled()
+                || null == accessToken
+                || accessToken.isExtendedExpired()) {
+            return false;
+        }
+
+        Logger.warn(
+                TAG + methodName,
+                "Service unavailable, serving the cached access token within its extended lifetime."
+        );
+        acquireTokenSilentResult.setLocalAuthenticationResult(
+                new LocalAuthenticationResult(cacheRecord, accessToken.isExpired())
+        );
+
+        final AccessTokenRefreshScheduler scheduler = sAccessTokenRefreshScheduler;
+
+        if (null != scheduler) {
+            scheduler.trackStale(parameters, accessToken);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return True if the failure indicates the service is unavailable: a server error which
+     * persisted through retries, a timeout or an open circuit.
+     */
+    private static boolean isServiceUnavailable(@NonNull final IOException failure) {
+        return failure instanceof UnknownServiceException
+                || failure instanceof SocketTimeoutException
+                || failure instanceof CircuitBreakerOpenException;
+    }
+
+    /**
+     * @return True if the token endpoint answered with a 5xx server error which was returned as an
+     * error response rather than thrown, e.g. 502.
+     */
+    private static boolean isServerError(final int statusCode) {
+        return statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR && statusCode < 600;
+    }
+
+    private RenewedTokens redeemRefreshToken(@NonNull final AcquireTokenSilentOperationParameters parameters,
+                                             @NonNull final OAuth2TokenCache tokenCache,
+                                             @NonNull final OAuth2Strategy strategy,
+                                             @NonNull final ICacheRecord cacheRecord) throws IOException, ClientException {
+        final TokenResult tokenResult = performSilentTokenRequest(
+                strategy,
+                cacheRecord.getRefreshToken(),
+                parameters
+        );
+
+        if (!tokenResult.getSuccess()) {
+            return new RenewedTokens(tokenResult, null);
+        }
+
+        final ICacheRecord savedRecord = saveTokens(
+                strategy,
+                getAuthorizationRequest(strategy, parameters),
+                tokenResult.getTokenResponse(),
+                tokenCache
+        );
+
+        return new RenewedTokens(tokenResult, savedRecord);
+    }
+
+    private static RenewedTokens awaitRenewedTokens(@NonNull final FutureTask<RenewedTokens> task)
+            throws IOException, ClientException {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the refresh token request.");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof ClientException) {
+                throw (ClientException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
 
-        tokenResult = strategy.requestToken(tokenRequest);
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
 
-        return tokenResult;
+            throw new ClientException(
+                    ClientException.UNKNOWN_ERROR,
+                    "Refresh token request failed.",
+                    cause
+            );
+        }
+    }
+
+    private static List<String> getMsalScopes(@NonNull final OperationParameters parameters) {
+        final List<String> msalScopes = new ArrayList<>();
+        msalScopes.add("openid");
+        msalScopes.add("profile");
+        msalScopes.add("offline_access");
+        msalScopes.addAll(parameters.getScopes());
+
+        return msalScopes;
     }
 
     protected ICacheRecord saveTokens(final OAuth2Strategy strategy,
@@ -166,4 +455,108 @@ public abstract class BaseController {
         return null == cacheRecord.getAccessToken();
     }
 
+    /**
+     * The outcome of a refresh token grant: the token result and, if it succeeded, the saved tokens.
+     */
+    private static final class RenewedTokens {
+
+        private final TokenResult mTokenResult;
+        private final ICacheRecord mCacheRecord;
+
+        RenewedTokens(@NonNull final TokenResult tokenResult, final ICacheRecord cacheRecord) {
+            mTokenResult = tokenResult;
+            mCacheRecord = cacheRecord;
+        }
+    }
+
+    /**
+     * Identifies refresh token grants which are interchangeable: same authority, client, account,
+     * environment, realm and (case-insensitive, unordered) scopes. The authority decides the tenant
+     * the token is issued for, which need not be the account's home realm.
+     */
+    private static final class RefreshTokenRequestKey {
+
+        private final String mAuthority;
+        private final String mClientId;
+        private final String mHomeAccountId;
+        private final String mEnvironment;
+        private final String mRealm;
+        private final Set<String> mScopes;
+
+        private RefreshTokenRequestKey(final String authority,
+                                       final String clientId,
+                                       final String homeAccountId,
+                                       final String environment,
+                                       final String realm,
+                                       final Set<String> scopes) {
+            mAuthority = authority;
+            mClientId = clientId;
+            mHomeAccountId = homeAccountId;
+            mEnvironment = environment;
+            mRealm = realm;
+            mScopes = scopes;
+        }
+
+        /**
+         * @return The key of the supplied request, or null if it has no account to key on.
+         */
+        static RefreshTokenRequestKey create(@NonNull final AcquireTokenSilentOperationParameters parameters) {
+            final IAccountRecord account = parameters.getAccount();
+
+            if (null == account) {
+                return null;
+            }
+
+            final Set<String> scopes = new TreeSet<>();
+
+            if (null != parameters.getScopes()) {
+                for (final String scope : parameters.getScopes()) {
+                    if (!StringUtil.isEmpty(scope)) {
+                        scopes.add(scope.trim().toLowerCase(Locale.US));
+                    }
+                }
+            }
+
+            final Authority authority = parameters.getAuthority();
+
+            return new RefreshTokenRequestKey(
+                    null == authority ? null : authority.getAuthorityURL().toString().toLowerCase(Locale.US),
+                    parameters.getClientId(),
+                    account.getHomeAccountId(),
+                    account.getEnvironment(),
+                    account.getRealm(),
+                    scopes
+            );
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof RefreshTokenRequestKey)) {
+                return false;
+            }
+
+            final RefreshTokenRequestKey other = (RefreshTokenRequestKey) o;
+
+            return equal(mAuthority, other.mAuthority)
+                    && equal(mClientId, other.mClientId)
+                    && equal(mHomeAccountId, other.mHomeAccountId)
+                    && equal(mEnvironment, other.mEnvironment)
+                    && equal(mRealm, other.mRealm)
+                    && mScopes.equals(other.mScopes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new Object[]{mAuthority, mClientId, mHomeAccountId, mEnvironment, mRealm, mScopes});
+        }
+
+        private static boolean equal(final String a, final String b) {
+            return null == a ? null == b : a.equals(b);
+        }
+    }
+
 }
@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time snapshot of the counters kept by an {@link InstrumentedExecutor}.
+ */
+public final class ExecutorMetrics {
+
+    private final String mName;
+    private final long mQueueDepth;
+    private final long mActiveCount;
+    private final long mSubmittedCount;
+    private final long mCompletedCount;
+    private final long mRejectedCount;
+    private final long mTotalQueueTimeNanos;
+    private final long mMaxQueueTimeNanos;
+    private final long mTotalRunTimeNanos;
+
+    ExecutorMetrics(final String name,
+                    final long queueDepth,
+                    final long activeCount,
+                    final long submittedCount,
+                    final long completedCount,
+                    final long rejectedCount,
+                    final long totalQueueTimeNanos,
+                    final long maxQueueTimeNanos,
+                    final long totalRunTimeNanos) {
+        mName = name;
+        mQueueDepth = queueDepth;
+        mActiveCount = activeCount;
+        mSubmittedCount = submittedCount;
+        mCompletedCount = completedCount;
+        mRejectedCount = rejectedCount;
+        mTotalQueueTimeNanos = totalQueueTimeNanos;
+        mMaxQueueTimeNanos = maxQueueTimeNanos;
+        mTotalRunTimeNanos = totalRunTimeNanos;
+    }
+
+    /**
+     * @return The name of the executor, also used as the prefix of its thread names.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return The number of accepted tasks which have not started yet.
+     */
+    public long getQueueDepth() {
+        return mQueueDepth;
+    }
+
+    /**
+     * @return The number of tasks currently running.
+     */
+    public long getActiveCount() {
+        return mActiveCount;
+    }
+
+    /**
+     * @return The number of tasks accepted so far.
+     */
+    public long getSubmittedCount() {
+        return mSubmittedCount;
+    }
+
+    /**
+     * @return The number of tasks which ran to completion, successfully or not.
+     */
+    public long getCompletedCount() {
+        return mCompletedCount;
+    }
+
+    /**
+     * @return The number of tasks turned away because the executor was saturated.
+     */
+    public long getRejectedCount() {
+        return mRejectedCount;
+    }
+
+    /**
+     * @return The mean time completed tasks waited before starting, in milliseconds.
+     */
+    public double getAverageQueueTimeMillis() {
+        return average(mTotalQueueTimeNanos);
+    }
+
+    /**
+     * @return The longest time a task waited before starting, in milliseconds.
+     */
+    public long getMaxQueueTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mMaxQueueTimeNanos);
+    }
+
+    /**
+     * @return The mean time completed tasks took to run, in milliseconds.
+     */
+    public double getAverageRunTimeMillis() {
+        return average(mTotalRunTimeNanos);
+    }
+
+    private double average(final long totalNanos) {
+        return mCompletedCount == 0
+                ? 0
+                : (double) totalNanos / mCompletedCount / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorMetrics{"
+                + "name=" + mName
+                + ", queueDepth=" + mQueueDepth
+                + ", activeCount=" + mActiveCount
+                + ", submittedCount=" + mSubmittedCount
+                + ", completedCount=" + mCompletedCount
+                + ", rejectedCount=" + mRejectedCount
+                + ", averageQueueTimeMillis=" + getAverageQueueTimeMillis()
+                + ", maxQueueTimeMillis=" + getMaxQueueTimeMillis()
+                + ", averageRunTimeMillis=" + getAverageRunTimeMillis()
+                + '}';
+    }
+}
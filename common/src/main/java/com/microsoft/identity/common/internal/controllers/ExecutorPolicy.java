@@ -0,0 +1,111 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+/**
+ * Immutable configuration of a bounded thread pool created by
+ * {@link InstrumentedExecutor#create(String, ExecutorPolicy)}.
+ */
+public final class ExecutorPolicy {
+
+    private final int mCorePoolSize;
+    private final int mMaximumPoolSize;
+    private final int mQueueCapacity;
+    private final long mKeepAliveMillis;
+
+    private ExecutorPolicy(final Builder builder) {
+        mCorePoolSize = builder.mCorePoolSize;
+        mMaximumPoolSize = builder.mMaximumPoolSize;
+        mQueueCapacity = builder.mQueueCapacity;
+        mKeepAliveMillis = builder.mKeepAliveMillis;
+    }
+
+    /**
+     * @return The number of threads started before tasks are queued.
+     */
+    public int getCorePoolSize() {
+        return mCorePoolSize;
+    }
+
+    /**
+     * @return The number of threads started once the queue is full.
+     */
+    public int getMaximumPoolSize() {
+        return mMaximumPoolSize;
+    }
+
+    /**
+     * @return The number of tasks which may wait for a thread.
+     */
+    public int getQueueCapacity() {
+        return mQueueCapacity;
+    }
+
+    /**
+     * @return How long an idle thread is kept alive.
+     */
+    public long getKeepAliveMillis() {
+        return mKeepAliveMillis;
+    }
+
+    /**
+     * Builder for {@link ExecutorPolicy}.
+     */
+    public static final class Builder {
+        private int mCorePoolSize = 1;
+        private int mMaximumPoolSize = 1;
+        private int mQueueCapacity = 16;
+        private long mKeepAliveMillis = 60000;
+
+        public Builder setCorePoolSize(final int corePoolSize) {
+            mCorePoolSize = corePoolSize;
+            return this;
+        }
+
+        public Builder setMaximumPoolSize(final int maximumPoolSize) {
+            mMaximumPoolSize = maximumPoolSize;
+            return this;
+        }
+
+        public Builder setQueueCapacity(final int queueCapacity) {
+            mQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder setKeepAliveMillis(final long keepAliveMillis) {
+            mKeepAliveMillis = keepAliveMillis;
+            return this;
+        }
+
+        public ExecutorPolicy build() {
+            if (mCorePoolSize < 1
+                    || mMaximumPoolSize < mCorePoolSize
+                    || mQueueCapacity < 1
+                    || mKeepAliveMillis < 0) {
+                throw new IllegalArgumentException("Pool sizes and queue capacity must be positive, the maximum pool size must not be below the core pool size and keep alive must not be negative.");
+            }
+
+            return new ExecutorPolicy(this);
+        }
+    }
+}
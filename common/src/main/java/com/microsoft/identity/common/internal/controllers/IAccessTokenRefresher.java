@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.exception.BaseException;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
+
+import java.io.IOException;
+
+/**
+ * Renews an access token in the background on behalf of {@link AccessTokenRefreshScheduler},
+ * typically by redeeming the cached refresh token and saving the result.
+ */
+public interface IAccessTokenRefresher {
+
+    /**
+     * Renews the access token for the supplied silent request.
+     *
+     * @param parameters The silent request the access token was originally acquired for.
+     * @return The renewed access token, or null if it should no longer be tracked.
+     * @throws IOException   If the refresh failed due to a network or service error.
+     * @throws BaseException If the refresh failed.
+     */
+    @Nullable
+    AccessTokenRecord refresh(@NonNull AcquireTokenSilentOperationParameters parameters)
+            throws IOException, BaseException;
+}
@@ -0,0 +1,210 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.controllers;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Executor} which keeps queue depth, active count and task latency counters for the tasks
+ * it hands to its delegate. The delegate is either a bounded thread pool created from an
+ * {@link ExecutorPolicy} or any executor supplied by the caller.
+ */
+public final class InstrumentedExecutor implements Executor {
+
+    private final String mName;
+    private final Executor mDelegate;
+    private final boolean mOwnsDelegate;
+
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+    private final AtomicLong mStartedCount = new AtomicLong();
+    private final AtomicLong mCompletedCount = new AtomicLong();
+    private final AtomicLong mRejectedCount = new AtomicLong();
+    private final AtomicLong mTotalQueueTimeNanos = new AtomicLong();
+    private final AtomicLong mMaxQueueTimeNanos = new AtomicLong();
+    private final AtomicLong mTotalRunTimeNanos = new AtomicLong();
+
+    /**
+     * Instruments an executor supplied by the caller. Tasks it rejects are counted and the
+     * {@link RejectedExecutionException} is rethrown.
+     *
+     * @param name     The name reported in the metrics.
+     * @param delegate The executor which runs the tasks.
+     */
+    public InstrumentedExecutor(@NonNull final String name, @NonNull final Executor delegate) {
+        this(name, delegate, false);
+    }
+
+    private InstrumentedExecutor(@NonNull final String name,
+                                 @NonNull final Executor delegate,
+                                 final boolean ownsDelegate) {
+        mName = name;
+        mDelegate = delegate;
+        mOwnsDelegate = ownsDelegate;
+    }
+
+    /**
+     * Creates a bounded thread pool whose threads are named after the executor. Idle threads,
+     * core threads included, exit after the policy's keep alive. Tasks submitted while all threads
+     * are busy and the queue is full are counted and rejected with a
+     * {@link RejectedExecutionException}; they never run on the submitting thread, which is
+     * usually the main thread.
+     *
+     * @param name   The name reported in the metrics and used as the thread name prefix.
+     * @param policy The pool configuration.
+     * @return The instrumented pool.
+     */
+    public static InstrumentedExecutor create(@NonNull final String name,
+                                              @NonNull final ExecutorPolicy policy) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                policy.getCorePoolSize(),
+                policy.getMaximumPoolSize(),
+                policy.getKeepAliveMillis(),
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(policy.getQueueCapacity()),
+                new NamedThreadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        pool.allowCoreThreadTimeOut(policy.getKeepAliveMillis() > 0);
+
+        return new InstrumentedExecutor(name, pool, true);
+    }
+
+    /**
+     * @return The name reported in the metrics.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public void execute(@NonNull final Runnable command) {
+        final InstrumentedTask task = new InstrumentedTask(command, System.nanoTime());
+        mSubmittedCount.incrementAndGet();
+
+        try {
+            mDelegate.execute(task);
+        } catch (final RejectedExecutionException e) {
+            mRejectedCount.incrementAndGet();
+            mSubmittedCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting tasks if the pool was created by {@link #create(String, ExecutorPolicy)}.
+     * Tasks already accepted still run. Executors supplied by the caller are left untouched.
+     */
+    public void shutdown() {
+        if (mOwnsDelegate) {
+            ((ExecutorService) mDelegate).shutdown();
+        }
+    }
+
+    /**
+     * @return A snapshot of the counters of this executor.
+     */
+    public ExecutorMetrics getMetrics() {
+        // Read in reverse order of the updates so that the derived values are never negative
+        final long completed = mCompletedCount.get();
+        final long totalQueueTime = mTotalQueueTimeNanos.get();
+        final long totalRunTime = mTotalRunTimeNanos.get();
+        final long started = mStartedCount.get();
+        final long submitted = mSubmittedCount.get();
+
+        return new ExecutorMetrics(
+                mName,
+                Math.max(0, submitted - started),
+                Math.max(0, started - completed),
+                submitted,
+                completed,
+                mRejectedCount.get(),
+                totalQueueTime,
+                mMaxQueueTimeNanos.get(),
+                totalRunTime
+        );
+    }
+
+    private void recordCompletion(final long queueTimeNanos, final long runTimeNanos) {
+        mTotalQueueTimeNanos.addAndGet(queueTimeNanos);
+        mTotalRunTimeNanos.addAndGet(runTimeNanos);
+
+        long max = mMaxQueueTimeNanos.get();
+
+        while (queueTimeNanos > max && !mMaxQueueTimeNanos.compareAndSet(max, queueTimeNanos)) {
+            max = mMaxQueueTimeNanos.get();
+        }
+
+        mCompletedCount.incrementAndGet();
+    }
+
+    private final class InstrumentedTask implements Runnable {
+
+        private final Runnable mCommand;
+        private final long mSubmittedAtNanos;
+
+        InstrumentedTask(final Runnable command, final long submittedAtNanos) {
+            mCommand = command;
+            mSubmittedAtNanos = submittedAtNanos;
+        }
+
+        @Override
+        public void run() {
+            final long startedAtNanos = System.nanoTime();
+            mStartedCount.incrementAndGet();
+
+            try {
+                mCommand.run();
+            } finally {
+                recordCompletion(
+                        startedAtNanos - mSubmittedAtNanos,
+                        System.nanoTime() - startedAtNanos
+                );
+            }
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String mPrefix;
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        NamedThreadFactory(final String name) {
+            mPrefix = name + "-";
+        }
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            return new Thread(runnable, mPrefix + mThreadCount.incrementAndGet());
+        }
+    }
+}
@@ -33,6 +33,8 @@ import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperatio
 import com.microsoft.identity.common.internal.request.ILocalAuthenticationCallback;
 import com.microsoft.identity.common.internal.request.OperationParameters;
 import com.microsoft.identity.common.internal.result.AcquireTokenResult;
+import com.microsoft.identity.common.internal.tracing.Span;
+import com.microsoft.identity.common.internal.tracing.Tracer;
 
 import java.io.IOException;
 import java.util.List;
@@ -83,6 +85,18 @@ public class TokenCommand implements TokenOperation {
 
     @Override
     public AcquireTokenResult execute() throws InterruptedException, ExecutionException, IOException, ClientException, UiRequiredException, ArgumentException {
+        final Span span = Tracer.startSpan("TokenCommand.execute");
+        try {
+            return executeInternal();
+        } catch (final Exception e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private AcquireTokenResult executeInternal() throws InterruptedException, ExecutionException, IOException, ClientException, UiRequiredException, ArgumentException {
         AcquireTokenResult result = null;
         final String methodName = ":execute";
 
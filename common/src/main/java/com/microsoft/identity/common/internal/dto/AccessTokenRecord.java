@@ -231,4 +231,20 @@ public class AccessTokenRecord extends Credential {
     public boolean isExpired() {
         return isExpired(getExpiresOn());
     }
+
+    /**
+     * Tests whether the extended lifetime of this access token has passed. Within its extended
+     * lifetime an expired token may still be used while the service is unavailable.
+     *
+     * @return True if the extended_expires_on has passed or is unknown.
+     */
+    public boolean isExtendedExpired() {
+        final String extendedExpiresOn = getExtendedExpiresOn();
+
+        if (null == extendedExpiresOn || extendedExpiresOn.trim().isEmpty()) {
+            return true;
+        }
+
+        return isExpired(extendedExpiresOn);
+    }
 }
@@ -0,0 +1,292 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers log records to an {@link ILoggerBatchCallback} from a dedicated thread. Logging threads
+ * only add the record to a bounded, lock-free ring buffer; what happens when it is full is set by
+ * the {@link OverflowPolicy}. Install with {@link Logger#setAsyncLogDispatcher(AsyncLogDispatcher)}.
+ */
+public final class AsyncLogDispatcher {
+
+    private static final String TAG = AsyncLogDispatcher.class.getSimpleName();
+    private static final String THREAD_NAME = "Logger-dispatcher";
+
+    /**
+     * Upper bound on how long the dispatcher thread sleeps if a wake up is missed.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * What happens to a record logged while the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The new record is dropped.
+         */
+        DROP_NEWEST,
+
+        /**
+         * The oldest queued record is dropped to make room for the new one.
+         */
+        DROP_OLDEST
+    }
+
+    private final ILoggerBatchCallback mCallback;
+    private final RingBuffer<LogRecord> mBuffer;
+    private final int mMaxBatchSize;
+    private final OverflowPolicy mOverflowPolicy;
+    private final Thread mThread;
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mDeliveredCount = new AtomicLong();
+    private final AtomicLong mFailedBatchCount = new AtomicLong();
+
+    private volatile boolean mWaiting;
+    private volatile boolean mShutdown;
+
+    private AsyncLogDispatcher(final Builder builder) {
+        mCallback = builder.mCallback;
+        mBuffer = new RingBuffer<>(builder.mCapacity);
+        mMaxBatchSize = builder.mMaxBatchSize;
+        mOverflowPolicy = builder.mOverflowPolicy;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, THREAD_NAME);
+        mThread.setDaemon(true);
+    }
+
+    /**
+     * Queues a record for delivery. Never blocks.
+     *
+     * @return False if the record was dropped because the buffer was full or the dispatcher is
+     * shut down.
+     */
+    boolean dispatch(@NonNull final LogRecord record) {
+        if (mShutdown) {
+            mDroppedCount.incrementAndGet();
+            return false;
+        }
+
+        boolean accepted = mBuffer.offer(record);
+
+        if (!accepted && mOverflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            if (null != mBuffer.poll()) {
+                mDroppedCount.incrementAndGet();
+            }
+
+            // Other producers may claim the freed slot first; give up after one more try
+            accepted = mBuffer.offer(record);
+        }
+
+        if (!accepted) {
+            mDroppedCount.incrementAndGet();
+        }
+
+        if (mWaiting) {
+            LockSupport.unpark(mThread);
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Stops accepting records. Records already queued are still delivered.
+     */
+    public void shutdown() {
+        mShutdown = true;
+        LockSupport.unpark(mThread);
+    }
+
+    /**
+     * Waits for the dispatcher thread to deliver the remaining records after {@link #shutdown()}.
+     *
+     * @param timeoutMillis How long to wait.
+     * @return True if the thread finished.
+     */
+    public boolean awaitTermination(final long timeoutMillis) throws InterruptedException {
+        mThread.join(timeoutMillis);
+
+        return !mThread.isAlive();
+    }
+
+    /**
+     * @return The number of records dropped because the buffer was full or the dispatcher was
+     * shut down.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * @return The number of records handed to the callback.
+     */
+    public long getDeliveredCount() {
+        return mDeliveredCount.get();
+    }
+
+    /**
+     * @return The number of batches for which the callback threw.
+     */
+    public long getFailedBatchCount() {
+        return mFailedBatchCount.get();
+    }
+
+    /**
+     * @return The approximate number of records waiting for delivery.
+     */
+    public int getPendingCount() {
+        return mBuffer.size();
+    }
+
+    private void drain() {
+        for (; ; ) {
+            final List<LogRecord> batch = new ArrayList<>(Math.min(mMaxBatchSize, mBuffer.size() + 1));
+            LogRecord record;
+
+            while (batch.size() < mMaxBatchSize && null != (record = mBuffer.poll())) {
+                batch.add(record);
+            }
+
+            if (!batch.isEmpty()) {
+                deliver(batch);
+                continue;
+            }
+
+            if (mShutdown) {
+                // Catch records queued between the last poll and the shutdown
+                if (mBuffer.isEmpty()) {
+                    return;
+                }
+
+                continue;
+            }
+
+            mWaiting = true;
+
+            if (mBuffer.isEmpty() && !mShutdown) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+
+            mWaiting = false;
+        }
+    }
+
+    private void deliver(final List<LogRecord> batch) {
+        final int size = batch.size();
+
+        try {
+            mCallback.log(batch);
+            mDeliveredCount.addAndGet(size);
+        } catch (final Exception e) {
+            mFailedBatchCount.incrementAndGet();
+            Log.w(TAG, "Log batch callback failed, " + size + " records lost.", e);
+        }
+    }
+
+    /**
+     * Builder for {@link AsyncLogDispatcher}.
+     */
+    public static final class Builder {
+        private final ILoggerBatchCallback mCallback;
+        private int mCapacity = 1024;
+        private int mMaxBatchSize = 64;
+        private OverflowPolicy mOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+        /**
+         * @param callback Receives the batches of records.
+         */
+        public Builder(@NonNull final ILoggerBatchCallback callback) {
+            mCallback = callback;
+        }
+
+        /**
+         * Delivers records one by one to a non-batching callback, still off the logging threads.
+         *
+         * @param callback Receives the records.
+         */
+        public Builder(@NonNull final ILoggerCallback callback) {
+            this(new ILoggerBatchCallback() {
+                @Override
+                public void log(final List<LogRecord> records) {
+                    for (final LogRecord record : records) {
+                        callback.log(
+                                record.getTag(),
+                                record.getLogLevel(),
+                                record.getMessage(),
+                                record.containsPII()
+                        );
+                    }
+                }
+            });
+        }
+
+        /**
+         * @param capacity The number of records the buffer holds, rounded up to a power of two.
+         */
+        public Builder setCapacity(final int capacity) {
+            mCapacity = capacity;
+            return this;
+        }
+
+        public Builder setMaxBatchSize(final int maxBatchSize) {
+            mMaxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public Builder setOverflowPolicy(@NonNull final OverflowPolicy overflowPolicy) {
+            mOverflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * @return A dispatcher whose thread is already running.
+         */
+        public AsyncLogDispatcher build() {
+            if (null == mCallback
+                    || mCapacity < 1
+                    || mCapacity > 1 << 30
+                    || mMaxBatchSize < 1
+                    || null == mOverflowPolicy) {
+                throw new IllegalArgumentException("Callback and overflow policy are required, capacity must be between 1 and 2^30 and the batch size must be positive.");
+            }
+
+            final AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(this);
+            dispatcher.mThread.start();
+
+            return dispatcher;
+        }
+    }
+}
@@ -22,6 +22,13 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.logging;
 
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
 public final class DiagnosticContext {
 
     public static final String CORRELATION_ID = "correlation_id";
@@ -36,6 +43,7 @@ public final class DiagnosticContext {
                 protected RequestContext initialValue() {
                     final RequestContext defaultRequestContext = new RequestContext();
                     defaultRequestContext.put(CORRELATION_ID, "UNSET");
+                    defaultRequestContext.put(THREAD_ID, String.valueOf(Thread.currentThread().getId()));
                     return defaultRequestContext;
                 }
             };
@@ -56,33 +64,103 @@ public final class DiagnosticContext {
     }
 
     /**
-     * Get the request context.
+     * Get the request context. The thread id is added when the context is set, so this is a plain
+     * thread local read.
      *
      * @return IRequestContext
      */
     public static IRequestContext getRequestContext() {
-        if (!hasThreadId()) {
-            setThreadId();
-        }
-
         return REQUEST_CONTEXT_THREAD_LOCAL.get();
     }
 
-    private static void setThreadId() {
-        REQUEST_CONTEXT_THREAD_LOCAL.get().put(
-                THREAD_ID,
-                String.valueOf(Thread.currentThread().getId())
-        );
+    /**
+     * Clear rhe local request context thread.
+     */
+    public static void clear() {
+        REQUEST_CONTEXT_THREAD_LOCAL.remove();
     }
 
-    private static boolean hasThreadId() {
-        return REQUEST_CONTEXT_THREAD_LOCAL.get().containsKey(THREAD_ID);
+    /**
+     * Capture the request context of the calling thread, so that it can be carried over to work
+     * running on other threads.
+     *
+     * @return An immutable copy of the current request context, without the thread id.
+     */
+    public static Snapshot capture() {
+        final Map<String, String> values = new HashMap<>(getRequestContext());
+        values.remove(THREAD_ID);
+
+        return new Snapshot(Collections.unmodifiableMap(values));
     }
 
     /**
-     * Clear rhe local request context thread.
+     * Wrap a runnable so that it runs with the request context of the calling thread.
+     *
+     * @param runnable The work to run.
+     * @return The wrapped runnable.
      */
-    public static void clear() {
-        REQUEST_CONTEXT_THREAD_LOCAL.remove();
+    public static Runnable wrap(@NonNull final Runnable runnable) {
+        return capture().wrap(runnable);
+    }
+
+    /**
+     * Wrap an executor so that every task runs with the request context of the thread which
+     * submitted it.
+     *
+     * @param executor The executor which runs the tasks.
+     * @return The wrapped executor.
+     */
+    public static Executor wrap(@NonNull final Executor executor) {
+        return new Executor() {
+            @Override
+            public void execute(@NonNull final Runnable command) {
+                executor.execute(wrap(command));
+            }
+        };
+    }
+
+    /**
+     * An immutable request context captured by {@link #capture()}. It can be shared freely
+     * between threads; each thread it is installed on gets its own copy with its own thread id.
+     */
+    public static final class Snapshot {
+
+        private final Map<String, String> mValues;
+
+        private Snapshot(final Map<String, String> values) {
+            mValues = values;
+        }
+
+        /**
+         * @return The value captured for the key, such as {@link #CORRELATION_ID}.
+         */
+        public String get(@NonNull final String key) {
+            return mValues.get(key);
+        }
+
+        /**
+         * Wrap a runnable so that it runs with this request context, and the thread's own
+         * request context is restored afterwards.
+         *
+         * @param runnable The work to run.
+         * @return The wrapped runnable.
+         */
+        public Runnable wrap(@NonNull final Runnable runnable) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    final IRequestContext previous = REQUEST_CONTEXT_THREAD_LOCAL.get();
+                    final RequestContext requestContext = new RequestContext();
+                    requestContext.putAll(mValues);
+                    setRequestContext(requestContext);
+
+                    try {
+                        runnable.run();
+                    } finally {
+                        REQUEST_CONTEXT_THREAD_LOCAL.set(previous);
+                    }
+                }
+            };
+        }
     }
 }
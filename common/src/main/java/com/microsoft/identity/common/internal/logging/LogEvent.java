@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A structured log message: an event name plus typed fields, obtained from
+ * {@link Logger#event(String, Logger.LogLevel, String)} and sent with {@link #log()}.
+ * <p>
+ * If the event would not be logged, the logger hands out a shared disabled event on which
+ * every method returns immediately, so building it costs nothing. PII fields are only kept while
+ * PII logging is allowed.
+ */
+public final class LogEvent {
+
+    static final LogEvent DISABLED = new LogEvent(null, null, null, false);
+
+    private final String mTag;
+    private final Logger.LogLevel mLogLevel;
+    private final String mName;
+    private final boolean mAllowPii;
+    private final List<LogField> mFields;
+    private boolean mContainsPII;
+
+    LogEvent(final String tag,
+             final Logger.LogLevel logLevel,
+             final String name,
+             final boolean allowPii) {
+        mTag = tag;
+        mLogLevel = logLevel;
+        mName = name;
+        mAllowPii = allowPii;
+        mFields = null == name ? Collections.<LogField>emptyList() : new ArrayList<LogField>(4);
+    }
+
+    /**
+     * Adds an int or long field.
+     */
+    public LogEvent field(@NonNull final String name, final long value) {
+        return add(null == mName ? null : LogField.ofLong(name, value));
+    }
+
+    /**
+     * Adds a boolean field.
+     */
+    public LogEvent field(@NonNull final String name, final boolean value) {
+        return add(null == mName ? null : LogField.ofBoolean(name, value));
+    }
+
+    /**
+     * Adds an enum field.
+     */
+    public LogEvent field(@NonNull final String name, @Nullable final Enum<?> value) {
+        return add(null == mName ? null : LogField.ofEnum(name, value));
+    }
+
+    /**
+     * Adds a string field which does not contain PII.
+     */
+    public LogEvent field(@NonNull final String name, @Nullable final String value) {
+        return add(null == mName ? null : LogField.ofString(name, value, false));
+    }
+
+    /**
+     * Adds a string field which contains PII. It is dropped unless PII logging is allowed.
+     */
+    public LogEvent piiField(@NonNull final String name, @Nullable final String value) {
+        if (!mAllowPii) {
+            return this;
+        }
+
+        mContainsPII = true;
+
+        return add(LogField.ofString(name, value, true));
+    }
+
+    /**
+     * Sends the event.
+     */
+    public void log() {
+        if (null != mName) {
+            Logger.getInstance().logEvent(
+                    mTag,
+                    mLogLevel,
+                    mName,
+                    Collections.unmodifiableList(mFields),
+                    mContainsPII
+            );
+        }
+    }
+
+    private LogEvent add(@Nullable final LogField field) {
+        if (null != field) {
+            mFields.add(field);
+        }
+
+        return this;
+    }
+
+    /**
+     * Renders an event as "name field=value field=value".
+     */
+    static String render(@NonNull final String name, @NonNull final List<LogField> fields) {
+        final StringBuilder builder = new StringBuilder(name.length() + 24 * fields.size());
+        builder.append(name);
+
+        for (final LogField field : fields) {
+            field.appendTo(builder.append(' '));
+        }
+
+        return builder.toString();
+    }
+}
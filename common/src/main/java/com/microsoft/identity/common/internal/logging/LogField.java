@@ -0,0 +1,149 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A typed key/value pair attached to a {@link LogEvent}.
+ */
+public final class LogField {
+
+    /**
+     * The type of a field's value.
+     */
+    public enum Type {
+        /**
+         * An int or long value, see {@link #getLongValue()}.
+         */
+        LONG,
+        /**
+         * A boolean value, see {@link #getBooleanValue()}.
+         */
+        BOOLEAN,
+        /**
+         * An enum constant, see {@link #getValue()}.
+         */
+        ENUM,
+        /**
+         * A string, see {@link #getValue()}.
+         */
+        STRING
+    }
+
+    private final String mName;
+    private final Type mType;
+    private final long mLongValue;
+    private final Object mValue;
+    private final boolean mContainsPII;
+
+    private LogField(@NonNull final String name,
+                     @NonNull final Type type,
+                     final long longValue,
+                     @Nullable final Object value,
+                     final boolean containsPII) {
+        mName = name;
+        mType = type;
+        mLongValue = longValue;
+        mValue = value;
+        mContainsPII = containsPII;
+    }
+
+    static LogField ofLong(@NonNull final String name, final long value) {
+        return new LogField(name, Type.LONG, value, null, false);
+    }
+
+    static LogField ofBoolean(@NonNull final String name, final boolean value) {
+        return new LogField(name, Type.BOOLEAN, value ? 1 : 0, null, false);
+    }
+
+    static LogField ofEnum(@NonNull final String name, @Nullable final Enum<?> value) {
+        return new LogField(name, Type.ENUM, 0, value, false);
+    }
+
+    static LogField ofString(@NonNull final String name,
+                             @Nullable final String value,
+                             final boolean containsPII) {
+        return new LogField(name, Type.STRING, 0, value, containsPII);
+    }
+
+    /**
+     * @return The field name.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return The type of the value.
+     */
+    public Type getType() {
+        return mType;
+    }
+
+    /**
+     * @return The value of a {@link Type#LONG} field.
+     */
+    public long getLongValue() {
+        return mLongValue;
+    }
+
+    /**
+     * @return The value of a {@link Type#BOOLEAN} field.
+     */
+    public boolean getBooleanValue() {
+        return mLongValue != 0;
+    }
+
+    /**
+     * @return The value of an {@link Type#ENUM} or {@link Type#STRING} field, may be null.
+     */
+    @Nullable
+    public Object getValue() {
+        return mValue;
+    }
+
+    /**
+     * @return True if the value is PII.
+     */
+    public boolean containsPII() {
+        return mContainsPII;
+    }
+
+    void appendTo(@NonNull final StringBuilder builder) {
+        builder.append(mName).append('=');
+
+        switch (mType) {
+            case LONG:
+                builder.append(mLongValue);
+                break;
+            case BOOLEAN:
+                builder.append(getBooleanValue());
+                break;
+            default:
+                builder.append(mValue);
+                break;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A log message queued for asynchronous delivery: either a formatted message, or a structured
+ * {@link LogEvent} whose message is only formatted if {@link #getMessage()} is called.
+ */
+public final class LogRecord {
+
+    private final String mTag;
+    private final Logger.LogLevel mLogLevel;
+    private final String mEventName;
+    private final List<LogField> mFields;
+    private final String mCorrelationId;
+    private final boolean mContainsPII;
+    private final long mTimestampMillis;
+    private volatile String mMessage;
+
+    LogRecord(final String tag,
+              final Logger.LogLevel logLevel,
+              final String message,
+              final boolean containsPII,
+              final long timestampMillis) {
+        this(tag, logLevel, null, Collections.<LogField>emptyList(), null, containsPII, timestampMillis);
+        mMessage = message;
+    }
+
+    LogRecord(final String tag,
+              final Logger.LogLevel logLevel,
+              @Nullable final String eventName,
+              final List<LogField> fields,
+              @Nullable final String correlationId,
+              final boolean containsPII,
+              final long timestampMillis) {
+        mTag = tag;
+        mLogLevel = logLevel;
+        mEventName = eventName;
+        mFields = fields;
+        mCorrelationId = correlationId;
+        mContainsPII = containsPII;
+        mTimestampMillis = timestampMillis;
+    }
+
+    /**
+     * @return The TAG for the log message.
+     */
+    public String getTag() {
+        return mTag;
+    }
+
+    /**
+     * @return The {@link Logger.LogLevel} for the message.
+     */
+    public Logger.LogLevel getLogLevel() {
+        return mLogLevel;
+    }
+
+    /**
+     * @return The formatted message. For a structured event it is formatted on first call.
+     */
+    public String getMessage() {
+        String message = mMessage;
+
+        if (null == message) {
+            message = Logger.formatMessage(
+                    mTimestampMillis,
+                    mCorrelationId,
+                    LogEvent.render(mEventName, mFields),
+                    null
+            );
+            mMessage = message;
+        }
+
+        return message;
+    }
+
+    /**
+     * @return The event name of a structured event, null for a plain message.
+     */
+    @Nullable
+    public String getEventName() {
+        return mEventName;
+    }
+
+    /**
+     * @return The typed fields of a structured event, empty for a plain message.
+     */
+    public List<LogField> getFields() {
+        return mFields;
+    }
+
+    /**
+     * @return True if the message contains PII, false otherwise.
+     */
+    public boolean containsPII() {
+        return mContainsPII;
+    }
+
+    /**
+     * @return When the message was logged, in milliseconds since the epoch.
+     */
+    public long getTimestampMillis() {
+        return mTimestampMillis;
+    }
+}
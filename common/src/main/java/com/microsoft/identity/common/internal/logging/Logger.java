@@ -30,8 +30,10 @@ import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 
 public final class Logger {
 
@@ -39,16 +41,41 @@ public final class Logger {
 
     private static final Logger INSTANCE = new Logger();
     private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final String PLATFORM_SUFFIX = " Android " + Build.VERSION.SDK_INT;
+    private static final int INITIAL_BUILDER_CAPACITY = 256;
+    private static final int MAX_RETAINED_BUILDER_CAPACITY = 8192;
+
+    // SimpleDateFormat is not thread safe, so each thread gets its own.
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMATTER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
+            dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+            return dateFormat;
+        }
+    };
+
+    private static final ThreadLocal<StringBuilder> MESSAGE_BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(INITIAL_BUILDER_CAPACITY);
+        }
+    };
+
+    // The most recently rendered timestamp, shared by every thread.
+    private static volatile RenderedTimestamp sLastTimestamp;
 
     // Turn on the VERBOSE level logging by default.
-    private LogLevel mLogLevel = LogLevel.VERBOSE;
-    private ILoggerCallback mExternalLogger;
+    private volatile LogLevel mLogLevel = LogLevel.VERBOSE;
+    private volatile ILoggerCallback mExternalLogger;
+    private volatile AsyncLogDispatcher mAsyncLogDispatcher;
     private final Object mLock = new Object();
 
     // Disable to log PII by default.
-    private static boolean sAllowPii = false;
+    private static volatile boolean sAllowPii = false;
     // Disable to Logcat logging by default.
-    private static boolean sAllowLogcat = false;
+    private static volatile boolean sAllowLogcat = false;
 
     /**
      * Enum class for LogLevel that the sdk recognizes.
@@ -139,6 +166,29 @@ public final class Logger {
         }
     }
 
+    /**
+     * Switch external logging to asynchronous, batched delivery. Logging threads only queue the
+     * message; the dispatcher hands it to its {@link ILoggerBatchCallback} on its own thread.
+     * While a dispatcher is set, the {@link ILoggerCallback} set through
+     * {@link #setExternalLogger(ILoggerCallback)} is not called.
+     * <p>
+     * The previous dispatcher, if any, is shut down after delivering the messages it holds.
+     *
+     * @param dispatcher The dispatcher, or null to return to synchronous delivery.
+     */
+    public void setAsyncLogDispatcher(@Nullable final AsyncLogDispatcher dispatcher) {
+        final AsyncLogDispatcher previous;
+
+        synchronized (mLock) {
+            previous = mAsyncLogDispatcher;
+            mAsyncLogDispatcher = dispatcher;
+        }
+
+        if (null != previous && previous != dispatcher) {
+            previous.shutdown();
+        }
+    }
+
     /**
      * Send a {@link LogLevel#ERROR} log message without PII.
      *
@@ -150,10 +200,9 @@ public final class Logger {
     public static void error(final String tag,
                              @Nullable final String errorMessage,
                              @Nullable final Throwable exception) {
-        getInstance().log(
+        getInstance().logWithRequestContext(
                 tag,
                 LogLevel.ERROR,
-                DiagnosticContext.getRequestContext().toJsonString(),
                 errorMessage,
                 exception,
                 false
@@ -193,10 +242,9 @@ public final class Logger {
     public static void errorPII(final String tag,
                                 @Nullable final String errorMessage,
                                 @Nullable final Throwable exception) {
-        getInstance().log(
+        getInstance().logWithRequestContext(
                 tag,
                 LogLevel.ERROR,
-                DiagnosticContext.getRequestContext().toJsonString(),
                 errorMessage,
                 exception,
                 true
@@ -234,10 +282,9 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void warn(final String tag, @Nullable final String message) {
-        getInstance().log(
+        getInstance().logWithRequestContext(
                 tag,
                 LogLevel.WARN,
-                DiagnosticContext.getRequestContext().toJsonString(),
                 message,
                 null,
                 false
@@ -273,10 +320,9 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void warnPII(final String tag, @Nullable final String message) {
-        getInstance().log(
+        getInstance().logWithRequestContext(
                 tag,
                 LogLevel.WARN,
-                DiagnosticContext.getRequestContext().toJsonString(),
                 message,
                 null,
                 true
@@ -312,10 +358,9 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void info(final String tag, @Nullable final String message) {
-        getInstance().log(
+        getInstance().logWithRequestContext(
                 tag,
                 LogLevel.INFO,
-                DiagnosticContext.getRequestContext().toJsonString(),
                 message,
                 null,
                 false
@@ -344,10 +389,9 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void infoPII(final String tag, @Nullable final String message) {
-        getInstance().log(
+        getInstance().logWithRequestContext(
                 tag,
                 LogLevel.INFO,
-                DiagnosticContext.getRequestContext().toJsonString(),
                 message,
                 null,
                 true
@@ -376,10 +420,9 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void verbose(final String tag, @Nullable final String message) {
-        getInstance().log(
+        getInstance().logWithRequestContext(
                 tag,
                 LogLevel.VERBOSE,
-                DiagnosticContext.getRequestContext().toJsonString(),
                 message,
                 null,
                 false
@@ -415,10 +458,9 @@ public final class Logger {
      * @param message The message to log.
      */
     public static void verbosePII(final String tag, @Nullable final String message) {
-        getInstance().log(
+        getInstance().logWithRequestContext(
                 tag,
                 LogLevel.VERBOSE,
-                DiagnosticContext.getRequestContext().toJsonString(),
                 message,
                 null,
                 true
@@ -446,35 +488,222 @@ public final class Logger {
         );
     }
 
+    /**
+     * Send a {@link LogLevel#WARN} log message without PII. The message is only built if it will be logged.
+     *
+     * @param tag     Used to identify the source of a log message. It usually identifies the class
+     *                or activity where the log call occurs.
+     * @param message Builds the message to log.
+     */
+    public static void warn(final String tag, final ILogMessageSupplier message) {
+        getInstance().logLazily(tag, LogLevel.WARN, message, false);
+    }
+
+    /**
+     * Send a {@link LogLevel#WARN} log message with PII. The message is only built if it will be logged.
+     *
+     * @param tag     Used to identify the source of a log message. It usually identifies the class
+     *                or activity where the log call occurs.
+     * @param message Builds the message to log.
+     */
+    public static void warnPII(final String tag, final ILogMessageSupplier message) {
+        getInstance().logLazily(tag, LogLevel.WARN, message, true);
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message without PII. The message is only built if it will be logged.
+     *
+     * @param tag     Used to identify the source of a log message. It usually identifies the class
+     *                or activity where the log call occurs.
+     * @param message Builds the message to log.
+     */
+    public static void info(final String tag, final ILogMessageSupplier message) {
+        getInstance().logLazily(tag, LogLevel.INFO, message, false);
+    }
+
+    /**
+     * Send a {@link LogLevel#INFO} log message with PII. The message is only built if it will be logged.
+     *
+     * @param tag     Used to identify the source of a log message. It usually identifies the class
+     *                or activity where the log call occurs.
+     * @param message Builds the message to log.
+     */
+    public static void infoPII(final String tag, final ILogMessageSupplier message) {
+        getInstance().logLazily(tag, LogLevel.INFO, message, true);
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message without PII. The message is only built if it will be logged.
+     *
+     * @param tag     Used to identify the source of a log message. It usually identifies the class
+     *                or activity where the log call occurs.
+     * @param message Builds the message to log.
+     */
+    public static void verbose(final String tag, final ILogMessageSupplier message) {
+        getInstance().logLazily(tag, LogLevel.VERBOSE, message, false);
+    }
+
+    /**
+     * Send a {@link LogLevel#VERBOSE} log message with PII. The message is only built if it will be logged.
+     *
+     * @param tag     Used to identify the source of a log message. It usually identifies the class
+     *                or activity where the log call occurs.
+     * @param message Builds the message to log.
+     */
+    public static void verbosePII(final String tag, final ILogMessageSupplier message) {
+        getInstance().logLazily(tag, LogLevel.VERBOSE, message, true);
+    }
+
+    /**
+     * Start a structured log event: a name plus typed fields added with
+     * {@link LogEvent#field(String, long)} and friends, sent with {@link LogEvent#log()}. Fields
+     * are PII-tagged one by one through {@link LogEvent#piiField(String, String)}. If the event
+     * would not be logged, a shared disabled event is returned and building it costs nothing.
+     *
+     * @param tag      Used to identify the source of a log message. It usually identifies the
+     *                 class or activity where the log call occurs.
+     * @param logLevel The {@link LogLevel} of the event.
+     * @param name     The event name, such as "accounts_found".
+     * @return The event to add fields to.
+     */
+    public static LogEvent event(final String tag, final LogLevel logLevel, final String name) {
+        final Logger logger = getInstance();
+
+        if (!logger.isEnabled(logLevel, false)) {
+            return LogEvent.DISABLED;
+        }
+
+        return new LogEvent(tag, logLevel, name, sAllowPii);
+    }
+
+    /**
+     * Check whether a message would currently be logged. Use this to skip building expensive log
+     * messages; the logging methods make the same check themselves.
+     *
+     * @param logLevel    The {@link LogLevel} of the message.
+     * @param containsPII True if the message contains PII, false otherwise.
+     * @return True if the level and PII settings allow the message and a logcat or external
+     * logger output is enabled.
+     */
+    public static boolean isLoggable(final LogLevel logLevel, final boolean containsPII) {
+        return getInstance().isEnabled(logLevel, containsPII);
+    }
+
+    private boolean isEnabled(final LogLevel logLevel, final boolean containsPII) {
+        if (logLevel.compareTo(mLogLevel) > 0) {
+            return false;
+        }
+
+        // Developer turns off PII logging, if the log message contains any PII,
+        // we should not send it.
+        if (!sAllowPii && containsPII) {
+            return false;
+        }
+
+        return sAllowLogcat || null != mExternalLogger || null != mAsyncLogDispatcher;
+    }
+
+    private void logWithRequestContext(final String tag,
+                                       final LogLevel logLevel,
+                                       @Nullable final String message,
+                                       @Nullable final Throwable throwable,
+                                       final boolean containsPII) {
+        // Check before serializing the request context, which costs more than the rest of a
+        // discarded log call
+        if (!isEnabled(logLevel, containsPII)) {
+            return;
+        }
+
+        log(
+                tag,
+                logLevel,
+                DiagnosticContext.getRequestContext().toJsonString(),
+                message,
+                throwable,
+                containsPII
+        );
+    }
+
+    private void logLazily(final String tag,
+                           final LogLevel logLevel,
+                           final ILogMessageSupplier message,
+                           final boolean containsPII) {
+        if (!isEnabled(logLevel, containsPII)) {
+            return;
+        }
+
+        log(
+                tag,
+                logLevel,
+                DiagnosticContext.getRequestContext().toJsonString(),
+                message.getMessage(),
+                null,
+                containsPII
+        );
+    }
+
     private void log(final String tag,
                      final LogLevel logLevel,
                      @Nullable final String correlationID,
                      @Nullable final String message,
                      @Nullable final Throwable throwable,
                      final boolean containsPII) {
-        if (logLevel.compareTo(mLogLevel) > 0) {
+        if (!isEnabled(logLevel, containsPII)) {
             return;
         }
 
-        // Developer turns off PII logging, if the log meLoggerSettingssage contains any PII,
-        // we should not send it.
-        if (!sAllowPii && containsPII) {
+        //Format the log message.
+        final long timestampMillis = System.currentTimeMillis();
+        final String logMessage = formatMessage(timestampMillis, correlationID, message, throwable);
+
+        emit(new LogRecord(tag, logLevel, logMessage, containsPII, timestampMillis));
+    }
+
+    void logEvent(final String tag,
+                  final LogLevel logLevel,
+                  final String name,
+                  final List<LogField> fields,
+                  final boolean containsPII) {
+        if (!isEnabled(logLevel, containsPII)) {
             return;
         }
 
-        //Format the log message.
-        final String logMessage = formatMessage(correlationID, message, throwable);
+        // The message is formatted when a synchronous output needs it, or by the async sink
+        emit(new LogRecord(
+                tag,
+                logLevel,
+                name,
+                fields,
+                DiagnosticContext.getRequestContext().toJsonString(),
+                containsPII,
+                System.currentTimeMillis()
+        ));
+    }
+
+    private void emit(final LogRecord record) {
+        final String tag = record.getTag();
+        final boolean containsPII = record.containsPII();
 
         // Send logs into Logcat.
         if (sAllowLogcat) {
-            sendLogcatLogs(tag, logLevel, logMessage);
+            sendLogcatLogs(tag, record.getLogLevel(), record.getMessage());
+        }
+
+        // Queue logs for the async dispatcher, if any, instead of calling back synchronously.
+        final AsyncLogDispatcher asyncLogDispatcher = mAsyncLogDispatcher;
+
+        if (null != asyncLogDispatcher) {
+            asyncLogDispatcher.dispatch(record);
+            return;
         }
 
         // Send logs into external logger callback.
         synchronized (mLock) {
             if (null != mExternalLogger) {
+                final String logMessage = record.getMessage();
+
                 try {
-                    mExternalLogger.log(tag, logLevel, logMessage, containsPII);
+                    mExternalLogger.log(tag, record.getLogLevel(), logMessage, containsPII);
                 } catch (final Exception e) {
                     // log message as warning to report callback error issue
                     if (!containsPII || sAllowPii) {
@@ -483,7 +712,6 @@ public final class Logger {
                 }
             }
         }
-
     }
 
     /**
@@ -493,22 +721,66 @@ public final class Logger {
      * If correlation id doesn't exist:
      * <library_version> <platform> <platform_version> [<timestamp>] <log_message>
      */
-    private String formatMessage(@Nullable final String correlationID,
-                                 @Nullable final String message,
-                                 @Nullable final Throwable throwable) {
-        final String logMessage = StringExtensions.isNullOrBlank(message) ? "N/A" : message;
-        return " [" + getUTCDateTimeAsString()
-                + (StringExtensions.isNullOrBlank(correlationID) ? "] " : " - " + correlationID + "] ")
-                + logMessage
-                + " Android " + Build.VERSION.SDK_INT
-                + (throwable == null ? "" : '\n' + Log.getStackTraceString(throwable));
+    static String formatMessage(final long timestampMillis,
+                                @Nullable final String correlationID,
+                                @Nullable final String message,
+                                @Nullable final Throwable throwable) {
+        StringBuilder builder = MESSAGE_BUILDER.get();
+
+        // Don't keep a buffer grown by a large message, such as a stack trace, around for good
+        if (builder.capacity() > MAX_RETAINED_BUILDER_CAPACITY) {
+            builder = new StringBuilder(INITIAL_BUILDER_CAPACITY);
+            MESSAGE_BUILDER.set(builder);
+        }
+
+        builder.setLength(0);
+        builder.append(" [").append(getUTCDateTimeAsString(timestampMillis));
+
+        if (StringExtensions.isNullOrBlank(correlationID)) {
+            builder.append("] ");
+        } else {
+            builder.append(" - ").append(correlationID).append("] ");
+        }
+
+        builder.append(StringExtensions.isNullOrBlank(message) ? "N/A" : message)
+                .append(PLATFORM_SUFFIX);
+
+        if (throwable != null) {
+            builder.append('\n').append(Log.getStackTraceString(throwable));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Log lines within the same second share the rendered timestamp; a new one is rendered at
+     * most once per second and thread.
+     */
+    private static String getUTCDateTimeAsString(final long timestampMillis) {
+        final long second = TimeUnit.MILLISECONDS.toSeconds(timestampMillis);
+        final RenderedTimestamp cached = sLastTimestamp;
+
+        if (null != cached && cached.mSecond == second) {
+            return cached.mText;
+        }
+
+        final String text = DATE_FORMATTER.get().format(new Date(timestampMillis));
+        sLastTimestamp = new RenderedTimestamp(second, text);
+
+        return text;
     }
 
-    private static String getUTCDateTimeAsString() {
-        final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
-        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    /**
+     * A timestamp rendered with {@link #DATE_FORMAT}, along with the second it represents.
+     */
+    private static final class RenderedTimestamp {
+        private final long mSecond;
+        private final String mText;
 
-        return dateFormat.format(new Date());
+        RenderedTimestamp(final long second, final String text) {
+            mSecond = second;
+            mText = text;
+        }
     }
 
     /**
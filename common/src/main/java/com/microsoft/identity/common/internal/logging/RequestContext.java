@@ -22,17 +22,58 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.logging;
 
-import com.google.gson.Gson;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
 
 import java.util.HashMap;
+import java.util.Map;
 
 // TODO I'm not wedded to this name, but the concept may work for tracking correlationIds
 public class RequestContext extends HashMap<String, String> implements IRequestContext {
 
-    private final Gson mGson = new Gson();
+    /**
+     * The JSON form of this context, serialized on first use and dropped on mutation.
+     */
+    private transient String mJsonString;
 
+    @Override
+    public String put(final String key, final String value) {
+        mJsonString = null;
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(final Map<? extends String, ? extends String> map) {
+        mJsonString = null;
+        super.putAll(map);
+    }
+
+    @Override
+    public String remove(final Object key) {
+        mJsonString = null;
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        mJsonString = null;
+        super.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The result is cached until the context is next modified through put, putAll, remove or
+     * clear. Changes made through the collection views are not tracked.
+     */
     @Override
     public String toJsonString() {
-        return mGson.toJson(this);
+        String jsonString = mJsonString;
+
+        if (null == jsonString) {
+            jsonString = GsonRegistry.getDefault().toJson(this);
+            mJsonString = jsonString;
+        }
+
+        return jsonString;
     }
 }
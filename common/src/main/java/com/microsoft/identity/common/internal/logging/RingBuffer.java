@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free multi-producer multi-consumer queue backed by a power-of-two sized array.
+ * Each slot carries a sequence number which tells producers and consumers whether it is free to
+ * write or ready to read, so neither side ever blocks: offer fails when the buffer is full and
+ * poll returns null when it is empty.
+ *
+ * @param <E> The element type.
+ */
+final class RingBuffer<E> {
+
+    private final int mMask;
+    private final AtomicReferenceArray<E> mSlots;
+    private final AtomicLongArray mSequences;
+    private final AtomicLong mTail = new AtomicLong();
+    private final AtomicLong mHead = new AtomicLong();
+
+    /**
+     * @param capacity The minimum capacity, rounded up to the next power of two.
+     */
+    RingBuffer(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+
+        final int size = Integer.highestOneBit(capacity) == capacity
+                ? capacity
+                : Integer.highestOneBit(capacity) << 1;
+        mMask = size - 1;
+        mSlots = new AtomicReferenceArray<>(size);
+        mSequences = new AtomicLongArray(size);
+
+        for (int i = 0; i < size; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return The number of elements the buffer holds when full.
+     */
+    int capacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Adds an element at the tail.
+     *
+     * @return False if the buffer is full.
+     */
+    boolean offer(final E element) {
+        long position = mTail.get();
+
+        for (; ; ) {
+            final int index = (int) position & mMask;
+            final long available = mSequences.get(index) - position;
+
+            if (available == 0) {
+                if (mTail.compareAndSet(position, position + 1)) {
+                    mSlots.set(index, element);
+                    // Publishes the element to consumers
+                    mSequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (available < 0) {
+                return false;
+            }
+
+            position = mTail.get();
+        }
+    }
+
+    /**
+     * Removes the element at the head.
+     *
+     * @return The element, or null if the buffer is empty.
+     */
+    E poll() {
+        long position = mHead.get();
+
+        for (; ; ) {
+            final int index = (int) position & mMask;
+            final long available = mSequences.get(index) - (position + 1);
+
+            if (available == 0) {
+                if (mHead.compareAndSet(position, position + 1)) {
+                    final E element = mSlots.get(index);
+                    mSlots.set(index, null);
+                    // Hands the slot back to producers for the next lap
+                    mSequences.set(index, position + mMask + 1);
+                    return element;
+                }
+            } else if (available < 0) {
+                return null;
+            }
+
+            position = mHead.get();
+        }
+    }
+
+    /**
+     * @return The approximate number of elements in the buffer.
+     */
+    int size() {
+        final long size = mTail.get() - mHead.get();
+
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
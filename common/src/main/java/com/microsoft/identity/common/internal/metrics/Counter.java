@@ -0,0 +1,95 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A monotonic count, such as the number of retried HTTP requests. Updates are spread over several
+ * cells picked by the updating thread, so that threads counting the same event concurrently do not
+ * contend on a single value; reading sums the cells.
+ */
+public final class Counter {
+
+    /**
+     * The cells are spaced a cache line (8 longs) apart so that neighbouring cells are not
+     * invalidated by each other's updates.
+     */
+    private static final int PADDING = 8;
+
+    private static final int STRIPES = stripeCount(Runtime.getRuntime().availableProcessors());
+
+    private final AtomicLongArray mCells = new AtomicLongArray(STRIPES * PADDING);
+
+    Counter() {
+    }
+
+    /**
+     * Add one to the count.
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Add to the count.
+     *
+     * @param delta The amount to add.
+     */
+    public void add(final long delta) {
+        final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        mCells.getAndAdd(stripe * PADDING, delta);
+    }
+
+    /**
+     * @return The current count. Updates made while it is read may or may not be included.
+     */
+    public long get() {
+        long sum = 0;
+
+        for (int i = 0; i < STRIPES; i++) {
+            sum += mCells.get(i * PADDING);
+        }
+
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            mCells.set(i * PADDING, 0);
+        }
+    }
+
+    /**
+     * @return The smallest power of two that is at least twice the number of processors, up to 64.
+     */
+    private static int stripeCount(final int processors) {
+        int stripes = 1;
+
+        while (stripes < 2 * processors && stripes < 64) {
+            stripes <<= 1;
+        }
+
+        return stripes;
+    }
+}
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The distribution of a non-negative value, such as a latency in microseconds.
+ * <p>
+ * Values are counted in log-linear buckets, in the style of HDR histograms: values below 16 get a
+ * bucket each, and every power of two above that is split into 8 buckets. Percentiles are
+ * therefore accurate to within 12.5% over the whole range of a long, in a fixed 488 buckets.
+ * Recording is lock-free and does not allocate.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKET_COUNT = 2 * SUB_BUCKET_COUNT;
+    private static final int LINEAR_BUCKET_BITS = SUB_BUCKET_BITS + 1;
+
+    static final int BUCKET_COUNT = LINEAR_BUCKET_COUNT
+            + (Long.SIZE - 1 - LINEAR_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong mMin = new AtomicLong(Long.MAX_VALUE);
+
+    Histogram() {
+    }
+
+    /**
+     * Record a value. Negative values are recorded as 0.
+     *
+     * @param value The value.
+     */
+    public void record(final long value) {
+        final long clamped = Math.max(0, value);
+
+        mCounts.incrementAndGet(bucketIndex(clamped));
+        mSum.addAndGet(clamped);
+
+        long max = mMax.get();
+        while (clamped > max && !mMax.compareAndSet(max, clamped)) {
+            max = mMax.get();
+        }
+
+        long min = mMin.get();
+        while (clamped < min && !mMin.compareAndSet(min, clamped)) {
+            min = mMin.get();
+        }
+    }
+
+    /**
+     * @return A copy of the recorded distribution. Values recorded while it is taken may or may not
+     * be included.
+     */
+    public HistogramSnapshot getSnapshot() {
+        final long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mCounts.get(i);
+            count += counts[i];
+        }
+
+        if (count == 0) {
+            return new HistogramSnapshot(counts, 0, 0, 0, 0);
+        }
+
+        return new HistogramSnapshot(counts, count, mSum.get(), Math.max(0, mMin.get()), Math.max(0, mMax.get()));
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts.set(i, 0);
+        }
+
+        mSum.set(0);
+        mMax.set(Long.MIN_VALUE);
+        mMin.set(Long.MAX_VALUE);
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+
+        return LINEAR_BUCKET_COUNT + (exponent - LINEAR_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @return The largest value counted in the bucket.
+     */
+    static long bucketUpperBound(final int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int exponent = (index - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + LINEAR_BUCKET_BITS;
+        final long subBucket = (index - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        final int shift = exponent - SUB_BUCKET_BITS;
+
+        // Computed from the bucket's lower bound so that the top bucket does not overflow
+        return ((SUB_BUCKET_COUNT + subBucket) << shift) + ((1L << shift) - 1);
+    }
+}
@@ -0,0 +1,110 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+/**
+ * An immutable copy of the distribution recorded by a {@link Histogram}.
+ */
+public final class HistogramSnapshot {
+
+    private final long[] mCounts;
+    private final long mCount;
+    private final long mSum;
+    private final long mMin;
+    private final long mMax;
+
+    HistogramSnapshot(final long[] counts,
+                      final long count,
+                      final long sum,
+                      final long min,
+                      final long max) {
+        mCounts = counts;
+        mCount = count;
+        mSum = sum;
+        mMin = min;
+        mMax = max;
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return The sum of the recorded values.
+     */
+    public long getSum() {
+        return mSum;
+    }
+
+    /**
+     * @return The smallest recorded value, or 0 if none were recorded.
+     */
+    public long getMin() {
+        return mMin;
+    }
+
+    /**
+     * @return The largest recorded value, or 0 if none were recorded.
+     */
+    public long getMax() {
+        return mMax;
+    }
+
+    /**
+     * @return The mean of the recorded values, or 0 if none were recorded.
+     */
+    public double getMean() {
+        return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * Get the value below which the given percentage of the recorded values fall. The result is
+     * the upper bound of the bucket the percentile falls in, so it may overstate the exact value
+     * by up to 12.5%, but never exceeds the largest recorded value.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The value at the percentile, or 0 if no values were recorded.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+
+        final double clamped = Math.min(100, Math.max(0, percentile));
+        final long rank = Math.max(1, (long) Math.ceil(clamped / 100 * mCount));
+        long seen = 0;
+
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+
+            if (seen >= rank) {
+                return Math.max(mMin, Math.min(mMax, Histogram.bucketUpperBound(i)));
+            }
+        }
+
+        return mMax;
+    }
+}
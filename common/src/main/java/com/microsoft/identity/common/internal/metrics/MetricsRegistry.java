@@ -0,0 +1,202 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide registry of the performance metrics of the library: counters, gauges and latency
+ * histograms, looked up by name.
+ * <p>
+ * Names are dot separated, with any dimensions appended in braces, e.g.
+ * {@code http.latency_us{endpoint=login.microsoftonline.com/tenant/oauth2/v2.0/token,status=200}}.
+ * Latencies are recorded in microseconds. Metrics with a fixed name should be looked up once and
+ * kept in a static field, so that updating them is a single atomic operation.
+ */
+public final class MetricsRegistry {
+
+    private static final String TAG = MetricsRegistry.class.getSimpleName();
+
+    private static final ConcurrentMap<String, Counter> sCounters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> sHistograms = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Gauge> sGauges = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, IGauge> sRegisteredGauges = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Get the counter with the given name, creating it if needed.
+     *
+     * @param name The metric name.
+     * @return The counter.
+     */
+    public static Counter counter(@NonNull final String name) {
+        Counter counter = sCounters.get(name);
+
+        if (null == counter) {
+            final Counter newCounter = new Counter();
+            counter = sCounters.putIfAbsent(name, newCounter);
+
+            if (null == counter) {
+                counter = newCounter;
+            }
+        }
+
+        return counter;
+    }
+
+    /**
+     * Get the histogram with the given name, creating it if needed.
+     *
+     * @param name The metric name.
+     * @return The histogram.
+     */
+    public static Histogram histogram(@NonNull final String name) {
+        Histogram histogram = sHistograms.get(name);
+
+        if (null == histogram) {
+            final Histogram newHistogram = new Histogram();
+            histogram = sHistograms.putIfAbsent(name, newHistogram);
+
+            if (null == histogram) {
+                histogram = newHistogram;
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Get the settable gauge with the given name, creating it if needed.
+     *
+     * @param name The metric name.
+     * @return The gauge.
+     */
+    public static Gauge gauge(@NonNull final String name) {
+        Gauge gauge = sGauges.get(name);
+
+        if (null == gauge) {
+            final Gauge newGauge = new Gauge();
+            gauge = sGauges.putIfAbsent(name, newGauge);
+
+            if (null == gauge) {
+                gauge = newGauge;
+            }
+        }
+
+        return gauge;
+    }
+
+    /**
+     * Register a gauge which is read whenever a snapshot is taken, replacing any gauge registered
+     * under the same name.
+     *
+     * @param name  The metric name.
+     * @param gauge The gauge.
+     */
+    public static void registerGauge(@NonNull final String name, @NonNull final IGauge gauge) {
+        sRegisteredGauges.put(name, gauge);
+    }
+
+    /**
+     * Format a metric name with dimensions.
+     *
+     * @param name       The metric name.
+     * @param dimensions Alternating dimension names and values.
+     * @return The name with the dimensions appended, e.g. {@code name{key=value}}.
+     */
+    public static String name(@NonNull final String name, @NonNull final String... dimensions) {
+        final StringBuilder builder = new StringBuilder(name).append('{');
+
+        for (int i = 0; i + 1 < dimensions.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            builder.append(dimensions[i]).append('=').append(dimensions[i + 1]);
+        }
+
+        return builder.append('}').toString();
+    }
+
+    /**
+     * @return A copy of the current value of every metric.
+     */
+    public static MetricsSnapshot getSnapshot() {
+        final String methodName = ":getSnapshot";
+
+        final Map<String, Long> counters = new TreeMap<>();
+        for (final Map.Entry<String, Counter> counter : sCounters.entrySet()) {
+            counters.put(counter.getKey(), counter.getValue().get());
+        }
+
+        final Map<String, Long> gauges = new TreeMap<>();
+        for (final Map.Entry<String, Gauge> gauge : sGauges.entrySet()) {
+            gauges.put(gauge.getKey(), gauge.getValue().getValue());
+        }
+
+        for (final Map.Entry<String, IGauge> gauge : sRegisteredGauges.entrySet()) {
+            try {
+                gauges.put(gauge.getKey(), gauge.getValue().getValue());
+            } catch (final RuntimeException e) {
+                Logger.warn(
+                        TAG + methodName,
+                        "Failed to read gauge: " + gauge.getKey()
+                );
+            }
+        }
+
+        final Map<String, HistogramSnapshot> histograms = new TreeMap<>();
+        for (final Map.Entry<String, Histogram> histogram : sHistograms.entrySet()) {
+            histograms.put(histogram.getKey(), histogram.getValue().getSnapshot());
+        }
+
+        return new MetricsSnapshot(System.currentTimeMillis(), counters, gauges, histograms);
+    }
+
+    /**
+     * Reset every counter, histogram and settable gauge to zero. Metrics held in fields stay
+     * registered, and registered gauges are left as they are.
+     */
+    public static void reset() {
+        for (final Counter counter : sCounters.values()) {
+            counter.reset();
+        }
+
+        for (final Histogram histogram : sHistograms.values()) {
+            histogram.reset();
+        }
+
+        for (final Gauge gauge : sGauges.values()) {
+            gauge.set(0);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonObject;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable copy of every metric in the {@link MetricsRegistry}, taken by
+ * {@link MetricsRegistry#getSnapshot()}.
+ */
+public final class MetricsSnapshot {
+
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 99};
+
+    private final long mTimestampMillis;
+    private final Map<String, Long> mCounters;
+    private final Map<String, Long> mGauges;
+    private final Map<String, HistogramSnapshot> mHistograms;
+
+    MetricsSnapshot(final long timestampMillis,
+                    @NonNull final Map<String, Long> counters,
+                    @NonNull final Map<String, Long> gauges,
+                    @NonNull final Map<String, HistogramSnapshot> histograms) {
+        mTimestampMillis = timestampMillis;
+        mCounters = Collections.unmodifiableMap(counters);
+        mGauges = Collections.unmodifiableMap(gauges);
+        mHistograms = Collections.unmodifiableMap(histograms);
+    }
+
+    /**
+     * @return The wall clock time the snapshot was taken at, in milliseconds since the epoch.
+     */
+    public long getTimestampMillis() {
+        return mTimestampMillis;
+    }
+
+    /**
+     * @return The counters by name, sorted by name.
+     */
+    public Map<String, Long> getCounters() {
+        return mCounters;
+    }
+
+    /**
+     * @return The gauges by name, sorted by name.
+     */
+    public Map<String, Long> getGauges() {
+        return mGauges;
+    }
+
+    /**
+     * @return The histograms by name, sorted by name.
+     */
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return mHistograms;
+    }
+
+    /**
+     * @return The count of the counter, or 0 if it was never used.
+     */
+    public long getCounter(@NonNull final String name) {
+        final Long value = mCounters.get(name);
+        return null == value ? 0 : value;
+    }
+
+    /**
+     * @return The histogram, or null if it was never used.
+     */
+    @Nullable
+    public HistogramSnapshot getHistogram(@NonNull final String name) {
+        return mHistograms.get(name);
+    }
+
+    /**
+     * Export the snapshot as JSON, in the form
+     * <pre>
+     * {"timestamp_ms":..., "counters":{name:count}, "gauges":{name:value},
+     *  "histograms":{name:{"count","sum","min","max","mean","p50","p90","p99"}}}
+     * </pre>
+     *
+     * @return The snapshot as a JSON string.
+     */
+    public String toJson() {
+        final JsonObject counters = new JsonObject();
+        for (final Map.Entry<String, Long> counter : mCounters.entrySet()) {
+            counters.addProperty(counter.getKey(), counter.getValue());
+        }
+
+        final JsonObject gauges = new JsonObject();
+        for (final Map.Entry<String, Long> gauge : mGauges.entrySet()) {
+            gauges.addProperty(gauge.getKey(), gauge.getValue());
+        }
+
+        final JsonObject histograms = new JsonObject();
+        for (final Map.Entry<String, HistogramSnapshot> entry : mHistograms.entrySet()) {
+            final HistogramSnapshot histogram = entry.getValue();
+            final JsonObject json = new JsonObject();
+            json.addProperty("count", histogram.getCount());
+            json.addProperty("sum", histogram.getSum());
+            json.addProperty("min", histogram.getMin());
+            json.addProperty("max", histogram.getMax());
+            json.addProperty("mean", histogram.getMean());
+
+            for (final double percentile : EXPORTED_PERCENTILES) {
+                json.addProperty("p" + (int) percentile, histogram.getValueAtPercentile(percentile));
+            }
+
+            histograms.add(entry.getKey(), json);
+        }
+
+        final JsonObject snapshot = new JsonObject();
+        snapshot.addProperty("timestamp_ms", mTimestampMillis);
+        snapshot.add("counters", counters);
+        snapshot.add("gauges", gauges);
+        snapshot.add("histograms", histograms);
+
+        return snapshot.toString();
+    }
+}
@@ -42,6 +42,7 @@ import com.microsoft.identity.common.internal.providers.microsoft.azureactivedir
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryCloud;
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.ClientInfo;
 import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
@@ -93,6 +94,11 @@ public class AdalMigrationAdapter implements IMigrationAdapter<MicrosoftAccount,
      */
     private final SharedPreferences mSharedPrefs;
 
+    /**
+     * The Context used to load the persisted cloud discovery metadata.
+     */
+    private final Context mContext;
+
     /**
      * Force-override to initiate migration, even if it's already happened before.
      */
@@ -107,6 +113,7 @@ public class AdalMigrationAdapter implements IMigrationAdapter<MicrosoftAccount,
     public AdalMigrationAdapter(final Context context,
                                 final boolean force) {
         mSharedPrefs = context.getSharedPreferences(MIGRATION_STATUS_SHARED_PREFERENCES, Context.MODE_PRIVATE);
+        mContext = context;
         mForceMigration = force;
     }
 
@@ -120,7 +127,7 @@ public class AdalMigrationAdapter implements IMigrationAdapter<MicrosoftAccount,
 
             if (!hasMigrated && !mForceMigration) {
                 // Initialize the InstanceDiscoveryMetadata so we know about all the clouds and possible /common endpoints
-                final boolean cloudMetadataLoaded = loadCloudDiscoveryMetadata();
+                final boolean cloudMetadataLoaded = loadCloudDiscoveryMetadata(mContext);
 
                 if (cloudMetadataLoaded) {
                     final List<String> commonEndpoints = getCommonEndpoints();
@@ -453,7 +460,7 @@ public class AdalMigrationAdapter implements IMigrationAdapter<MicrosoftAccount,
     private Map<String, ADALTokenCacheItem> deserialize(final Map<String, String> tokenCacheItems) {
         final Map<String, ADALTokenCacheItem> result = new HashMap<>();
 
-        final Gson gson = new Gson();
+        final Gson gson = GsonRegistry.getDefault();
         for (final Map.Entry<String, String> entry : tokenCacheItems.entrySet()) {
             result.put(
                     entry.getKey(),
@@ -505,14 +512,20 @@ public class AdalMigrationAdapter implements IMigrationAdapter<MicrosoftAccount,
     }
 
     /**
-     * Loads the InstanceDiscoveryMetadata.
+     * Loads the InstanceDiscoveryMetadata. The persisted (or bundled) snapshot is preferred; the
+     * network is only consulted if no snapshot could be loaded.
      *
+     * @param context Context used to load the persisted metadata.
      * @return True, if the metadata loads successfully. False otherwise.
      */
-    private static boolean loadCloudDiscoveryMetadata() {
+    private static boolean loadCloudDiscoveryMetadata(@NonNull final Context context) {
         final String methodName = ":loadCloudDiscoveryMetadata";
         boolean succeeded = true;
 
+        if (!AzureActiveDirectory.isInitialized()) {
+            AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(context);
+        }
+
         if (!AzureActiveDirectory.isInitialized()) {
             try {
                 AzureActiveDirectory.performCloudDiscovery();
@@ -26,18 +26,19 @@ import android.util.Pair;
 
 import com.microsoft.identity.common.BaseAccount;
 import com.microsoft.identity.common.internal.cache.IShareSingleSignOnState;
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
 import com.microsoft.identity.common.internal.providers.oauth2.RefreshToken;
 
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 public class TokenMigrationUtility<T extends BaseAccount, U extends RefreshToken> {
 
     /**
-     * ExecutorService to handle background computation.
+     * Executor to handle background computation, with the request context of the caller.
      */
-    private static final ExecutorService sBackgroundExecutor = Executors.newCachedThreadPool();
+    private static final Executor sBackgroundExecutor = DiagnosticContext.wrap(Executors.newCachedThreadPool());
 
     /**
      * Imports key/value pairs of TokenCacheItems to the MSAL common cache.
@@ -0,0 +1,207 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Per-host circuit breaker. After {@link CircuitBreakerPolicy#getFailureThreshold()} consecutive
+ * failures (server errors or timeouts) the breaker opens and requests to the host fail fast. Once
+ * {@link CircuitBreakerPolicy#getOpenDurationMillis()} has elapsed the breaker becomes half-open and
+ * lets a single probe request through; the probe's outcome closes or re-opens the breaker.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * States of a {@link CircuitBreaker}.
+     */
+    public enum State {
+        /**
+         * Requests flow normally.
+         */
+        CLOSED,
+
+        /**
+         * Requests fail fast without reaching the host.
+         */
+        OPEN,
+
+        /**
+         * A single probe request is allowed through to test whether the host has recovered.
+         */
+        HALF_OPEN
+    }
+
+    private final String mHost;
+    private final CircuitBreakerPolicy mPolicy;
+    private final ICircuitBreakerListener mListener;
+
+    /**
+     * Ticket returned by {@link #acquirePermission()} to the half-open probe request.
+     */
+    static final int PROBE = -1;
+
+    private State mState = State.CLOSED;
+    private int mConsecutiveFailures;
+    private long mOpenedAtMillis;
+    private boolean mProbeInFlight;
+
+    /**
+     * Incremented every time the breaker opens, so that outcomes of requests admitted before it
+     * opened are not attributed to the following closed period.
+     */
+    private int mGeneration;
+
+    CircuitBreaker(@NonNull final String host,
+                   @NonNull final CircuitBreakerPolicy policy,
+                   @NonNull final ICircuitBreakerListener listener) {
+        mHost = host;
+        mPolicy = policy;
+        mListener = listener;
+    }
+
+    /**
+     * @return The current state.
+     */
+    public synchronized State getState() {
+        return mState;
+    }
+
+    /**
+     * Acquire permission to send a request to the host. The returned ticket must be passed to
+     * exactly one of {@link #onSuccess(int)}, {@link #onFailure(int)} or {@link #onAbandoned(int)}.
+     *
+     * @return {@link #PROBE} for the half-open probe, otherwise the generation of the closed
+     * period the request was admitted in.
+     * @throws CircuitBreakerOpenException if the breaker is open, or half-open with a probe
+     *                                     already in flight.
+     */
+    int acquirePermission() throws CircuitBreakerOpenException {
+        final State previousState;
+        synchronized (this) {
+            previousState = mState;
+            if (mState == State.CLOSED) {
+                return mGeneration;
+            }
+
+            final long now = System.currentTimeMillis();
+            if (mState == State.OPEN) {
+                final long remainingMillis = mOpenedAtMillis + mPolicy.getOpenDurationMillis() - now;
+                if (remainingMillis > 0) {
+                    throw new CircuitBreakerOpenException(mHost, remainingMillis);
+                }
+
+                mState = State.HALF_OPEN;
+            } else if (mProbeInFlight) {
+                throw new CircuitBreakerOpenException(mHost, 0);
+            }
+
+            mProbeInFlight = true;
+        }
+
+        notifyStateChanged(previousState, State.HALF_OPEN);
+        return PROBE;
+    }
+
+    /**
+     * Record a successful exchange with the host. Only the probe closes the breaker; the success
+     * of a request admitted before the breaker opened leaves it untouched.
+     *
+     * @param ticket The ticket returned by {@link #acquirePermission()}.
+     */
+    void onSuccess(final int ticket) {
+        final State previousState;
+        final State newState;
+        synchronized (this) {
+            previousState = mState;
+            if (ticket == PROBE) {
+                mProbeInFlight = false;
+                if (mState == State.HALF_OPEN) {
+                    mConsecutiveFailures = 0;
+                    mState = State.CLOSED;
+                }
+            } else if (isCurrentClosedPeriod(ticket)) {
+                mConsecutiveFailures = 0;
+            }
+
+            newState = mState;
+        }
+
+        notifyStateChanged(previousState, newState);
+    }
+
+    /**
+     * Record a failed exchange with the host: a server error or a timeout.
+     *
+     * @param ticket The ticket returned by {@link #acquirePermission()}.
+     */
+    void onFailure(final int ticket) {
+        final State previousState;
+        final State newState;
+        synchronized (this) {
+            previousState = mState;
+            if (ticket == PROBE) {
+                mProbeInFlight = false;
+                if (mState == State.HALF_OPEN) {
+                    open();
+                }
+            } else if (isCurrentClosedPeriod(ticket)
+                    && ++mConsecutiveFailures >= mPolicy.getFailureThreshold()) {
+                open();
+            }
+
+            newState = mState;
+        }
+
+        notifyStateChanged(previousState, newState);
+    }
+
+    /**
+     * Release the permission of a request whose outcome says nothing about the health of the host,
+     * such as a failed DNS lookup while offline. A probe is released so another request can probe.
+     *
+     * @param ticket The ticket returned by {@link #acquirePermission()}.
+     */
+    synchronized void onAbandoned(final int ticket) {
+        if (ticket == PROBE) {
+            mProbeInFlight = false;
+        }
+    }
+
+    private boolean isCurrentClosedPeriod(final int ticket) {
+        return mState == State.CLOSED && ticket == mGeneration;
+    }
+
+    private void open() {
+        mState = State.OPEN;
+        mOpenedAtMillis = System.currentTimeMillis();
+        mGeneration = (mGeneration + 1) & Integer.MAX_VALUE;
+    }
+
+    private void notifyStateChanged(final State previousState, final State newState) {
+        if (previousState != newState) {
+            mListener.onStateChanged(mHost, previousState, newState);
+        }
+    }
+}
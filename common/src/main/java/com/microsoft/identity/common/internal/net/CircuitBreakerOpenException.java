@@ -0,0 +1,61 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is rejected because the {@link CircuitBreaker} for its host is open.
+ * Callers can treat it like a network failure and fall back to cached results.
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    private final String mHost;
+    private final long mRetryAfterMillis;
+
+    /**
+     * @param host             The host whose breaker rejected the request.
+     * @param retryAfterMillis Time until the breaker lets a probe request through, 0 if a probe is
+     *                         already in flight.
+     */
+    public CircuitBreakerOpenException(final String host, final long retryAfterMillis) {
+        super("Circuit breaker is open for host: " + host);
+        mHost = host;
+        mRetryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @return The host whose breaker rejected the request.
+     */
+    public String getHost() {
+        return mHost;
+    }
+
+    /**
+     * @return Time in milliseconds until the breaker lets a probe request through.
+     */
+    public long getRetryAfterMillis() {
+        return mRetryAfterMillis;
+    }
+}
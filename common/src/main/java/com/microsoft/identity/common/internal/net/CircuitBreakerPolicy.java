@@ -0,0 +1,103 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+/**
+ * Immutable configuration of the per-host {@link CircuitBreaker}s used by {@link HttpRequest}.
+ */
+public final class CircuitBreakerPolicy {
+
+    /**
+     * Policy used when none is configured: open after 5 consecutive failures, probe after 30 seconds.
+     */
+    public static final CircuitBreakerPolicy DEFAULT = new Builder().build();
+
+    /**
+     * Policy that never opens the breaker.
+     */
+    public static final CircuitBreakerPolicy DISABLED = new Builder().setEnabled(false).build();
+
+    private final boolean mEnabled;
+    private final int mFailureThreshold;
+    private final long mOpenDurationMillis;
+
+    private CircuitBreakerPolicy(final Builder builder) {
+        mEnabled = builder.mEnabled;
+        mFailureThreshold = builder.mFailureThreshold;
+        mOpenDurationMillis = builder.mOpenDurationMillis;
+    }
+
+    /**
+     * @return True if requests are guarded by circuit breakers.
+     */
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * @return The number of consecutive failures that opens the breaker.
+     */
+    public int getFailureThreshold() {
+        return mFailureThreshold;
+    }
+
+    /**
+     * @return How long the breaker stays open before a probe request is allowed.
+     */
+    public long getOpenDurationMillis() {
+        return mOpenDurationMillis;
+    }
+
+    /**
+     * Builder for {@link CircuitBreakerPolicy}.
+     */
+    public static final class Builder {
+        private boolean mEnabled = true;
+        private int mFailureThreshold = 5;
+        private long mOpenDurationMillis = 30000;
+
+        public Builder setEnabled(final boolean enabled) {
+            mEnabled = enabled;
+            return this;
+        }
+
+        public Builder setFailureThreshold(final int failureThreshold) {
+            mFailureThreshold = failureThreshold;
+            return this;
+        }
+
+        public Builder setOpenDurationMillis(final long openDurationMillis) {
+            mOpenDurationMillis = openDurationMillis;
+            return this;
+        }
+
+        public CircuitBreakerPolicy build() {
+            if (mFailureThreshold < 1 || mOpenDurationMillis < 0) {
+                throw new IllegalArgumentException("Failure threshold must be positive and open duration must not be negative.");
+            }
+
+            return new CircuitBreakerPolicy(this);
+        }
+    }
+}
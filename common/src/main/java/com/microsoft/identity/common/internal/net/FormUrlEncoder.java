@@ -0,0 +1,276 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Form-url-encodes request objects such as
+ * {@link com.microsoft.identity.common.internal.providers.oauth2.TokenRequest} straight into bytes.
+ * <p>
+ * The output is identical to {@link ObjectMapper#serializeObjectToFormUrlEncoded(Object)}: every
+ * non-null, non-transient, non-static field is written under its {@link SerializedName} (or field
+ * name), keys are sorted alphabetically and keys and values are encoded like
+ * {@link java.net.URLEncoder} with UTF-8. Instead of round-tripping through JSON and a TreeMap, the
+ * sorted field metadata is computed once per class and values are percent-encoded in place.
+ * Classes with field types this encoder does not handle fall back to {@link ObjectMapper}.
+ */
+public final class FormUrlEncoder {
+
+    private static final byte[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+    private static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /**
+     * Marker for classes that must go through {@link ObjectMapper}.
+     */
+    private static final FieldMetadata[] UNSUPPORTED = new FieldMetadata[0];
+
+    private static final ConcurrentMap<Class<?>, FieldMetadata[]> sFieldMetadata = new ConcurrentHashMap<>();
+
+    private FormUrlEncoder() {
+        // Utility class.
+    }
+
+    /**
+     * Form-url-encode the fields of the given object.
+     *
+     * @param object The object to encode.
+     * @return The UTF-8 (ASCII) bytes of the encoded form.
+     * @throws UnsupportedEncodingException thrown if encoding not supported
+     */
+    public static byte[] encode(@NonNull final Object object) throws UnsupportedEncodingException {
+        final FieldMetadata[] fields = getFieldMetadata(object.getClass());
+        if (fields == UNSUPPORTED) {
+            return ObjectMapper.serializeObjectToFormUrlEncoded(object).getBytes(ObjectMapper.ENCODING_SCHEME);
+        }
+
+        final ByteBuffer buffer = new ByteBuffer(DEFAULT_BUFFER_SIZE);
+        for (final FieldMetadata field : fields) {
+            final Object value;
+            try {
+                value = field.mField.get(object);
+            } catch (final IllegalAccessException e) {
+                throw new IllegalStateException("Field is not accessible: " + field.mField, e);
+            }
+
+            if (value == null) {
+                continue;
+            }
+
+            if (buffer.size() > 0) {
+                buffer.write('&');
+            }
+
+            buffer.write(field.mEncodedName);
+            buffer.write('=');
+            encodeTo(buffer, toFormValue(value));
+        }
+
+        return buffer.toByteArray();
+    }
+
+    private static String toFormValue(final Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+
+        // UUID, Number, Boolean and Character are written by Gson as their toString() form
+        return value.toString();
+    }
+
+    private static FieldMetadata[] getFieldMetadata(final Class<?> clazz) throws UnsupportedEncodingException {
+        FieldMetadata[] fields = sFieldMetadata.get(clazz);
+        if (fields == null) {
+            fields = buildFieldMetadata(clazz);
+            final FieldMetadata[] existing = sFieldMetadata.putIfAbsent(clazz, fields);
+            if (existing != null) {
+                fields = existing;
+            }
+        }
+
+        return fields;
+    }
+
+    private static FieldMetadata[] buildFieldMetadata(final Class<?> clazz) throws UnsupportedEncodingException {
+        if (clazz.isAnonymousClass() || clazz.isLocalClass()) {
+            // Gson refuses to serialize these
+            return UNSUPPORTED;
+        }
+
+        final List<FieldMetadata> fields = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (final Field field : current.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (Modifier.isTransient(modifiers) || Modifier.isStatic(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+
+                if (!isSupportedType(field.getType())) {
+                    return UNSUPPORTED;
+                }
+
+                final SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                final String name = serializedName == null ? field.getName() : serializedName.value();
+                if (!names.add(name)) {
+                    // Duplicate names make Gson throw; keep that behavior
+                    return UNSUPPORTED;
+                }
+
+                field.setAccessible(true);
+                fields.add(new FieldMetadata(name, field));
+            }
+        }
+
+        final FieldMetadata[] result = fields.toArray(new FieldMetadata[fields.size()]);
+        Arrays.sort(result, new Comparator<FieldMetadata>() {
+            @Override
+            public int compare(final FieldMetadata lhs, final FieldMetadata rhs) {
+                return lhs.mName.compareTo(rhs.mName);
+            }
+        });
+
+        return result;
+    }
+
+    private static boolean isSupportedType(final Class<?> type) {
+        return type == String.class
+                || type == UUID.class
+                || type == Boolean.class
+                || type == Character.class
+                || type == Integer.class
+                || type == Long.class
+                || type == Short.class
+                || type == Byte.class
+                || (type.isPrimitive() && type != float.class && type != double.class);
+    }
+
+    /**
+     * Percent-encode the value the way {@link java.net.URLEncoder} does with UTF-8.
+     */
+    private static void encodeTo(final ByteBuffer buffer, final String value) throws UnsupportedEncodingException {
+        final int length = value.length();
+        int i = 0;
+        while (i < length) {
+            final char c = value.charAt(i);
+            if (isUnreserved(c)) {
+                buffer.write(c);
+                i++;
+            } else if (c == ' ') {
+                buffer.write('+');
+                i++;
+            } else {
+                // Encode the run of reserved characters together so surrogate pairs stay intact
+                int end = i + 1;
+                while (end < length && !isUnreserved(value.charAt(end)) && value.charAt(end) != ' ') {
+                    end++;
+                }
+
+                final byte[] bytes = value.substring(i, end).getBytes(ObjectMapper.ENCODING_SCHEME);
+                for (final byte b : bytes) {
+                    buffer.write('%');
+                    buffer.write(HEX_DIGITS[(b >> 4) & 0xF]);
+                    buffer.write(HEX_DIGITS[b & 0xF]);
+                }
+                i = end;
+            }
+        }
+    }
+
+    private static boolean isUnreserved(final char c) {
+        return (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == '*';
+    }
+
+    private static final class FieldMetadata {
+        private final String mName;
+        private final byte[] mEncodedName;
+        private final Field mField;
+
+        FieldMetadata(final String name, final Field field) throws UnsupportedEncodingException {
+            mName = name;
+            mField = field;
+
+            final ByteBuffer buffer = new ByteBuffer(name.length());
+            encodeTo(buffer, name);
+            mEncodedName = buffer.toByteArray();
+        }
+    }
+
+    /**
+     * Minimal unsynchronized growable byte buffer.
+     */
+    private static final class ByteBuffer {
+        private byte[] mBytes;
+        private int mSize;
+
+        ByteBuffer(final int initialCapacity) {
+            mBytes = new byte[Math.max(16, initialCapacity)];
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        void write(final int b) {
+            ensureCapacity(mSize + 1);
+            mBytes[mSize++] = (byte) b;
+        }
+
+        void write(final byte[] bytes) {
+            ensureCapacity(mSize + bytes.length);
+            System.arraycopy(bytes, 0, mBytes, mSize, bytes.length);
+            mSize += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBytes, mSize);
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > mBytes.length) {
+                mBytes = Arrays.copyOf(mBytes, Math.max(capacity, mBytes.length * 2));
+            }
+        }
+    }
+}
@@ -22,33 +22,37 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.net;
 
-import com.microsoft.identity.common.internal.util.StringUtil;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.Counter;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+import com.microsoft.identity.common.internal.tracing.Span;
+import com.microsoft.identity.common.internal.tracing.Tracer;
 
-import java.io.BufferedReader;
-import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.UnknownServiceException;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Internal class for handling http request.
  */
 public final class HttpRequest {
 
+    private static final String TAG = HttpRequest.class.getSimpleName();
+
     private static final String HOST = "Host";
-    /**
-     * The waiting time before doing retry to prevent hitting the server immediately failure.
-     */
-    private static final int RETRY_TIME_WAITING_PERIOD_MSEC = 1000;
-    private static final int STREAM_BUFFER_SIZE = 1024;
+    private static final String CONNECTION = "Connection";
+    private static final String CONNECTION_CLOSE = "close";
 
     static final String REQUEST_METHOD_GET = "GET";
     static final String REQUEST_METHOD_POST = "POST";
@@ -61,12 +65,78 @@ public final class HttpRequest {
      */
     private static final int DEFAULT_CONNECT_TIMEOUT = 30000;
 
+    /**
+     * System properties read by the platform {@link HttpURLConnection} connection pool.
+     */
+    private static final String PROPERTY_MAX_CONNECTIONS = "http.maxConnections";
+    private static final String PROPERTY_KEEP_ALIVE_DURATION = "http.keepAliveDuration";
+
+    /**
+     * Whether connections may be kept alive and reused across requests. Disabled by default, in
+     * which case every request is sent with "Connection: close".
+     */
+    private static volatile boolean sConnectionReuseEnabled = false;
+
+    /**
+     * The transport used to execute requests.
+     */
+    private static volatile IHttpTransport sTransport = new HttpUrlConnectionTransport();
+
+    /**
+     * The policy deciding whether and when failed requests are retried.
+     */
+    private static volatile RetryPolicy sRetryPolicy = RetryPolicy.DEFAULT;
+
+    /**
+     * Retry budgets keyed by lower-cased host name.
+     */
+    private static final ConcurrentMap<String, RetryBudget> sRetryBudgets = new ConcurrentHashMap<>();
+
+    /**
+     * The policy of the per-host circuit breakers.
+     */
+    private static volatile CircuitBreakerPolicy sCircuitBreakerPolicy = CircuitBreakerPolicy.DEFAULT;
+
+    /**
+     * Circuit breakers keyed by lower-cased host name.
+     */
+    private static final ConcurrentMap<String, CircuitBreaker> sCircuitBreakers = new ConcurrentHashMap<>();
+
+    /**
+     * Listener notified of circuit breaker state transitions, may be null.
+     */
+    private static volatile ICircuitBreakerListener sCircuitBreakerListener;
+
+    /**
+     * Logs circuit breaker state transitions and forwards them to {@link #sCircuitBreakerListener}.
+     */
+    private static final ICircuitBreakerListener CIRCUIT_BREAKER_LISTENER = new ICircuitBreakerListener() {
+        @Override
+        public void onStateChanged(@NonNull final String host,
+                                   @NonNull final CircuitBreaker.State previousState,
+                                   @NonNull final CircuitBreaker.State newState) {
+            Logger.warn(TAG + ":onStateChanged", "Circuit breaker for host " + host
+                    + " changed from " + previousState + " to " + newState);
+
+            final ICircuitBreakerListener listener = sCircuitBreakerListener;
+            if (listener != null) {
+                listener.onStateChanged(host, previousState, newState);
+            }
+        }
+    };
+
+    private static final String LATENCY_METRIC = "http.latency_us";
+    private static final String TENANT_PLACEHOLDER = "tenant";
+
+    private static final Counter RETRY_COUNTER = MetricsRegistry.counter("http.retries");
+
     // class variables
     private final URL mRequestUrl;
     private final byte[] mRequestContent;
     private final String mRequestContentType;
     private final String mRequestMethod;
     private final Map<String, String> mRequestHeaders = new HashMap<>();
+    private final IResponseBodyParser<?> mResponseBodyParser;
 
     /**
      * Constructor for {@link HttpRequest} with request {@link URL} and request headers.
@@ -75,7 +145,7 @@ public final class HttpRequest {
      * @param requestHeaders Headers used to send the http request.
      */
     private HttpRequest(final URL requestUrl, final Map<String, String> requestHeaders, final String requestMethod) {
-        this(requestUrl, requestHeaders, requestMethod, null, null);
+        this(requestUrl, requestHeaders, requestMethod, null, null, null);
     }
 
     /**
@@ -86,10 +156,11 @@ public final class HttpRequest {
      * @param requestHeaders     Headers used to send the http request.
      * @param requestContent     Post message sent in the post request.
      * @param requestContentType Request content type.
+     * @param responseBodyParser Parser for successful response bodies, may be null.
      */
     private HttpRequest(final URL requestUrl, final Map<String, String> requestHeaders,
                         final String requestMethod, final byte[] requestContent,
-                        final String requestContentType) {
+                        final String requestContentType, final IResponseBodyParser<?> responseBodyParser) {
         mRequestUrl = requestUrl;
 
         mRequestHeaders.put(HOST, requestUrl.getAuthority());
@@ -98,7 +169,111 @@ public final class HttpRequest {
         mRequestMethod = requestMethod;
         mRequestContent = requestContent;
         mRequestContentType = requestContentType;
+        mResponseBodyParser = responseBodyParser;
+    }
+
+    /**
+     * Enable/Disable keep-alive and reuse of connections across requests. When enabled, requests
+     * to the same host (token, discovery and refresh calls) share pooled connections instead of
+     * paying a new TCP and TLS handshake each time.
+     *
+     * @param enabled True to allow connection reuse, false to close connections after each request.
+     */
+    public static void setConnectionReuseEnabled(final boolean enabled) {
+        sConnectionReuseEnabled = enabled;
+    }
+
+    /**
+     * @return True if connections may be kept alive and reused, false otherwise.
+     */
+    public static boolean isConnectionReuseEnabled() {
+        return sConnectionReuseEnabled;
+    }
+
+    /**
+     * Set the {@link IHttpTransport} used by {@link HttpRequest} and the ADAL HttpWebRequest.
+     *
+     * @param transport The transport to use, or null to restore the default
+     *                  {@link HttpUrlConnectionTransport}.
+     */
+    public static void setTransport(@Nullable final IHttpTransport transport) {
+        sTransport = transport == null ? new HttpUrlConnectionTransport() : transport;
+    }
+
+    /**
+     * @return The {@link IHttpTransport} currently used to execute requests.
+     */
+    @NonNull
+    public static IHttpTransport getTransport() {
+        return sTransport;
+    }
+
+    /**
+     * Set the {@link RetryPolicy} used for subsequent requests. Resets the per-host retry budgets.
+     *
+     * @param retryPolicy The policy to use, or null to restore {@link RetryPolicy#DEFAULT}.
+     */
+    public static void setRetryPolicy(@Nullable final RetryPolicy retryPolicy) {
+        sRetryPolicy = retryPolicy == null ? RetryPolicy.DEFAULT : retryPolicy;
+        sRetryBudgets.clear();
+    }
+
+    /**
+     * @return The {@link RetryPolicy} currently in use.
+     */
+    @NonNull
+    public static RetryPolicy getRetryPolicy() {
+        return sRetryPolicy;
+    }
+
+    /**
+     * Set the {@link CircuitBreakerPolicy} used for subsequent requests. Resets all circuit breakers.
+     *
+     * @param circuitBreakerPolicy The policy to use, or null to restore {@link CircuitBreakerPolicy#DEFAULT}.
+     */
+    public static void setCircuitBreakerPolicy(@Nullable final CircuitBreakerPolicy circuitBreakerPolicy) {
+        sCircuitBreakerPolicy = circuitBreakerPolicy == null ? CircuitBreakerPolicy.DEFAULT : circuitBreakerPolicy;
+        sCircuitBreakers.clear();
+    }
+
+    /**
+     * Set the listener notified when a host's circuit breaker changes state.
+     *
+     * @param listener The listener, or null to remove it.
+     */
+    public static void setCircuitBreakerListener(@Nullable final ICircuitBreakerListener listener) {
+        sCircuitBreakerListener = listener;
+    }
+
+    /**
+     * Get the state of the circuit breaker guarding the given host. Callers can use this to skip
+     * the network and fall back to cached results while a host is unavailable.
+     *
+     * @param host The host name.
+     * @return The breaker state, {@link CircuitBreaker.State#CLOSED} if no request has failed yet.
+     */
+    @NonNull
+    public static CircuitBreaker.State getCircuitBreakerState(@NonNull final String host) {
+        final CircuitBreaker circuitBreaker = sCircuitBreakers.get(host.toLowerCase(Locale.US));
+        return circuitBreaker == null ? CircuitBreaker.State.CLOSED : circuitBreaker.getState();
+    }
+
+    /**
+     * Configure the platform connection pool used when connection reuse is enabled. These settings
+     * are process-wide and are read once by the platform, so they must be applied before the first
+     * connection is opened to take effect.
+     *
+     * @param maxIdleConnections      The maximum number of idle connections kept per host.
+     * @param keepAliveDurationMillis How long an idle connection is kept in the pool.
+     */
+    public static void setConnectionPoolSettings(final int maxIdleConnections,
+                                                 final long keepAliveDurationMillis) {
+        if (maxIdleConnections < 0 || keepAliveDurationMillis < 0) {
+            throw new IllegalArgumentException("Connection pool settings must not be negative.");
+        }
 
+        System.setProperty(PROPERTY_MAX_CONNECTIONS, String.valueOf(maxIdleConnections));
+        System.setProperty(PROPERTY_KEEP_ALIVE_DURATION, String.valueOf(keepAliveDurationMillis));
     }
 
     /**
@@ -114,8 +289,28 @@ public final class HttpRequest {
     public static HttpResponse sendPost(final URL requestUrl, final Map<String, String> requestHeaders,
                                         final byte[] requestContent, final String requestContentType)
             throws IOException {
+        return sendPost(requestUrl, requestHeaders, requestContent, requestContentType, null);
+    }
+
+    /**
+     * Send post request {@link URL}, headers, post message and the request content type, parsing a
+     * successful response body while it is streamed from the connection. Error responses (status
+     * code 400 and above) are returned with their raw body.
+     *
+     * @param requestUrl         The {@link URL} to make the http request.
+     * @param requestHeaders     Headers used to send the http request.
+     * @param requestContent     Post message sent in the post request.
+     * @param requestContentType Request content type.
+     * @param responseBodyParser Parser for successful response bodies, may be null.
+     * @return HttpResponse, carrying the parsed body in {@link HttpResponse#getParsedBody()}.
+     * @throws IOException throw if error happen during http send request.
+     */
+    public static HttpResponse sendPost(final URL requestUrl, final Map<String, String> requestHeaders,
+                                        final byte[] requestContent, final String requestContentType,
+                                        @Nullable final IResponseBodyParser<?> responseBodyParser)
+            throws IOException {
         final HttpRequest httpRequest = new HttpRequest(requestUrl, requestHeaders, REQUEST_METHOD_POST,
-                requestContent, requestContentType);
+                requestContent, requestContentType, responseBodyParser);
         return httpRequest.send();
     }
 
@@ -138,177 +333,248 @@ public final class HttpRequest {
      * Send http request.
      */
     private HttpResponse send() throws IOException, SocketTimeoutException, UnknownServiceException {
-        final HttpResponse response;
+        final Span span = Tracer.startSpan("HttpRequest.send");
         try {
-            response = sendWithRetry();
-        } catch (final SocketTimeoutException socketTimeoutException) {
-            throw socketTimeoutException;
-        }
+            final HttpResponse response = sendWithRetry();
 
-        if (response != null && isRetryableError(response.getStatusCode())) {
-            throw new UnknownServiceException("Retry failed again with 500/503/504");
-        }
+            if (response != null && isServerError(response.getStatusCode())) {
+                throw new UnknownServiceException("Retry failed again with 500/503/504");
+            }
 
-        return response;
+            return response;
+        } catch (final IOException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
     }
 
     /**
-     * Execute the send request, and retry if needed. Retry happens on all the endpoint when receiving
-     * {@link SocketTimeoutException} or retryable error 500/503/504.
+     * Execute the send request, and retry if needed. Retry happens on all the endpoints when receiving
+     * {@link SocketTimeoutException} or a status code accepted by
+     * {@link RetryPolicy#isRetryableStatusCode(int)}, as long as the policy and the host's retry budget
+     * allow it.
      */
     private HttpResponse sendWithRetry() throws IOException {
-        final HttpResponse httpResponse;
-        try {
-            httpResponse = executeHttpSend();
-        } catch (final SocketTimeoutException socketTimeoutException) {
-            // In android, network timeout is thrown as the SocketTimeOutException, we need to catch this and perform
-            // retry. If retry also fails with timeout, the socketTimeoutException will be bubbled up
-            waitBeforeRetry();
-            return executeHttpSend();
+        final RetryPolicy retryPolicy = sRetryPolicy;
+        final RetryBudget retryBudget = retryPolicy.isRetryBudgetEnabled()
+                ? getRetryBudget(retryPolicy, mRequestUrl)
+                : null;
+        if (retryBudget != null) {
+            retryBudget.deposit();
         }
 
-        if (isRetryableError(httpResponse.getStatusCode())) {
-            // retry if we get 500/503/504
-            waitBeforeRetry();
-            return executeHttpSend();
-        }
-
-        return httpResponse;
-    }
-
-    private HttpResponse executeHttpSend() throws IOException {
-        final HttpURLConnection urlConnection = setupConnection();
-        urlConnection.setRequestMethod(mRequestMethod);
-        setRequestBody(urlConnection, mRequestContent, mRequestContentType);
-
-        InputStream responseStream = null;
-
-        final HttpResponse response;
-        try {
+        for (int retryNumber = 0; ; retryNumber++) {
+            final HttpResponse httpResponse;
             try {
-                responseStream = urlConnection.getInputStream();
+                httpResponse = executeHttpSend();
             } catch (final SocketTimeoutException socketTimeoutException) {
-                // SocketTimeoutExcetion is thrown when connection timeout happens. For connection timeout, we want
-                // to retry once. Throw the exception to the upper layer, and the upper layer will handle the rety.
-                throw socketTimeoutException;
-            } catch (final IOException ioException) {
-                responseStream = urlConnection.getErrorStream();
+                // In android, network timeout is thrown as the SocketTimeOutException, we need to catch this and perform
+                // retry. If retry is not allowed, the socketTimeoutException will be bubbled up
+                if (!shouldRetry(retryPolicy, retryBudget, retryNumber)
+                        || !waitBeforeRetry(retryPolicy.getRetryDelayMillis(retryNumber, null))) {
+                    throw socketTimeoutException;
+                }
+
+                RETRY_COUNTER.increment();
+                continue;
             }
 
-            final int statusCode = urlConnection.getResponseCode();
+            if (!retryPolicy.isRetryableStatusCode(httpResponse.getStatusCode())
+                    || !shouldRetry(retryPolicy, retryBudget, retryNumber)) {
+                return httpResponse;
+            }
 
-            String responseBody = responseStream == null ? "" : convertStreamToString(responseStream);
+            final long delayMillis = retryPolicy.getRetryDelayMillis(retryNumber, httpResponse);
+            if (delayMillis < 0 || !waitBeforeRetry(delayMillis)) {
+                // The server asked us to back off for longer than we are willing to wait
+                return httpResponse;
+            }
 
-            response = new HttpResponse(statusCode, responseBody, urlConnection.getHeaderFields());
-        } finally {
-            safeCloseStream(responseStream);
+            RETRY_COUNTER.increment();
         }
+    }
 
-        return response;
+    private static boolean shouldRetry(final RetryPolicy retryPolicy, @Nullable final RetryBudget retryBudget,
+                                       final int retryNumber) {
+        return retryNumber < retryPolicy.getMaxRetries() && (retryBudget == null || retryBudget.tryWithdraw());
     }
 
-    private HttpURLConnection setupConnection() throws IOException {
-        final HttpURLConnection urlConnection = HttpUrlConnectionFactory.createHttpURLConnection(mRequestUrl);
-        urlConnection.setRequestProperty("Connection", "close");
+    @Nullable
+    private static CircuitBreaker getCircuitBreaker(final URL requestUrl) {
+        final CircuitBreakerPolicy circuitBreakerPolicy = sCircuitBreakerPolicy;
+        if (!circuitBreakerPolicy.isEnabled()) {
+            return null;
+        }
 
-        // Apply request headers and update the headers with default attributes first
-        final Set<Map.Entry<String, String>> headerEntries = mRequestHeaders.entrySet();
-        for (final Map.Entry<String, String> entry : headerEntries) {
-            urlConnection.setRequestProperty(entry.getKey(), entry.getValue());
+        final String host = requestUrl.getHost().toLowerCase(Locale.US);
+        CircuitBreaker circuitBreaker = sCircuitBreakers.get(host);
+        if (circuitBreaker == null) {
+            final CircuitBreaker newCircuitBreaker = new CircuitBreaker(host, circuitBreakerPolicy,
+                    CIRCUIT_BREAKER_LISTENER);
+            circuitBreaker = sCircuitBreakers.putIfAbsent(host, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+            }
         }
 
-        urlConnection.setConnectTimeout(DEFAULT_CONNECT_TIMEOUT);
-        urlConnection.setReadTimeout(DEFAULT_READ_TIMEOUT);
-        urlConnection.setInstanceFollowRedirects(true);
-        urlConnection.setUseCaches(false);
-        urlConnection.setDoInput(true);
+        return circuitBreaker;
+    }
+
+    private static RetryBudget getRetryBudget(final RetryPolicy retryPolicy, final URL requestUrl) {
+        final String host = requestUrl.getHost().toLowerCase(Locale.US);
+        RetryBudget retryBudget = sRetryBudgets.get(host);
+        if (retryBudget == null) {
+            final RetryBudget newRetryBudget = new RetryBudget(retryPolicy.getRetryBudgetRatio(),
+                    retryPolicy.getRetryBudgetCapacity());
+            retryBudget = sRetryBudgets.putIfAbsent(host, newRetryBudget);
+            if (retryBudget == null) {
+                retryBudget = newRetryBudget;
+            }
+        }
 
-        return urlConnection;
+        return retryBudget;
     }
 
-    private static void setRequestBody(final HttpURLConnection connection, final byte[] contentRequest,
-                                       final String requestContentType) throws IOException {
-        if (contentRequest == null) {
-            return;
+    private HttpResponse executeHttpSend() throws IOException {
+        final CircuitBreaker circuitBreaker = getCircuitBreaker(mRequestUrl);
+        if (circuitBreaker == null) {
+            return executeHttpSendWithTransport();
         }
 
-        connection.setDoOutput(true);
+        final int ticket = circuitBreaker.acquirePermission();
+        boolean recorded = false;
+        try {
+            final HttpResponse response = executeHttpSendWithTransport();
+            recorded = true;
+            if (isHostFailure(response.getStatusCode())) {
+                circuitBreaker.onFailure(ticket);
+            } else {
+                circuitBreaker.onSuccess(ticket);
+            }
 
-        if (!StringUtil.isEmpty(requestContentType)) {
-            connection.setRequestProperty("Content-Type", requestContentType);
+            return response;
+        } catch (final SocketTimeoutException socketTimeoutException) {
+            // Connect and read timeouts count against the host
+            recorded = true;
+            circuitBreaker.onFailure(ticket);
+            throw socketTimeoutException;
+        } finally {
+            if (!recorded) {
+                // Other failures, e.g. no network or an unparseable body, say nothing about the host
+                circuitBreaker.onAbandoned(ticket);
+            }
         }
+    }
 
-        connection.setRequestProperty("Content-Length", String.valueOf(contentRequest.length));
+    private HttpResponse executeHttpSendWithTransport() throws IOException {
+        final Map<String, String> requestHeaders = new HashMap<>();
+        if (!sConnectionReuseEnabled) {
+            requestHeaders.put(CONNECTION, CONNECTION_CLOSE);
+        }
+        requestHeaders.putAll(mRequestHeaders);
 
-        OutputStream out = null;
+        final long startNanos = System.nanoTime();
+        final HttpResponse response;
         try {
-            out = connection.getOutputStream();
-            out.write(contentRequest);
-        } finally {
-            safeCloseStream(out);
+            response = sTransport.execute(mRequestMethod, mRequestUrl, requestHeaders,
+                    mRequestContent, mRequestContentType, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT,
+                    mResponseBodyParser);
+        } catch (final IOException e) {
+            recordLatency(startNanos, e.getClass().getSimpleName());
+            throw e;
+        }
+        recordLatency(startNanos, String.valueOf(response.getStatusCode()));
+
+        if (response.getBody() == null && response.getParsedBody() == null) {
+            return new HttpResponse(response.getStatusCode(), "", response.getHeaders());
         }
+
+        return response;
     }
 
     /**
-     * Convert stream into the string.
+     * Record the latency of a single attempt in the histogram of the endpoint and outcome. The
+     * endpoint is keyed on the host and the path without its tenant, see
+     * {@link #getLatencyEndpoint(URL)}.
      *
-     * @param inputStream {@link InputStream} to be converted to be a string.
-     * @return The converted string
-     * @throws IOException Thrown when failing to access inputStream stream.
+     * @param startNanos The time the attempt started at.
+     * @param status     The status code of the response, or the type of the exception it failed with.
      */
-    private static String convertStreamToString(final InputStream inputStream) throws IOException {
-        try {
-            final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-            final char[] buffer = new char[STREAM_BUFFER_SIZE];
-            final StringBuilder stringBuilder = new StringBuilder();
-            int charsRead;
-            while ((charsRead = reader.read(buffer)) > -1) {
-                stringBuilder.append(buffer, 0, charsRead);
-            }
-
-            return stringBuilder.toString();
-        } finally {
-            safeCloseStream(inputStream);
-        }
+    private void recordLatency(final long startNanos, final String status) {
+        final long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        MetricsRegistry.histogram(MetricsRegistry.name(
+                LATENCY_METRIC,
+                "endpoint", getLatencyEndpoint(mRequestUrl),
+                "status", status
+        )).record(latencyMicros);
     }
 
     /**
-     * Close the stream safely.
+     * Get the endpoint a request is recorded under. Authority URLs carry the tenant as their first
+     * path segment, e.g. {@code /contoso.onmicrosoft.com/oauth2/v2.0/token}; it is replaced with
+     * {@value #TENANT_PLACEHOLDER} so that requests for every tenant share one histogram per
+     * endpoint, and tenant ids do not end up in metric names. The query string is left out.
      *
-     * @param stream stream to be closed
+     * @param requestUrl The request URL.
+     * @return The host and the path with the tenant replaced, e.g.
+     * {@code login.microsoftonline.com/tenant/oauth2/v2.0/token}.
      */
-    private static void safeCloseStream(final Closeable stream) {
-        if (stream == null) {
-            return;
+    private static String getLatencyEndpoint(@NonNull final URL requestUrl) {
+        final String host = requestUrl.getHost().toLowerCase(Locale.US);
+        final String path = requestUrl.getPath();
+        final int tenantEnd = path.indexOf('/', 1);
+        if (!path.startsWith("/") || tenantEnd < 0) {
+            // No path beneath a tenant, e.g. "/" or "/token"
+            return host + path;
         }
 
-        try {
-            stream.close();
-        } catch (final IOException e) {
-            //Encountered IO exception when trying to close the stream"
-        }
+        return host + "/" + TENANT_PLACEHOLDER + path.substring(tenantEnd);
     }
 
     /**
-     * Check if the given status code is the retryable status code(500/503/504).
+     * Check if the given status code is a server error (500/503/504) that is surfaced to the caller
+     * as an {@link UnknownServiceException} once retries are exhausted.
      *
      * @param statusCode The status to check.
      * @return True if the status code is 500, 503 or 504, false otherwise.
      */
-    private static boolean isRetryableError(final int statusCode) {
+    private static boolean isServerError(final int statusCode) {
         return statusCode == HttpURLConnection.HTTP_INTERNAL_ERROR
                 || statusCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT
                 || statusCode == HttpURLConnection.HTTP_UNAVAILABLE;
     }
 
     /**
-     * Having the thread wait for 1 second before doing the retry to avoid hitting server immediately.
+     * Check if the given status code is a 5xx server error, which counts as a failure of the host
+     * for its circuit breaker.
+     *
+     * @param statusCode The status to check.
+     * @return True if the status code is in the 5xx range, false otherwise.
+     */
+    private static boolean isHostFailure(final int statusCode) {
+        return statusCode >= HttpURLConnection.HTTP_INTERNAL_ERROR && statusCode < 600;
+    }
+
+    /**
+     * Have the thread wait before doing the retry to avoid hitting server immediately.
+     *
+     * @param delayMillis The time to wait in milliseconds.
+     * @return True if the wait completed, false if the thread was interrupted and the retry should
+     * be abandoned.
      */
-    private void waitBeforeRetry() {
+    private static boolean waitBeforeRetry(final long delayMillis) {
+        if (delayMillis <= 0) {
+            return true;
+        }
+
         try {
-            Thread.sleep(RETRY_TIME_WAITING_PERIOD_MSEC);
+            Thread.sleep(delayMillis);
+            return true;
         } catch (final InterruptedException interrupted) {
-            //Fail the have the thread waiting for 1 second before doing the retry
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -33,6 +33,7 @@ public final class HttpResponse {
     private final int mStatusCode;
     private final String mResponseBody;
     private final Map<String, List<String>> mResponseHeaders;
+    private final Object mParsedBody;
 
     /**
      * Constructor for {@link HttpResponse}.
@@ -43,9 +44,24 @@ public final class HttpResponse {
      */
     public HttpResponse(final int statusCode, final String responseBody,
                         final Map<String, List<String>> responseHeaders) {
+        this(statusCode, responseBody, responseHeaders, null);
+    }
+
+    /**
+     * Constructor for {@link HttpResponse} whose body may have been parsed while streaming it from
+     * the connection, in which case the raw body is not retained.
+     *
+     * @param statusCode      The status code from the server response.
+     * @param responseBody    Raw response body, null if the body was parsed.
+     * @param responseHeaders Response headers from the connection sent to the server.
+     * @param parsedBody      The body produced by an {@link IResponseBodyParser}, may be null.
+     */
+    public HttpResponse(final int statusCode, final String responseBody,
+                        final Map<String, List<String>> responseHeaders, final Object parsedBody) {
         mStatusCode = statusCode;
         mResponseBody = responseBody;
         mResponseHeaders = responseHeaders;
+        mParsedBody = parsedBody;
     }
 
     /**
@@ -62,6 +78,14 @@ public final class HttpResponse {
         return mResponseBody;
     }
 
+    /**
+     * @return The body produced by the {@link IResponseBodyParser} supplied with the request, or
+     * null if the body was not parsed while streaming.
+     */
+    public Object getParsedBody() {
+        return mParsedBody;
+    }
+
     /**
      * @return The unmodified Map of response headers.
      * Response headers is set by {@link java.net.HttpURLConnection#getHeaderFields()} which is an unmodified Map.
@@ -70,6 +94,28 @@ public final class HttpResponse {
         return mResponseHeaders;
     }
 
+    /**
+     * Gets the first value of the named response header. Header names are matched case-insensitively.
+     *
+     * @param headerName The name of the header.
+     * @return The header value or null, if the header is not present.
+     */
+    public String getHeaderValue(final String headerName) {
+        if (null == mResponseHeaders) {
+            return null;
+        }
+
+        for (final Map.Entry<String, List<String>> header : mResponseHeaders.entrySet()) {
+            if (headerName.equalsIgnoreCase(header.getKey())
+                    && null != header.getValue()
+                    && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+
+        return null;
+    }
+
     //CHECKSTYLE:OFF
     // This method is generated. Checkstyle and/or PMD has been disabled.
     // This method *must* be regenerated if the class' structural definition changes through the
@@ -80,6 +126,7 @@ public final class HttpResponse {
                 "mStatusCode=" + mStatusCode +
                 ", mResponseBody='" + mResponseBody + '\'' +
                 ", mResponseHeaders=" + mResponseHeaders +
+                ", mParsedBody=" + mParsedBody +
                 '}';
     }
     //CHECKSTYLE:ON
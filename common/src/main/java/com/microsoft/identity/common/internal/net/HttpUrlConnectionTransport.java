@@ -0,0 +1,232 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.util.StringUtil;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Default {@link IHttpTransport} backed by the platform {@link HttpURLConnection}.
+ */
+public class HttpUrlConnectionTransport implements IHttpTransport {
+
+    private static final int STREAM_BUFFER_SIZE = 1024;
+    private static final String UTF_8 = "UTF-8";
+
+    @Override
+    public HttpResponse execute(@NonNull final String requestMethod,
+                                @NonNull final URL requestUrl,
+                                @NonNull final Map<String, String> requestHeaders,
+                                @Nullable final byte[] requestContent,
+                                @Nullable final String requestContentType,
+                                final int connectTimeoutMillis,
+                                final int readTimeoutMillis,
+                                @Nullable final IResponseBodyParser<?> responseBodyParser) throws IOException {
+        final HttpURLConnection urlConnection = openConnection(requestUrl);
+
+        InputStream responseStream = null;
+        final HttpResponse response;
+        try {
+            // Apply request headers
+            final Set<Map.Entry<String, String>> headerEntries = requestHeaders.entrySet();
+            for (final Map.Entry<String, String> entry : headerEntries) {
+                urlConnection.setRequestProperty(entry.getKey(), entry.getValue());
+            }
+
+            urlConnection.setConnectTimeout(connectTimeoutMillis);
+            urlConnection.setReadTimeout(readTimeoutMillis);
+            urlConnection.setInstanceFollowRedirects(true);
+            urlConnection.setUseCaches(false);
+            urlConnection.setDoInput(true);
+            urlConnection.setRequestMethod(requestMethod);
+            setRequestBody(urlConnection, requestContent, requestContentType);
+
+            IOException responseFailure = null;
+            try {
+                responseStream = urlConnection.getInputStream();
+            } catch (final SocketTimeoutException socketTimeoutException) {
+                // Timeouts are surfaced to the caller, which decides whether to retry.
+                throw socketTimeoutException;
+            } catch (final IOException ioException) {
+                responseStream = urlConnection.getErrorStream();
+                if (responseStream == null) {
+                    responseFailure = ioException;
+                }
+            }
+
+            // GET request should read status after getInputStream to make this work for different SDKs
+            final int statusCode;
+            try {
+                statusCode = urlConnection.getResponseCode();
+            } catch (final IOException ioException) {
+                // No response at all, e.g. the TLS handshake or host lookup failed: report the
+                // original failure rather than the one of the second attempt to read it
+                throw responseFailure == null ? ioException : responseFailure;
+            }
+
+            if (responseStream != null && responseBodyParser != null && isSuccessStatusCode(statusCode)) {
+                final Object parsedBody = parseResponseBody(responseStream, responseBodyParser);
+                response = new HttpResponse(statusCode, null, urlConnection.getHeaderFields(), parsedBody);
+            } else {
+                // The body is read to EOF, which allows the connection to be returned to the pool
+                final String responseBody = responseStream == null ? null : convertStreamToString(responseStream);
+                response = new HttpResponse(statusCode, responseBody, urlConnection.getHeaderFields());
+            }
+        } catch (final IOException ioException) {
+            // The connection is in an unknown state; make sure it is not reused
+            urlConnection.disconnect();
+            throw ioException;
+        } catch (final RuntimeException runtimeException) {
+            urlConnection.disconnect();
+            throw runtimeException;
+        } finally {
+            safeCloseStream(responseStream);
+        }
+
+        return response;
+    }
+
+    /**
+     * Open the {@link HttpURLConnection} for the given url. Subclasses may override this to
+     * supply the connection from a different source.
+     *
+     * @param requestUrl The request URL used to create the connection.
+     * @return The unconnected {@link HttpURLConnection}.
+     * @throws IOException if it fails to open connection with the provided URL.
+     */
+    protected HttpURLConnection openConnection(@NonNull final URL requestUrl) throws IOException {
+        return HttpUrlConnectionFactory.createHttpURLConnection(requestUrl);
+    }
+
+    private static void setRequestBody(final HttpURLConnection connection, final byte[] contentRequest,
+                                       final String requestContentType) throws IOException {
+        if (contentRequest == null) {
+            return;
+        }
+
+        connection.setDoOutput(true);
+
+        if (!StringUtil.isEmpty(requestContentType)) {
+            connection.setRequestProperty("Content-Type", requestContentType);
+        }
+
+        connection.setRequestProperty("Content-Length", String.valueOf(contentRequest.length));
+        connection.setFixedLengthStreamingMode(contentRequest.length);
+
+        OutputStream out = null;
+        try {
+            out = connection.getOutputStream();
+            out.write(contentRequest);
+        } finally {
+            safeCloseStream(out);
+        }
+    }
+
+    private static boolean isSuccessStatusCode(final int statusCode) {
+        return statusCode >= HttpURLConnection.HTTP_OK && statusCode < HttpURLConnection.HTTP_MULT_CHOICE;
+    }
+
+    /**
+     * Parse the response body straight from the stream, then drain whatever the parser left unread
+     * so that the connection can be returned to the pool.
+     *
+     * @throws IOException if the body cannot be read, or if the parser rejects it as malformed.
+     */
+    private static Object parseResponseBody(final InputStream inputStream,
+                                            final IResponseBodyParser<?> responseBodyParser)
+            throws IOException {
+        try {
+            final Reader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8), STREAM_BUFFER_SIZE);
+            final Object parsedBody;
+            try {
+                parsedBody = responseBodyParser.parse(reader);
+            } catch (final RuntimeException runtimeException) {
+                throw new IOException("Failed to parse the response body.", runtimeException);
+            }
+            final char[] buffer = new char[STREAM_BUFFER_SIZE];
+            while (reader.read(buffer) > -1) {
+                // Drain trailing content
+            }
+
+            return parsedBody;
+        } finally {
+            safeCloseStream(inputStream);
+        }
+    }
+
+    /**
+     * Convert stream into the string.
+     *
+     * @param inputStream {@link InputStream} to be converted to be a string.
+     * @return The converted string
+     * @throws IOException Thrown when failing to access inputStream stream.
+     */
+    private static String convertStreamToString(final InputStream inputStream) throws IOException {
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+            final char[] buffer = new char[STREAM_BUFFER_SIZE];
+            final StringBuilder stringBuilder = new StringBuilder();
+            int charsRead;
+            while ((charsRead = reader.read(buffer)) > -1) {
+                stringBuilder.append(buffer, 0, charsRead);
+            }
+
+            return stringBuilder.toString();
+        } finally {
+            safeCloseStream(inputStream);
+        }
+    }
+
+    /**
+     * Close the stream safely.
+     *
+     * @param stream stream to be closed
+     */
+    private static void safeCloseStream(final Closeable stream) {
+        if (stream == null) {
+            return;
+        }
+
+        try {
+            stream.close();
+        } catch (final IOException e) {
+            //Encountered IO exception when trying to close the stream"
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Transport used to execute a single http exchange. {@link HttpRequest} and the ADAL
+ * HttpWebRequest delegate the wire-level work to an implementation of this interface, which
+ * allows plugging in a pooled or HTTP/2 capable client in place of the default
+ * {@link HttpUrlConnectionTransport}.
+ * <p>
+ * Implementations must be thread safe. Retry and connection-reuse policies are applied by the
+ * caller; a transport executes exactly one exchange per call.
+ */
+public interface IHttpTransport {
+
+    /**
+     * Execute the http request and read the complete response.
+     *
+     * @param requestMethod        The http method, e.g. GET or POST.
+     * @param requestUrl           The {@link URL} to send the request to.
+     * @param requestHeaders       Headers to send with the request.
+     * @param requestContent       The request body, or null if the request has no body.
+     * @param requestContentType   The content type of the request body, may be null.
+     * @param connectTimeoutMillis The connect timeout in milliseconds.
+     * @param readTimeoutMillis    The read timeout in milliseconds.
+     * @param responseBodyParser   Parser applied to the body of a response with a 2xx status code
+     *                             while it is streamed, may be null. When it is applied the
+     *                             response carries the parsed body instead of the raw body. A body
+     *                             the parser rejects is reported as an {@link IOException}.
+     * @return The {@link HttpResponse}. The body is null if the server sent an error status
+     * without a body.
+     * @throws SocketTimeoutException if the connect or read timed out.
+     * @throws IOException            if no response could be obtained.
+     */
+    HttpResponse execute(@NonNull String requestMethod,
+                         @NonNull URL requestUrl,
+                         @NonNull Map<String, String> requestHeaders,
+                         @Nullable byte[] requestContent,
+                         @Nullable String requestContentType,
+                         int connectTimeoutMillis,
+                         int readTimeoutMillis,
+                         @Nullable IResponseBodyParser<?> responseBodyParser) throws IOException;
+}
@@ -0,0 +1,57 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * {@link IResponseBodyParser} reading a JSON body into the given class with a streaming reader.
+ *
+ * @param <T> The type the body is parsed into.
+ */
+public final class JsonResponseBodyParser<T> implements IResponseBodyParser<T> {
+
+    private final Class<T> mResponseClass;
+
+    /**
+     * @param responseClass The class the JSON body is deserialized into.
+     */
+    public JsonResponseBodyParser(@NonNull final Class<T> responseClass) {
+        mResponseClass = responseClass;
+    }
+
+    @Override
+    public T parse(@NonNull final Reader body) throws IOException {
+        try {
+            return ObjectMapper.deserializeJsonStreamToObject(body, mResponseClass);
+        } catch (final JsonParseException exception) {
+            throw new IOException("Malformed JSON response body.", exception);
+        }
+    }
+}
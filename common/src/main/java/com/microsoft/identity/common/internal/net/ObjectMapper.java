@@ -22,11 +22,17 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.net;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
 import com.microsoft.identity.common.internal.util.StringUtil;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
 import java.net.URLDecoder;
@@ -56,7 +62,7 @@ public final class ObjectMapper {
      * @return JSON string
      */
     public static String serializeObjectToJsonString(Object object) {
-        return new Gson().toJson(object);
+        return GsonRegistry.getDefault().toJson(object);
     }
 
     /**
@@ -68,7 +74,35 @@ public final class ObjectMapper {
      * @return object
      */
     public static <T> T deserializeJsonStringToObject(String json, Class<T> objectClass) {
-        return new Gson().fromJson(json, objectClass);
+        return GsonRegistry.getDefault().fromJson(json, objectClass);
+    }
+
+    /**
+     * Deserialize a Json stream to Object, reading it incrementally instead of buffering the whole
+     * document in a String.
+     *
+     * @param reader      Reader positioned at the start of the Json document
+     * @param objectClass object class
+     * @param <T>         type T
+     * @return object, or null if the stream is empty
+     * @throws IOException thrown if the stream cannot be read
+     */
+    public static <T> T deserializeJsonStreamToObject(final Reader reader, final Class<T> objectClass)
+            throws IOException {
+        final JsonReader jsonReader = new JsonReader(reader);
+        try {
+            final JsonToken firstToken = jsonReader.peek();
+            if (firstToken == JsonToken.END_DOCUMENT) {
+                return null;
+            }
+
+            return GsonRegistry.getDefault().fromJson(jsonReader, objectClass);
+        } catch (final EOFException e) {
+            // Empty body, consistent with deserializing an empty String
+            return null;
+        } catch (final JsonIOException e) {
+            throw new IOException("Failed to read Json stream", e);
+        }
     }
 
     /**
@@ -84,7 +118,7 @@ public final class ObjectMapper {
         String json = ObjectMapper.serializeObjectToJsonString(object);
         Type stringMap = new TypeToken<TreeMap<String, String>>() {
         }.getType();
-        TreeMap<String, String> fields = new Gson().fromJson(json, stringMap);
+        TreeMap<String, String> fields = GsonRegistry.getDefault().fromJson(json, stringMap);
 
         StringBuilder builder = new StringBuilder();
 
@@ -111,7 +145,7 @@ public final class ObjectMapper {
      */
     public static Map<String, Object> serializeObjectHashMap(final Object object) {
         String json = ObjectMapper.serializeObjectToJsonString(object);
-        return new Gson().fromJson(json, Map.class);
+        return GsonRegistry.getDefault().fromJson(json, Map.class);
     }
 
 
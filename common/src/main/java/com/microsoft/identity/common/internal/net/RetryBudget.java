@@ -0,0 +1,63 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+/**
+ * Per-host retry budget. Every request deposits a fraction of a retry and every retry withdraws a
+ * whole one, so retries are capped at a fixed ratio of the traffic sent to the host once the
+ * initial allowance is spent. This keeps retries from amplifying load on a degraded host.
+ */
+final class RetryBudget {
+
+    private final double mRatio;
+    private final int mCapacity;
+    private double mBalance;
+
+    RetryBudget(final double ratio, final int capacity) {
+        mRatio = ratio;
+        mCapacity = capacity;
+        mBalance = capacity;
+    }
+
+    /**
+     * Record a request sent to the host.
+     */
+    synchronized void deposit() {
+        mBalance = Math.min(mCapacity, mBalance + mRatio);
+    }
+
+    /**
+     * Withdraw one retry from the budget.
+     *
+     * @return True if the retry may be made, false if the budget is exhausted.
+     */
+    synchronized boolean tryWithdraw() {
+        if (mBalance < 1) {
+            return false;
+        }
+
+        mBalance -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,379 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.net;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import com.microsoft.identity.common.internal.util.StringUtil;
+
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Immutable retry policy for {@link HttpRequest}. Retries use exponential backoff with full
+ * jitter, honor the server's Retry-After header and can be limited by a per-host retry budget, so
+ * that throttled or degraded hosts are not hit by the whole fleet in lockstep.
+ */
+public final class RetryPolicy {
+
+    /**
+     * Http status code for too many requests, not defined by {@link HttpURLConnection}.
+     */
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Header sent by the server to indicate how long to wait before retrying.
+     */
+    public static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final int MAX_BACKOFF_EXPONENT = 30;
+
+    /**
+     * Policy used when none is configured: a single retry of every timeout or 500/503/504, as before
+     * retry policies were configurable. The retry waits between half a second and a second, or for
+     * the server's Retry-After cut down to one second. 429 is not retried, and the retry is not
+     * limited by the per-host retry budget.
+     */
+    public static final RetryPolicy DEFAULT = new Builder()
+            .setMinDelayMillis(500)
+            .setRetryAfterClamped(true)
+            .setRetryBudgetEnabled(false)
+            .build();
+
+    /**
+     * Policy that never retries.
+     */
+    public static final RetryPolicy NO_RETRY = new Builder().setMaxRetries(0).build();
+
+    private final int mMaxRetries;
+    private final long mBaseDelayMillis;
+    private final long mMinDelayMillis;
+    private final long mMaxDelayMillis;
+    private final boolean mRetryAfterHonored;
+    private final long mMaxRetryAfterMillis;
+    private final boolean mRetryAfterClamped;
+    private final boolean mTooManyRequestsRetried;
+    private final boolean mRetryBudgetEnabled;
+    private final double mRetryBudgetRatio;
+    private final int mRetryBudgetCapacity;
+    private final Random mRandom;
+
+    private RetryPolicy(final Builder builder) {
+        mMaxRetries = builder.mMaxRetries;
+        mBaseDelayMillis = builder.mBaseDelayMillis;
+        mMinDelayMillis = builder.mMinDelayMillis;
+        mMaxDelayMillis = builder.mMaxDelayMillis;
+        mRetryAfterHonored = builder.mRetryAfterHonored;
+        mMaxRetryAfterMillis = builder.mMaxRetryAfterMillis;
+        mRetryAfterClamped = builder.mRetryAfterClamped;
+        mTooManyRequestsRetried = builder.mTooManyRequestsRetried;
+        mRetryBudgetEnabled = builder.mRetryBudgetEnabled;
+        mRetryBudgetRatio = builder.mRetryBudgetRatio;
+        mRetryBudgetCapacity = builder.mRetryBudgetCapacity;
+        mRandom = builder.mRandom == null ? new Random() : builder.mRandom;
+    }
+
+    /**
+     * @return The maximum number of retries after the initial attempt.
+     */
+    public int getMaxRetries() {
+        return mMaxRetries;
+    }
+
+    /**
+     * @return The backoff before the first retry, doubled for every following retry.
+     */
+    public long getBaseDelayMillis() {
+        return mBaseDelayMillis;
+    }
+
+    /**
+     * @return The lower bound of the jittered backoff.
+     */
+    public long getMinDelayMillis() {
+        return mMinDelayMillis;
+    }
+
+    /**
+     * @return The upper bound of the exponential backoff.
+     */
+    public long getMaxDelayMillis() {
+        return mMaxDelayMillis;
+    }
+
+    /**
+     * @return True if the Retry-After header of a response takes precedence over the backoff.
+     */
+    public boolean isRetryAfterHonored() {
+        return mRetryAfterHonored;
+    }
+
+    /**
+     * @return The longest Retry-After the policy is willing to wait; longer values are not retried
+     * unless {@link #isRetryAfterClamped()}.
+     */
+    public long getMaxRetryAfterMillis() {
+        return mMaxRetryAfterMillis;
+    }
+
+    /**
+     * @return True if a Retry-After longer than {@link #getMaxRetryAfterMillis()} is cut down to it,
+     * false if the request is not retried.
+     */
+    public boolean isRetryAfterClamped() {
+        return mRetryAfterClamped;
+    }
+
+    /**
+     * @return True if 429 (too many requests) responses are retried, false if they are returned as is.
+     */
+    public boolean isTooManyRequestsRetried() {
+        return mTooManyRequestsRetried;
+    }
+
+    /**
+     * @return True if retries are limited by the per-host retry budget.
+     */
+    public boolean isRetryBudgetEnabled() {
+        return mRetryBudgetEnabled;
+    }
+
+    /**
+     * @return The fraction of a retry earned by every request sent to a host.
+     */
+    public double getRetryBudgetRatio() {
+        return mRetryBudgetRatio;
+    }
+
+    /**
+     * @return The maximum number of retries a host can accumulate in its budget.
+     */
+    public int getRetryBudgetCapacity() {
+        return mRetryBudgetCapacity;
+    }
+
+    /**
+     * Check if the given status code can be retried: 500, 503 and 504, and 429 if
+     * {@link #isTooManyRequestsRetried()}.
+     *
+     * @param statusCode The status to check.
+     * @return True if the status code is retryable, false otherwise.
+     */
+    public boolean isRetryableStatusCode(final int statusCode) {
+        return (mTooManyRequestsRetried && statusCode == HTTP_TOO_MANY_REQUESTS)
+                || statusCode == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || statusCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT
+                || statusCode == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    /**
+     * Compute how long to wait before the given retry.
+     *
+     * @param retryNumber The zero-based index of the retry about to be made.
+     * @param response    The response that failed, or null if the attempt failed with a timeout.
+     * @return The delay in milliseconds, or -1 if the server asked for a longer wait than
+     * {@link #getMaxRetryAfterMillis()}, the policy does not clamp it and the request should not be
+     * retried.
+     */
+    public long getRetryDelayMillis(final int retryNumber, @Nullable final HttpResponse response) {
+        if (mRetryAfterHonored && response != null) {
+            final long retryAfterMillis = parseRetryAfterMillis(
+                    response.getHeaderValue(HEADER_RETRY_AFTER),
+                    System.currentTimeMillis()
+            );
+
+            if (retryAfterMillis > mMaxRetryAfterMillis) {
+                return mRetryAfterClamped ? mMaxRetryAfterMillis : -1;
+            }
+
+            if (retryAfterMillis >= 0) {
+                return retryAfterMillis;
+            }
+        }
+
+        return getBackoffMillis(retryNumber);
+    }
+
+    /**
+     * Full jitter backoff: a random delay between the minimum delay and the capped exponential
+     * backoff.
+     *
+     * @param retryNumber The zero-based index of the retry about to be made.
+     * @return The delay in milliseconds.
+     */
+    long getBackoffMillis(final int retryNumber) {
+        final int exponent = Math.min(retryNumber, MAX_BACKOFF_EXPONENT);
+        final long ceiling = Math.min(mMaxDelayMillis, mBaseDelayMillis << exponent);
+        if (ceiling <= mMinDelayMillis) {
+            return Math.max(0, ceiling);
+        }
+
+        final double jitter;
+        synchronized (mRandom) {
+            jitter = mRandom.nextDouble();
+        }
+
+        return mMinDelayMillis + (long) (jitter * (ceiling - mMinDelayMillis));
+    }
+
+    /**
+     * Parse the value of a Retry-After header, given either as delay-seconds or as an HTTP-date.
+     *
+     * @param retryAfter  The header value.
+     * @param nowMillis   The current time, used to convert an HTTP-date into a delay.
+     * @return The delay in milliseconds, or -1 if the value is missing or malformed.
+     */
+    public static long parseRetryAfterMillis(@Nullable final String retryAfter, final long nowMillis) {
+        if (StringUtil.isEmpty(retryAfter)) {
+            return -1;
+        }
+
+        final String value = retryAfter.trim();
+        try {
+            final long seconds = Long.parseLong(value);
+            return seconds < 0 ? -1 : seconds * 1000;
+        } catch (final NumberFormatException e) {
+            // Not delay-seconds, try HTTP-date.
+        }
+
+        final SimpleDateFormat dateFormat = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            final Date date = dateFormat.parse(value);
+            return Math.max(0, date.getTime() - nowMillis);
+        } catch (final ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Builder for {@link RetryPolicy}.
+     */
+    public static final class Builder {
+        private int mMaxRetries = 1;
+        private long mBaseDelayMillis = 1000;
+        private long mMinDelayMillis = 0;
+        private long mMaxDelayMillis = 8000;
+        private boolean mRetryAfterHonored = true;
+        private long mMaxRetryAfterMillis = 1000;
+        private boolean mRetryAfterClamped = false;
+        private boolean mTooManyRequestsRetried = false;
+        private boolean mRetryBudgetEnabled = true;
+        private double mRetryBudgetRatio = 0.1;
+        private int mRetryBudgetCapacity = 10;
+        private Random mRandom;
+
+        public Builder setMaxRetries(final int maxRetries) {
+            mMaxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder setBaseDelayMillis(final long baseDelayMillis) {
+            mBaseDelayMillis = baseDelayMillis;
+            return this;
+        }
+
+        /**
+         * Set a floor under the jittered backoff, so that a retry is never made right away.
+         */
+        public Builder setMinDelayMillis(final long minDelayMillis) {
+            mMinDelayMillis = minDelayMillis;
+            return this;
+        }
+
+        public Builder setMaxDelayMillis(final long maxDelayMillis) {
+            mMaxDelayMillis = maxDelayMillis;
+            return this;
+        }
+
+        public Builder setRetryAfterHonored(final boolean retryAfterHonored) {
+            mRetryAfterHonored = retryAfterHonored;
+            return this;
+        }
+
+        public Builder setMaxRetryAfterMillis(final long maxRetryAfterMillis) {
+            mMaxRetryAfterMillis = maxRetryAfterMillis;
+            return this;
+        }
+
+        /**
+         * Cut a Retry-After longer than {@link #setMaxRetryAfterMillis(long)} down to it instead of
+         * giving up on the retry.
+         */
+        public Builder setRetryAfterClamped(final boolean retryAfterClamped) {
+            mRetryAfterClamped = retryAfterClamped;
+            return this;
+        }
+
+        /**
+         * Opt in to retrying 429 (too many requests) responses, typically together with a longer
+         * {@link #setMaxRetryAfterMillis(long)} so that the server's Retry-After can be followed.
+         */
+        public Builder setTooManyRequestsRetried(final boolean tooManyRequestsRetried) {
+            mTooManyRequestsRetried = tooManyRequestsRetried;
+            return this;
+        }
+
+        /**
+         * Limit retries by the per-host retry budget, see {@link #setRetryBudget(double, int)}.
+         */
+        public Builder setRetryBudgetEnabled(final boolean retryBudgetEnabled) {
+            mRetryBudgetEnabled = retryBudgetEnabled;
+            return this;
+        }
+
+        /**
+         * @param ratio    The fraction of a retry earned by every request sent to a host.
+         * @param capacity The maximum number of retries a host can accumulate.
+         */
+        public Builder setRetryBudget(final double ratio, final int capacity) {
+            mRetryBudgetRatio = ratio;
+            mRetryBudgetCapacity = capacity;
+            return this;
+        }
+
+        @VisibleForTesting
+        public Builder setRandom(@NonNull final Random random) {
+            mRandom = random;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            if (mMaxRetries < 0 || mBaseDelayMillis < 0 || mMinDelayMillis < 0 || mMaxDelayMillis < 0
+                    || mMaxRetryAfterMillis < 0 || mRetryBudgetRatio < 0 || mRetryBudgetCapacity < 0) {
+                throw new IllegalArgumentException("Retry policy settings must not be negative.");
+            }
+
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -22,20 +22,28 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory;
 
+import android.content.Context;
 import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.util.Log;
 
-import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.Logger;
 import com.microsoft.identity.common.internal.net.HttpRequest;
 import com.microsoft.identity.common.internal.net.HttpResponse;
 import com.microsoft.identity.common.internal.net.ObjectMapper;
 import com.microsoft.identity.common.internal.providers.IdentityProvider;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
 
 import org.json.JSONException;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -46,7 +54,15 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Implements the IdentityProvider base class...
@@ -54,6 +70,7 @@ import java.util.concurrent.ConcurrentMap;
 public class AzureActiveDirectory
         extends IdentityProvider<AzureActiveDirectoryOAuth2Strategy, AzureActiveDirectoryOAuth2Configuration> {
 
+    private static final String TAG = AzureActiveDirectory.class.getSimpleName();
 
     // Constants used to parse cloud discovery document metadata
     private static final String TENANT_DISCOVERY_ENDPOINT = "tenant_discovery_endpoint";
@@ -64,10 +81,46 @@ public class AzureActiveDirectory
     private static final String AUTHORIZATION_ENDPOINT = "authorization_endpoint";
     private static final String AUTHORIZATION_ENDPOINT_VALUE = "https://login.microsoftonline.com/common/oauth2/v2.0/authorize";
     public static final String DEFAULT_CLOUD_URL = "https://login.microsoftonline.com";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
 
     private static ConcurrentMap<String, AzureActiveDirectoryCloud> sAadClouds = new ConcurrentHashMap<>();
 
-    static boolean sIsInitialized = false;
+    static volatile boolean sIsInitialized = false;
+
+    /**
+     * The instance discovery request currently in flight, shared by all concurrent callers.
+     */
+    private static final AtomicReference<FutureTask<Void>> sInFlightDiscovery = new AtomicReference<>();
+
+    /**
+     * Number of calls which joined an in-flight instance discovery request rather than issuing their own.
+     */
+    private static final AtomicLong sCoalescedDiscoveryCount = new AtomicLong();
+
+    /**
+     * On-disk copy of the most recent instance discovery response, null until a Context is supplied.
+     */
+    private static volatile CloudDiscoveryMetadataCache sCloudDiscoveryMetadataCache;
+
+    /**
+     * True once the persisted (or bundled) instance discovery response has been loaded by this process.
+     */
+    private static volatile boolean sSnapshotLoaded = false;
+
+    /**
+     * Executor used to refresh a stale instance discovery response in the background, with the
+     * request context of the caller.
+     */
+    private static final Executor DEFAULT_REFRESH_EXECUTOR =
+            DiagnosticContext.wrap(Executors.newSingleThreadExecutor());
+
+    private static volatile Executor sRefreshExecutor = DEFAULT_REFRESH_EXECUTOR;
+
+    /**
+     * Prevents more than one background refresh from being queued at a time.
+     */
+    private static final AtomicBoolean sRefreshScheduled = new AtomicBoolean(false);
 
     @Override
     public AzureActiveDirectoryOAuth2Strategy createOAuth2Strategy(AzureActiveDirectoryOAuth2Configuration config) {
@@ -135,7 +188,199 @@ public class AzureActiveDirectory
         sIsInitialized = true;
     }
 
+    /**
+     * Loads the known AAD clouds from the persisted instance discovery response, falling back to
+     * the response bundled with the library on first run. Does not touch the network; if the
+     * persisted response is stale, a refresh is scheduled in the background. Only the first call
+     * in a process does any work, later calls return immediately.
+     *
+     * @param context Context used to access the persisted response.
+     */
+    public static void loadCloudDiscoveryMetadataSnapshot(@NonNull final Context context) {
+        if (sSnapshotLoaded) {
+            return;
+        }
+
+        synchronized (AzureActiveDirectory.class) {
+            if (!sSnapshotLoaded) {
+                loadCloudDiscoveryMetadataSnapshot(new CloudDiscoveryMetadataCache(context));
+            }
+        }
+    }
+
+    /**
+     * Loads the known AAD clouds from the supplied {@link CloudDiscoveryMetadataCache}, unless a
+     * snapshot has already been loaded by this process.
+     *
+     * @param metadataCache The cache from which metadata should be loaded.
+     */
+    @VisibleForTesting
+    public static synchronized void loadCloudDiscoveryMetadataSnapshot(
+            @NonNull final CloudDiscoveryMetadataCache metadataCache) {
+        final String methodName = ":loadCloudDiscoveryMetadataSnapshot";
+
+        if (sSnapshotLoaded) {
+            return;
+        }
+
+        sCloudDiscoveryMetadataCache = metadataCache;
+        sSnapshotLoaded = true;
+
+        if (!sIsInitialized) {
+            boolean loaded = applyInstanceDiscoveryResponse(metadataCache.getDiscoveryResponse());
+
+            if (loaded) {
+                Logger.verbose(
+                        TAG + methodName,
+                        "Loaded persisted instance discovery metadata."
+                );
+            } else {
+                loaded = applyInstanceDiscoveryResponse(CloudDiscoveryMetadataCache.BUNDLED_DISCOVERY_RESPONSE);
+                Logger.verbose(
+                        TAG + methodName,
+                        "Loaded bundled instance discovery metadata? [" + loaded + "]"
+                );
+            }
+
+            sIsInitialized = loaded;
+        }
+
+        if (metadataCache.isStale()) {
+            refreshCloudDiscoveryMetadataAsync();
+        }
+    }
+
+    /**
+     * Forget the known AAD clouds and the loaded snapshot, so that the next call to
+     * {@link #loadCloudDiscoveryMetadataSnapshot(Context)} loads it again.
+     */
+    @VisibleForTesting
+    public static synchronized void clearCloudDiscoveryMetadata() {
+        sAadClouds.clear();
+        sIsInitialized = false;
+        sSnapshotLoaded = false;
+        sCloudDiscoveryMetadataCache = null;
+    }
+
+    /**
+     * Set the executor used to refresh stale instance discovery metadata.
+     *
+     * @param executor The executor to use, or null to restore the default background executor.
+     */
+    @VisibleForTesting
+    public static void setRefreshExecutor(@Nullable final Executor executor) {
+        sRefreshExecutor = executor == null ? DEFAULT_REFRESH_EXECUTOR : executor;
+    }
+
+    /**
+     * Schedules a background refresh of the instance discovery metadata, unless one is pending.
+     */
+    private static void refreshCloudDiscoveryMetadataAsync() {
+        final String methodName = ":refreshCloudDiscoveryMetadataAsync";
+
+        if (!sRefreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        sRefreshExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    performCloudDiscovery();
+                } catch (final IOException e) {
+                    Logger.warn(
+                            TAG + methodName,
+                            "Background refresh of instance discovery metadata failed."
+                    );
+                } finally {
+                    sRefreshScheduled.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the number of cloud discovery calls which were coalesced into an in-flight request.
+     *
+     * @return The coalesced call count.
+     */
+    public static long getCoalescedCloudDiscoveryCount() {
+        return sCoalescedDiscoveryCount.get();
+    }
+
+    /**
+     * Performs instance discovery. Concurrent callers share a single in-flight request: only the
+     * first caller hits the network, the rest wait for and observe its outcome.
+     *
+     * @throws IOException If the instance discovery request fails.
+     */
     public static void performCloudDiscovery() throws IOException {
+        final String methodName = ":performCloudDiscovery";
+        final FutureTask<Void> discoveryTask = new FutureTask<>(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                performCloudDiscoveryRequest();
+                return null;
+            }
+        });
+
+        FutureTask<Void> inFlightTask;
+
+        while (true) {
+            inFlightTask = sInFlightDiscovery.get();
+
+            if (null != inFlightTask) {
+                sCoalescedDiscoveryCount.incrementAndGet();
+                Logger.verbose(
+                        TAG + methodName,
+                        "Joining in-flight instance discovery request."
+                );
+                break;
+            }
+
+            if (sInFlightDiscovery.compareAndSet(null, discoveryTask)) {
+                inFlightTask = discoveryTask;
+
+                try {
+                    discoveryTask.run();
+                } finally {
+                    sInFlightDiscovery.compareAndSet(discoveryTask, null);
+                }
+                break;
+            }
+        }
+
+        awaitCloudDiscovery(inFlightTask);
+    }
+
+    private static void awaitCloudDiscovery(@NonNull final FutureTask<Void> discoveryTask) throws IOException {
+        try {
+            discoveryTask.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for instance discovery.");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException("Instance discovery failed.", cause);
+        }
+    }
+
+    private static void performCloudDiscoveryRequest() throws IOException {
+        final String methodName = ":performCloudDiscoveryRequest";
+        final CloudDiscoveryMetadataCache metadataCache = sCloudDiscoveryMetadataCache;
 
         Uri instanceDiscoveryRequestUri = Uri.parse(AAD_INSTANCE_DISCOVERY_ENDPOINT);
 
@@ -145,25 +390,81 @@ public class AzureActiveDirectory
                 .appendQueryParameter(AUTHORIZATION_ENDPOINT, AUTHORIZATION_ENDPOINT_VALUE)
                 .build();
 
-        HttpResponse response = HttpRequest.sendGet(new URL(instanceDiscoveryRequestUri.toString()), new HashMap<String, String>());
+        final Map<String, String> requestHeaders = new HashMap<>();
 
-        if (response.getStatusCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
-            Log.d("Discovery", "Error getting cloud information");
-        } else {
+        if (null != metadataCache
+                && null != metadataCache.getDiscoveryResponse()
+                && !StringExtensions.isNullOrBlank(metadataCache.getETag())) {
+            requestHeaders.put(HEADER_IF_NONE_MATCH, metadataCache.getETag());
+        }
 
-            AzureActiveDirectoryInstanceResponse instanceResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), AzureActiveDirectoryInstanceResponse.class);
+        HttpResponse response = HttpRequest.sendGet(new URL(instanceDiscoveryRequestUri.toString()), requestHeaders);
 
-            for (final AzureActiveDirectoryCloud cloud : instanceResponse.getClouds()) {
-                cloud.setIsValidated(true); // Mark the deserialized Clouds as validated
-                for (final String alias : cloud.getHostAliases()) {
-                    sAadClouds.put(alias.toLowerCase(Locale.US), cloud);
-                }
+        if (response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED && null != metadataCache) {
+            Logger.verbose(
+                    TAG + methodName,
+                    "Persisted instance discovery metadata is still current."
+            );
+            metadataCache.markRefreshed();
+
+            if (!sIsInitialized) {
+                applyInstanceDiscoveryResponse(metadataCache.getDiscoveryResponse());
             }
+        } else if (response.getStatusCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            Log.d("Discovery", "Error getting cloud information");
+        } else if (applyInstanceDiscoveryResponse(response.getBody()) && null != metadataCache) {
+            metadataCache.saveDiscoveryResponse(
+                    response.getBody(),
+                    response.getHeaderValue(HEADER_ETAG)
+            );
         }
 
         sIsInitialized = true;
     }
 
+    /**
+     * Deserializes the supplied instance discovery response and records its clouds as validated.
+     *
+     * @param discoveryResponse The raw JSON response, may be null.
+     * @return True, if at least one cloud was loaded. False otherwise.
+     */
+    private static boolean applyInstanceDiscoveryResponse(@Nullable final String discoveryResponse) {
+        final String methodName = ":applyInstanceDiscoveryResponse";
+
+        if (StringExtensions.isNullOrBlank(discoveryResponse)) {
+            return false;
+        }
+
+        final AzureActiveDirectoryInstanceResponse instanceResponse;
+
+        try {
+            instanceResponse = ObjectMapper.deserializeJsonStringToObject(
+                    discoveryResponse,
+                    AzureActiveDirectoryInstanceResponse.class
+            );
+        } catch (final JsonParseException e) {
+            Logger.error(
+                    TAG + methodName,
+                    "Failed to parse instance discovery metadata.",
+                    e
+            );
+            return false;
+        }
+
+        if (null == instanceResponse || null == instanceResponse.getClouds()) {
+            return false;
+        }
+
+        for (final AzureActiveDirectoryCloud cloud : instanceResponse.getClouds()) {
+            cloud.setIsValidated(true); // Mark the deserialized Clouds as validated
+            for (final String alias : cloud.getHostAliases()) {
+                sAadClouds.put(alias.toLowerCase(Locale.US), cloud);
+            }
+        }
+
+        return !instanceResponse.getClouds().isEmpty();
+    }
+
     public static Set<String> getHosts() {
         if (null != sAadClouds) {
             return sAadClouds.keySet();
@@ -189,7 +490,7 @@ public class AzureActiveDirectory
     private static List<AzureActiveDirectoryCloud> deserializeClouds(final String jsonCloudArray) throws JSONException {
         Type listType = new TypeToken<List<AzureActiveDirectoryCloud>>() {
         }.getType();
-        return new Gson().fromJson(jsonCloudArray, listType);
+        return GsonRegistry.getDefault().fromJson(jsonCloudArray, listType);
     }
 
 }
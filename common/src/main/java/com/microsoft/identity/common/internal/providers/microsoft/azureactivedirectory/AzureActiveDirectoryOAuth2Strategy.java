@@ -29,6 +29,8 @@ import com.microsoft.identity.common.exception.ServiceException;
 import com.microsoft.identity.common.internal.dto.IAccountRecord;
 import com.microsoft.identity.common.internal.logging.Logger;
 import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.IResponseBodyParser;
+import com.microsoft.identity.common.internal.net.JsonResponseBodyParser;
 import com.microsoft.identity.common.internal.net.ObjectMapper;
 import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftTokenErrorResponse;
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationResult;
@@ -74,6 +76,12 @@ public class AzureActiveDirectoryOAuth2Strategy
 
     private static final String TAG = AzureActiveDirectoryOAuth2Strategy.class.getSimpleName();
 
+    /**
+     * Streams successful token responses into {@link AzureActiveDirectoryTokenResponse}.
+     */
+    private static final IResponseBodyParser<AzureActiveDirectoryTokenResponse> TOKEN_RESPONSE_PARSER =
+            new JsonResponseBodyParser<>(AzureActiveDirectoryTokenResponse.class);
+
     /**
      * Constructor of AzureActiveDirectoryOAuth2Strategy.
      *
@@ -226,6 +234,11 @@ public class AzureActiveDirectoryOAuth2Strategy
         // TODO
     }
 
+    @Override
+    protected IResponseBodyParser<AzureActiveDirectoryTokenResponse> getTokenResponseParser() {
+        return TOKEN_RESPONSE_PARSER;
+    }
+
     @Override
     protected TokenResult getTokenResultFromHttpResponse(final HttpResponse response) {
         final String methodName = "getTokenResultFromHttpResponse";
@@ -238,7 +251,9 @@ public class AzureActiveDirectoryOAuth2Strategy
             Logger.warn(TAG + ":" + methodName, "Status code was: " + response.getStatusCode());
             tokenErrorResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftTokenErrorResponse.class);
         } else {
-            tokenResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), AzureActiveDirectoryTokenResponse.class);
+            tokenResponse = response.getParsedBody() instanceof AzureActiveDirectoryTokenResponse
+                    ? (AzureActiveDirectoryTokenResponse) response.getParsedBody()
+                    : ObjectMapper.deserializeJsonStringToObject(response.getBody(), AzureActiveDirectoryTokenResponse.class);
         }
 
         final TokenResult result = new TokenResult(tokenResponse, tokenErrorResponse);
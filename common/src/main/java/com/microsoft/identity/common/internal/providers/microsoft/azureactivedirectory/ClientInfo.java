@@ -29,10 +29,12 @@ import com.microsoft.identity.common.adal.internal.util.JsonExtensions;
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.exception.ErrorStrings;
 import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.util.ParsedTokenCache;
 
 import org.json.JSONException;
 
 import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -43,6 +45,26 @@ public class ClientInfo {
     private static final String UNIQUE_IDENTIFIER = "uid";
     private static final String UNIQUE_TENANT_IDENTIFIER = "utid";
 
+    /**
+     * Decoded client_info items, shared by all the ClientInfo objects built from the same raw value.
+     */
+    private static final ParsedTokenCache<Map<String, String>> PARSED_CLIENT_INFOS =
+            new ParsedTokenCache<>("client_info", ParsedTokenCache.DEFAULT_MAX_SIZE);
+
+    private static final ParsedTokenCache.Parser<Map<String, String>> CLIENT_INFO_PARSER =
+            new ParsedTokenCache.Parser<Map<String, String>>() {
+                @Override
+                public Map<String, String> parse(@NonNull final String rawToken) throws ServiceException {
+                    // decode the client info first
+                    final String decodedClientInfo = new String(Base64.decode(rawToken, Base64.URL_SAFE), Charset.forName(StringExtensions.ENCODING_UTF8));
+                    try {
+                        return Collections.unmodifiableMap(JsonExtensions.extractJsonObjectIntoMap(decodedClientInfo));
+                    } catch (final JSONException e) {
+                        throw new ServiceException("", ErrorStrings.INVALID_JWT, e);
+                    }
+                }
+            };
+
     /**
      * Unique identifier for a user in the current tenant.
      */
@@ -66,20 +88,21 @@ public class ClientInfo {
             throw new IllegalArgumentException("ClientInfo cannot be null or blank.");
         }
 
-        // decode the client info first
-        final String decodedClientInfo = new String(Base64.decode(rawClientInfo, Base64.URL_SAFE), Charset.forName(StringExtensions.ENCODING_UTF8));
-        final Map<String, String> clientInfoItems;
-        try {
-            clientInfoItems = JsonExtensions.extractJsonObjectIntoMap(decodedClientInfo);
-        } catch (final JSONException e) {
-            throw new ServiceException("", ErrorStrings.INVALID_JWT, e);
-        }
+        final Map<String, String> clientInfoItems = PARSED_CLIENT_INFOS.get(rawClientInfo, CLIENT_INFO_PARSER);
 
         mUid = clientInfoItems.get(ClientInfo.UNIQUE_IDENTIFIER);
         mUtid = clientInfoItems.get(ClientInfo.UNIQUE_TENANT_IDENTIFIER);
         mRawClientInfo = rawClientInfo;
     }
 
+    /**
+     * Drop all the client_info values decoded so far. Called when accounts or credentials are
+     * removed from the cache, so their identifiers do not outlive them.
+     */
+    public static void clearParsedClientInfos() {
+        PARSED_CLIENT_INFOS.clear();
+    }
+
     /**
      * Gets the user unique id.
      *
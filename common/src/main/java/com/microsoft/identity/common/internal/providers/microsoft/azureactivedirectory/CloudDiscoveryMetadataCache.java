@@ -0,0 +1,191 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the most recent instance discovery response (and its ETag) so that the known AAD
+ * clouds can be loaded without a network round trip when the process starts.
+ */
+public class CloudDiscoveryMetadataCache {
+
+    private static final String TAG = CloudDiscoveryMetadataCache.class.getSimpleName();
+
+    /**
+     * The name of the SharedPreferences file used to persist the instance discovery response.
+     */
+    static final String CLOUD_DISCOVERY_SHARED_PREFERENCES =
+            "com.microsoft.identity.client.cloud_discovery_metadata";
+
+    /**
+     * The default amount of time a persisted instance discovery response is considered fresh.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    /**
+     * Instance discovery response bundled with the library; used on first run before a response
+     * has been obtained from the service.
+     */
+    static final String BUNDLED_DISCOVERY_RESPONSE = "{"
+            + "\"tenant_discovery_endpoint\":\"https://login.microsoftonline.com/common/v2.0/.well-known/openid-configuration\","
+            + "\"api-version\":\"1.1\","
+            + "\"metadata\":["
+            + "{\"preferred_network\":\"login.microsoftonline.com\",\"preferred_cache\":\"login.windows.net\","
+            + "\"aliases\":[\"login.microsoftonline.com\",\"login.windows.net\",\"login.microsoft.com\",\"sts.windows.net\"]},"
+            + "{\"preferred_network\":\"login.partner.microsoftonline.cn\",\"preferred_cache\":\"login.partner.microsoftonline.cn\","
+            + "\"aliases\":[\"login.partner.microsoftonline.cn\",\"login.chinacloudapi.cn\"]},"
+            + "{\"preferred_network\":\"login.microsoftonline.de\",\"preferred_cache\":\"login.microsoftonline.de\","
+            + "\"aliases\":[\"login.microsoftonline.de\"]},"
+            + "{\"preferred_network\":\"login.microsoftonline.us\",\"preferred_cache\":\"login.microsoftonline.us\","
+            + "\"aliases\":[\"login.microsoftonline.us\",\"login.usgovcloudapi.net\"]},"
+            + "{\"preferred_network\":\"login-us.microsoftonline.com\",\"preferred_cache\":\"login-us.microsoftonline.com\","
+            + "\"aliases\":[\"login-us.microsoftonline.com\"]}"
+            + "]}";
+
+    private static final String KEY_DISCOVERY_RESPONSE = "discovery_response";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_REFRESHED = "last_refreshed_millis";
+
+    private final ISharedPreferencesFileManager mSharedPreferencesFileManager;
+    private final long mTimeToLiveMillis;
+
+    /**
+     * Constructs a new CloudDiscoveryMetadataCache using the default time-to-live.
+     *
+     * @param context Context used to access the SharedPreferences file.
+     */
+    public CloudDiscoveryMetadataCache(@NonNull final Context context) {
+        this(
+                new SharedPreferencesFileManager(context, CLOUD_DISCOVERY_SHARED_PREFERENCES),
+                DEFAULT_TIME_TO_LIVE_MILLIS
+        );
+    }
+
+    /**
+     * Constructs a new CloudDiscoveryMetadataCache.
+     *
+     * @param sharedPreferencesFileManager The file manager used to persist the response.
+     * @param timeToLiveMillis             How long a persisted response is considered fresh.
+     */
+    public CloudDiscoveryMetadataCache(@NonNull final ISharedPreferencesFileManager sharedPreferencesFileManager,
+                                       final long timeToLiveMillis) {
+        mSharedPreferencesFileManager = sharedPreferencesFileManager;
+        mTimeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * Gets the persisted instance discovery response.
+     *
+     * @return The raw JSON response or null, if none has been persisted.
+     */
+    @Nullable
+    public String getDiscoveryResponse() {
+        return mSharedPreferencesFileManager.getString(KEY_DISCOVERY_RESPONSE);
+    }
+
+    /**
+     * Gets the ETag returned alongside the persisted instance discovery response.
+     *
+     * @return The ETag or null, if the service did not return one.
+     */
+    @Nullable
+    public String getETag() {
+        return mSharedPreferencesFileManager.getString(KEY_ETAG);
+    }
+
+    /**
+     * Gets the time at which the persisted response was last confirmed by the service.
+     *
+     * @return The time in milliseconds since epoch or 0, if never refreshed.
+     */
+    public long getLastRefreshedMillis() {
+        final String lastRefreshed = mSharedPreferencesFileManager.getString(KEY_LAST_REFRESHED);
+
+        if (StringExtensions.isNullOrBlank(lastRefreshed)) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(lastRefreshed);
+        } catch (final NumberFormatException e) {
+            Logger.warn(TAG, "Persisted refresh time was malformed.");
+            return 0;
+        }
+    }
+
+    /**
+     * Tests whether the persisted response has outlived its time-to-live (or does not exist).
+     *
+     * @return True, if the response should be refreshed. False otherwise.
+     */
+    public boolean isStale() {
+        final long age = System.currentTimeMillis() - getLastRefreshedMillis();
+        return null == getDiscoveryResponse() || age < 0 || age >= mTimeToLiveMillis;
+    }
+
+    /**
+     * Persists a new instance discovery response.
+     *
+     * @param discoveryResponse The raw JSON response.
+     * @param eTag              The ETag returned by the service, may be null.
+     */
+    public void saveDiscoveryResponse(@NonNull final String discoveryResponse,
+                                      @Nullable final String eTag) {
+        mSharedPreferencesFileManager.putString(KEY_DISCOVERY_RESPONSE, discoveryResponse);
+
+        if (StringExtensions.isNullOrBlank(eTag)) {
+            mSharedPreferencesFileManager.remove(KEY_ETAG);
+        } else {
+            mSharedPreferencesFileManager.putString(KEY_ETAG, eTag);
+        }
+
+        markRefreshed();
+    }
+
+    /**
+     * Records that the persisted response has been revalidated by the service (HTTP 304).
+     */
+    public void markRefreshed() {
+        mSharedPreferencesFileManager.putString(
+                KEY_LAST_REFRESHED,
+                String.valueOf(System.currentTimeMillis())
+        );
+    }
+
+    /**
+     * Removes the persisted response.
+     */
+    public void clear() {
+        mSharedPreferencesFileManager.clear();
+    }
+}
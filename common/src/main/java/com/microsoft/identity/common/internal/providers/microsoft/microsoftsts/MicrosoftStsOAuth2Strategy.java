@@ -33,6 +33,8 @@ import com.microsoft.identity.common.internal.dto.IAccountRecord;
 import com.microsoft.identity.common.internal.logging.DiagnosticContext;
 import com.microsoft.identity.common.internal.logging.Logger;
 import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.IResponseBodyParser;
+import com.microsoft.identity.common.internal.net.JsonResponseBodyParser;
 import com.microsoft.identity.common.internal.net.ObjectMapper;
 import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftTokenErrorResponse;
 import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectory;
@@ -43,16 +45,20 @@ import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationResu
 import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationStrategy;
 import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
 import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.OpenIDProviderConfiguration;
 import com.microsoft.identity.common.internal.providers.oauth2.TokenErrorResponse;
 import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
 import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
 import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
 import com.microsoft.identity.common.internal.util.StringUtil;
 
+import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class MicrosoftStsOAuth2Strategy
         extends OAuth2Strategy
@@ -71,6 +77,23 @@ public class MicrosoftStsOAuth2Strategy
 
     private static final String TAG = MicrosoftStsOAuth2Strategy.class.getSimpleName();
 
+    /**
+     * Streams successful token responses into {@link MicrosoftStsTokenResponse}.
+     */
+    private static final IResponseBodyParser<MicrosoftStsTokenResponse> TOKEN_RESPONSE_PARSER =
+            new JsonResponseBodyParser<>(MicrosoftStsTokenResponse.class);
+
+    /**
+     * Path of the v2.0 issuer, relative to the authority.
+     */
+    private static final String V2_ISSUER_PATH_SEGMENT = "v2.0";
+
+    /**
+     * Token endpoints of the clouds this strategy has routed requests to, keyed by cloud host.
+     * The endpoint configured on the strategy itself is never changed after construction.
+     */
+    private final ConcurrentMap<String, String> mCloudTokenEndpoints = new ConcurrentHashMap<>();
+
     /**
      * Constructor of MicrosoftStsOAuth2Strategy.
      *
@@ -78,7 +101,37 @@ public class MicrosoftStsOAuth2Strategy
      */
     public MicrosoftStsOAuth2Strategy(@NonNull final MicrosoftStsOAuth2Configuration config) {
         super(config);
-        setTokenEndpoint(config.getTokenEndpoint().toString());
+        final OpenIDProviderConfiguration openIdConfiguration =
+                getCachedOpenIDProviderConfiguration(getV2Issuer(config.getAuthorityUrl()));
+
+        if (null != openIdConfiguration && null != openIdConfiguration.getTokenEndpoint()) {
+            setTokenEndpoint(openIdConfiguration.getTokenEndpoint().toString());
+        } else {
+            setTokenEndpoint(config.getTokenEndpoint().toString());
+        }
+
+        if (null != openIdConfiguration && null != openIdConfiguration.getAuthorizationEndpoint()) {
+            setAuthorizationEndpoint(openIdConfiguration.getAuthorizationEndpoint().toString());
+        }
+    }
+
+    /**
+     * Fetches the OpenID Provider Configuration of the v2.0 issuer of the supplied authority in the
+     * background, unless a fresh copy is cached. Called on the request path before the strategy is
+     * created, so the constructor only has to consult the cache.
+     *
+     * @param authorityUrl The authority the request is sent to.
+     */
+    public static void prefetchOpenIDProviderConfiguration(@NonNull final URL authorityUrl) {
+        prefetchOpenIDProviderConfiguration(getV2Issuer(authorityUrl));
+    }
+
+    private static String getV2Issuer(@NonNull final URL authorityUrl) {
+        return Uri.parse(authorityUrl.toString())
+                .buildUpon()
+                .appendPath(V2_ISSUER_PATH_SEGMENT)
+                .build()
+                .toString();
     }
 
     @Override
@@ -176,13 +229,16 @@ public class MicrosoftStsOAuth2Strategy
         // The Account created by the strategy sets the environment to get the 'iss' from the IdToken
         // For caching purposes, this may not be the correct value due to the preferred cache identifier
         // in the InstanceDiscoveryMetadata
+        final String tokenEndpoint = null != response.getTokenEndpoint()
+                ? response.getTokenEndpoint()
+                : mTokenEndpoint;
         URL authority = null;
         try {
-            authority = new URL(mTokenEndpoint);
+            authority = new URL(tokenEndpoint);
         } catch (MalformedURLException e) {
             Logger.verbose(
                     TAG + methodName,
-                    "Creating account from TokenResponse failed due to malformed URL (mTokenEndpoint)..."
+                    "Creating account from TokenResponse failed due to malformed URL (tokenEndpoint)..."
             );
         }
         if (authority != null) {
@@ -256,11 +312,13 @@ public class MicrosoftStsOAuth2Strategy
                 "Creating TokenRequest..."
         );
 
-        if (mConfig.getMultipleCloudsSupported()) {
-            setTokenEndpoint(getCloudSpecificAuthorityBasedOnAuthorizationResponse(response));
+        MicrosoftStsTokenRequest tokenRequest = new MicrosoftStsTokenRequest();
+
+        if (mConfig.getMultipleCloudsSupported()
+                && !StringExtensions.isNullOrBlank(response.getCloudInstanceHostName())) {
+            tokenRequest.setTokenEndpoint(getCloudSpecificTokenEndpoint(response.getCloudInstanceHostName()));
         }
 
-        MicrosoftStsTokenRequest tokenRequest = new MicrosoftStsTokenRequest();
         tokenRequest.setCodeVerifier(request.getPkceChallenge().getCodeVerifier());
         tokenRequest.setCode(response.getCode());
         tokenRequest.setRedirectUri(request.getRedirectUri());
@@ -287,6 +345,22 @@ public class MicrosoftStsOAuth2Strategy
         return request;
     }
 
+    @Override
+    public TokenResult requestToken(final MicrosoftStsTokenRequest request) throws IOException {
+        final TokenResult result = super.requestToken(request);
+
+        if (result.getTokenResponse() instanceof MicrosoftStsTokenResponse) {
+            ((MicrosoftStsTokenResponse) result.getTokenResponse()).setTokenEndpoint(getTokenEndpoint(request));
+        }
+
+        return result;
+    }
+
+    @Override
+    protected String getTokenEndpoint(final MicrosoftStsTokenRequest request) {
+        return null != request.getTokenEndpoint() ? request.getTokenEndpoint() : mTokenEndpoint;
+    }
+
     @Override
     protected void validateAuthorizationRequest(final MicrosoftStsAuthorizationRequest request) {
         // TODO implement
@@ -298,6 +372,11 @@ public class MicrosoftStsOAuth2Strategy
 
     }
 
+    @Override
+    protected IResponseBodyParser<MicrosoftStsTokenResponse> getTokenResponseParser() {
+        return TOKEN_RESPONSE_PARSER;
+    }
+
     @Override
     protected TokenResult getTokenResultFromHttpResponse(final HttpResponse response) {
         final String methodName = ":getTokenResultFromHttpResponse";
@@ -312,19 +391,47 @@ public class MicrosoftStsOAuth2Strategy
             //An error occurred
             tokenErrorResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftTokenErrorResponse.class);
         } else {
-            tokenResponse = ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftStsTokenResponse.class);
+            tokenResponse = response.getParsedBody() instanceof MicrosoftStsTokenResponse
+                    ? (MicrosoftStsTokenResponse) response.getParsedBody()
+                    : ObjectMapper.deserializeJsonStringToObject(response.getBody(), MicrosoftStsTokenResponse.class);
         }
 
         return new TokenResult(tokenResponse, tokenErrorResponse);
     }
 
-    private String getCloudSpecificAuthorityBasedOnAuthorizationResponse(MicrosoftStsAuthorizationResponse response) {
+    /**
+     * Returns the token endpoint of the supplied cloud: the configured token endpoint with its
+     * host replaced by the cloud host.
+     *
+     * @param cloudInstanceHostName The cloud host returned in the authorization response.
+     * @return The cloud specific token endpoint.
+     */
+    private String getCloudSpecificTokenEndpoint(@NonNull final String cloudInstanceHostName) {
+        final String methodName = ":getCloudSpecificTokenEndpoint";
+        final String cachedEndpoint = mCloudTokenEndpoints.get(cloudInstanceHostName);
 
-        final String newAuthority = Uri.parse(mTokenEndpoint).buildUpon()
-                .authority(response.getCloudInstanceHostName())
-                .build().toString();
+        if (null != cachedEndpoint) {
+            return cachedEndpoint;
+        }
 
-        return newAuthority;
+        try {
+            final URL tokenEndpoint = new URL(mTokenEndpoint);
+            final String cloudEndpoint = new URL(
+                    tokenEndpoint.getProtocol(),
+                    cloudInstanceHostName,
+                    tokenEndpoint.getFile()
+            ).toString();
+            final String previous = mCloudTokenEndpoints.putIfAbsent(cloudInstanceHostName, cloudEndpoint);
+
+            return null != previous ? previous : cloudEndpoint;
+        } catch (final MalformedURLException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Unable to build cloud specific token endpoint, using the configured endpoint."
+            );
+
+            return mTokenEndpoint;
+        }
     }
 
 }
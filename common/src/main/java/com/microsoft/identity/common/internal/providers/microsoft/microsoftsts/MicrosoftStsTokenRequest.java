@@ -3,7 +3,32 @@ package com.microsoft.identity.common.internal.providers.microsoft.microsoftsts;
 import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftTokenRequest;
 
 public class MicrosoftStsTokenRequest extends MicrosoftTokenRequest {
+
+    /**
+     * The token endpoint this request is sent to, when it differs from the one configured on the
+     * strategy (e.g. a cloud other than the home cloud). Not part of the request body.
+     */
+    private transient String mTokenEndpoint;
+
     public MicrosoftStsTokenRequest() {
         super();
     }
+
+    /**
+     * Gets the token endpoint.
+     *
+     * @return The token endpoint to get, or null to use the strategy's endpoint.
+     */
+    public String getTokenEndpoint() {
+        return mTokenEndpoint;
+    }
+
+    /**
+     * Sets the token endpoint.
+     *
+     * @param tokenEndpoint The token endpoint to set.
+     */
+    public void setTokenEndpoint(final String tokenEndpoint) {
+        mTokenEndpoint = tokenEndpoint;
+    }
 }
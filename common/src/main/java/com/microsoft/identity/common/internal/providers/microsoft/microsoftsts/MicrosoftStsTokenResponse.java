@@ -29,4 +29,27 @@ import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
  * {@link TokenResponse} subclass for the Microsoft STS (V2).
  */
 public class MicrosoftStsTokenResponse extends MicrosoftTokenResponse {
+
+    /**
+     * The token endpoint which issued this response.
+     */
+    private transient String mTokenEndpoint;
+
+    /**
+     * Gets the token endpoint.
+     *
+     * @return The token endpoint to get.
+     */
+    public String getTokenEndpoint() {
+        return mTokenEndpoint;
+    }
+
+    /**
+     * Sets the token endpoint.
+     *
+     * @param tokenEndpoint The token endpoint to set.
+     */
+    public void setTokenEndpoint(final String tokenEndpoint) {
+        mTokenEndpoint = tokenEndpoint;
+    }
 }
@@ -22,9 +22,12 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.providers.oauth2;
 
+import android.support.annotation.NonNull;
+
 import com.microsoft.identity.common.adal.internal.util.StringExtensions;
 import com.microsoft.identity.common.exception.ErrorStrings;
 import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.util.ParsedTokenCache;
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.JWTParser;
@@ -183,7 +186,21 @@ public class IDToken {
     public static final String UPDATED_AT = "updated_at";
 
 
-    private Map<String, String> mTokenClaims = null;
+    /**
+     * Parsed ID token claims, shared by all the IDToken objects built from the same raw token.
+     */
+    private static final ParsedTokenCache<Map<String, String>> PARSED_ID_TOKENS =
+            new ParsedTokenCache<>("id_token", ParsedTokenCache.DEFAULT_MAX_SIZE);
+
+    private static final ParsedTokenCache.Parser<Map<String, String>> ID_TOKEN_PARSER =
+            new ParsedTokenCache.Parser<Map<String, String>>() {
+                @Override
+                public Map<String, String> parse(@NonNull final String rawToken) throws ServiceException {
+                    return Collections.unmodifiableMap(convertClaims(parseClaimsSet(rawToken)));
+                }
+            };
+
+    private final Map<String, String> mTokenClaims;
     private final String mRawIdToken;
 
     /**
@@ -201,7 +218,7 @@ public class IDToken {
         mRawIdToken = rawIdToken;
 
         // set all the instance variables.
-        mTokenClaims = parseJWT(rawIdToken);
+        mTokenClaims = PARSED_ID_TOKENS.get(rawIdToken, ID_TOKEN_PARSER);
     }
 
     /**
@@ -215,19 +232,39 @@ public class IDToken {
      * @return Token claims in Map<String, String>.
      */
     public Map<String, String> getTokenClaims() {
-        return Collections.unmodifiableMap(mTokenClaims);
+        return mTokenClaims;
     }
 
+    /**
+     * Parse the claims of the given JWT. Tokens parsed before are served from a bounded cache.
+     *
+     * @param idToken The raw JWT.
+     * @return A new, mutable map of the claims, as strings.
+     * @throws ServiceException If the JWT is malformed.
+     */
     public static Map<String, String> parseJWT(final String idToken) throws ServiceException {
-        final JWTClaimsSet claimsSet;
+        return new HashMap<>(PARSED_ID_TOKENS.get(idToken, ID_TOKEN_PARSER));
+    }
+
+    /**
+     * Drop the claims of all the ID tokens parsed so far. Called when accounts or credentials are
+     * removed from the cache, so their claims do not outlive them.
+     */
+    public static void clearParsedTokens() {
+        PARSED_ID_TOKENS.clear();
+    }
+
+    private static JWTClaimsSet parseClaimsSet(final String idToken) throws ServiceException {
         try {
             // Create a SignedJWT from the input token String
             final JWT jwt = JWTParser.parse(idToken);
-            claimsSet = jwt.getJWTClaimsSet();
+            return jwt.getJWTClaimsSet();
         } catch (ParseException e) {
             throw new ServiceException("Failed to parse JWT", ErrorStrings.INVALID_JWT, e);
         }
+    }
 
+    private static Map<String, String> convertClaims(final JWTClaimsSet claimsSet) {
         // Grab the claims and stick them into a Map<String, Object>
         final Map<String, Object> claimsMap = claimsSet.getClaims();
 
@@ -238,9 +275,7 @@ public class IDToken {
             claimsMapStr.put(entry.getKey(), entry.getValue().toString());
         }
 
-        // Return our result
         return claimsMapStr;
-
     }
 
 }
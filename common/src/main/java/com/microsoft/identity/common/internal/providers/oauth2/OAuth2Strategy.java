@@ -23,16 +23,21 @@
 package com.microsoft.identity.common.internal.providers.oauth2;
 
 import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.microsoft.identity.common.BaseAccount;
 import com.microsoft.identity.common.exception.ClientException;
 import com.microsoft.identity.common.internal.dto.IAccountRecord;
 import com.microsoft.identity.common.internal.logging.DiagnosticContext;
 import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.net.FormUrlEncoder;
 import com.microsoft.identity.common.internal.net.HttpRequest;
 import com.microsoft.identity.common.internal.net.HttpResponse;
-import com.microsoft.identity.common.internal.net.ObjectMapper;
+import com.microsoft.identity.common.internal.net.IResponseBodyParser;
 import com.microsoft.identity.common.internal.platform.Device;
+import com.microsoft.identity.common.internal.tracing.Span;
+import com.microsoft.identity.common.internal.tracing.Tracer;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -112,8 +117,22 @@ public abstract class OAuth2Strategy
                 "Requesting token..."
         );
         validateTokenRequest(request);
-        HttpResponse response = performTokenRequest(request);
-        return getTokenResultFromHttpResponse(response);
+
+        final Span span = Tracer.startSpan("OAuth2Strategy.requestToken");
+        try {
+            HttpResponse response = performTokenRequest(request);
+            final GenericTokenResult result = getTokenResultFromHttpResponse(response);
+            if (result != null) {
+                result.setStatusCode(response.getStatusCode());
+            }
+
+            return result;
+        } catch (final IOException | RuntimeException e) {
+            span.setError(e);
+            throw e;
+        } finally {
+            span.end();
+        }
     }
 
     protected HttpResponse performTokenRequest(final GenericTokenRequest request) throws IOException {
@@ -122,19 +141,46 @@ public abstract class OAuth2Strategy
                 TAG + methodName,
                 "Performing token request..."
         );
-        String requestBody = ObjectMapper.serializeObjectToFormUrlEncoded(request);
+        final byte[] requestBody = FormUrlEncoder.encode(request);
         Map<String, String> headers = new TreeMap<>();
         headers.put("client-request-id", DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID));
         headers.putAll(Device.getPlatformIdParameters());
 
         return HttpRequest.sendPost(
-                new URL(mTokenEndpoint),
+                new URL(getTokenEndpoint(request)),
                 headers,
-                requestBody.getBytes(ObjectMapper.ENCODING_SCHEME),
-                TOKEN_REQUEST_CONTENT_TYPE
+                requestBody,
+                TOKEN_REQUEST_CONTENT_TYPE,
+                getTokenResponseParser()
         );
     }
 
+    /**
+     * Resolves the token endpoint a request is sent to. Strategies that route requests to more than
+     * one endpoint (e.g. multiple clouds) carry the endpoint on the request itself, so a single
+     * strategy instance can be shared across concurrent requests.
+     *
+     * @param request The token request about to be sent.
+     * @return The token endpoint; by default the one configured on this strategy.
+     */
+    protected String getTokenEndpoint(final GenericTokenRequest request) {
+        return mTokenEndpoint;
+    }
+
+    /**
+     * Parser used to read successful token responses straight from the connection, avoiding a copy
+     * of the whole body into a String. When a parser is supplied, the {@link HttpResponse} handed to
+     * {@link #getTokenResultFromHttpResponse(HttpResponse)} carries the parsed token response in
+     * {@link HttpResponse#getParsedBody()} instead of a raw body; error responses always keep
+     * their raw body.
+     *
+     * @return The parser, or null (the default) to receive the raw body.
+     */
+    @Nullable
+    protected IResponseBodyParser<? extends GenericTokenResponse> getTokenResponseParser() {
+        return null;
+    }
+
     protected final void setTokenEndpoint(final String tokenEndpoint) {
         mTokenEndpoint = tokenEndpoint;
     }
@@ -143,6 +189,53 @@ public abstract class OAuth2Strategy
         mAuthorizationEndpoint = authorizationEndpoint;
     }
 
+    /**
+     * Looks up the cached OpenID Provider Configuration for the supplied issuer without touching
+     * the network. Strategies call this from their constructors; fetching the document is left to
+     * the request path, see {@link #prefetchOpenIDProviderConfiguration(String)}.
+     *
+     * @param issuer The issuer whose configuration should be returned.
+     * @return The cached configuration or null, if none is cached.
+     */
+    @Nullable
+    protected OpenIDProviderConfiguration getCachedOpenIDProviderConfiguration(@NonNull final String issuer) {
+        final String methodName = ":getCachedOpenIDProviderConfiguration";
+
+        try {
+            return new OpenIDProviderConfigurationClient().getCachedOpenIDProviderConfiguration(
+                    OpenIDProviderConfigurationClient.getOpenIDProviderConfigurationUrl(issuer)
+            );
+        } catch (final IOException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Unable to build OpenID configuration URL."
+            );
+            return null;
+        }
+    }
+
+    /**
+     * Fetches the OpenID Provider Configuration of the supplied issuer in the background if it is
+     * not cached or is stale, so that strategies created afterwards resolve their endpoints from
+     * the cache.
+     *
+     * @param issuer The issuer whose configuration should be fetched.
+     */
+    protected static void prefetchOpenIDProviderConfiguration(@NonNull final String issuer) {
+        final String methodName = ":prefetchOpenIDProviderConfiguration";
+
+        try {
+            new OpenIDProviderConfigurationClient().prefetchOpenIDProviderConfiguration(
+                    OpenIDProviderConfigurationClient.getOpenIDProviderConfigurationUrl(issuer)
+            );
+        } catch (final IOException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Unable to build OpenID configuration URL."
+            );
+        }
+    }
+
     protected GenericOAuth2Configuration getOAuth2Configuration() {
         return mConfig;
     }
@@ -22,6 +22,8 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.providers.oauth2;
 
+import com.google.gson.annotations.SerializedName;
+
 import java.net.URL;
 import java.util.List;
 
@@ -33,16 +35,81 @@ import java.util.List;
 @SuppressWarnings("PMD")
 public class OpenIDProviderConfiguration {
 
+    @SerializedName("issuer")
     private String mIssuer;
+
+    @SerializedName("authorization_endpoint")
     private URL mAuthorizationEndpoint;
+
+    @SerializedName("token_endpoint")
     private URL mTokenEndpoint;
+
+    @SerializedName("userinfo_endpoint")
     private URL mUserInfoEndpoint;
+
+    @SerializedName("jwks_uri")
     private URL mJWKSUri;
+
+    @SerializedName("scopes_supported")
     private List<String> mSupportedScopes;
+
+    @SerializedName("response_types_supported")
     private List<String> mResponseTypesSupported;
+
+    @SerializedName("acr_values_supported")
     private List<String> mACRValuesSupported;
+
+    @SerializedName("subject_types_supported")
     private List<String> mSubjectTypesSupported;
+
+    @SerializedName("id_token_signing_alg_values_supported")
     private List<String> mIDTokenSigningAlgValuesSupported;
+
+    @SerializedName("claims_supported")
     private List<String> mClaimsSupported;
 
+    public String getIssuer() {
+        return mIssuer;
+    }
+
+    public URL getAuthorizationEndpoint() {
+        return mAuthorizationEndpoint;
+    }
+
+    public URL getTokenEndpoint() {
+        return mTokenEndpoint;
+    }
+
+    public URL getUserInfoEndpoint() {
+        return mUserInfoEndpoint;
+    }
+
+    public URL getJWKSUri() {
+        return mJWKSUri;
+    }
+
+    public List<String> getSupportedScopes() {
+        return mSupportedScopes;
+    }
+
+    public List<String> getResponseTypesSupported() {
+        return mResponseTypesSupported;
+    }
+
+    public List<String> getACRValuesSupported() {
+        return mACRValuesSupported;
+    }
+
+    public List<String> getSubjectTypesSupported() {
+        return mSubjectTypesSupported;
+    }
+
+    public List<String> getIDTokenSigningAlgValuesSupported() {
+        return mIDTokenSigningAlgValuesSupported;
+    }
+
+    public List<String> getClaimsSupported() {
+        return mClaimsSupported;
+    }
+
 }
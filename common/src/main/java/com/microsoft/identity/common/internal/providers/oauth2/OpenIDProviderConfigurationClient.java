@@ -22,19 +22,433 @@
 // THE SOFTWARE.
 package com.microsoft.identity.common.internal.providers.oauth2;
 
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.microsoft.identity.common.adal.internal.util.StringExtensions;
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * A class for pulling the OpenIDConfiguratino document from the OpenID Provider server.
+ * A class for pulling the OpenIDConfiguration document from the OpenID Provider server.
+ * <p>
+ * Documents are cached in memory (shared by all instances) and, once a {@link Context} has been
+ * supplied via {@link #initializePersistentCache(Context)}, on disk. Cached documents older than
+ * their time-to-live are revalidated with the server using their ETag; concurrent fetches of the
+ * same document share a single request.
  */
 public class OpenIDProviderConfigurationClient {
 
+    private static final String TAG = OpenIDProviderConfigurationClient.class.getSimpleName();
+
+    /**
+     * The path of the OpenID Provider Configuration document, relative to the issuer.
+     */
+    public static final String WELL_KNOWN_CONFIGURATION_PATH = "/.well-known/openid-configuration";
+
+    /**
+     * The default amount of time a cached configuration document is considered fresh.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    /**
+     * The name of the SharedPreferences file used to persist configuration documents.
+     */
+    private static final String OPENID_CONFIGURATION_SHARED_PREFERENCES =
+            "com.microsoft.identity.client.openid_provider_configuration";
+
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+
+    /**
+     * In-memory cache of configuration documents, keyed by document URL.
+     */
+    private static final ConcurrentMap<String, CachedConfiguration> sConfigurations = new ConcurrentHashMap<>();
+
+    /**
+     * Requests currently in flight, keyed by document URL.
+     */
+    private static final ConcurrentMap<String, FutureTask<CachedConfiguration>> sInFlightRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Number of calls which joined an in-flight request rather than issuing their own.
+     */
+    private static final AtomicLong sCoalescedRequestCount = new AtomicLong();
+
+    /**
+     * Executor used to fetch configuration documents in the background, with the request context
+     * of the caller.
+     */
+    private static final Executor sBackgroundExecutor = DiagnosticContext.wrap(Executors.newSingleThreadExecutor());
+
+    /**
+     * Process-wide on-disk cache, null until a Context is supplied.
+     */
+    private static volatile ISharedPreferencesFileManager sDefaultSharedPreferencesFileManager;
+
+    private final ISharedPreferencesFileManager mSharedPreferencesFileManager;
+    private final long mTimeToLiveMillis;
+
+    /**
+     * Constructs a new OpenIDProviderConfigurationClient backed by the in-memory cache and, once
+     * {@link #initializePersistentCache(Context)} has been called, the on-disk cache.
+     */
+    public OpenIDProviderConfigurationClient() {
+        this(null, DEFAULT_TIME_TO_LIVE_MILLIS);
+    }
+
+    /**
+     * Constructs a new OpenIDProviderConfigurationClient.
+     *
+     * @param sharedPreferencesFileManager The file manager used to persist documents. If null, the
+     *                                     process-wide on-disk cache (if any) is used.
+     * @param timeToLiveMillis             How long a cached document is considered fresh.
+     */
+    public OpenIDProviderConfigurationClient(@Nullable final ISharedPreferencesFileManager sharedPreferencesFileManager,
+                                             final long timeToLiveMillis) {
+        mSharedPreferencesFileManager = sharedPreferencesFileManager;
+        mTimeToLiveMillis = timeToLiveMillis;
+    }
+
     /**
      * Get OpenID provider configuration.
      *
-     * @return OpenIDProviderConfiguration
+     * @return An empty OpenIDProviderConfiguration.
+     * @deprecated The document depends on the issuer, use
+     * {@link #getOpenIDProviderConfiguration(URL)} to fetch it.
      */
+    @Deprecated
     public OpenIDProviderConfiguration getOpenIDProviderConfiguration() {
-        OpenIDProviderConfiguration config = new OpenIDProviderConfiguration();
-        return config;
+        return new OpenIDProviderConfiguration();
+    }
+
+    /**
+     * Enables the process-wide on-disk cache. Subsequent calls have no effect.
+     *
+     * @param context Context used to access the SharedPreferences file.
+     */
+    public static void initializePersistentCache(@NonNull final Context context) {
+        if (null == sDefaultSharedPreferencesFileManager) {
+            synchronized (OpenIDProviderConfigurationClient.class) {
+                if (null == sDefaultSharedPreferencesFileManager) {
+                    sDefaultSharedPreferencesFileManager = new SharedPreferencesFileManager(
+                            context,
+                            OPENID_CONFIGURATION_SHARED_PREFERENCES
+                    );
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private ISharedPreferencesFileManager getSharedPreferencesFileManager() {
+        return null != mSharedPreferencesFileManager
+                ? mSharedPreferencesFileManager
+                : sDefaultSharedPreferencesFileManager;
+    }
+
+    /**
+     * Builds the URL of the OpenID Provider Configuration document for the supplied issuer.
+     *
+     * @param issuer The issuer (authority) URL, e.g. https://login.microsoftonline.com/common/v2.0
+     * @return The configuration document URL.
+     * @throws IOException If the resulting URL is malformed.
+     */
+    public static URL getOpenIDProviderConfigurationUrl(@NonNull final String issuer) throws IOException {
+        String normalizedIssuer = issuer;
+
+        while (normalizedIssuer.endsWith("/")) {
+            normalizedIssuer = normalizedIssuer.substring(0, normalizedIssuer.length() - 1);
+        }
+
+        return new URL(normalizedIssuer + WELL_KNOWN_CONFIGURATION_PATH);
+    }
+
+    /**
+     * Gets the number of configuration fetches which were coalesced into an in-flight request.
+     *
+     * @return The coalesced call count.
+     */
+    public static long getCoalescedRequestCount() {
+        return sCoalescedRequestCount.get();
+    }
+
+    /**
+     * Get OpenID provider configuration, fetching or revalidating it with the server if the cached
+     * copy is missing or stale. If revalidation fails, a stale cached copy is returned.
+     *
+     * @param configurationUrl The URL of the configuration document.
+     * @return OpenIDProviderConfiguration
+     * @throws IOException If the document could not be fetched and no cached copy exists.
+     */
+    public OpenIDProviderConfiguration getOpenIDProviderConfiguration(@NonNull final URL configurationUrl)
+            throws IOException {
+        final String methodName = ":getOpenIDProviderConfiguration";
+        final CachedConfiguration cached = getCachedConfiguration(configurationUrl);
+
+        if (null != cached && !cached.isStale(mTimeToLiveMillis)) {
+            return cached.getConfiguration();
+        }
+
+        try {
+            return fetchCoalesced(configurationUrl, cached).getConfiguration();
+        } catch (final IOException e) {
+            if (null == cached) {
+                throw e;
+            }
+
+            Logger.warn(
+                    TAG + methodName,
+                    "Failed to revalidate OpenID configuration, using stale copy."
+            );
+            return cached.getConfiguration();
+        }
+    }
+
+    /**
+     * Get the cached OpenID provider configuration, without touching the network. Stale entries
+     * are returned as-is.
+     *
+     * @param configurationUrl The URL of the configuration document.
+     * @return The cached configuration or null, if none is cached.
+     */
+    @Nullable
+    public OpenIDProviderConfiguration getCachedOpenIDProviderConfiguration(@NonNull final URL configurationUrl) {
+        final CachedConfiguration cached = getCachedConfiguration(configurationUrl);
+        return null == cached ? null : cached.getConfiguration();
+    }
+
+    /**
+     * Fetches (or revalidates) the configuration document on a background thread if the cached
+     * copy is missing or stale.
+     *
+     * @param configurationUrl The URL of the configuration document.
+     */
+    public void prefetchOpenIDProviderConfiguration(@NonNull final URL configurationUrl) {
+        final String methodName = ":prefetchOpenIDProviderConfiguration";
+        final CachedConfiguration cached = getCachedConfiguration(configurationUrl);
+
+        if ((null != cached && !cached.isStale(mTimeToLiveMillis))
+                || sInFlightRequests.containsKey(getCacheKey(configurationUrl))) {
+            return;
+        }
+
+        sBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    getOpenIDProviderConfiguration(configurationUrl);
+                } catch (final IOException e) {
+                    Logger.warn(
+                            TAG + methodName,
+                            "Background fetch of OpenID configuration failed."
+                    );
+                }
+            }
+        });
+    }
+
+    @Nullable
+    private CachedConfiguration getCachedConfiguration(@NonNull final URL configurationUrl) {
+        final String cacheKey = getCacheKey(configurationUrl);
+        CachedConfiguration cached = sConfigurations.get(cacheKey);
+
+        final ISharedPreferencesFileManager fileManager = getSharedPreferencesFileManager();
+
+        if (null == cached && null != fileManager) {
+            cached = CachedConfiguration.fromJson(fileManager.getString(cacheKey));
+
+            if (null != cached) {
+                sConfigurations.putIfAbsent(cacheKey, cached);
+            }
+        }
+
+        return cached;
+    }
+
+    private CachedConfiguration fetchCoalesced(@NonNull final URL configurationUrl,
+                                               @Nullable final CachedConfiguration cached) throws IOException {
+        final String cacheKey = getCacheKey(configurationUrl);
+        final FutureTask<CachedConfiguration> fetchTask = new FutureTask<>(new Callable<CachedConfiguration>() {
+            @Override
+            public CachedConfiguration call() throws IOException {
+                return fetch(configurationUrl, cached);
+            }
+        });
+
+        final FutureTask<CachedConfiguration> inFlightTask = sInFlightRequests.putIfAbsent(cacheKey, fetchTask);
+
+        if (null == inFlightTask) {
+            try {
+                fetchTask.run();
+            } finally {
+                sInFlightRequests.remove(cacheKey, fetchTask);
+            }
+
+            return await(fetchTask);
+        }
+
+        sCoalescedRequestCount.incrementAndGet();
+        return await(inFlightTask);
+    }
+
+    private CachedConfiguration fetch(@NonNull final URL configurationUrl,
+                                      @Nullable final CachedConfiguration cached) throws IOException {
+        final String methodName = ":fetch";
+        final Map<String, String> requestHeaders = new HashMap<>();
+
+        if (null != cached && !StringExtensions.isNullOrBlank(cached.mETag)) {
+            requestHeaders.put(HEADER_IF_NONE_MATCH, cached.mETag);
+        }
+
+        final HttpResponse response = HttpRequest.sendGet(configurationUrl, requestHeaders);
+        final CachedConfiguration result;
+
+        if (response.getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED && null != cached) {
+            Logger.verbose(
+                    TAG + methodName,
+                    "Cached OpenID configuration is still current."
+            );
+            result = new CachedConfiguration(cached.mRawConfiguration, cached.mETag, System.currentTimeMillis());
+        } else if (response.getStatusCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            throw new IOException("OpenID configuration request failed with status: " + response.getStatusCode());
+        } else {
+            result = new CachedConfiguration(
+                    response.getBody(),
+                    response.getHeaderValue(HEADER_ETAG),
+                    System.currentTimeMillis()
+            );
+
+            if (null == result.getConfiguration()) {
+                throw new IOException("OpenID configuration response could not be parsed.");
+            }
+        }
+
+        final String cacheKey = getCacheKey(configurationUrl);
+        sConfigurations.put(cacheKey, result);
+
+        final ISharedPreferencesFileManager fileManager = getSharedPreferencesFileManager();
+
+        if (null != fileManager) {
+            fileManager.putString(cacheKey, result.toJson());
+        }
+
+        return result;
+    }
+
+    private static CachedConfiguration await(@NonNull final FutureTask<CachedConfiguration> task) throws IOException {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for OpenID configuration.");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException("OpenID configuration request failed.", cause);
+        }
+    }
+
+    private static String getCacheKey(@NonNull final URL configurationUrl) {
+        return configurationUrl.toString().toLowerCase(Locale.US);
+    }
+
+    /**
+     * A configuration document together with the metadata needed to revalidate it.
+     */
+    private static final class CachedConfiguration {
+
+        @SerializedName("configuration")
+        private final String mRawConfiguration;
+
+        @SerializedName("etag")
+        private final String mETag;
+
+        @SerializedName("last_refreshed")
+        private final long mLastRefreshedMillis;
+
+        private transient OpenIDProviderConfiguration mConfiguration;
+
+        CachedConfiguration(final String rawConfiguration,
+                            final String eTag,
+                            final long lastRefreshedMillis) {
+            mRawConfiguration = rawConfiguration;
+            mETag = eTag;
+            mLastRefreshedMillis = lastRefreshedMillis;
+        }
+
+        @Nullable
+        synchronized OpenIDProviderConfiguration getConfiguration() {
+            if (null == mConfiguration && !StringExtensions.isNullOrBlank(mRawConfiguration)) {
+                try {
+                    mConfiguration = ObjectMapper.deserializeJsonStringToObject(
+                            mRawConfiguration,
+                            OpenIDProviderConfiguration.class
+                    );
+                } catch (final JsonParseException e) {
+                    Logger.error(TAG, "Failed to parse OpenID configuration.", e);
+                }
+            }
+
+            return mConfiguration;
+        }
+
+        boolean isStale(final long timeToLiveMillis) {
+            final long age = System.currentTimeMillis() - mLastRefreshedMillis;
+            return age < 0 || age >= timeToLiveMillis;
+        }
+
+        String toJson() {
+            return ObjectMapper.serializeObjectToJsonString(this);
+        }
+
+        @Nullable
+        static CachedConfiguration fromJson(@Nullable final String json) {
+            if (StringExtensions.isNullOrBlank(json)) {
+                return null;
+            }
+
+            try {
+                final CachedConfiguration cached = ObjectMapper.deserializeJsonStringToObject(json, CachedConfiguration.class);
+                return null == cached || null == cached.getConfiguration() ? null : cached;
+            } catch (final JsonParseException e) {
+                Logger.warn(TAG, "Discarding malformed persisted OpenID configuration.");
+                return null;
+            }
+        }
     }
 
 }
@@ -34,6 +34,7 @@ public class TokenResult {
     private TokenResponse mTokenResponse;
     private TokenErrorResponse mTokenErrorResponse;
     private boolean mSuccess = false;
+    private int mStatusCode;
 
 
     public TokenResult(){
@@ -109,6 +110,23 @@ public class TokenResult {
         mSuccess = success;
     }
 
+    /**
+     * Returns the HTTP status code of the token response.
+     *
+     * @return The status code, or 0 if the result was not built from an HTTP response.
+     */
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    /**
+     * Set the HTTP status code of the token response.
+     * @param statusCode The status code.
+     */
+    public void setStatusCode(final int statusCode) {
+        mStatusCode = statusCode;
+    }
+
     //CHECKSTYLE:OFF
     @Override
     public String toString() {
@@ -116,6 +134,7 @@ public class TokenResult {
                 "mTokenResponse=" + mTokenResponse +
                 ", mTokenErrorResponse=" + mTokenErrorResponse +
                 ", mSuccess=" + mSuccess +
+                ", mStatusCode=" + mStatusCode +
                 '}';
     }
     //CHECKSTYLE:ON
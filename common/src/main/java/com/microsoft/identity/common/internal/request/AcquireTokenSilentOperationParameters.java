@@ -29,6 +29,7 @@ public class AcquireTokenSilentOperationParameters extends OperationParameters {
 
     private RefreshTokenRecord mRefreshToken;
     private boolean mForceRefresh;
+    private boolean mExtendedExpiryResilienceEnabled;
 
     public RefreshTokenRecord getRefreshToken() {
         return mRefreshToken;
@@ -46,6 +47,21 @@ public class AcquireTokenSilentOperationParameters extends OperationParameters {
         return mForceRefresh;
     }
 
+    /**
+     * Opts in to serving an expired access token which is still within its extended lifetime when
+     * the refresh fails because the service is unavailable (server error, timeout or open circuit).
+     * Such results are flagged as stale.
+     *
+     * @param extendedExpiryResilienceEnabled True to enable the resilience mode.
+     */
+    public void setExtendedExpiryResilienceEnabled(final boolean extendedExpiryResilienceEnabled) {
+        mExtendedExpiryResilienceEnabled = extendedExpiryResilienceEnabled;
+    }
+
+    public boolean getExtendedExpiryResilienceEnabled() {
+        return mExtendedExpiryResilienceEnabled;
+    }
+
     @Override
     public void validate() throws ArgumentException {
         super.validate();
@@ -92,4 +92,10 @@ public interface ILocalAuthenticationResult {
      */
     @NonNull
     String[] getScope();
+
+    /**
+     * @return True if the access token is past its expiry but within its extended lifetime, and
+     * was returned because the service could not be reached to refresh it.
+     */
+    boolean isStale();
 }
\ No newline at end of file
@@ -43,11 +43,17 @@ public final class LocalAuthenticationResult implements ILocalAuthenticationResu
     private final String mRawIdToken;
     private final AccessTokenRecord mAccessTokenRecord;
     private final IAccountRecord mAccountRecord;
+    private final boolean mStale;
 
     public LocalAuthenticationResult(@NonNull final ICacheRecord cacheRecord) {
+        this(cacheRecord, false);
+    }
+
+    public LocalAuthenticationResult(@NonNull final ICacheRecord cacheRecord, final boolean stale) {
         mAccessTokenRecord = cacheRecord.getAccessToken();
         mRawIdToken = cacheRecord.getIdToken().getSecret();
         mAccountRecord = cacheRecord.getAccount();
+        mStale = stale;
     }
 
     public LocalAuthenticationResult(@NonNull AccessTokenRecord accessTokenRecord,
@@ -56,7 +62,7 @@ public final class LocalAuthenticationResult implements ILocalAuthenticationResu
         mAccessTokenRecord = accessTokenRecord;
         mRawIdToken = rawIdToken;
         mAccountRecord = accountRecord;
-
+        mStale = false;
     }
 
     @Override
@@ -116,4 +122,9 @@ public final class LocalAuthenticationResult implements ILocalAuthenticationResu
     public AccessTokenRecord getAccessTokenRecord() {
         return mAccessTokenRecord;
     }
+
+    @Override
+    public boolean isStale() {
+        return mStale;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.tracing;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * A timed operation recorded by the {@link Tracer}. Spans are started with
+ * {@link Tracer#startSpan(String)} and ended with {@link #end()}; once ended, they are immutable
+ * and can be read from any thread.
+ */
+public final class Span {
+
+    /**
+     * The span handed out while tracing is off. All of its methods do nothing.
+     */
+    static final Span NOOP = new Span(null, "", 0, null, null);
+
+    private final ISpanSink mSink;
+    private final String mName;
+    private final long mSpanId;
+    private final Span mParent;
+    private final String mCorrelationId;
+    private final long mStartTimeMillis;
+    private final long mStartNanos;
+
+    private volatile long mDurationNanos = -1;
+    private volatile String mError;
+
+    Span(@Nullable final ISpanSink sink,
+         @NonNull final String name,
+         final long spanId,
+         @Nullable final Span parent,
+         @Nullable final String correlationId) {
+        mSink = sink;
+        mName = name;
+        mSpanId = spanId;
+        mParent = parent;
+        mCorrelationId = correlationId;
+
+        if (null == sink) {
+            mStartTimeMillis = 0;
+            mStartNanos = 0;
+        } else {
+            mStartTimeMillis = System.currentTimeMillis();
+            mStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Mark the span as failed. Only the type of the error is kept, so no PII ends up in the span.
+     *
+     * @param error The error the traced operation failed with.
+     */
+    public void setError(@NonNull final Throwable error) {
+        if (null != mSink && mDurationNanos < 0) {
+            mError = error.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * End the span and hand it to the sink. Ending a span more than once has no effect.
+     */
+    public void end() {
+        if (null == mSink || mDurationNanos >= 0) {
+            return;
+        }
+
+        mDurationNanos = System.nanoTime() - mStartNanos;
+        Tracer.onSpanEnd(this);
+    }
+
+    /**
+     * @return The name of the traced operation.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return The id of the span, unique within the process.
+     */
+    public long getSpanId() {
+        return mSpanId;
+    }
+
+    /**
+     * @return The id of the span this span was started in, or 0 if it is a root span.
+     */
+    public long getParentSpanId() {
+        return null == mParent ? 0 : mParent.getSpanId();
+    }
+
+    /**
+     * @return The correlation id of the request the span was started for.
+     */
+    @Nullable
+    public String getCorrelationId() {
+        return mCorrelationId;
+    }
+
+    /**
+     * @return The wall clock time the span started at, in milliseconds since the epoch.
+     */
+    public long getStartTimeMillis() {
+        return mStartTimeMillis;
+    }
+
+    /**
+     * @return How long the span was open for, in nanoseconds, or -1 if it has not ended.
+     */
+    public long getDurationNanos() {
+        return mDurationNanos;
+    }
+
+    /**
+     * @return The simple class name of the error the operation failed with, or null if it did not
+     * fail.
+     */
+    @Nullable
+    public String getError() {
+        return mError;
+    }
+
+    @Nullable
+    Span getParent() {
+        return mParent;
+    }
+
+    ISpanSink getSink() {
+        return mSink;
+    }
+}
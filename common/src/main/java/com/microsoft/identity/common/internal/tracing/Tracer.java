@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.tracing;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records nested, timed spans around the stages of a token request and hands them to an
+ * {@link ISpanSink}. A span started while another span is open on the same thread becomes its
+ * child, and every span carries the correlation id of the request it was started for.
+ * <p>
+ * Tracing is off until a sink is set. While it is off, {@link #startSpan(String)} returns a shared
+ * span which does nothing, so instrumented code pays for a single field read.
+ */
+public final class Tracer {
+
+    private static final String TAG = Tracer.class.getSimpleName();
+
+    private static final AtomicLong sNextSpanId = new AtomicLong();
+
+    private static final ThreadLocal<Span> sCurrentSpan = new ThreadLocal<>();
+
+    private static volatile ISpanSink sSink;
+
+    private Tracer() {
+    }
+
+    /**
+     * Set the sink which receives the ended spans. Setting a sink turns tracing on, and setting
+     * null turns it off.
+     *
+     * @param sink The sink, or null to stop tracing.
+     */
+    public static void setSink(@Nullable final ISpanSink sink) {
+        sSink = sink;
+    }
+
+    /**
+     * @return True if spans are currently being recorded.
+     */
+    public static boolean isEnabled() {
+        return null != sSink;
+    }
+
+    /**
+     * Start a span on the calling thread. The span must be ended on the same thread, in a finally
+     * block, so that spans started after it are not attached to it by mistake.
+     *
+     * @param name The name of the traced operation, such as "HttpRequest.send".
+     * @return The started span.
+     */
+    public static Span startSpan(@NonNull final String name) {
+        final ISpanSink sink = sSink;
+        if (null == sink) {
+            return Span.NOOP;
+        }
+
+        final Span parent = sCurrentSpan.get();
+        final Span span = new Span(
+                sink,
+                name,
+                sNextSpanId.incrementAndGet(),
+                parent,
+                DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID)
+        );
+        sCurrentSpan.set(span);
+
+        return span;
+    }
+
+    /**
+     * @return The innermost open span on the calling thread, or null if there is none.
+     */
+    @Nullable
+    static Span getCurrentSpan() {
+        return sCurrentSpan.get();
+    }
+
+    static void onSpanEnd(@NonNull final Span span) {
+        final String methodName = ":onSpanEnd";
+
+        if (sCurrentSpan.get() == span) {
+            if (null == span.getParent()) {
+                sCurrentSpan.remove();
+            } else {
+                sCurrentSpan.set(span.getParent());
+            }
+        }
+
+        try {
+            span.getSink().onSpanEnd(span);
+        } catch (final RuntimeException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Span sink failed for span: " + span.getName()
+            );
+        }
+    }
+}
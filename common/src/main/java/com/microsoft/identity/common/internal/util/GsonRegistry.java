@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.internal.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.microsoft.identity.common.adal.internal.cache.DateTimeAdapter;
+
+import java.util.Date;
+
+/**
+ * Central registry of shared, pre-configured {@link Gson} instances.
+ * <p>
+ * Gson instances are thread safe and cache the reflective type adapters they build for every
+ * class they touch, so creating a new instance per call pays that cost again each time. Each
+ * configuration is created once, on first use, with its custom adapters registered.
+ */
+public final class GsonRegistry {
+
+    private GsonRegistry() {
+        // Utility class.
+    }
+
+    /**
+     * @return The {@link Gson} with default settings, used for wire formats and cache entries.
+     */
+    public static Gson getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return The {@link Gson} used for the ADAL token cache, reading and writing {@link Date}s
+     * through {@link DateTimeAdapter}.
+     */
+    public static Gson getAdalCache() {
+        return AdalCacheHolder.INSTANCE;
+    }
+
+    /**
+     * @return The {@link Gson} used to serialize extra query parameters.
+     */
+    public static Gson getQueryParams() {
+        return QueryParamsHolder.INSTANCE;
+    }
+
+    // Each configuration lives in its own holder class so that it is only built when first used.
+
+    private static final class DefaultHolder {
+        private static final Gson INSTANCE = new Gson();
+    }
+
+    private static final class AdalCacheHolder {
+        private static final Gson INSTANCE = new GsonBuilder()
+                .registerTypeAdapter(Date.class, new DateTimeAdapter())
+                .create();
+    }
+
+    private static final class QueryParamsHolder {
+        private static final Gson INSTANCE = new GsonBuilder()
+                .registerTypeAdapter(QueryParamsAdapter.class, new QueryParamsAdapter())
+                .create();
+    }
+}
@@ -0,0 +1,171 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.internal.util;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.metrics.Counter;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least recently used cache of values parsed from raw tokens, such as the claims of an
+ * ID token or the decoded client_info.
+ * <p>
+ * Accounts are built from the same few tokens over and over, e.g. each time the accounts in the
+ * cache are enumerated or a token response is turned into cache records, so each token is parsed
+ * once instead of on every build. Entries are keyed by the SHA-256 digest of the raw token, but the
+ * parsed values, e.g. the claims of an ID token, are PII and stay in memory until evicted or
+ * {@link #clear()}ed; owners clear them when the accounts and credentials they came from are
+ * removed. Cached values are shared between callers and must be immutable.
+ *
+ * @param <V> The type of the parsed value.
+ */
+public final class ParsedTokenCache<V> {
+
+    private static final String TAG = ParsedTokenCache.class.getSimpleName();
+
+    /**
+     * The default number of parsed tokens kept.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Parses a raw token into the value to cache.
+     *
+     * @param <V> The type of the parsed value.
+     */
+    public interface Parser<V> {
+
+        /**
+         * @param rawToken The raw token.
+         * @return The parsed, immutable value.
+         * @throws ServiceException If the token is malformed.
+         */
+        V parse(@NonNull String rawToken) throws ServiceException;
+    }
+
+    private final Map<ByteBuffer, V> mEntries;
+    private final Counter mHitCounter;
+    private final Counter mMissCounter;
+
+    /**
+     * @param name    The kind of token cached, used to name the hit and miss counters
+     *                {@code token_parse_cache.hit{type=<name>}} and {@code token_parse_cache.miss{type=<name>}}.
+     * @param maxSize The number of parsed tokens to keep.
+     */
+    public ParsedTokenCache(@NonNull final String name, final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive.");
+        }
+
+        mEntries = new LinkedHashMap<ByteBuffer, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ByteBuffer, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+        mHitCounter = MetricsRegistry.counter(MetricsRegistry.name("token_parse_cache.hit", "type", name));
+        mMissCounter = MetricsRegistry.counter(MetricsRegistry.name("token_parse_cache.miss", "type", name));
+    }
+
+    /**
+     * Get the parsed value of the given token, parsing and caching it if needed. Tokens which fail
+     * to parse are not cached.
+     *
+     * @param rawToken The raw token.
+     * @param parser   The parser to use if the token is not cached.
+     * @return The parsed value.
+     * @throws ServiceException If the token is not cached and fails to parse.
+     */
+    public V get(@NonNull final String rawToken, @NonNull final Parser<V> parser) throws ServiceException {
+        final ByteBuffer key = digest(rawToken);
+
+        if (null == key) {
+            return parser.parse(rawToken);
+        }
+
+        V value;
+        synchronized (mEntries) {
+            value = mEntries.get(key);
+        }
+
+        if (null != value) {
+            mHitCounter.increment();
+            return value;
+        }
+
+        mMissCounter.increment();
+        // Parsed outside the lock: concurrent misses for the same token may each parse it
+        value = parser.parse(rawToken);
+
+        synchronized (mEntries) {
+            mEntries.put(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Drop all cached values.
+     */
+    public void clear() {
+        synchronized (mEntries) {
+            mEntries.clear();
+        }
+    }
+
+    /**
+     * @return The number of cached values.
+     */
+    public int size() {
+        synchronized (mEntries) {
+            return mEntries.size();
+        }
+    }
+
+    private static ByteBuffer digest(@NonNull final String rawToken) {
+        final String methodName = ":digest";
+
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(rawToken.getBytes(UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            Logger.warn(
+                    TAG + methodName,
+                    "Digest algorithm unavailable, token is parsed without caching."
+            );
+            return null;
+        }
+    }
+}
@@ -24,8 +24,6 @@ package com.microsoft.identity.common.internal.util;
 
 import android.util.Pair;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
@@ -42,17 +40,6 @@ import java.util.List;
  */
 public class QueryParamsAdapter extends TypeAdapter<List<Pair<String, String>>> {
 
-    private static final Gson mGson;
-
-    static {
-        final GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(
-                QueryParamsAdapter.class,
-                new QueryParamsAdapter()
-        );
-        mGson = gsonBuilder.create();
-    }
-
     @Override
     public void write(final JsonWriter out, final List<Pair<String, String>> queryParams) throws IOException {
         out.beginObject();
@@ -80,12 +67,12 @@ public class QueryParamsAdapter extends TypeAdapter<List<Pair<String, String>>>
 
     public static String _toJson(final List<Pair<String, String>> extraQueryStringParameters) {
         final Type listType = new TypeToken<List<Pair<String, String>>>(){}.getType();
-        return mGson.toJson(extraQueryStringParameters, listType);
+        return GsonRegistry.getQueryParams().toJson(extraQueryStringParameters, listType);
     }
 
     public static List<Pair<String, String>> _fromJson(final String jsonString) {
         final Type listType = new TypeToken<List<Pair<String, String>>>(){}.getType();
-        return mGson.fromJson(jsonString, listType);
+        return GsonRegistry.getQueryParams().fromJson(jsonString, listType);
     }
 
 }
@@ -0,0 +1,182 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.exception.BaseException;
+import com.microsoft.identity.common.internal.controllers.AccessTokenRefreshScheduler;
+import com.microsoft.identity.common.internal.controllers.IAccessTokenRefresher;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link AccessTokenRefreshScheduler}, driven by a fake clock.
+ */
+public final class AccessTokenRefreshSchedulerTest {
+
+    private static final long START_MILLIS = TimeUnit.DAYS.toMillis(17800);
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MIN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long TOKEN_LIFETIME_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private FakeScheduledExecutorService mExecutor;
+    private final List<String> mRefreshedTargets = new ArrayList<>();
+    private volatile boolean mFailRefreshes;
+    private AccessTokenRefreshScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mExecutor = new FakeScheduledExecutorService(START_MILLIS);
+        mScheduler = new AccessTokenRefreshScheduler.Builder(new IAccessTokenRefresher() {
+            @Override
+            public AccessTokenRecord refresh(@NonNull final AcquireTokenSilentOperationParameters parameters)
+                    throws IOException, BaseException {
+                final String target = parameters.getScopes().get(0);
+                mRefreshedTargets.add(target);
+
+                if (mFailRefreshes) {
+                    throw new IOException("service unavailable");
+                }
+
+                return createAccessToken(target, mExecutor.currentTimeMillis() + TOKEN_LIFETIME_MILLIS);
+            }
+        })
+                .setExecutor(mExecutor)
+                .setClock(mExecutor)
+                .setRefreshWindowMillis(WINDOW_MILLIS)
+                .setMinRefreshIntervalMillis(MIN_INTERVAL_MILLIS)
+                .build();
+    }
+
+    @Test
+    public void testRefreshesWithinWindowBeforeExpiry() {
+        track("uid1", "user.read", START_MILLIS + TOKEN_LIFETIME_MILLIS);
+
+        mExecutor.advance(TOKEN_LIFETIME_MILLIS - WINDOW_MILLIS - 1);
+        Assert.assertTrue(mRefreshedTargets.isEmpty());
+
+        mExecutor.advance(1);
+        Assert.assertEquals(1, mRefreshedTargets.size());
+        Assert.assertEquals(1, mScheduler.getRefreshCount());
+
+        // The renewed token is tracked and refreshed again before it expires
+        Assert.assertEquals(1, mScheduler.getTrackedTokenCount());
+        mExecutor.advance(TOKEN_LIFETIME_MILLIS - WINDOW_MILLIS);
+        Assert.assertEquals(2, mRefreshedTargets.size());
+    }
+
+    @Test
+    public void testTokensOfAnAccountAreBatched() {
+        track("uid1", "user.read", START_MILLIS + TOKEN_LIFETIME_MILLIS);
+        track("uid1", "mail.read", START_MILLIS + TOKEN_LIFETIME_MILLIS + MIN_INTERVAL_MILLIS / 2);
+        track("uid2", "files.read", START_MILLIS + TOKEN_LIFETIME_MILLIS + MIN_INTERVAL_MILLIS / 2);
+
+        mExecutor.advance(TOKEN_LIFETIME_MILLIS - WINDOW_MILLIS);
+        // Both tokens of uid1 are refreshed in one batch; uid2 is not yet due
+        Assert.assertEquals(2, mRefreshedTargets.size());
+        Assert.assertTrue(mRefreshedTargets.contains("user.read"));
+        Assert.assertTrue(mRefreshedTargets.contains("mail.read"));
+
+        mExecutor.advance(MIN_INTERVAL_MILLIS / 2);
+        Assert.assertEquals(3, mRefreshedTargets.size());
+        Assert.assertEquals("files.read", mRefreshedTargets.get(2));
+    }
+
+    @Test
+    public void testFailedRefreshesAreRateLimitedUntilExpiry() {
+        mFailRefreshes = true;
+        track("uid1", "user.read", START_MILLIS + TOKEN_LIFETIME_MILLIS);
+
+        mExecutor.advance(TOKEN_LIFETIME_MILLIS - WINDOW_MILLIS);
+        Assert.assertEquals(1, mRefreshedTargets.size());
+        Assert.assertEquals(1, mScheduler.getFailedRefreshCount());
+
+        mExecutor.advance(MIN_INTERVAL_MILLIS - 1);
+        Assert.assertEquals(1, mRefreshedTargets.size());
+
+        // One attempt per interval until the token expires, then it is dropped
+        mExecutor.advance(WINDOW_MILLIS);
+        Assert.assertEquals(WINDOW_MILLIS / MIN_INTERVAL_MILLIS, mRefreshedTargets.size());
+        Assert.assertEquals(0, mScheduler.getTrackedTokenCount());
+        Assert.assertEquals(0, mExecutor.getPendingTaskCount());
+    }
+
+    @Test
+    public void testTrackingTheSameTokenReplacesIt() {
+        track("uid1", "user.read", START_MILLIS + TOKEN_LIFETIME_MILLIS);
+        track("uid1", "user.read", START_MILLIS + 2 * TOKEN_LIFETIME_MILLIS);
+
+        Assert.assertEquals(1, mScheduler.getTrackedTokenCount());
+        mExecutor.advance(TOKEN_LIFETIME_MILLIS);
+        Assert.assertTrue(mRefreshedTargets.isEmpty());
+    }
+
+    @Test
+    public void testUntrackCancelsRefresh() {
+        track("uid1", "user.read", START_MILLIS + TOKEN_LIFETIME_MILLIS);
+        mScheduler.untrack(createAccount("uid1"));
+
+        Assert.assertEquals(0, mExecutor.getPendingTaskCount());
+        mExecutor.advance(TOKEN_LIFETIME_MILLIS);
+        Assert.assertTrue(mRefreshedTargets.isEmpty());
+    }
+
+    private void track(@NonNull final String uid, @NonNull final String target, final long expiresOnMillis) {
+        final AcquireTokenSilentOperationParameters parameters = new AcquireTokenSilentOperationParameters();
+        parameters.setClientId("client-id");
+        parameters.setAccount(createAccount(uid));
+        final ArrayList<String> scopes = new ArrayList<>();
+        scopes.add(target);
+        parameters.setScopes(scopes);
+
+        mScheduler.track(parameters, createAccessToken(target, expiresOnMillis));
+    }
+
+    private static AccountRecord createAccount(@NonNull final String uid) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(uid + ".utid");
+        account.setEnvironment("login.microsoftonline.com");
+
+        return account;
+    }
+
+    private static AccessTokenRecord createAccessToken(@NonNull final String target, final long expiresOnMillis) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setRealm("utid");
+        accessToken.setTarget(target);
+        accessToken.setExpiresOn(String.valueOf(TimeUnit.MILLISECONDS.toSeconds(expiresOnMillis)));
+
+        return accessToken;
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.logging.AsyncLogDispatcher;
+import com.microsoft.identity.common.internal.logging.ILoggerBatchCallback;
+import com.microsoft.identity.common.internal.logging.LogRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class AsyncLogDispatcherTest {
+
+    private static final String TAG = AsyncLogDispatcherTest.class.getSimpleName();
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final CountDownLatch mEntered = new CountDownLatch(1);
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private final List<String> mMessages = Collections.synchronizedList(new ArrayList<String>());
+    private final List<Integer> mBatchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+    private AsyncLogDispatcher mDispatcher;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mRelease.countDown();
+        Logger.getInstance().setAsyncLogDispatcher(null);
+
+        if (null != mDispatcher) {
+            Assert.assertTrue(mDispatcher.awaitTermination(TIMEOUT_MILLIS));
+        }
+    }
+
+    @Test
+    public void testRecordsDeliveredInOrderAfterShutdown() throws InterruptedException {
+        install(new AsyncLogDispatcher.Builder(new RecordingCallback(false))
+                .setMaxBatchSize(16)
+                .build());
+
+        for (int i = 0; i < 100; i++) {
+            Logger.verbose(TAG, "message-" + i);
+        }
+
+        mDispatcher.shutdown();
+        Assert.assertTrue(mDispatcher.awaitTermination(TIMEOUT_MILLIS));
+
+        Assert.assertEquals(100, mDispatcher.getDeliveredCount());
+        Assert.assertEquals(0, mDispatcher.getDroppedCount());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(mMessages.get(i).contains("message-" + i + " "));
+        }
+        for (final int batchSize : mBatchSizes) {
+            Assert.assertTrue(batchSize <= 16);
+        }
+    }
+
+    @Test
+    public void testSlowCallbackDoesNotBlockLogging() throws InterruptedException {
+        install(new AsyncLogDispatcher.Builder(new RecordingCallback(true))
+                .setMaxBatchSize(1)
+                .build());
+
+        Logger.verbose(TAG, "first");
+        Assert.assertTrue(mEntered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        // The callback is stuck on the first record; logging carries on
+        Logger.verbose(TAG, "second");
+        Logger.verbose(TAG, "third");
+        Assert.assertEquals(2, mDispatcher.getPendingCount());
+
+        mRelease.countDown();
+        mDispatcher.shutdown();
+        Assert.assertTrue(mDispatcher.awaitTermination(TIMEOUT_MILLIS));
+        Assert.assertEquals(3, mMessages.size());
+    }
+
+    @Test
+    public void testDropNewestWhenFull() throws InterruptedException {
+        install(new AsyncLogDispatcher.Builder(new RecordingCallback(true))
+                .setCapacity(4)
+                .setMaxBatchSize(1)
+                .setOverflowPolicy(AsyncLogDispatcher.OverflowPolicy.DROP_NEWEST)
+                .build());
+        fillWhileBlocked();
+
+        Assert.assertEquals(2, mDispatcher.getDroppedCount());
+        Assert.assertTrue(mMessages.get(4).contains("queued-3 "));
+    }
+
+    @Test
+    public void testDropOldestWhenFull() throws InterruptedException {
+        install(new AsyncLogDispatcher.Builder(new RecordingCallback(true))
+                .setCapacity(4)
+                .setMaxBatchSize(1)
+                .setOverflowPolicy(AsyncLogDispatcher.OverflowPolicy.DROP_OLDEST)
+                .build());
+        fillWhileBlocked();
+
+        Assert.assertEquals(2, mDispatcher.getDroppedCount());
+        Assert.assertTrue(mMessages.get(1).contains("queued-2 "));
+        Assert.assertTrue(mMessages.get(4).contains("queued-5 "));
+    }
+
+    /**
+     * Blocks the callback on a first record, then logs 6 more records into a 4 slot buffer.
+     */
+    private void fillWhileBlocked() throws InterruptedException {
+        Logger.verbose(TAG, "blocking");
+        Assert.assertTrue(mEntered.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        for (int i = 0; i < 6; i++) {
+            Logger.verbose(TAG, "queued-" + i);
+        }
+
+        mRelease.countDown();
+        mDispatcher.shutdown();
+        Assert.assertTrue(mDispatcher.awaitTermination(TIMEOUT_MILLIS));
+        Assert.assertEquals(5, mMessages.size());
+    }
+
+    private void install(final AsyncLogDispatcher dispatcher) {
+        mDispatcher = dispatcher;
+        Logger.getInstance().setAsyncLogDispatcher(dispatcher);
+    }
+
+    private final class RecordingCallback implements ILoggerBatchCallback {
+
+        private final boolean mBlockOnFirstBatch;
+
+        RecordingCallback(final boolean blockOnFirstBatch) {
+            mBlockOnFirstBatch = blockOnFirstBatch;
+        }
+
+        @Override
+        public void log(final List<LogRecord> records) {
+            mBatchSizes.add(records.size());
+
+            for (final LogRecord record : records) {
+                mMessages.add(record.getMessage());
+            }
+
+            if (mBlockOnFirstBatch && mEntered.getCount() > 0) {
+                mEntered.countDown();
+
+                try {
+                    mRelease.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.net.CircuitBreaker;
+import com.microsoft.identity.common.internal.net.CircuitBreakerOpenException;
+import com.microsoft.identity.common.internal.net.CircuitBreakerPolicy;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.ICircuitBreakerListener;
+import com.microsoft.identity.common.internal.net.IHttpTransport;
+import com.microsoft.identity.common.internal.net.IResponseBodyParser;
+import com.microsoft.identity.common.internal.net.RetryPolicy;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.net.UnknownServiceException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for the per-host {@link CircuitBreaker} in {@link HttpRequest}.
+ */
+public final class CircuitBreakerTest {
+
+    private static final long OPEN_DURATION_MILLIS = 100;
+    private static final String HOST = "login.microsoftonline.com";
+
+    private MockHttpTransport mTransport;
+    private final List<String> mTransitions = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mTransport = new MockHttpTransport();
+        HttpRequest.setTransport(mTransport);
+        HttpRequest.setRetryPolicy(RetryPolicy.NO_RETRY);
+        HttpRequest.setCircuitBreakerPolicy(new CircuitBreakerPolicy.Builder()
+                .setFailureThreshold(2)
+                .setOpenDurationMillis(OPEN_DURATION_MILLIS)
+                .build());
+        HttpRequest.setCircuitBreakerListener(new ICircuitBreakerListener() {
+            @Override
+            public void onStateChanged(@NonNull final String host,
+                                       @NonNull final CircuitBreaker.State previousState,
+                                       @NonNull final CircuitBreaker.State newState) {
+                synchronized (mTransitions) {
+                    mTransitions.add(host + ":" + previousState + "->" + newState);
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        HttpRequest.setTransport(null);
+        HttpRequest.setRetryPolicy(null);
+        HttpRequest.setCircuitBreakerPolicy(null);
+        HttpRequest.setCircuitBreakerListener(null);
+    }
+
+    @Test
+    public void testBreakerOpensAfterConsecutiveFailures() throws IOException {
+        HttpRequest.setCircuitBreakerPolicy(new CircuitBreakerPolicy.Builder()
+                .setFailureThreshold(2)
+                .setOpenDurationMillis(60000)
+                .build());
+        openBreaker();
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, HttpRequest.getCircuitBreakerState(HOST));
+        try {
+            sendGet();
+            Assert.fail("Expected CircuitBreakerOpenException");
+        } catch (final CircuitBreakerOpenException e) {
+            Assert.assertEquals(HOST, e.getHost());
+            Assert.assertTrue(e.getRetryAfterMillis() > 0);
+        }
+
+        // The rejected request never reached the transport
+        Assert.assertEquals(2, mTransport.getRequestCount());
+        Assert.assertEquals(Collections.singletonList(HOST + ":CLOSED->OPEN"), mTransitions);
+    }
+
+    @Test
+    public void testSuccessResetsFailureCount() throws IOException {
+        mTransport.enqueue(HttpURLConnection.HTTP_UNAVAILABLE, "");
+        mTransport.enqueue(HttpURLConnection.HTTP_OK, "");
+        mTransport.enqueue(HttpURLConnection.HTTP_UNAVAILABLE, "");
+
+        sendGetIgnoringServiceErrors();
+        sendGet();
+        sendGetIgnoringServiceErrors();
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, HttpRequest.getCircuitBreakerState(HOST));
+        Assert.assertTrue(mTransitions.isEmpty());
+    }
+
+    @Test
+    public void testSuccessfulProbeClosesBreaker() throws Exception {
+        openBreaker();
+        Thread.sleep(OPEN_DURATION_MILLIS + 50);
+
+        sendGet();
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, HttpRequest.getCircuitBreakerState(HOST));
+        Assert.assertEquals(3, mTransport.getRequestCount());
+        Assert.assertEquals(3, mTransitions.size());
+        Assert.assertEquals(HOST + ":OPEN->HALF_OPEN", mTransitions.get(1));
+        Assert.assertEquals(HOST + ":HALF_OPEN->CLOSED", mTransitions.get(2));
+    }
+
+    @Test
+    public void testFailedProbeReopensBreaker() throws Exception {
+        openBreaker();
+        Thread.sleep(OPEN_DURATION_MILLIS + 50);
+        mTransport.enqueueFailure(new SocketTimeoutException());
+
+        try {
+            sendGet();
+            Assert.fail("Expected SocketTimeoutException");
+        } catch (final SocketTimeoutException e) {
+            // Expected
+        }
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, HttpRequest.getCircuitBreakerState(HOST));
+        Assert.assertEquals(HOST + ":HALF_OPEN->OPEN", mTransitions.get(2));
+    }
+
+    @Test
+    public void testTimeoutsOpenBreaker() throws IOException {
+        mTransport.enqueueFailure(new SocketTimeoutException());
+        mTransport.enqueueFailure(new SocketTimeoutException());
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                sendGet();
+                Assert.fail("Expected SocketTimeoutException");
+            } catch (final SocketTimeoutException e) {
+                // Expected
+            }
+        }
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, HttpRequest.getCircuitBreakerState(HOST));
+    }
+
+    @Test
+    public void testFailuresUnrelatedToHostDoNotOpenBreaker() throws IOException {
+        mTransport.enqueueFailure(new UnknownHostException(HOST));
+        mTransport.enqueueFailure(new UnknownHostException(HOST));
+        mTransport.enqueueFailure(new UnknownHostException(HOST));
+        mTransport.enqueue(HttpURLConnection.HTTP_BAD_REQUEST, "");
+        mTransport.enqueue(HttpURLConnection.HTTP_BAD_REQUEST, "");
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                sendGet();
+                Assert.fail("Expected UnknownHostException");
+            } catch (final UnknownHostException e) {
+                // Offline
+            }
+        }
+        sendGet();
+        sendGet();
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, HttpRequest.getCircuitBreakerState(HOST));
+        Assert.assertEquals(5, mTransport.getRequestCount());
+        Assert.assertTrue(mTransitions.isEmpty());
+    }
+
+    @Test
+    public void testAbandonedProbeLetsAnotherRequestProbe() throws Exception {
+        openBreaker();
+        Thread.sleep(OPEN_DURATION_MILLIS + 50);
+        mTransport.enqueueFailure(new UnknownHostException(HOST));
+
+        try {
+            sendGet();
+            Assert.fail("Expected UnknownHostException");
+        } catch (final UnknownHostException e) {
+            // Offline
+        }
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, HttpRequest.getCircuitBreakerState(HOST));
+
+        sendGet();
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, HttpRequest.getCircuitBreakerState(HOST));
+        Assert.assertEquals(4, mTransport.getRequestCount());
+    }
+
+    @Test
+    public void testSuccessAdmittedBeforeOpeningDoesNotCloseBreaker() throws Exception {
+        final CountDownLatch admitted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean blockNext = new AtomicBoolean(true);
+        HttpRequest.setTransport(new IHttpTransport() {
+            @Override
+            public HttpResponse execute(@NonNull final String requestMethod,
+                                        @NonNull final URL requestUrl,
+                                        @NonNull final Map<String, String> requestHeaders,
+                                        @Nullable final byte[] requestContent,
+                                        @Nullable final String requestContentType,
+                                        final int connectTimeoutMillis,
+                                        final int readTimeoutMillis,
+                                        @Nullable final IResponseBodyParser<?> responseBodyParser)
+                    throws IOException {
+                if (blockNext.getAndSet(false)) {
+                    admitted.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    return MockHttpTransport.createResponse(HttpURLConnection.HTTP_OK, "",
+                            Collections.<String, List<String>>emptyMap());
+                }
+
+                return mTransport.execute(requestMethod, requestUrl, requestHeaders, requestContent,
+                        requestContentType, connectTimeoutMillis, readTimeoutMillis, responseBodyParser);
+            }
+        });
+
+        final AtomicReference<Throwable> slowRequestFailure = new AtomicReference<>();
+        final Thread slowRequest = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sendGet();
+                } catch (final Throwable t) {
+                    slowRequestFailure.set(t);
+                }
+            }
+        });
+        slowRequest.start();
+        Assert.assertTrue(admitted.await(5, TimeUnit.SECONDS));
+
+        openBreaker();
+        release.countDown();
+        slowRequest.join(5000);
+
+        Assert.assertNull(slowRequestFailure.get());
+        Assert.assertEquals(CircuitBreaker.State.OPEN, HttpRequest.getCircuitBreakerState(HOST));
+        Assert.assertEquals(Collections.singletonList(HOST + ":CLOSED->OPEN"), mTransitions);
+    }
+
+    @Test
+    public void testDisabledPolicyNeverOpens() throws IOException {
+        HttpRequest.setCircuitBreakerPolicy(CircuitBreakerPolicy.DISABLED);
+        openBreaker();
+        sendGetIgnoringServiceErrors();
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, HttpRequest.getCircuitBreakerState(HOST));
+        Assert.assertEquals(3, mTransport.getRequestCount());
+    }
+
+    private void openBreaker() throws IOException {
+        mTransport.enqueue(HttpURLConnection.HTTP_UNAVAILABLE, "");
+        mTransport.enqueue(HttpURLConnection.HTTP_UNAVAILABLE, "");
+        sendGetIgnoringServiceErrors();
+        sendGetIgnoringServiceErrors();
+    }
+
+    private void sendGetIgnoringServiceErrors() throws IOException {
+        try {
+            sendGet();
+        } catch (final UnknownServiceException e) {
+            // 503 responses surface as UnknownServiceException
+        }
+    }
+
+    private static void sendGet() throws IOException {
+        HttpRequest.sendGet(Util.getValidRequestUrl(), Collections.<String, String>emptyMap());
+    }
+}
@@ -0,0 +1,197 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.net.CircuitBreakerPolicy;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.IHttpTransport;
+import com.microsoft.identity.common.internal.net.IResponseBodyParser;
+import com.microsoft.identity.common.internal.net.RetryPolicy;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectory;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.UnknownServiceException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for instance discovery request coalescing in {@link AzureActiveDirectory}.
+ */
+public final class CloudDiscoveryCoalescingTest {
+
+    private static final int CONCURRENT_REQUESTS = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final String DISCOVERY_RESPONSE = "{"
+            + "\"tenant_discovery_endpoint\":\"https://login.microsoftonline.com/common/v2.0/.well-known/openid-configuration\","
+            + "\"api-version\":\"1.1\","
+            + "\"metadata\":[{\"preferred_network\":\"login.microsoftonline.com\","
+            + "\"preferred_cache\":\"login.windows.net\","
+            + "\"aliases\":[\"login.microsoftonline.com\",\"login.windows.net\"]}]"
+            + "}";
+
+    private final AtomicInteger mDiscoveryRequestCount = new AtomicInteger();
+    private final CountDownLatch mReleaseDiscoveryRequests = new CountDownLatch(1);
+    private volatile int mDiscoveryStatusCode = HttpURLConnection.HTTP_OK;
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        AzureActiveDirectory.clearCloudDiscoveryMetadata();
+        HttpRequest.setRetryPolicy(RetryPolicy.NO_RETRY);
+        HttpRequest.setCircuitBreakerPolicy(CircuitBreakerPolicy.DISABLED);
+        HttpRequest.setTransport(new IHttpTransport() {
+            @Override
+            public HttpResponse execute(@NonNull final String requestMethod,
+                                        @NonNull final URL requestUrl,
+                                        @NonNull final Map<String, String> requestHeaders,
+                                        @Nullable final byte[] requestContent,
+                                        @Nullable final String requestContentType,
+                                        final int connectTimeoutMillis,
+                                        final int readTimeoutMillis,
+                                        @Nullable final IResponseBodyParser<?> responseBodyParser)
+                    throws IOException {
+                mDiscoveryRequestCount.incrementAndGet();
+                try {
+                    Assert.assertTrue(mReleaseDiscoveryRequests.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                } catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+
+                return MockHttpTransport.createResponse(
+                        mDiscoveryStatusCode,
+                        mDiscoveryStatusCode == HttpURLConnection.HTTP_OK ? DISCOVERY_RESPONSE : "",
+                        Collections.<String, List<String>>emptyMap()
+                );
+            }
+        });
+
+        mExecutor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+        HttpRequest.setTransport(null);
+        HttpRequest.setRetryPolicy(null);
+        HttpRequest.setCircuitBreakerPolicy(null);
+        AzureActiveDirectory.clearCloudDiscoveryMetadata();
+    }
+
+    @Test
+    public void testConcurrentCallsShareOneDiscoveryRequest() throws Exception {
+        final long coalescedBefore = AzureActiveDirectory.getCoalescedCloudDiscoveryCount();
+        final List<Future<Void>> results = submitDiscoveries();
+
+        awaitCoalesced(coalescedBefore + CONCURRENT_REQUESTS - 1);
+        mReleaseDiscoveryRequests.countDown();
+
+        for (final Future<Void> result : results) {
+            result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        Assert.assertEquals(1, mDiscoveryRequestCount.get());
+        Assert.assertEquals(
+                coalescedBefore + CONCURRENT_REQUESTS - 1,
+                AzureActiveDirectory.getCoalescedCloudDiscoveryCount()
+        );
+        Assert.assertTrue(AzureActiveDirectory.isInitialized());
+        Assert.assertTrue(AzureActiveDirectory.hasCloudHost(new URL("https://login.windows.net/common")));
+    }
+
+    @Test
+    public void testFailureIsSharedAndNotCached() throws Exception {
+        mDiscoveryStatusCode = HttpURLConnection.HTTP_UNAVAILABLE;
+        final long coalescedBefore = AzureActiveDirectory.getCoalescedCloudDiscoveryCount();
+        final List<Future<Void>> results = submitDiscoveries();
+
+        awaitCoalesced(coalescedBefore + CONCURRENT_REQUESTS - 1);
+        mReleaseDiscoveryRequests.countDown();
+
+        for (final Future<Void> result : results) {
+            try {
+                result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                Assert.fail("Expected the shared failure");
+            } catch (final ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof UnknownServiceException);
+            }
+        }
+        Assert.assertEquals(1, mDiscoveryRequestCount.get());
+
+        // The next call issues a new request rather than observing the failed one
+        mDiscoveryStatusCode = HttpURLConnection.HTTP_OK;
+        AzureActiveDirectory.performCloudDiscovery();
+
+        Assert.assertEquals(2, mDiscoveryRequestCount.get());
+        Assert.assertEquals(
+                coalescedBefore + CONCURRENT_REQUESTS - 1,
+                AzureActiveDirectory.getCoalescedCloudDiscoveryCount()
+        );
+    }
+
+    private List<Future<Void>> submitDiscoveries() {
+        final List<Future<Void>> results = new ArrayList<>();
+
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            results.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    AzureActiveDirectory.performCloudDiscovery();
+                    return null;
+                }
+            }));
+        }
+
+        return results;
+    }
+
+    private static void awaitCoalesced(final long expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+
+        while (AzureActiveDirectory.getCoalescedCloudDiscoveryCount() < expected) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.net.CircuitBreakerPolicy;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.RetryPolicy;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectory;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.CloudDiscoveryMetadataCache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Tests for {@link CloudDiscoveryMetadataCache} and the loading and revalidation of the instance
+ * discovery metadata snapshot by {@link AzureActiveDirectory}.
+ */
+public final class CloudDiscoveryMetadataCacheTest {
+
+    private static final String PERSISTED_HOST = "login.persisted.example.com";
+    private static final String REFRESHED_HOST = "login.refreshed.example.com";
+    private static final String BUNDLED_HOST = "login.microsoftonline.us";
+    private static final String ETAG = "\"etag-1\"";
+    private static final long TIME_TO_LIVE_MILLIS = 60000;
+
+    private InMemoryFileManager mFileManager;
+    private MockHttpTransport mTransport;
+
+    @Before
+    public void setUp() {
+        AzureActiveDirectory.clearCloudDiscoveryMetadata();
+        // Run refreshes of stale metadata on the calling thread
+        AzureActiveDirectory.setRefreshExecutor(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        });
+        mFileManager = new InMemoryFileManager();
+        mTransport = new MockHttpTransport(HttpURLConnection.HTTP_UNAVAILABLE, "");
+        HttpRequest.setTransport(mTransport);
+        HttpRequest.setRetryPolicy(RetryPolicy.NO_RETRY);
+        HttpRequest.setCircuitBreakerPolicy(CircuitBreakerPolicy.DISABLED);
+    }
+
+    @After
+    public void tearDown() {
+        AzureActiveDirectory.clearCloudDiscoveryMetadata();
+        AzureActiveDirectory.setRefreshExecutor(null);
+        HttpRequest.setTransport(null);
+        HttpRequest.setRetryPolicy(null);
+        HttpRequest.setCircuitBreakerPolicy(null);
+    }
+
+    @Test
+    public void testSavedResponseIsFreshUntilTimeToLiveElapses() {
+        Assert.assertTrue(createMetadataCache().isStale());
+
+        createMetadataCache().saveDiscoveryResponse(getDiscoveryResponse(PERSISTED_HOST), ETAG);
+
+        final CloudDiscoveryMetadataCache fresh = createMetadataCache();
+        Assert.assertFalse(fresh.isStale());
+        Assert.assertEquals(ETAG, fresh.getETag());
+        Assert.assertEquals(getDiscoveryResponse(PERSISTED_HOST), fresh.getDiscoveryResponse());
+        Assert.assertTrue(new CloudDiscoveryMetadataCache(mFileManager, 0).isStale());
+    }
+
+    @Test
+    public void testFreshSnapshotIsLoadedWithoutNetwork() throws Exception {
+        final CloudDiscoveryMetadataCache metadataCache = createMetadataCache();
+        metadataCache.saveDiscoveryResponse(getDiscoveryResponse(PERSISTED_HOST), ETAG);
+
+        AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(metadataCache);
+
+        Assert.assertTrue(AzureActiveDirectory.isInitialized());
+        assertKnownCloud(PERSISTED_HOST);
+        Assert.assertFalse(AzureActiveDirectory.hasCloudHost(new URL("https://" + BUNDLED_HOST)));
+        Assert.assertEquals(0, mTransport.getRequestCount());
+    }
+
+    @Test
+    public void testBundledSnapshotIsLoadedOnFirstRun() throws Exception {
+        final CloudDiscoveryMetadataCache metadataCache = createMetadataCache();
+
+        AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(metadataCache);
+
+        Assert.assertTrue(AzureActiveDirectory.isInitialized());
+        assertKnownCloud(BUNDLED_HOST);
+        // Nothing was persisted, so a refresh was attempted; it failed and left nothing behind
+        Assert.assertEquals(1, mTransport.getRequestCount());
+        Assert.assertNull(metadataCache.getDiscoveryResponse());
+    }
+
+    @Test
+    public void testExpiredSnapshotIsRevalidatedWithETag() throws Exception {
+        final CloudDiscoveryMetadataCache metadataCache = createMetadataCache();
+        metadataCache.saveDiscoveryResponse(getDiscoveryResponse(PERSISTED_HOST), ETAG);
+        expireSnapshot();
+        Assert.assertTrue(metadataCache.isStale());
+        mTransport.enqueue(HttpURLConnection.HTTP_NOT_MODIFIED, "");
+
+        AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(metadataCache);
+
+        assertKnownCloud(PERSISTED_HOST);
+        Assert.assertEquals(1, mTransport.getRequestCount());
+        Assert.assertEquals(ETAG, mTransport.getRecordedRequests().get(0).getHeaders().get("If-None-Match"));
+        Assert.assertFalse(metadataCache.isStale());
+        Assert.assertEquals(getDiscoveryResponse(PERSISTED_HOST), metadataCache.getDiscoveryResponse());
+    }
+
+    @Test
+    public void testExpiredSnapshotIsReplacedByNewResponse() throws Exception {
+        final CloudDiscoveryMetadataCache metadataCache = createMetadataCache();
+        metadataCache.saveDiscoveryResponse(getDiscoveryResponse(PERSISTED_HOST), ETAG);
+        expireSnapshot();
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put("ETag", Collections.singletonList("\"etag-2\""));
+        mTransport.enqueue(MockHttpTransport.createResponse(
+                HttpURLConnection.HTTP_OK,
+                getDiscoveryResponse(REFRESHED_HOST),
+                headers
+        ));
+
+        AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(metadataCache);
+
+        assertKnownCloud(REFRESHED_HOST);
+        Assert.assertFalse(metadataCache.isStale());
+        Assert.assertEquals("\"etag-2\"", metadataCache.getETag());
+        Assert.assertEquals(getDiscoveryResponse(REFRESHED_HOST), metadataCache.getDiscoveryResponse());
+    }
+
+    @Test
+    public void testSnapshotIsLoadedOncePerProcess() throws Exception {
+        final CloudDiscoveryMetadataCache metadataCache = createMetadataCache();
+        metadataCache.saveDiscoveryResponse(getDiscoveryResponse(PERSISTED_HOST), ETAG);
+        AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(metadataCache);
+
+        final ISharedPreferencesFileManager otherFileManager = Mockito.mock(ISharedPreferencesFileManager.class);
+        AzureActiveDirectory.loadCloudDiscoveryMetadataSnapshot(
+                new CloudDiscoveryMetadataCache(otherFileManager, TIME_TO_LIVE_MILLIS)
+        );
+
+        Mockito.verifyZeroInteractions(otherFileManager);
+        assertKnownCloud(PERSISTED_HOST);
+        Assert.assertEquals(0, mTransport.getRequestCount());
+    }
+
+    private CloudDiscoveryMetadataCache createMetadataCache() {
+        return new CloudDiscoveryMetadataCache(mFileManager, TIME_TO_LIVE_MILLIS);
+    }
+
+    private void expireSnapshot() {
+        mFileManager.putString("last_refreshed_millis",
+                String.valueOf(System.currentTimeMillis() - TIME_TO_LIVE_MILLIS - 1));
+    }
+
+    private static void assertKnownCloud(final String host) throws Exception {
+        final URL authorityUrl = new URL("https://" + host + "/common");
+        Assert.assertTrue(AzureActiveDirectory.hasCloudHost(authorityUrl));
+        Assert.assertEquals(
+                host,
+                AzureActiveDirectory.getAzureActiveDirectoryCloud(authorityUrl).getPreferredNetworkHostName()
+        );
+    }
+
+    private static String getDiscoveryResponse(final String host) {
+        return "{"
+                + "\"tenant_discovery_endpoint\":\"https://" + host + "/common/v2.0/.well-known/openid-configuration\","
+                + "\"api-version\":\"1.1\","
+                + "\"metadata\":[{\"preferred_network\":\"" + host + "\",\"preferred_cache\":\"" + host + "\","
+                + "\"aliases\":[\"" + host + "\"]}]"
+                + "}";
+    }
+
+    private static final class InMemoryFileManager implements ISharedPreferencesFileManager {
+
+        private final Map<String, String> mEntries = new HashMap<>();
+
+        @Override
+        public void putString(final String key, final String value) {
+            mEntries.put(key, value);
+        }
+
+        @Override
+        public String getString(final String key) {
+            return mEntries.get(key);
+        }
+
+        @Override
+        public String getSharedPreferencesFileName() {
+            return "test";
+        }
+
+        @Override
+        public Map<String, String> getAll() {
+            return new HashMap<>(mEntries);
+        }
+
+        @Override
+        public boolean contains(final String key) {
+            return mEntries.containsKey(key);
+        }
+
+        @Override
+        public void clear() {
+            mEntries.clear();
+        }
+
+        @Override
+        public void remove(final String key) {
+            mEntries.remove(key);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.IRequestContext;
+import com.microsoft.identity.common.internal.logging.RequestContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class DiagnosticContextTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private ExecutorService mPool;
+
+    @Before
+    public void setUp() {
+        mPool = Executors.newSingleThreadExecutor();
+        setCorrelationId("request-1");
+    }
+
+    @After
+    public void tearDown() {
+        mPool.shutdownNow();
+        DiagnosticContext.clear();
+    }
+
+    @Test
+    public void testWrappedExecutorPropagatesContext() throws InterruptedException {
+        final Executor executor = DiagnosticContext.wrap(mPool);
+        final AtomicReference<IRequestContext> seen = new AtomicReference<>();
+        final AtomicReference<Long> workerThreadId = new AtomicReference<>();
+
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                seen.set(DiagnosticContext.getRequestContext());
+                workerThreadId.set(Thread.currentThread().getId());
+                done.countDown();
+            }
+        });
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals("request-1", seen.get().get(DiagnosticContext.CORRELATION_ID));
+        Assert.assertEquals(String.valueOf(workerThreadId.get()), seen.get().get("thread_id"));
+    }
+
+    @Test
+    public void testWorkerContextRestoredAfterRun() throws Exception {
+        final Runnable wrapped = DiagnosticContext.wrap(new Runnable() {
+            @Override
+            public void run() {
+                // Nothing to do
+            }
+        });
+
+        final String afterRun = mPool.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                wrapped.run();
+                return DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID);
+            }
+        }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Assert.assertEquals("UNSET", afterRun);
+    }
+
+    @Test
+    public void testSnapshotIsolatedFromLaterChanges() {
+        final DiagnosticContext.Snapshot snapshot = DiagnosticContext.capture();
+        DiagnosticContext.getRequestContext().put(DiagnosticContext.CORRELATION_ID, "request-2");
+
+        Assert.assertEquals("request-1", snapshot.get(DiagnosticContext.CORRELATION_ID));
+        Assert.assertNull(snapshot.get("thread_id"));
+
+        final AtomicReference<String> seen = new AtomicReference<>();
+        snapshot.wrap(new Runnable() {
+            @Override
+            public void run() {
+                seen.set(DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID));
+            }
+        }).run();
+
+        Assert.assertEquals("request-1", seen.get());
+        Assert.assertEquals("request-2",
+                DiagnosticContext.getRequestContext().get(DiagnosticContext.CORRELATION_ID));
+    }
+
+    private static void setCorrelationId(final String correlationId) {
+        final RequestContext requestContext = new RequestContext();
+        requestContext.put(DiagnosticContext.CORRELATION_ID, correlationId);
+        DiagnosticContext.setRequestContext(requestContext);
+    }
+}
@@ -0,0 +1,265 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.content.Context;
+import android.content.Intent;
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.exception.BaseException;
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.controllers.AccessTokenRefreshScheduler;
+import com.microsoft.identity.common.internal.controllers.BaseController;
+import com.microsoft.identity.common.internal.controllers.IAccessTokenRefresher;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.net.CircuitBreakerOpenException;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenErrorResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
+import com.microsoft.identity.common.internal.request.AcquireTokenOperationParameters;
+import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
+import com.microsoft.identity.common.internal.request.OperationParameters;
+import com.microsoft.identity.common.internal.result.AcquireTokenResult;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.UnknownServiceException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+
+/**
+ * Tests for the extended expiry resilience mode of {@link BaseController}.
+ */
+public final class ExtendedExpiryResilienceTest {
+
+    private TestController mController;
+    private OAuth2Strategy mStrategy;
+    private OAuth2TokenCache mTokenCache;
+    private ICacheRecord mCacheRecord;
+    private AccessTokenRecord mAccessToken;
+    private FakeScheduledExecutorService mExecutor;
+    private AccessTokenRefreshScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mController = new TestController();
+        mStrategy = Mockito.mock(OAuth2Strategy.class);
+        mTokenCache = Mockito.mock(OAuth2TokenCache.class);
+        mCacheRecord = Mockito.mock(ICacheRecord.class);
+
+        final long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        mAccessToken = new AccessTokenRecord();
+        mAccessToken.setRealm("utid");
+        mAccessToken.setTarget("user.read");
+        mAccessToken.setExpiresOn(String.valueOf(nowSeconds - 60));
+        mAccessToken.setExtendedExpiresOn(String.valueOf(nowSeconds + TimeUnit.HOURS.toSeconds(1)));
+
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setSecret("refresh_token");
+        Mockito.when(mCacheRecord.getRefreshToken()).thenReturn(refreshToken);
+        Mockito.when(mCacheRecord.getAccessToken()).thenReturn(mAccessToken);
+        Mockito.when(mCacheRecord.getIdToken()).thenReturn(new IdTokenRecord());
+        Mockito.when(mStrategy.createRefreshTokenRequest()).thenReturn(new TokenRequest());
+
+        mExecutor = new FakeScheduledExecutorService(System.currentTimeMillis());
+        mScheduler = new AccessTokenRefreshScheduler.Builder(new IAccessTokenRefresher() {
+            @Override
+            public AccessTokenRecord refresh(@NonNull final AcquireTokenSilentOperationParameters parameters)
+                    throws IOException, BaseException {
+                return null;
+            }
+        })
+                .setExecutor(mExecutor)
+                .setClock(mExecutor)
+                .build();
+        BaseController.setAccessTokenRefreshScheduler(mScheduler);
+    }
+
+    @After
+    public void tearDown() {
+        BaseController.setAccessTokenRefreshScheduler(null);
+    }
+
+    @Test
+    public void testStaleTokenServedWhenServiceUnavailable() throws Exception {
+        final IOException[] failures = {
+                new UnknownServiceException("Retry failed again with 500/503/504"),
+                new SocketTimeoutException(),
+                new CircuitBreakerOpenException("login.microsoftonline.com", 1000)
+        };
+
+        for (final IOException failure : failures) {
+            failRefreshWith(failure);
+            final AcquireTokenResult result = renew(createParameters(true));
+
+            Assert.assertTrue(result.getSucceeded());
+            Assert.assertTrue(result.getLocalAuthenticationResult().isStale());
+            Assert.assertSame(mAccessToken, result.getLocalAuthenticationResult().getAccessTokenRecord());
+        }
+
+        // The stale token is refreshed in the background
+        Assert.assertEquals(1, mScheduler.getTrackedTokenCount());
+        Assert.assertEquals(1, mExecutor.getPendingTaskCount());
+    }
+
+    @Test
+    public void testStaleTokenServedOnServerErrorResponse() throws Exception {
+        respondToRefreshWith(HttpURLConnection.HTTP_BAD_GATEWAY);
+
+        final AcquireTokenResult result = renew(createParameters(true));
+
+        Assert.assertTrue(result.getSucceeded());
+        Assert.assertTrue(result.getLocalAuthenticationResult().isStale());
+        Assert.assertSame(mAccessToken, result.getLocalAuthenticationResult().getAccessTokenRecord());
+        Assert.assertEquals(1, mScheduler.getTrackedTokenCount());
+    }
+
+    @Test
+    public void testClientErrorResponseIsReturned() throws Exception {
+        respondToRefreshWith(HttpURLConnection.HTTP_BAD_REQUEST);
+
+        final AcquireTokenResult result = renew(createParameters(true));
+
+        Assert.assertNull(result.getLocalAuthenticationResult());
+        Assert.assertFalse(result.getTokenResult().getSuccess());
+        Assert.assertEquals(0, mScheduler.getTrackedTokenCount());
+    }
+
+    @Test
+    public void testFailurePropagatesWhenNotOptedIn() throws Exception {
+        failRefreshWith(new UnknownServiceException());
+        assertRenewFails(createParameters(false));
+    }
+
+    @Test
+    public void testFailurePropagatesPastExtendedExpiry() throws Exception {
+        mAccessToken.setExtendedExpiresOn(mAccessToken.getExpiresOn());
+        failRefreshWith(new SocketTimeoutException());
+        assertRenewFails(createParameters(true));
+    }
+
+    @Test
+    public void testFailurePropagatesWhenServiceIsReachable() throws Exception {
+        failRefreshWith(new UnknownHostException());
+        assertRenewFails(createParameters(true));
+    }
+
+    private void respondToRefreshWith(final int statusCode) throws IOException {
+        final TokenErrorResponse errorResponse = new TokenErrorResponse();
+        errorResponse.setError("server_error");
+        final TokenResult tokenResult = new TokenResult(errorResponse);
+        tokenResult.setStatusCode(statusCode);
+        Mockito.doReturn(tokenResult).when(mStrategy).requestToken(any(TokenRequest.class));
+    }
+
+    private void failRefreshWith(@NonNull final IOException failure) throws IOException {
+        Mockito.doThrow(failure).when(mStrategy).requestToken(any(TokenRequest.class));
+    }
+
+    private void assertRenewFails(@NonNull final AcquireTokenSilentOperationParameters parameters) throws Exception {
+        try {
+            renew(parameters);
+            Assert.fail("Expected the refresh failure to propagate.");
+        } catch (final IOException e) {
+            Assert.assertEquals(0, mScheduler.getTrackedTokenCount());
+        }
+    }
+
+    private AcquireTokenResult renew(@NonNull final AcquireTokenSilentOperationParameters parameters)
+            throws IOException, ClientException {
+        final AcquireTokenResult result = new AcquireTokenResult();
+        mController.renew(parameters, result, mTokenCache, mStrategy, mCacheRecord);
+
+        return result;
+    }
+
+    private static AcquireTokenSilentOperationParameters createParameters(final boolean resilienceEnabled) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId("uid.utid");
+        account.setEnvironment("login.microsoftonline.com");
+        account.setRealm("utid");
+
+        final AcquireTokenSilentOperationParameters parameters = new AcquireTokenSilentOperationParameters();
+        parameters.setClientId("client-id");
+        parameters.setAccount(account);
+        parameters.setScopes(new ArrayList<String>());
+        parameters.getScopes().add("user.read");
+        parameters.setExtendedExpiryResilienceEnabled(resilienceEnabled);
+
+        return parameters;
+    }
+
+    private static final class TestController extends BaseController {
+
+        void renew(final AcquireTokenSilentOperationParameters parameters,
+                   final AcquireTokenResult result,
+                   final OAuth2TokenCache tokenCache,
+                   final OAuth2Strategy strategy,
+                   final ICacheRecord cacheRecord) throws IOException, ClientException {
+            renewAccessToken(parameters, result, tokenCache, strategy, cacheRecord);
+        }
+
+        @Override
+        public AcquireTokenResult acquireToken(final AcquireTokenOperationParameters request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void completeAcquireToken(final int requestCode, final int resultCode, final Intent data) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AcquireTokenResult acquireTokenSilent(final AcquireTokenSilentOperationParameters request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void throwIfNetworkNotAvailable(final Context context) {
+            // Network state is not under test
+        }
+
+        @Override
+        protected AuthorizationRequest getAuthorizationRequest(@NonNull final OAuth2Strategy strategy,
+                                                               @NonNull final OperationParameters parameters) {
+            return null;
+        }
+    }
+}
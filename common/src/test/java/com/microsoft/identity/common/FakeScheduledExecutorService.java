@@ -0,0 +1,220 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.util.IClock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded {@link ScheduledExecutorService} driven by a fake clock: scheduled tasks only
+ * run, on the calling thread, when the clock is advanced past their due time.
+ */
+public final class FakeScheduledExecutorService extends AbstractExecutorService
+        implements ScheduledExecutorService, IClock {
+
+    private final List<ScheduledTask<?>> mTasks = new ArrayList<>();
+    private long mNowMillis;
+    private long mSequence;
+    private boolean mShutdown;
+
+    public FakeScheduledExecutorService(final long nowMillis) {
+        mNowMillis = nowMillis;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return mNowMillis;
+    }
+
+    /**
+     * Advances the clock, running every task which becomes due in order of due time.
+     *
+     * @param millis The amount of time to advance by.
+     */
+    public void advance(final long millis) {
+        final long target;
+
+        synchronized (this) {
+            target = mNowMillis + millis;
+        }
+
+        while (true) {
+            final ScheduledTask<?> next;
+
+            synchronized (this) {
+                next = mTasks.isEmpty() ? null : Collections.min(mTasks);
+
+                if (null == next || next.mDueMillis > target) {
+                    mNowMillis = target;
+                    return;
+                }
+
+                mTasks.remove(next);
+                mNowMillis = Math.max(mNowMillis, next.mDueMillis);
+            }
+
+            next.run();
+        }
+    }
+
+    /**
+     * @return The number of tasks waiting to run, excluding cancelled ones.
+     */
+    public synchronized int getPendingTaskCount() {
+        int count = 0;
+
+        for (final ScheduledTask<?> task : mTasks) {
+            if (!task.isCancelled()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(@NonNull final Runnable command, final long delay, @NonNull final TimeUnit unit) {
+        return schedule(Executors.callable(command), delay, unit);
+    }
+
+    @Override
+    public synchronized <V> ScheduledFuture<V> schedule(@NonNull final Callable<V> callable,
+                                                        final long delay,
+                                                        @NonNull final TimeUnit unit) {
+        if (mShutdown) {
+            throw new RejectedExecutionException();
+        }
+
+        final ScheduledTask<V> task = new ScheduledTask<>(callable, mNowMillis + unit.toMillis(Math.max(0, delay)), mSequence++);
+        mTasks.add(task);
+
+        return task;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void execute(@NonNull final Runnable command) {
+        schedule(command, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        mShutdown = true;
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        mShutdown = true;
+        final List<Runnable> pending = new ArrayList<Runnable>(mTasks);
+        mTasks.clear();
+
+        return pending;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return mShutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return mShutdown && mTasks.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, @NonNull final TimeUnit unit) {
+        return isTerminated();
+    }
+
+    private final class ScheduledTask<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+        private final long mDueMillis;
+        private final long mSequenceNumber;
+
+        ScheduledTask(final Callable<V> callable, final long dueMillis, final long sequenceNumber) {
+            super(callable);
+            mDueMillis = dueMillis;
+            mSequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public long getDelay(@NonNull final TimeUnit unit) {
+            return unit.convert(mDueMillis - currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(@NonNull final Delayed other) {
+            final ScheduledTask<?> otherTask = (ScheduledTask<?>) other;
+
+            if (mDueMillis != otherTask.mDueMillis) {
+                return mDueMillis < otherTask.mDueMillis ? -1 : 1;
+            }
+
+            return mSequenceNumber < otherTask.mSequenceNumber ? -1 : (mSequenceNumber == otherTask.mSequenceNumber ? 0 : 1);
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            synchronized (FakeScheduledExecutorService.this) {
+                mTasks.remove(this);
+            }
+
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                try {
+                    get();
+                } catch (final InterruptedException | ExecutionException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.util.Pair;
+
+import com.google.gson.Gson;
+import com.microsoft.identity.common.internal.cache.ADALTokenCacheItem;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
+import com.microsoft.identity.common.internal.util.QueryParamsAdapter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Round-trip tests for the shared {@link Gson} instances of {@link GsonRegistry}.
+ */
+public final class GsonRegistryTest {
+
+    @Test
+    public void testDefaultRoundTrip() {
+        final Gson gson = GsonRegistry.getDefault();
+        Assert.assertSame(gson, GsonRegistry.getDefault());
+
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setHomeAccountId("uid.utid");
+        accessToken.setEnvironment("login.microsoftonline.com");
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setClientId("client-id");
+        accessToken.setSecret("secret");
+        accessToken.setCachedAt("1546300800");
+        accessToken.setRealm("utid");
+        accessToken.setTarget("user.read");
+        accessToken.setExpiresOn("1546304400");
+
+        final String json = gson.toJson(accessToken);
+        final AccessTokenRecord roundTripped = gson.fromJson(json, AccessTokenRecord.class);
+
+        Assert.assertEquals(accessToken, roundTripped);
+        Assert.assertEquals("utid", roundTripped.getRealm());
+        Assert.assertEquals("user.read", roundTripped.getTarget());
+        Assert.assertEquals(json, gson.toJson(roundTripped));
+    }
+
+    @Test
+    public void testAdalCacheRoundTripWritesIso8601Dates() {
+        final Gson gson = GsonRegistry.getAdalCache();
+        Assert.assertSame(gson, GsonRegistry.getAdalCache());
+
+        final ADALTokenCacheItem item = gson.fromJson(
+                "{\"mResource\":\"resource\",\"mClientId\":\"client-id\","
+                        + "\"mExpiresOn\":\"2019-01-01T00:00:00Z\",\"mIsMultiResourceRefreshToken\":true}",
+                ADALTokenCacheItem.class
+        );
+        Assert.assertEquals(1546300800000L, item.getExpiresOn().getTime());
+
+        final String json = gson.toJson(item);
+        Assert.assertTrue(json.contains("\"mExpiresOn\":\"2019-01-01T00:00:00Z\""));
+
+        final ADALTokenCacheItem roundTripped = gson.fromJson(json, ADALTokenCacheItem.class);
+        Assert.assertEquals(item.getExpiresOn(), roundTripped.getExpiresOn());
+        Assert.assertEquals("resource", roundTripped.getResource());
+        Assert.assertEquals("client-id", roundTripped.getClientId());
+        Assert.assertTrue(roundTripped.getIsMultiResourceRefreshToken());
+    }
+
+    @Test
+    public void testQueryParamsRoundTrip() {
+        Assert.assertSame(GsonRegistry.getQueryParams(), GsonRegistry.getQueryParams());
+
+        final String json = "[{\"first\":\"slice\",\"second\":\"testslice\"},"
+                + "{\"first\":\"dc\",\"second\":\"PROD-WST-TEST1\"}]";
+        final List<Pair<String, String>> queryParams = QueryParamsAdapter._fromJson(json);
+
+        Assert.assertEquals(2, queryParams.size());
+        Assert.assertEquals("slice", queryParams.get(0).first);
+        Assert.assertEquals("PROD-WST-TEST1", queryParams.get(1).second);
+        Assert.assertEquals(json, QueryParamsAdapter._toJson(queryParams));
+    }
+}
@@ -0,0 +1,355 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.metrics.HistogramSnapshot;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+import com.microsoft.identity.common.internal.metrics.MetricsSnapshot;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.RetryPolicy;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.UnknownServiceException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link RetryPolicy} and the retry behavior of {@link HttpRequest}, against a local stub
+ * server returning scripted 429/503 responses.
+ */
+public final class HttpRequestRetryTest {
+
+    private static final String SUCCESS_BODY = "{\"access_token\":\"token\"}";
+
+    private HttpServer mServer;
+    private final Queue<StubResponse> mStubResponses = new LinkedList<>();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                mRequestCount.incrementAndGet();
+                StubResponse stubResponse;
+                synchronized (mStubResponses) {
+                    stubResponse = mStubResponses.poll();
+                }
+                if (stubResponse == null) {
+                    stubResponse = new StubResponse(HttpURLConnection.HTTP_OK, null);
+                }
+
+                if (stubResponse.mRetryAfter != null) {
+                    exchange.getResponseHeaders().add(RetryPolicy.HEADER_RETRY_AFTER, stubResponse.mRetryAfter);
+                }
+
+                final byte[] body = (stubResponse.mStatusCode == HttpURLConnection.HTTP_OK
+                        ? SUCCESS_BODY : "{\"error\":\"temporarily_unavailable\"}").getBytes("UTF-8");
+                exchange.sendResponseHeaders(stubResponse.mStatusCode, body.length);
+                final OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        HttpRequest.setRetryPolicy(null);
+    }
+
+    @Test
+    public void testParseRetryAfterDelaySeconds() {
+        Assert.assertEquals(120000, RetryPolicy.parseRetryAfterMillis("120", 0));
+        Assert.assertEquals(0, RetryPolicy.parseRetryAfterMillis(" 0 ", 0));
+    }
+
+    @Test
+    public void testParseRetryAfterHttpDate() {
+        final long now = 1500000000000L;
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        Assert.assertEquals(30000, RetryPolicy.parseRetryAfterMillis(dateFormat.format(new Date(now + 30000)), now));
+        Assert.assertEquals(0, RetryPolicy.parseRetryAfterMillis(dateFormat.format(new Date(now - 30000)), now));
+    }
+
+    @Test
+    public void testParseRetryAfterInvalid() {
+        Assert.assertEquals(-1, RetryPolicy.parseRetryAfterMillis(null, 0));
+        Assert.assertEquals(-1, RetryPolicy.parseRetryAfterMillis("", 0));
+        Assert.assertEquals(-1, RetryPolicy.parseRetryAfterMillis("-5", 0));
+        Assert.assertEquals(-1, RetryPolicy.parseRetryAfterMillis("soon", 0));
+    }
+
+    @Test
+    public void testBackoffIsBoundedByExponentialCeiling() {
+        final RetryPolicy retryPolicy = new RetryPolicy.Builder()
+                .setBaseDelayMillis(100)
+                .setMaxDelayMillis(1000)
+                .setRandom(new Random(42))
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(retryPolicy.getRetryDelayMillis(0, null) < 100);
+            Assert.assertTrue(retryPolicy.getRetryDelayMillis(2, null) < 400);
+            Assert.assertTrue(retryPolicy.getRetryDelayMillis(40, null) < 1000);
+        }
+    }
+
+    @Test
+    public void testRetryOnThrottlingHonorsRetryAfter() throws IOException {
+        HttpRequest.setRetryPolicy(new RetryPolicy.Builder()
+                .setMaxRetries(3)
+                .setBaseDelayMillis(60000)
+                .setTooManyRequestsRetried(true)
+                .build());
+        enqueue(429, "0");
+        enqueue(HttpURLConnection.HTTP_UNAVAILABLE, "0");
+
+        // A 60s backoff would time the test out; the server's Retry-After of 0 wins.
+        final HttpResponse response = sendPost();
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, response.getStatusCode());
+        Assert.assertEquals(SUCCESS_BODY, response.getBody());
+        Assert.assertEquals(3, mRequestCount.get());
+    }
+
+    @Test
+    public void testRetryAfterLongerThanMaximumIsNotRetried() throws IOException {
+        HttpRequest.setRetryPolicy(new RetryPolicy.Builder()
+                .setMaxRetries(3)
+                .setMaxRetryAfterMillis(1000)
+                .setTooManyRequestsRetried(true)
+                .build());
+        enqueue(429, "120");
+
+        final HttpResponse response = sendPost();
+
+        Assert.assertEquals(429, response.getStatusCode());
+        Assert.assertEquals(1, mRequestCount.get());
+    }
+
+    @Test
+    public void testRetriesExhaustedOnServiceUnavailable() throws IOException {
+        HttpRequest.setRetryPolicy(new RetryPolicy.Builder().setMaxRetries(2).setBaseDelayMillis(1).build());
+        enqueue(HttpURLConnection.HTTP_UNAVAILABLE, null);
+        enqueue(HttpURLConnection.HTTP_UNAVAILABLE, null);
+        enqueue(HttpURLConnection.HTTP_UNAVAILABLE, null);
+
+        try {
+            sendPost();
+            Assert.fail("Expected UnknownServiceException");
+        } catch (final UnknownServiceException e) {
+            Assert.assertEquals(3, mRequestCount.get());
+        }
+    }
+
+    @Test
+    public void testRetryBudgetLimitsRetriesPerHost() throws IOException {
+        // The budget starts with a single retry and earns nothing back.
+        HttpRequest.setRetryPolicy(new RetryPolicy.Builder()
+                .setMaxRetries(1)
+                .setBaseDelayMillis(1)
+                .setRetryBudget(0, 1)
+                .setTooManyRequestsRetried(true)
+                .build());
+        enqueue(429, "0");
+        enqueue(429, "0");
+        enqueue(429, "0");
+
+        Assert.assertEquals(429, sendPost().getStatusCode());
+        Assert.assertEquals(2, mRequestCount.get());
+
+        Assert.assertEquals(429, sendPost().getStatusCode());
+        Assert.assertEquals(3, mRequestCount.get());
+    }
+
+    @Test
+    public void testRetriesAndLatencyAreRecorded() throws IOException {
+        HttpRequest.setRetryPolicy(new RetryPolicy.Builder().setMaxRetries(3).build());
+        enqueue(HttpURLConnection.HTTP_UNAVAILABLE, "0");
+        MetricsRegistry.reset();
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, sendPost().getStatusCode());
+
+        final MetricsSnapshot snapshot = MetricsRegistry.getSnapshot();
+        Assert.assertEquals(1, snapshot.getCounter("http.retries"));
+
+        for (final String status : new String[]{"200", "503"}) {
+            final HistogramSnapshot latency = snapshot.getHistogram(MetricsRegistry.name(
+                    "http.latency_us",
+                    "endpoint", "localhost/tenant/oauth2/v2.0/token",
+                    "status", status
+            ));
+            Assert.assertNotNull(latency);
+            Assert.assertEquals(1, latency.getCount());
+        }
+    }
+
+    @Test
+    public void testDefaultPolicyDoesNotRetryThrottling() throws IOException {
+        enqueue(429, "0");
+
+        Assert.assertFalse(RetryPolicy.DEFAULT.isTooManyRequestsRetried());
+        Assert.assertEquals(429, sendPost().getStatusCode());
+        Assert.assertEquals(1, mRequestCount.get());
+    }
+
+    @Test
+    public void testDefaultPolicyRetriesOnceWithinOneSecond() throws IOException {
+        enqueue(HttpURLConnection.HTTP_UNAVAILABLE, "1");
+        enqueue(HttpURLConnection.HTTP_UNAVAILABLE, null);
+
+        try {
+            sendPost();
+            Assert.fail("Expected UnknownServiceException");
+        } catch (final UnknownServiceException e) {
+            Assert.assertEquals(2, mRequestCount.get());
+        }
+    }
+
+    @Test
+    public void testDefaultPolicyCutsLongRetryAfterDownToOneSecond() throws IOException {
+        final HttpResponse response = new HttpResponse(HttpURLConnection.HTTP_UNAVAILABLE, null,
+                Collections.singletonMap(RetryPolicy.HEADER_RETRY_AFTER, Collections.singletonList("5")));
+
+        Assert.assertEquals(1000, RetryPolicy.DEFAULT.getRetryDelayMillis(0, response));
+
+        enqueue(HttpURLConnection.HTTP_UNAVAILABLE, "5");
+        final long startMillis = System.currentTimeMillis();
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, sendPost().getStatusCode());
+        Assert.assertEquals(2, mRequestCount.get());
+        Assert.assertTrue(System.currentTimeMillis() - startMillis < 5000);
+    }
+
+    @Test
+    public void testDefaultPolicyBackoffHasAFloor() {
+        for (int i = 0; i < 100; i++) {
+            final long delayMillis = RetryPolicy.DEFAULT.getRetryDelayMillis(0, null);
+            Assert.assertTrue(delayMillis >= 500);
+            Assert.assertTrue(delayMillis <= 1000);
+        }
+    }
+
+    @Test
+    public void testDefaultPolicyIsNotLimitedByRetryBudget() throws IOException {
+        Assert.assertFalse(RetryPolicy.DEFAULT.isRetryBudgetEnabled());
+
+        // An empty budget which earns nothing back would block every retry if it were used.
+        HttpRequest.setRetryPolicy(new RetryPolicy.Builder()
+                .setBaseDelayMillis(1)
+                .setRetryBudget(0, 0)
+                .setRetryBudgetEnabled(false)
+                .build());
+
+        for (int i = 1; i <= 3; i++) {
+            enqueue(HttpURLConnection.HTTP_UNAVAILABLE, null);
+            Assert.assertEquals(HttpURLConnection.HTTP_OK, sendPost().getStatusCode());
+            Assert.assertEquals(2 * i, mRequestCount.get());
+        }
+    }
+
+    @Test
+    public void testNoRetryPolicy() throws IOException {
+        HttpRequest.setRetryPolicy(RetryPolicy.NO_RETRY);
+        enqueue(429, "0");
+
+        Assert.assertEquals(429, sendPost().getStatusCode());
+        Assert.assertEquals(1, mRequestCount.get());
+    }
+
+    @Test
+    public void testLatencyOfAllTenantsIsRecordedInOneHistogram() throws IOException {
+        MetricsRegistry.reset();
+
+        sendPost("common");
+        sendPost("contoso.onmicrosoft.com");
+        sendPost("72f988bf-86f1-41af-91ab-2d7cd011db47");
+
+        final MetricsSnapshot snapshot = MetricsRegistry.getSnapshot();
+        final HistogramSnapshot latency = snapshot.getHistogram(MetricsRegistry.name(
+                "http.latency_us",
+                "endpoint", "localhost/tenant/oauth2/v2.0/token",
+                "status", "200"
+        ));
+        Assert.assertNotNull(latency);
+        Assert.assertEquals(3, latency.getCount());
+
+        for (final String name : snapshot.getHistograms().keySet()) {
+            Assert.assertFalse(name, name.contains("contoso") || name.contains("72f988bf"));
+        }
+    }
+
+    private void enqueue(final int statusCode, final String retryAfter) {
+        synchronized (mStubResponses) {
+            mStubResponses.add(new StubResponse(statusCode, retryAfter));
+        }
+    }
+
+    private HttpResponse sendPost() throws IOException {
+        return sendPost("common");
+    }
+
+    private HttpResponse sendPost(final String tenant) throws IOException {
+        final URL url = new URL("http://localhost:" + mServer.getAddress().getPort()
+                + "/" + tenant + "/oauth2/v2.0/token?slice=testslice");
+        return HttpRequest.sendPost(url, Collections.<String, String>emptyMap(),
+                "grant_type=refresh_token".getBytes("UTF-8"), "application/x-www-form-urlencoded");
+    }
+
+    private static final class StubResponse {
+        private final int mStatusCode;
+        private final String mRetryAfter;
+
+        StubResponse(final int statusCode, final String retryAfter) {
+            mStatusCode = statusCode;
+            mRetryAfter = retryAfter;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.adal.internal.net.HttpWebRequest;
+import com.microsoft.identity.common.adal.internal.net.HttpWebResponse;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.HttpUrlConnectionTransport;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+
+import javax.net.ssl.SSLHandshakeException;
+
+/**
+ * Tests for routing {@link HttpRequest} and {@link HttpWebRequest} through an
+ * {@link com.microsoft.identity.common.internal.net.IHttpTransport}.
+ */
+public final class HttpTransportTest {
+
+    private static final String RESPONSE_BODY = "{\"access_token\":\"token\"}";
+
+    private MockHttpTransport mTransport;
+
+    @Before
+    public void setUp() {
+        mTransport = new MockHttpTransport(HttpURLConnection.HTTP_OK, RESPONSE_BODY);
+        HttpRequest.setTransport(mTransport);
+    }
+
+    @After
+    public void tearDown() {
+        HttpRequest.setTransport(null);
+        HttpRequest.setConnectionReuseEnabled(false);
+    }
+
+    @Test
+    public void testDefaultTransportRestored() {
+        HttpRequest.setTransport(null);
+        Assert.assertTrue(HttpRequest.getTransport() instanceof HttpUrlConnectionTransport);
+    }
+
+    @Test
+    public void testHttpRequestUsesTransport() throws IOException {
+        final HttpResponse response = HttpRequest.sendPost(Util.getValidRequestUrl(),
+                Collections.singletonMap("x-client-SKU", "MSAL.Android"), "grant_type=refresh_token".getBytes(),
+                "application/x-www-form-urlencoded");
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, response.getStatusCode());
+        Assert.assertEquals(RESPONSE_BODY, response.getBody());
+        Assert.assertEquals(1, mTransport.getRequestCount());
+
+        final MockHttpTransport.RecordedRequest request = mTransport.getRecordedRequests().get(0);
+        Assert.assertEquals("POST", request.getMethod());
+        Assert.assertEquals(Util.getValidRequestUrl(), request.getUrl());
+        Assert.assertEquals("application/x-www-form-urlencoded", request.getContentType());
+        Assert.assertEquals("MSAL.Android", request.getHeaders().get("x-client-SKU"));
+        Assert.assertEquals("close", request.getHeaders().get("Connection"));
+    }
+
+    @Test
+    public void testHttpRequestOmitsConnectionCloseWhenReuseEnabled() throws IOException {
+        HttpRequest.setConnectionReuseEnabled(true);
+        HttpRequest.sendGet(Util.getValidRequestUrl(), Collections.<String, String>emptyMap());
+
+        Assert.assertFalse(mTransport.getRecordedRequests().get(0).getHeaders().containsKey("Connection"));
+    }
+
+    @Test
+    public void testHttpRequestErrorWithoutBody() throws IOException {
+        mTransport.enqueue(HttpURLConnection.HTTP_UNAUTHORIZED, null);
+        final HttpResponse response = HttpRequest.sendGet(Util.getValidRequestUrl(),
+                Collections.<String, String>emptyMap());
+
+        Assert.assertEquals(HttpURLConnection.HTTP_UNAUTHORIZED, response.getStatusCode());
+        Assert.assertEquals("", response.getBody());
+    }
+
+    @Test
+    public void testHttpWebRequestUsesTransport() throws IOException {
+        final HttpWebResponse response = new HttpWebRequest(Util.getValidRequestUrl(), "GET",
+                Collections.<String, String>emptyMap()).send();
+
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, response.getStatusCode());
+        Assert.assertEquals(RESPONSE_BODY, response.getBody());
+        Assert.assertEquals("close", mTransport.getRecordedRequests().get(0).getHeaders().get("Connection"));
+    }
+
+    @Test
+    public void testHttpWebRequestNormalizesLineBreaks() throws IOException {
+        mTransport.enqueue(HttpURLConnection.HTTP_OK, "{\r\n\"access_token\":\"token\"\r\n}\r\n");
+
+        final HttpWebResponse response = new HttpWebRequest(Util.getValidRequestUrl(), "GET",
+                Collections.<String, String>emptyMap()).send();
+
+        Assert.assertEquals("{\n\"access_token\":\"token\"\n}", response.getBody());
+    }
+
+    @Test
+    public void testRequestBodyIsStreamedWithFixedLength() throws IOException {
+        final byte[] requestBody = "grant_type=refresh_token".getBytes("UTF-8");
+        final HttpURLConnection connection = MockUtil.getMockedConnectionWithSuccessResponse(RESPONSE_BODY);
+        final ByteArrayOutputStream sentBody = new ByteArrayOutputStream();
+        Mockito.when(connection.getOutputStream()).thenReturn(sentBody);
+
+        createTransport(connection).execute("POST", Util.getValidRequestUrl(),
+                Collections.<String, String>emptyMap(), requestBody, "application/x-www-form-urlencoded",
+                1000, 1000, null);
+
+        Mockito.verify(connection).setFixedLengthStreamingMode(requestBody.length);
+        Assert.assertArrayEquals(requestBody, sentBody.toByteArray());
+    }
+
+    @Test
+    public void testConnectionFailureIsRethrown() throws IOException {
+        final SSLHandshakeException failure = new SSLHandshakeException("Handshake failed");
+        final HttpURLConnection connection = MockUtil.getCommonHttpUrlConnection();
+        Mockito.when(connection.getInputStream()).thenThrow(failure);
+        Mockito.when(connection.getResponseCode()).thenThrow(new IOException("Second attempt failed"));
+
+        try {
+            createTransport(connection).execute("GET", Util.getValidRequestUrl(),
+                    Collections.<String, String>emptyMap(), null, null, 1000, 1000, null);
+            Assert.fail("Expected the handshake failure");
+        } catch (final IOException e) {
+            Assert.assertSame(failure, e);
+        }
+
+        Mockito.verify(connection).disconnect();
+    }
+
+    @Test(expected = IOException.class)
+    public void testHttpWebRequestErrorWithoutBody() throws IOException {
+        mTransport.enqueue(HttpURLConnection.HTTP_UNAUTHORIZED, null);
+        new HttpWebRequest(Util.getValidRequestUrl(), "GET", Collections.<String, String>emptyMap()).send();
+    }
+
+    private static HttpUrlConnectionTransport createTransport(final HttpURLConnection connection) {
+        return new HttpUrlConnectionTransport() {
+            @Override
+            protected HttpURLConnection openConnection(final URL requestUrl) {
+                return connection;
+            }
+        };
+    }
+}
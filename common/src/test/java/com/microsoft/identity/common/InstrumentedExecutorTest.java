@@ -0,0 +1,188 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.controllers.ExecutorMetrics;
+import com.microsoft.identity.common.internal.controllers.ExecutorPolicy;
+import com.microsoft.identity.common.internal.controllers.InstrumentedExecutor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class InstrumentedExecutorTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private InstrumentedExecutor mExecutor;
+    private CountDownLatch mRelease;
+
+    @Before
+    public void setUp() {
+        mRelease = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+
+        if (null != mExecutor) {
+            mExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTasksRunOnNamedThreads() throws InterruptedException {
+        mExecutor = InstrumentedExecutor.create("test-pool", new ExecutorPolicy.Builder().build());
+        final AtomicReference<String> threadName = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                threadName.set(Thread.currentThread().getName());
+                done.countDown();
+            }
+        });
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals("test-pool-1", threadName.get());
+    }
+
+    @Test
+    public void testSaturatedPoolRejectsAndReportsQueueDepth() throws InterruptedException {
+        mExecutor = InstrumentedExecutor.create("test-pool", new ExecutorPolicy.Builder()
+                .setCorePoolSize(1)
+                .setMaximumPoolSize(1)
+                .setQueueCapacity(2)
+                .build()
+        );
+        final CountDownLatch started = new CountDownLatch(1);
+
+        mExecutor.execute(new BlockingTask(started));
+        Assert.assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mExecutor.execute(new BlockingTask(null));
+        mExecutor.execute(new BlockingTask(null));
+
+        try {
+            mExecutor.execute(new BlockingTask(null));
+            Assert.fail("Expected the saturated pool to reject the task.");
+        } catch (final RejectedExecutionException e) {
+            // Expected
+        }
+
+        final ExecutorMetrics metrics = mExecutor.getMetrics();
+        Assert.assertEquals(3, metrics.getSubmittedCount());
+        Assert.assertEquals(1, metrics.getRejectedCount());
+        Assert.assertEquals(1, metrics.getActiveCount());
+        Assert.assertEquals(2, metrics.getQueueDepth());
+        Assert.assertEquals(0, metrics.getCompletedCount());
+    }
+
+    @Test
+    public void testInjectedExecutorIsInstrumented() {
+        final Executor direct = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                command.run();
+            }
+        };
+        mExecutor = new InstrumentedExecutor("direct", direct);
+
+        for (int i = 0; i < 3; i++) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Nothing to do
+                }
+            });
+        }
+
+        final ExecutorMetrics metrics = mExecutor.getMetrics();
+        Assert.assertEquals("direct", metrics.getName());
+        Assert.assertEquals(3, metrics.getSubmittedCount());
+        Assert.assertEquals(3, metrics.getCompletedCount());
+        Assert.assertEquals(0, metrics.getQueueDepth());
+        Assert.assertEquals(0, metrics.getActiveCount());
+    }
+
+    @Test
+    public void testQueueTimeIsRecorded() throws InterruptedException {
+        mExecutor = InstrumentedExecutor.create("test-pool", new ExecutorPolicy.Builder().build());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        mExecutor.execute(new BlockingTask(started));
+        Assert.assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+
+        Thread.sleep(50);
+        mRelease.countDown();
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // The counters are updated right after the task body returns
+        while (mExecutor.getMetrics().getCompletedCount() < 2) {
+            Thread.sleep(1);
+        }
+
+        // The second task waited for the first one to be released
+        Assert.assertTrue(mExecutor.getMetrics().getMaxQueueTimeMillis() >= 50);
+    }
+
+    private final class BlockingTask implements Runnable {
+
+        private final CountDownLatch mStarted;
+
+        BlockingTask(final CountDownLatch started) {
+            mStarted = started;
+        }
+
+        @Override
+        public void run() {
+            if (null != mStarted) {
+                mStarted.countDown();
+            }
+
+            try {
+                mRelease.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common;
+
+import com.google.gson.JsonParseException;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.HttpUrlConnectionFactory;
+import com.microsoft.identity.common.internal.net.JsonResponseBodyParser;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+
+/**
+ * Tests for streaming token responses through {@link JsonResponseBodyParser}.
+ */
+public final class JsonResponseBodyParserTest {
+
+    private static final String TOKEN_RESPONSE = "{\"token_type\":\"Bearer\",\"scope\":\"user.read\","
+            + "\"expires_in\":3599,\"ext_expires_in\":7199,\"access_token\":\"access\","
+            + "\"refresh_token\":\"refresh\",\"id_token\":\"id\",\"client_info\":\"info\"}";
+    private static final String ERROR_RESPONSE = "{\"error\":\"invalid_grant\"}";
+    private static final String MALFORMED_RESPONSE = "{\"access_token\":\"access\",\"expires_in\":\"soon\"}";
+
+    private static final JsonResponseBodyParser<MicrosoftStsTokenResponse> PARSER =
+            new JsonResponseBodyParser<>(MicrosoftStsTokenResponse.class);
+
+    private MockHttpTransport mTransport;
+
+    @Before
+    public void setUp() {
+        mTransport = new MockHttpTransport();
+        HttpRequest.setTransport(mTransport);
+    }
+
+    @After
+    public void tearDown() {
+        HttpRequest.setTransport(null);
+        HttpUrlConnectionFactory.clearMockedConnectionQueue();
+    }
+
+    @Test
+    public void testStreamMatchesStringDeserialization() throws IOException {
+        final MicrosoftStsTokenResponse streamed = PARSER.parse(new StringReader(TOKEN_RESPONSE));
+        final MicrosoftStsTokenResponse buffered =
+                ObjectMapper.deserializeJsonStringToObject(TOKEN_RESPONSE, MicrosoftStsTokenResponse.class);
+
+        Assert.assertEquals(buffered.getAccessToken(), streamed.getAccessToken());
+        Assert.assertEquals(buffered.getRefreshToken(), streamed.getRefreshToken());
+        Assert.assertEquals(buffered.getIdToken(), streamed.getIdToken());
+        Assert.assertEquals(buffered.getScope(), streamed.getScope());
+        Assert.assertEquals(buffered.getExpiresIn(), streamed.getExpiresIn());
+        Assert.assertEquals(buffered.getExtExpiresIn(), streamed.getExtExpiresIn());
+        Assert.assertEquals(buffered.getClientInfo(), streamed.getClientInfo());
+    }
+
+    @Test
+    public void testEmptyStreamReturnsNull() throws IOException {
+        Assert.assertNull(PARSER.parse(new StringReader("")));
+    }
+
+    @Test
+    public void testSuccessResponseIsParsed() throws IOException {
+        mTransport.enqueue(HttpURLConnection.HTTP_OK, TOKEN_RESPONSE);
+
+        final HttpResponse response = sendPost();
+
+        Assert.assertNull(response.getBody());
+        Assert.assertTrue(response.getParsedBody() instanceof MicrosoftStsTokenResponse);
+        Assert.assertEquals("access", ((MicrosoftStsTokenResponse) response.getParsedBody()).getAccessToken());
+    }
+
+    @Test
+    public void testErrorResponseKeepsRawBody() throws IOException {
+        mTransport.enqueue(HttpURLConnection.HTTP_BAD_REQUEST, ERROR_RESPONSE);
+
+        final HttpResponse response = sendPost();
+
+        Assert.assertEquals(ERROR_RESPONSE, response.getBody());
+        Assert.assertNull(response.getParsedBody());
+    }
+
+    @Test
+    public void testRedirectResponseKeepsRawBody() throws IOException {
+        mTransport.enqueue(HttpURLConnection.HTTP_MOVED_TEMP, TOKEN_RESPONSE);
+
+        final HttpResponse response = sendPost();
+
+        Assert.assertEquals(TOKEN_RESPONSE, response.getBody());
+        Assert.assertNull(response.getParsedBody());
+    }
+
+    @Test
+    public void testMalformedStreamThrowsIOException() {
+        try {
+            PARSER.parse(new StringReader(MALFORMED_RESPONSE));
+            Assert.fail("Expected the malformed body to be rejected");
+        } catch (final IOException exception) {
+            Assert.assertTrue(exception.getCause() instanceof JsonParseException);
+        }
+    }
+
+    @Test
+    public void testMalformedSuccessResponseThrowsIOExceptionAndDisconnects() throws IOException {
+        HttpRequest.setTransport(null);
+        final HttpURLConnection connection = MockUtil.getMockedConnectionWithSuccessResponse(MALFORMED_RESPONSE);
+        Mockito.when(connection.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        HttpUrlConnectionFactory.addMockedConnection(connection);
+
+        try {
+            sendPost();
+            Assert.fail("Expected the malformed body to be reported as an IOException");
+        } catch (final IOException exception) {
+            Assert.assertTrue(exception.getCause() instanceof JsonParseException);
+        }
+
+        Mockito.verify(connection).disconnect();
+    }
+
+    private static HttpResponse sendPost() throws IOException {
+        return HttpRequest.sendPost(Util.getValidRequestUrl(), Collections.<String, String>emptyMap(),
+                "grant_type=refresh_token".getBytes("UTF-8"), "application/x-www-form-urlencoded", PARSER);
+    }
+}
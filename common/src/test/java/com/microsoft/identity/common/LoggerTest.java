@@ -0,0 +1,255 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.content.Context;
+
+import com.microsoft.identity.common.internal.cache.IAccountCredentialAdapter;
+import com.microsoft.identity.common.internal.cache.IAccountCredentialCache;
+import com.microsoft.identity.common.internal.cache.MsalOAuth2TokenCache;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.logging.AsyncLogDispatcher;
+import com.microsoft.identity.common.internal.logging.ILogMessageSupplier;
+import com.microsoft.identity.common.internal.logging.ILoggerBatchCallback;
+import com.microsoft.identity.common.internal.logging.ILoggerCallback;
+import com.microsoft.identity.common.internal.logging.LogEvent;
+import com.microsoft.identity.common.internal.logging.LogField;
+import com.microsoft.identity.common.internal.logging.LogRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.logging.RequestContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class LoggerTest {
+
+    private static final String TAG = LoggerTest.class.getSimpleName();
+
+    private final List<String> mMessages = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Logger.getInstance().setExternalLogger(new ILoggerCallback() {
+            @Override
+            public void log(final String tag,
+                            final Logger.LogLevel logLevel,
+                            final String message,
+                            final boolean containsPII) {
+                mMessages.add(message);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Logger.getInstance().setExternalLogger(null);
+        Logger.getInstance().setLogLevel(Logger.LogLevel.VERBOSE);
+        Logger.setAllowPii(false);
+    }
+
+    @Test
+    public void testMessageNotBuiltBelowLogLevel() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.WARN);
+        final CountingSupplier supplier = new CountingSupplier();
+
+        Logger.verbose(TAG, supplier);
+        Logger.info(TAG, supplier);
+        Assert.assertEquals(0, supplier.mCalls);
+        Assert.assertTrue(mMessages.isEmpty());
+
+        Logger.warn(TAG, supplier);
+        Assert.assertEquals(1, supplier.mCalls);
+        Assert.assertEquals(1, mMessages.size());
+        Assert.assertTrue(mMessages.get(0).contains("built"));
+    }
+
+    @Test
+    public void testPiiMessageNotBuiltWhenPiiDisallowed() {
+        final CountingSupplier supplier = new CountingSupplier();
+
+        Logger.verbosePII(TAG, supplier);
+        Assert.assertEquals(0, supplier.mCalls);
+
+        Logger.setAllowPii(true);
+        Logger.verbosePII(TAG, supplier);
+        Assert.assertEquals(1, supplier.mCalls);
+    }
+
+    @Test
+    public void testMessageNotBuiltWithoutOutput() {
+        Logger.getInstance().setExternalLogger(null);
+        final CountingSupplier supplier = new CountingSupplier();
+
+        Logger.verbose(TAG, supplier);
+        Assert.assertEquals(0, supplier.mCalls);
+        Assert.assertFalse(Logger.isLoggable(Logger.LogLevel.ERROR, false));
+    }
+
+    @Test
+    public void testMessageFormat() {
+        Logger.verbose(TAG, "correlation", "first");
+        Logger.verbose(TAG, null, "second");
+        Logger.verbose(TAG, "correlation", "");
+
+        Assert.assertEquals(3, mMessages.size());
+        Assert.assertTrue(mMessages.get(0).matches(
+                " \\[\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2} - correlation\\] first Android \\d+"));
+        Assert.assertTrue(mMessages.get(1).matches(
+                " \\[\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\] second Android \\d+"));
+        Assert.assertTrue(mMessages.get(2).contains("] N/A Android "));
+    }
+
+    @Test
+    public void testEventFormattedForStringLogger() {
+        Logger.event(TAG, Logger.LogLevel.INFO, "accounts_found")
+                .field("count", 3)
+                .field("expired", false)
+                .field("level", Logger.LogLevel.WARN)
+                .field("environment", "login.microsoftonline.com")
+                .piiField("home_account_id", "uid.utid")
+                .log();
+
+        Assert.assertEquals(1, mMessages.size());
+        Assert.assertTrue(mMessages.get(0).contains(
+                "] accounts_found count=3 expired=false level=WARN environment=login.microsoftonline.com Android "));
+    }
+
+    @Test
+    public void testEventPiiFieldsKeptOnlyWhenPiiAllowed() {
+        Logger.setAllowPii(true);
+        Logger.event(TAG, Logger.LogLevel.INFO, "account").piiField("home_account_id", "uid.utid").log();
+
+        Assert.assertEquals(1, mMessages.size());
+        Assert.assertTrue(mMessages.get(0).contains("account home_account_id=uid.utid "));
+    }
+
+    @Test
+    public void testTokenCacheEventsDropPiiFieldsWhenPiiDisallowed() {
+        final MsalOAuth2TokenCache tokenCache = new MsalOAuth2TokenCache(
+                Mockito.mock(Context.class),
+                Mockito.mock(IAccountCredentialCache.class),
+                Mockito.mock(IAccountCredentialAdapter.class)
+        );
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        accessToken.setClientId("secret-client-id");
+        accessToken.setCredentialType(CredentialType.AccessToken.name());
+        accessToken.setCachedAt("1500000000");
+        accessToken.setEnvironment("secret.environment");
+        accessToken.setHomeAccountId("uid.utid");
+        accessToken.setExpiresOn("1500003600");
+
+        tokenCache.removeCredential(accessToken);
+        tokenCache.getAccount("secret.environment", "secret-client-id", "uid.utid", "utid");
+
+        final String logged = mMessages.toString();
+        Assert.assertTrue(logged.contains("credential_removing"));
+        Assert.assertTrue(logged.contains("accounts_found count=0"));
+        for (final String pii : new String[]{"secret-client-id", "secret.environment", "uid.utid",
+                "1500000000", "AccessToken", "expired=", "realm="}) {
+            Assert.assertFalse(pii, logged.contains(pii));
+        }
+
+        Logger.setAllowPii(true);
+        mMessages.clear();
+        tokenCache.removeCredential(accessToken);
+
+        Assert.assertTrue(mMessages.toString().contains("client_id=secret-client-id credential_type=AccessToken "
+                + "cached_at=1500000000 environment=secret.environment home_account_id=uid.utid expired=true"));
+    }
+
+    @Test
+    public void testDisabledEventIsShared() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.ERROR);
+
+        final LogEvent first = Logger.event(TAG, Logger.LogLevel.INFO, "first").field("count", 1);
+        final LogEvent second = Logger.event(TAG, Logger.LogLevel.VERBOSE, "second");
+        first.log();
+
+        Assert.assertSame(first, second);
+        Assert.assertTrue(mMessages.isEmpty());
+    }
+
+    @Test
+    public void testEventDeliveredWithTypedFields() throws InterruptedException {
+        final List<LogRecord> records = new ArrayList<>();
+        final AsyncLogDispatcher dispatcher = new AsyncLogDispatcher.Builder(new ILoggerBatchCallback() {
+            @Override
+            public void log(final List<LogRecord> batch) {
+                records.addAll(batch);
+            }
+        }).build();
+        Logger.getInstance().setAsyncLogDispatcher(dispatcher);
+
+        try {
+            Logger.event(TAG, Logger.LogLevel.INFO, "credentials_found").field("count", 42L).log();
+        } finally {
+            Logger.getInstance().setAsyncLogDispatcher(null);
+        }
+
+        Assert.assertTrue(dispatcher.awaitTermination(5000));
+        Assert.assertEquals(1, records.size());
+
+        final LogRecord record = records.get(0);
+        Assert.assertEquals("credentials_found", record.getEventName());
+        Assert.assertEquals(1, record.getFields().size());
+        Assert.assertEquals(LogField.Type.LONG, record.getFields().get(0).getType());
+        Assert.assertEquals(42L, record.getFields().get(0).getLongValue());
+        Assert.assertFalse(record.containsPII());
+        Assert.assertTrue(record.getMessage().contains("] credentials_found count=42 Android "));
+    }
+
+    @Test
+    public void testRequestContextJsonFollowsMutations() {
+        final RequestContext requestContext = new RequestContext();
+        requestContext.put("correlation_id", "first");
+        final String first = requestContext.toJsonString();
+        Assert.assertSame(first, requestContext.toJsonString());
+
+        requestContext.put("correlation_id", "second");
+        Assert.assertTrue(requestContext.toJsonString().contains("second"));
+
+        requestContext.remove("correlation_id");
+        Assert.assertEquals("{}", requestContext.toJsonString());
+    }
+
+    private static final class CountingSupplier implements ILogMessageSupplier {
+
+        private int mCalls;
+
+        @Override
+        public String getMessage() {
+            mCalls++;
+            return "built";
+        }
+    }
+}
@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.identity.common.internal.metrics.Counter;
+import com.microsoft.identity.common.internal.metrics.Histogram;
+import com.microsoft.identity.common.internal.metrics.HistogramSnapshot;
+import com.microsoft.identity.common.internal.metrics.IGauge;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+import com.microsoft.identity.common.internal.metrics.MetricsSnapshot;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class MetricsRegistryTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @After
+    public void tearDown() {
+        MetricsRegistry.reset();
+    }
+
+    @Test
+    public void testCounterIsExactUnderContention() throws InterruptedException {
+        final int threads = 8;
+        final int incrementsPerThread = 10000;
+        final Counter counter = MetricsRegistry.counter("test.contended");
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < incrementsPerThread; j++) {
+                        counter.increment();
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        Assert.assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        Assert.assertSame(counter, MetricsRegistry.counter("test.contended"));
+        Assert.assertEquals(threads * incrementsPerThread, counter.get());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        final Histogram histogram = MetricsRegistry.histogram("test.latency_us");
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        final HistogramSnapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(1000, snapshot.getCount());
+        Assert.assertEquals(1, snapshot.getMin());
+        Assert.assertEquals(1000, snapshot.getMax());
+        Assert.assertEquals(500.5, snapshot.getMean(), 0.001);
+        assertWithinBucketError(500, snapshot.getValueAtPercentile(50));
+        assertWithinBucketError(990, snapshot.getValueAtPercentile(99));
+        Assert.assertEquals(1000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testHistogramExtremes() {
+        final Histogram histogram = MetricsRegistry.histogram("test.extremes");
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        final HistogramSnapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(0, snapshot.getValueAtPercentile(50));
+        Assert.assertEquals(Long.MAX_VALUE, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testSnapshotExport() {
+        MetricsRegistry.counter("test.count").add(3);
+        MetricsRegistry.gauge("test.gauge").set(7);
+        MetricsRegistry.registerGauge("test.registered_gauge", new IGauge() {
+            @Override
+            public long getValue() {
+                return 11;
+            }
+        });
+        MetricsRegistry.histogram(MetricsRegistry.name("test.histogram", "status", "200")).record(42);
+
+        final MetricsSnapshot snapshot = MetricsRegistry.getSnapshot();
+        final JsonObject json = new JsonParser().parse(snapshot.toJson()).getAsJsonObject();
+
+        Assert.assertEquals(3, json.getAsJsonObject("counters").get("test.count").getAsLong());
+        Assert.assertEquals(7, json.getAsJsonObject("gauges").get("test.gauge").getAsLong());
+        Assert.assertEquals(11, json.getAsJsonObject("gauges").get("test.registered_gauge").getAsLong());
+
+        final JsonObject histogram = json.getAsJsonObject("histograms").getAsJsonObject("test.histogram{status=200}");
+        Assert.assertEquals(1, histogram.get("count").getAsLong());
+        Assert.assertEquals(42, histogram.get("p99").getAsLong());
+
+        MetricsRegistry.reset();
+        Assert.assertEquals(0, MetricsRegistry.getSnapshot().getCounter("test.count"));
+    }
+
+    private static void assertWithinBucketError(final long expected, final long actual) {
+        Assert.assertTrue("Expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.125);
+    }
+}
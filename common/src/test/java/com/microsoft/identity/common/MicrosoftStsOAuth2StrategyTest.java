@@ -0,0 +1,197 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+import com.microsoft.identity.common.internal.providers.microsoft.MicrosoftAuthorizationResponse;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsAuthorizationResponse;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Configuration;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.PkceChallenge;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for per-request token endpoint resolution in {@link MicrosoftStsOAuth2Strategy}.
+ */
+public final class MicrosoftStsOAuth2StrategyTest {
+
+    private static final String AUTHORITY = "https://login.strategy-test.example/common";
+    private static final String TOKEN_ENDPOINT = AUTHORITY + "/oAuth2/v2.0/token";
+    private static final String TOKEN_RESPONSE = "{\"token_type\":\"Bearer\",\"expires_in\":3599,"
+            + "\"access_token\":\"access\",\"refresh_token\":\"refresh\"}";
+    private static final String[] CLOUD_HOSTS = {
+            "login.microsoftonline.com",
+            "login.microsoftonline.us",
+            "login.chinacloudapi.cn",
+            "login.microsoftonline.de"
+    };
+    private static final int REQUEST_COUNT = 64;
+
+    private MockHttpTransport mTransport;
+    private MicrosoftStsAuthorizationRequest mAuthorizationRequest;
+
+    @Before
+    public void setUp() {
+        mTransport = new MockHttpTransport(HttpURLConnection.HTTP_OK, TOKEN_RESPONSE);
+        HttpRequest.setTransport(mTransport);
+
+        mAuthorizationRequest = Mockito.mock(MicrosoftStsAuthorizationRequest.class);
+        Mockito.when(mAuthorizationRequest.getPkceChallenge()).thenReturn(
+                ObjectMapper.deserializeJsonStringToObject("{\"code_challenge\":\"challenge\"}", PkceChallenge.class)
+        );
+    }
+
+    @After
+    public void tearDown() {
+        HttpRequest.setTransport(null);
+    }
+
+    @Test
+    public void testConcurrentRequestsAreRoutedToTheirCloud() throws Exception {
+        final MicrosoftStsOAuth2Strategy strategy = createStrategy(true);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<TokenResult>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < REQUEST_COUNT; i++) {
+                final int index = i;
+                results.add(executor.submit(new Callable<TokenResult>() {
+                    @Override
+                    public TokenResult call() throws Exception {
+                        start.await();
+                        final MicrosoftStsTokenRequest tokenRequest = strategy.createTokenRequest(
+                                mAuthorizationRequest,
+                                createAuthorizationResponse("code" + index, CLOUD_HOSTS[index % CLOUD_HOSTS.length])
+                        );
+                        return strategy.requestToken(tokenRequest);
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < REQUEST_COUNT; i++) {
+                final MicrosoftStsTokenResponse response =
+                        (MicrosoftStsTokenResponse) results.get(i).get(10, TimeUnit.SECONDS).getTokenResponse();
+                Assert.assertEquals(
+                        CLOUD_HOSTS[i % CLOUD_HOSTS.length],
+                        new URL(response.getTokenEndpoint()).getHost()
+                );
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int tokenRequests = 0;
+        for (final MockHttpTransport.RecordedRequest request : mTransport.getRecordedRequests()) {
+            if (!request.getUrl().getPath().endsWith("/token")) {
+                continue; // OpenID configuration prefetch
+            }
+            tokenRequests++;
+            final String body = new String(request.getContent(), Charset.forName("UTF-8"));
+            final int index = Integer.parseInt(body.replaceAll(".*code=code(\\d+).*", "$1"));
+            Assert.assertEquals(CLOUD_HOSTS[index % CLOUD_HOSTS.length], request.getUrl().getHost());
+            Assert.assertEquals("/common/oAuth2/v2.0/token", request.getUrl().getPath());
+        }
+        Assert.assertEquals(REQUEST_COUNT, tokenRequests);
+    }
+
+    @Test
+    public void testCloudEndpointDoesNotLeakIntoLaterRequests() throws Exception {
+        final MicrosoftStsOAuth2Strategy strategy = createStrategy(true);
+
+        final MicrosoftStsTokenRequest cloudRequest = strategy.createTokenRequest(
+                mAuthorizationRequest,
+                createAuthorizationResponse("code", "login.microsoftonline.us")
+        );
+        final MicrosoftStsTokenRequest homeRequest = strategy.createTokenRequest(
+                mAuthorizationRequest,
+                createAuthorizationResponse("code", null)
+        );
+        final MicrosoftStsTokenRequest refreshRequest = strategy.createRefreshTokenRequest();
+
+        Assert.assertEquals("https://login.microsoftonline.us/common/oAuth2/v2.0/token", cloudRequest.getTokenEndpoint());
+        Assert.assertNull(homeRequest.getTokenEndpoint());
+
+        final MicrosoftStsTokenResponse response =
+                (MicrosoftStsTokenResponse) strategy.requestToken(refreshRequest).getTokenResponse();
+        Assert.assertEquals(TOKEN_ENDPOINT, response.getTokenEndpoint());
+    }
+
+    @Test
+    public void testCloudEndpointIgnoredWhenMultipleCloudsUnsupported() {
+        final MicrosoftStsOAuth2Strategy strategy = createStrategy(false);
+
+        final MicrosoftStsTokenRequest tokenRequest = strategy.createTokenRequest(
+                mAuthorizationRequest,
+                createAuthorizationResponse("code", "login.microsoftonline.us")
+        );
+
+        Assert.assertNull(tokenRequest.getTokenEndpoint());
+    }
+
+    private static MicrosoftStsOAuth2Strategy createStrategy(final boolean multipleCloudsSupported) {
+        final MicrosoftStsOAuth2Configuration config = Mockito.mock(MicrosoftStsOAuth2Configuration.class);
+
+        try {
+            Mockito.when(config.getAuthorityUrl()).thenReturn(new URL(AUTHORITY));
+            Mockito.when(config.getTokenEndpoint()).thenReturn(new URL(TOKEN_ENDPOINT));
+        } catch (final java.net.MalformedURLException e) {
+            throw new AssertionError(e);
+        }
+        Mockito.when(config.getMultipleCloudsSupported()).thenReturn(multipleCloudsSupported);
+
+        return new MicrosoftStsOAuth2Strategy(config);
+    }
+
+    private static MicrosoftStsAuthorizationResponse createAuthorizationResponse(final String code,
+                                                                                 final String cloudHost) {
+        final HashMap<String, String> parameters = new HashMap<>();
+        parameters.put(MicrosoftAuthorizationResponse.CLOUD_INSTANCE_HOST_NAME, cloudHost);
+
+        return new MicrosoftStsAuthorizationResponse(code, "state", parameters);
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common;
+
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.IHttpTransport;
+import com.microsoft.identity.common.internal.net.IResponseBodyParser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * In-memory {@link IHttpTransport} returning canned responses without touching the network.
+ * Queued responses are returned in order; once the queue is empty the default response is
+ * returned. Every executed request is recorded.
+ */
+public final class MockHttpTransport implements IHttpTransport {
+
+    private final Queue<Object> mQueuedResults = new LinkedList<>();
+    private final List<RecordedRequest> mRecordedRequests = new ArrayList<>();
+    private HttpResponse mDefaultResponse;
+
+    public MockHttpTransport() {
+        this(HttpURLConnection.HTTP_OK, "");
+    }
+
+    public MockHttpTransport(final int defaultStatusCode, final String defaultResponseBody) {
+        mDefaultResponse = createResponse(defaultStatusCode, defaultResponseBody,
+                Collections.<String, List<String>>emptyMap());
+    }
+
+    public static HttpResponse createResponse(final int statusCode, final String responseBody,
+                                              final Map<String, List<String>> responseHeaders) {
+        return new HttpResponse(statusCode, responseBody, responseHeaders);
+    }
+
+    public synchronized MockHttpTransport enqueue(final int statusCode, final String responseBody) {
+        return enqueue(createResponse(statusCode, responseBody, Collections.<String, List<String>>emptyMap()));
+    }
+
+    public synchronized MockHttpTransport enqueue(final HttpResponse response) {
+        mQueuedResults.add(response);
+        return this;
+    }
+
+    public synchronized MockHttpTransport enqueueFailure(final IOException exception) {
+        mQueuedResults.add(exception);
+        return this;
+    }
+
+    public synchronized void setDefaultResponse(final HttpResponse response) {
+        mDefaultResponse = response;
+    }
+
+    public synchronized List<RecordedRequest> getRecordedRequests() {
+        return new ArrayList<>(mRecordedRequests);
+    }
+
+    public synchronized int getRequestCount() {
+        return mRecordedRequests.size();
+    }
+
+    @Override
+    public HttpResponse execute(final String requestMethod,
+                                final URL requestUrl,
+                                final Map<String, String> requestHeaders,
+                                final byte[] requestContent,
+                                final String requestContentType,
+                                final int connectTimeoutMillis,
+                                final int readTimeoutMillis,
+                                final IResponseBodyParser<?> responseBodyParser) throws IOException {
+        final Object result;
+        synchronized (this) {
+            mRecordedRequests.add(new RecordedRequest(requestMethod, requestUrl, requestHeaders,
+                    requestContent, requestContentType));
+            result = mQueuedResults.isEmpty() ? mDefaultResponse : mQueuedResults.poll();
+        }
+
+        if (result instanceof IOException) {
+            throw (IOException) result;
+        }
+
+        final HttpResponse response = (HttpResponse) result;
+        if (responseBodyParser != null && response.getBody() != null
+                && response.getStatusCode() >= HttpURLConnection.HTTP_OK
+                && response.getStatusCode() < HttpURLConnection.HTTP_MULT_CHOICE) {
+            final Object parsedBody;
+            try {
+                parsedBody = responseBodyParser.parse(new StringReader(response.getBody()));
+            } catch (final RuntimeException runtimeException) {
+                throw new IOException("Failed to parse the response body.", runtimeException);
+            }
+
+            return new HttpResponse(response.getStatusCode(), null, response.getHeaders(), parsedBody);
+        }
+
+        return response;
+    }
+
+    /**
+     * A request executed against the {@link MockHttpTransport}.
+     */
+    public static final class RecordedRequest {
+        private final String mMethod;
+        private final URL mUrl;
+        private final Map<String, String> mHeaders;
+        private final byte[] mContent;
+        private final String mContentType;
+
+        RecordedRequest(final String method, final URL url, final Map<String, String> headers,
+                        final byte[] content, final String contentType) {
+            mMethod = method;
+            mUrl = url;
+            mHeaders = new HashMap<>(headers);
+            mContent = content;
+            mContentType = contentType;
+        }
+
+        public String getMethod() {
+            return mMethod;
+        }
+
+        public URL getUrl() {
+            return mUrl;
+        }
+
+        public Map<String, String> getHeaders() {
+            return mHeaders;
+        }
+
+        public byte[] getContent() {
+            return mContent;
+        }
+
+        public String getContentType() {
+            return mContentType;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesFileManager;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+import com.microsoft.identity.common.internal.net.HttpUrlConnectionFactory;
+import com.microsoft.identity.common.internal.net.IHttpTransport;
+import com.microsoft.identity.common.internal.net.IResponseBodyParser;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Configuration;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.OpenIDProviderConfiguration;
+import com.microsoft.identity.common.internal.providers.oauth2.OpenIDProviderConfigurationClient;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link OpenIDProviderConfigurationClient}.
+ */
+public final class OpenIDProviderConfigurationClientTest {
+
+    private static final String TOKEN_ENDPOINT = "https://login.microsoftonline.com/common/oauth2/v2.0/token";
+    private static final String CONFIGURATION = "{"
+            + "\"issuer\":\"https://login.microsoftonline.com/{tenantid}/v2.0\","
+            + "\"authorization_endpoint\":\"https://login.microsoftonline.com/common/oauth2/v2.0/authorize\","
+            + "\"token_endpoint\":\"" + TOKEN_ENDPOINT + "\","
+            + "\"scopes_supported\":[\"openid\",\"profile\",\"email\",\"offline_access\"]"
+            + "}";
+    private static final String ETAG = "\"etag-1\"";
+    private static final int CONCURRENT_REQUESTS = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @After
+    public void tearDown() {
+        HttpUrlConnectionFactory.clearMockedConnectionQueue();
+        HttpRequest.setTransport(null);
+    }
+
+    @Test
+    public void testFetchesOnceThenServesFromMemory() throws IOException {
+        final URL configurationUrl = getUniqueConfigurationUrl();
+        HttpUrlConnectionFactory.addMockedConnection(getConfigurationConnection());
+
+        final OpenIDProviderConfigurationClient client = new OpenIDProviderConfigurationClient();
+        final OpenIDProviderConfiguration first = client.getOpenIDProviderConfiguration(configurationUrl);
+        final OpenIDProviderConfiguration second = client.getOpenIDProviderConfiguration(configurationUrl);
+
+        Assert.assertEquals(TOKEN_ENDPOINT, first.getTokenEndpoint().toString());
+        Assert.assertSame(first, second);
+        Assert.assertEquals(0, HttpUrlConnectionFactory.getMockedConnectionCountInQueue());
+    }
+
+    @Test
+    public void testPersistedConfigurationIsUsedWithoutNetwork() throws IOException {
+        final URL configurationUrl = getUniqueConfigurationUrl();
+        final InMemoryFileManager fileManager = new InMemoryFileManager();
+        HttpUrlConnectionFactory.addMockedConnection(getConfigurationConnection());
+
+        new OpenIDProviderConfigurationClient(fileManager, Long.MAX_VALUE)
+                .getOpenIDProviderConfiguration(configurationUrl);
+        Assert.assertEquals(1, fileManager.getAll().size());
+
+        // A second URL with the same persisted entry but a cold memory cache
+        final URL otherUrl = getUniqueConfigurationUrl();
+        fileManager.putString(
+                otherUrl.toString().toLowerCase(),
+                fileManager.getAll().values().iterator().next()
+        );
+
+        final OpenIDProviderConfiguration cached = new OpenIDProviderConfigurationClient(fileManager, Long.MAX_VALUE)
+                .getCachedOpenIDProviderConfiguration(otherUrl);
+
+        Assert.assertNotNull(cached);
+        Assert.assertEquals(TOKEN_ENDPOINT, cached.getTokenEndpoint().toString());
+    }
+
+    @Test
+    public void testStaleConfigurationIsRevalidatedWithETag() throws IOException {
+        final URL configurationUrl = getUniqueConfigurationUrl();
+        HttpUrlConnectionFactory.addMockedConnection(getConfigurationConnection());
+        new OpenIDProviderConfigurationClient().getOpenIDProviderConfiguration(configurationUrl);
+
+        final HttpURLConnection notModified = MockUtil.getMockedConnectionWithFailureResponse(
+                HttpURLConnection.HTTP_NOT_MODIFIED,
+                ""
+        );
+        HttpUrlConnectionFactory.addMockedConnection(notModified);
+
+        // A zero time-to-live forces revalidation
+        final OpenIDProviderConfiguration revalidated = new OpenIDProviderConfigurationClient(null, 0)
+                .getOpenIDProviderConfiguration(configurationUrl);
+
+        Assert.assertEquals(TOKEN_ENDPOINT, revalidated.getTokenEndpoint().toString());
+        Mockito.verify(notModified).setRequestProperty("If-None-Match", ETAG);
+    }
+
+    @Test
+    public void testStaleConfigurationIsReturnedWhenRevalidationFails() throws IOException {
+        final URL configurationUrl = getUniqueConfigurationUrl();
+        HttpUrlConnectionFactory.addMockedConnection(getConfigurationConnection());
+        new OpenIDProviderConfigurationClient().getOpenIDProviderConfiguration(configurationUrl);
+
+        HttpUrlConnectionFactory.addMockedConnection(MockUtil.getMockedConnectionWithFailureResponse(
+                HttpURLConnection.HTTP_NOT_FOUND,
+                "{}"
+        ));
+
+        final OpenIDProviderConfiguration stale = new OpenIDProviderConfigurationClient(null, 0)
+                .getOpenIDProviderConfiguration(configurationUrl);
+
+        Assert.assertEquals(TOKEN_ENDPOINT, stale.getTokenEndpoint().toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailureWithoutCachedConfigurationThrows() throws IOException {
+        HttpUrlConnectionFactory.addMockedConnection(MockUtil.getMockedConnectionWithFailureResponse(
+                HttpURLConnection.HTTP_NOT_FOUND,
+                "{}"
+        ));
+
+        new OpenIDProviderConfigurationClient().getOpenIDProviderConfiguration(getUniqueConfigurationUrl());
+    }
+
+    @Test
+    public void testConcurrentFetchesShareOneRequest() throws Exception {
+        final URL configurationUrl = getUniqueConfigurationUrl();
+        final AtomicInteger requestCount = new AtomicInteger();
+        final CountDownLatch releaseRequests = new CountDownLatch(1);
+        HttpRequest.setTransport(new IHttpTransport() {
+            @Override
+            public HttpResponse execute(@NonNull final String requestMethod,
+                                        @NonNull final URL requestUrl,
+                                        @NonNull final Map<String, String> requestHeaders,
+                                        @Nullable final byte[] requestContent,
+                                        @Nullable final String requestContentType,
+                                        final int connectTimeoutMillis,
+                                        final int readTimeoutMillis,
+                                        @Nullable final IResponseBodyParser<?> responseBodyParser)
+                    throws IOException {
+                requestCount.incrementAndGet();
+                try {
+                    Assert.assertTrue(releaseRequests.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                } catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+
+                return MockHttpTransport.createResponse(HttpURLConnection.HTTP_OK, CONFIGURATION,
+                        Collections.<String, List<String>>emptyMap());
+            }
+        });
+
+        final long coalescedBefore = OpenIDProviderConfigurationClient.getCoalescedRequestCount();
+        final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        final List<Future<OpenIDProviderConfiguration>> results = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                results.add(executor.submit(new Callable<OpenIDProviderConfiguration>() {
+                    @Override
+                    public OpenIDProviderConfiguration call() throws IOException {
+                        return new OpenIDProviderConfigurationClient().getOpenIDProviderConfiguration(configurationUrl);
+                    }
+                }));
+            }
+
+            final long expectedCoalesced = coalescedBefore + CONCURRENT_REQUESTS - 1;
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (OpenIDProviderConfigurationClient.getCoalescedRequestCount() < expectedCoalesced) {
+                Assert.assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(5);
+            }
+            releaseRequests.countDown();
+
+            final OpenIDProviderConfiguration first = results.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Assert.assertEquals(TOKEN_ENDPOINT, first.getTokenEndpoint().toString());
+            for (final Future<OpenIDProviderConfiguration> result : results) {
+                Assert.assertSame(first, result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(1, requestCount.get());
+        Assert.assertEquals(
+                coalescedBefore + CONCURRENT_REQUESTS - 1,
+                OpenIDProviderConfigurationClient.getCoalescedRequestCount()
+        );
+    }
+
+    @Test
+    public void testStrategyConstructorDoesNotFetchAndPrefetchIsExplicit() throws Exception {
+        final String authority = "https://login.microsoftonline.com/" + UUID.randomUUID().toString();
+        final URL configurationUrl = OpenIDProviderConfigurationClient.getOpenIDProviderConfigurationUrl(
+                authority + "/v2.0"
+        );
+        final MockHttpTransport transport = new MockHttpTransport(HttpURLConnection.HTTP_OK, CONFIGURATION);
+        HttpRequest.setTransport(transport);
+
+        final MicrosoftStsOAuth2Configuration config = Mockito.mock(MicrosoftStsOAuth2Configuration.class);
+        Mockito.when(config.getAuthorityUrl()).thenReturn(new URL(authority));
+        Mockito.when(config.getTokenEndpoint()).thenReturn(new URL(authority + "/oAuth2/v2.0/token"));
+        new MicrosoftStsOAuth2Strategy(config);
+
+        // Give a (wrongly) scheduled background fetch the chance to run
+        Thread.sleep(100);
+        Assert.assertEquals(0, transport.getRequestCount());
+
+        // A trailing slash on the authority must not end up in the issuer
+        MicrosoftStsOAuth2Strategy.prefetchOpenIDProviderConfiguration(new URL(authority + "/"));
+
+        final OpenIDProviderConfigurationClient client = new OpenIDProviderConfigurationClient();
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (null == client.getCachedOpenIDProviderConfiguration(configurationUrl)) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(1, transport.getRequestCount());
+        Assert.assertEquals(configurationUrl, transport.getRecordedRequests().get(0).getUrl());
+    }
+
+    private static URL getUniqueConfigurationUrl() throws IOException {
+        // The in-memory cache is process-wide; isolate each test with its own tenant
+        return OpenIDProviderConfigurationClient.getOpenIDProviderConfigurationUrl(
+                "https://login.microsoftonline.com/" + UUID.randomUUID().toString() + "/v2.0"
+        );
+    }
+
+    private static HttpURLConnection getConfigurationConnection() throws IOException {
+        final HttpURLConnection connection = MockUtil.getMockedConnectionWithSuccessResponse(CONFIGURATION);
+        final Map<String, List<String>> headers = new HashMap<>();
+        headers.put("ETag", Collections.singletonList(ETAG));
+        Mockito.when(connection.getHeaderFields()).thenReturn(headers);
+        return connection;
+    }
+
+    private static final class InMemoryFileManager implements ISharedPreferencesFileManager {
+
+        private final Map<String, String> mEntries = new HashMap<>();
+
+        @Override
+        public void putString(final String key, final String value) {
+            mEntries.put(key, value);
+        }
+
+        @Override
+        public String getString(final String key) {
+            return mEntries.get(key);
+        }
+
+        @Override
+        public String getSharedPreferencesFileName() {
+            return "test";
+        }
+
+        @Override
+        public Map<String, String> getAll() {
+            return new HashMap<>(mEntries);
+        }
+
+        @Override
+        public boolean contains(final String key) {
+            return mEntries.containsKey(key);
+        }
+
+        @Override
+        public void clear() {
+            mEntries.clear();
+        }
+
+        @Override
+        public void remove(final String key) {
+            mEntries.remove(key);
+        }
+    }
+}
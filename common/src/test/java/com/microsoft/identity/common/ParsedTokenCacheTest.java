@@ -0,0 +1,160 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.exception.ErrorStrings;
+import com.microsoft.identity.common.exception.ServiceException;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
+import com.microsoft.identity.common.internal.util.ParsedTokenCache;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(JUnit4.class)
+public class ParsedTokenCacheTest {
+
+    @Test
+    public void testTokenIsParsedOnce() throws ServiceException {
+        final CountingParser parser = new CountingParser();
+        final ParsedTokenCache<String> cache = new ParsedTokenCache<>("test_parsed_once", 4);
+
+        final String first = cache.get("raw-token", parser);
+        // Equal tokens hit the cache, whichever String instance holds them
+        final String second = cache.get(new String("raw-token"), parser);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, parser.mParseCount.get());
+        Assert.assertEquals(1, MetricsRegistry.getSnapshot().getCounter("token_parse_cache.hit{type=test_parsed_once}"));
+        Assert.assertEquals(1, MetricsRegistry.getSnapshot().getCounter("token_parse_cache.miss{type=test_parsed_once}"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTokenIsEvicted() throws ServiceException {
+        final CountingParser parser = new CountingParser();
+        final ParsedTokenCache<String> cache = new ParsedTokenCache<>("test_evicted", 2);
+
+        cache.get("a", parser);
+        cache.get("b", parser);
+        cache.get("a", parser);
+        cache.get("c", parser);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(3, parser.mParseCount.get());
+
+        cache.get("a", parser);
+        Assert.assertEquals(3, parser.mParseCount.get());
+
+        cache.get("b", parser);
+        Assert.assertEquals(4, parser.mParseCount.get());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws ServiceException {
+        final CountingParser parser = new CountingParser();
+        final ParsedTokenCache<String> cache = new ParsedTokenCache<>("test_failures", 4);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("malformed", parser);
+                Assert.fail("Expected the parse failure to propagate.");
+            } catch (final ServiceException e) {
+                Assert.assertEquals(ErrorStrings.INVALID_JWT, e.getErrorCode());
+            }
+        }
+
+        Assert.assertEquals(2, parser.mParseCount.get());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testIdTokensShareParsedClaims() throws ServiceException {
+        final String rawIdToken = new PlainJWT(new JWTClaimsSet.Builder()
+                .issuer("https://login.microsoftonline.com/utid/v2.0")
+                .subject("testIdTokensShareParsedClaims")
+                .claim("oid", "uid")
+                .claim("tid", "utid")
+                .build()).serialize();
+
+        final IDToken first = new IDToken(rawIdToken);
+        final IDToken second = new IDToken(new String(rawIdToken));
+
+        Assert.assertSame(first.getTokenClaims(), second.getTokenClaims());
+        Assert.assertEquals("utid", second.getTokenClaims().get("tid"));
+
+        // parseJWT hands out a copy the caller may change
+        final Map<String, String> claims = IDToken.parseJWT(rawIdToken);
+        claims.remove("tid");
+        Assert.assertEquals("utid", first.getTokenClaims().get("tid"));
+    }
+
+    @Test
+    public void testClearedIdTokensAreParsedAgain() throws ServiceException {
+        final String rawIdToken = new PlainJWT(new JWTClaimsSet.Builder()
+                .subject("testClearedIdTokensAreParsedAgain")
+                .claim("tid", "utid")
+                .build()).serialize();
+
+        final IDToken first = new IDToken(rawIdToken);
+        IDToken.clearParsedTokens();
+        final IDToken second = new IDToken(rawIdToken);
+
+        Assert.assertNotSame(first.getTokenClaims(), second.getTokenClaims());
+        Assert.assertEquals(first.getTokenClaims(), second.getTokenClaims());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullClaimFailsConstruction() throws ServiceException {
+        // {"alg":"none"}.{"sub":"testNullClaimFailsConstruction","nul":null}.
+        final String rawIdToken = "eyJhbGciOiJub25lIn0."
+                + Base64URL.encode("{\"sub\":\"testNullClaimFailsConstruction\",\"nul\":null}")
+                + ".";
+
+        new IDToken(rawIdToken);
+    }
+
+    private static final class CountingParser implements ParsedTokenCache.Parser<String> {
+
+        private final AtomicInteger mParseCount = new AtomicInteger();
+
+        @Override
+        public String parse(@NonNull final String rawToken) throws ServiceException {
+            mParseCount.incrementAndGet();
+
+            if ("malformed".equals(rawToken)) {
+                throw new ServiceException(ErrorStrings.INVALID_JWT, "Failed to parse", null);
+            }
+
+            return "parsed-" + rawToken;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.content.Context;
+import android.content.Intent;
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.internal.authorities.Authority;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.controllers.BaseController;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.providers.oauth2.AuthorizationRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResponse;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenResult;
+import com.microsoft.identity.common.internal.request.AcquireTokenOperationParameters;
+import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
+import com.microsoft.identity.common.internal.request.OperationParameters;
+import com.microsoft.identity.common.internal.result.AcquireTokenResult;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+
+/**
+ * Tests for refresh token request coalescing in {@link BaseController}.
+ */
+public final class RefreshTokenCoalescingTest {
+
+    private static final int CONCURRENT_REQUESTS = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final AtomicInteger mTokenRequestCount = new AtomicInteger();
+    private final AtomicInteger mSaveCount = new AtomicInteger();
+    private final CountDownLatch mReleaseTokenRequests = new CountDownLatch(1);
+    private volatile IOException mTokenRequestFailure;
+
+    private TestController mController;
+    private OAuth2Strategy mStrategy;
+    private OAuth2TokenCache mTokenCache;
+    private ICacheRecord mCacheRecord;
+    private ExecutorService mExecutor;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        mController = new TestController();
+        mStrategy = Mockito.mock(OAuth2Strategy.class);
+        mTokenCache = Mockito.mock(OAuth2TokenCache.class);
+        mCacheRecord = Mockito.mock(ICacheRecord.class);
+
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        refreshToken.setSecret("refresh_token");
+        Mockito.when(mCacheRecord.getRefreshToken()).thenReturn(refreshToken);
+        Mockito.when(mCacheRecord.getIdToken()).thenReturn(new IdTokenRecord());
+
+        Mockito.when(mStrategy.createRefreshTokenRequest()).thenAnswer(new Answer<TokenRequest>() {
+            @Override
+            public TokenRequest answer(final InvocationOnMock invocation) {
+                return new TokenRequest();
+            }
+        });
+        Mockito.when(mStrategy.requestToken(any(TokenRequest.class))).thenAnswer(new Answer<TokenResult>() {
+            @Override
+            public TokenResult answer(final InvocationOnMock invocation) throws Exception {
+                mTokenRequestCount.incrementAndGet();
+                Assert.assertTrue(mReleaseTokenRequests.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+                if (null != mTokenRequestFailure) {
+                    throw mTokenRequestFailure;
+                }
+
+                return new TokenResult(new TokenResponse());
+            }
+        });
+        Mockito.when(mTokenCache.save(any(OAuth2Strategy.class), any(AuthorizationRequest.class), any(TokenResponse.class)))
+                .thenAnswer(new Answer<ICacheRecord>() {
+                    @Override
+                    public ICacheRecord answer(final InvocationOnMock invocation) {
+                        mSaveCount.incrementAndGet();
+                        return mCacheRecord;
+                    }
+                });
+
+        mExecutor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneRefresh() throws Exception {
+        final long coalescedBefore = BaseController.getCoalescedRefreshTokenRequestCount();
+        final List<Future<AcquireTokenResult>> results = new ArrayList<>();
+
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            // Scope order and case do not matter
+            results.add(submitRenew(createParameters("uid.utid", i % 2 == 0 ? "User.Read Mail.Read" : "mail.read user.read")));
+        }
+
+        awaitCoalesced(coalescedBefore + CONCURRENT_REQUESTS - 1);
+        mReleaseTokenRequests.countDown();
+
+        for (final Future<AcquireTokenResult> result : results) {
+            final AcquireTokenResult acquireTokenResult = result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Assert.assertTrue(acquireTokenResult.getTokenResult().getSuccess());
+            Assert.assertNotNull(acquireTokenResult.getLocalAuthenticationResult());
+        }
+
+        Assert.assertEquals(1, mTokenRequestCount.get());
+        Assert.assertEquals(1, mSaveCount.get());
+        Assert.assertEquals(
+                coalescedBefore + CONCURRENT_REQUESTS - 1,
+                BaseController.getCoalescedRefreshTokenRequestCount()
+        );
+    }
+
+    @Test
+    public void testDifferentAccountsAndScopesAreNotCoalesced() throws Exception {
+        final List<Future<AcquireTokenResult>> results = new ArrayList<>();
+        results.add(submitRenew(createParameters("uid1.utid", "User.Read")));
+        results.add(submitRenew(createParameters("uid2.utid", "User.Read")));
+        results.add(submitRenew(createParameters("uid1.utid", "Mail.Read")));
+
+        awaitTokenRequests(3);
+        mReleaseTokenRequests.countDown();
+
+        for (final Future<AcquireTokenResult> result : results) {
+            Assert.assertTrue(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getTokenResult().getSuccess());
+        }
+
+        Assert.assertEquals(3, mTokenRequestCount.get());
+        Assert.assertEquals(3, mSaveCount.get());
+    }
+
+    @Test
+    public void testDifferentAuthoritiesAreNotCoalesced() throws Exception {
+        final AcquireTokenSilentOperationParameters homeTenant = createParameters("uid.utid", "User.Read");
+        homeTenant.setAuthority(createAuthority("https://login.microsoftonline.com/utid"));
+        final AcquireTokenSilentOperationParameters guestTenant = createParameters("uid.utid", "User.Read");
+        guestTenant.setAuthority(createAuthority("https://login.microsoftonline.com/guest-tenant"));
+        final long coalescedBefore = BaseController.getCoalescedRefreshTokenRequestCount();
+
+        final List<Future<AcquireTokenResult>> results = new ArrayList<>();
+        results.add(submitRenew(homeTenant));
+        results.add(submitRenew(guestTenant));
+
+        awaitTokenRequests(2);
+        mReleaseTokenRequests.countDown();
+
+        for (final Future<AcquireTokenResult> result : results) {
+            Assert.assertTrue(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getTokenResult().getSuccess());
+        }
+
+        Assert.assertEquals(2, mTokenRequestCount.get());
+        Assert.assertEquals(2, mSaveCount.get());
+        Assert.assertEquals(coalescedBefore, BaseController.getCoalescedRefreshTokenRequestCount());
+    }
+
+    @Test
+    public void testFailureIsSharedAndNotCached() throws Exception {
+        mTokenRequestFailure = new IOException("service unavailable");
+        final long coalescedBefore = BaseController.getCoalescedRefreshTokenRequestCount();
+        final List<Future<AcquireTokenResult>> results = new ArrayList<>();
+
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            results.add(submitRenew(createParameters("uid.utid", "User.Read")));
+        }
+
+        awaitCoalesced(coalescedBefore + CONCURRENT_REQUESTS - 1);
+        mReleaseTokenRequests.countDown();
+
+        for (final Future<AcquireTokenResult> result : results) {
+            try {
+                result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                Assert.fail("Expected the refresh failure to propagate.");
+            } catch (final ExecutionException e) {
+                Assert.assertSame(mTokenRequestFailure, e.getCause());
+            }
+        }
+
+        Assert.assertEquals(1, mTokenRequestCount.get());
+        Assert.assertEquals(0, mSaveCount.get());
+
+        // The failed grant is no longer in flight, so the next request tries again
+        mTokenRequestFailure = null;
+        Assert.assertTrue(submitRenew(createParameters("uid.utid", "User.Read"))
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getTokenResult().getSuccess());
+        Assert.assertEquals(2, mTokenRequestCount.get());
+    }
+
+    private Future<AcquireTokenResult> submitRenew(@NonNull final AcquireTokenSilentOperationParameters parameters) {
+        return mExecutor.submit(new Callable<AcquireTokenResult>() {
+            @Override
+            public AcquireTokenResult call() throws Exception {
+                final AcquireTokenResult result = new AcquireTokenResult();
+                mController.renew(parameters, result, mTokenCache, mStrategy, mCacheRecord);
+                return result;
+            }
+        });
+    }
+
+    private static AcquireTokenSilentOperationParameters createParameters(@NonNull final String homeAccountId,
+                                                                          @NonNull final String scopes) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(homeAccountId);
+        account.setEnvironment("login.microsoftonline.com");
+        account.setRealm("utid");
+
+        final AcquireTokenSilentOperationParameters parameters = new AcquireTokenSilentOperationParameters();
+        parameters.setClientId("client-id");
+        parameters.setAccount(account);
+        parameters.setScopes(new ArrayList<>(Arrays.asList(scopes.split(" "))));
+
+        return parameters;
+    }
+
+    private static Authority createAuthority(@NonNull final String authorityUrl) throws MalformedURLException {
+        final Authority authority = Mockito.mock(Authority.class);
+        Mockito.when(authority.getAuthorityURL()).thenReturn(new URL(authorityUrl));
+        return authority;
+    }
+
+    private static void awaitCoalesced(final long expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+
+        while (BaseController.getCoalescedRefreshTokenRequestCount() < expected) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitTokenRequests(final int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+
+        while (mTokenRequestCount.get() < expected) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static final class TestController extends BaseController {
+
+        void renew(final AcquireTokenSilentOperationParameters parameters,
+                   final AcquireTokenResult result,
+                   final OAuth2TokenCache tokenCache,
+                   final OAuth2Strategy strategy,
+                   final ICacheRecord cacheRecord) throws IOException, ClientException {
+            renewAccessToken(parameters, result, tokenCache, strategy, cacheRecord);
+        }
+
+        @Override
+        public AcquireTokenResult acquireToken(final AcquireTokenOperationParameters request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void completeAcquireToken(final int requestCode, final int resultCode, final Intent data) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AcquireTokenResult acquireTokenSilent(final AcquireTokenSilentOperationParameters request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void throwIfNetworkNotAvailable(final Context context) {
+            // Network state is not under test
+        }
+
+        @Override
+        protected AuthorizationRequest getAuthorizationRequest(@NonNull final OAuth2Strategy strategy,
+                                                               @NonNull final OperationParameters parameters) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common;
+
+import android.support.annotation.NonNull;
+
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.RequestContext;
+import com.microsoft.identity.common.internal.tracing.ISpanSink;
+import com.microsoft.identity.common.internal.tracing.Span;
+import com.microsoft.identity.common.internal.tracing.Tracer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class TracerTest {
+
+    private final List<Span> mEndedSpans = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        final RequestContext requestContext = new RequestContext();
+        requestContext.put(DiagnosticContext.CORRELATION_ID, "request-1");
+        DiagnosticContext.setRequestContext(requestContext);
+    }
+
+    @After
+    public void tearDown() {
+        Tracer.setSink(null);
+        DiagnosticContext.clear();
+    }
+
+    @Test
+    public void testSpansAreNotRecordedWithoutSink() {
+        Assert.assertFalse(Tracer.isEnabled());
+
+        final Span first = Tracer.startSpan("first");
+        final Span second = Tracer.startSpan("second");
+        second.end();
+        first.end();
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(-1, first.getDurationNanos());
+    }
+
+    @Test
+    public void testNestedSpans() {
+        setSink();
+
+        final Span parent = Tracer.startSpan("parent");
+        final Span child = Tracer.startSpan("child");
+        child.end();
+        final Span sibling = Tracer.startSpan("sibling");
+        sibling.end();
+        parent.end();
+        final Span root = Tracer.startSpan("root");
+        root.end();
+
+        Assert.assertEquals(4, mEndedSpans.size());
+        Assert.assertSame(child, mEndedSpans.get(0));
+        Assert.assertSame(parent, mEndedSpans.get(2));
+        Assert.assertEquals(0, parent.getParentSpanId());
+        Assert.assertEquals(parent.getSpanId(), child.getParentSpanId());
+        Assert.assertEquals(parent.getSpanId(), sibling.getParentSpanId());
+        Assert.assertEquals(0, root.getParentSpanId());
+        Assert.assertTrue(parent.getDurationNanos() >= child.getDurationNanos());
+
+        for (final Span span : mEndedSpans) {
+            Assert.assertEquals("request-1", span.getCorrelationId());
+        }
+    }
+
+    @Test
+    public void testSpanEndsOnce() {
+        setSink();
+
+        final Span span = Tracer.startSpan("span");
+        span.setError(new IOException("network down"));
+        span.end();
+        span.end();
+
+        Assert.assertEquals(1, mEndedSpans.size());
+        Assert.assertEquals("IOException", span.getError());
+        Assert.assertTrue(span.getDurationNanos() >= 0);
+    }
+
+    @Test
+    public void testFailingSinkDoesNotBreakTracing() {
+        Tracer.setSink(new ISpanSink() {
+            @Override
+            public void onSpanEnd(@NonNull final Span span) {
+                throw new IllegalStateException();
+            }
+        });
+
+        final Span parent = Tracer.startSpan("parent");
+        Tracer.startSpan("child").end();
+        final Span next = Tracer.startSpan("next");
+        next.end();
+        parent.end();
+
+        Assert.assertEquals(parent.getSpanId(), next.getParentSpanId());
+    }
+
+    private void setSink() {
+        Tracer.setSink(new ISpanSink() {
+            @Override
+            public void onSpanEnd(@NonNull final Span span) {
+                mEndedSpans.add(span);
+            }
+        });
+    }
+}
@@ -0,0 +1,253 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmark;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small JMH-style harness for the benchmarks of this package. Each benchmark runs for a number of
+ * timed warmup iterations, which are discarded, then for a number of timed measurement iterations.
+ * The score is the mean time per operation over the measurement iterations, with the half-width
+ * of its 99.9% confidence interval as the error, as JMH reports it in average time mode.
+ * <p>
+ * Results are printed, and {@link #writeResults()} writes them as JSON in the layout of JMH's
+ * {@code -rf json} output, so the same tooling can compare them across releases. The run can be
+ * tuned with system properties:
+ * <ul>
+ * <li>{@code benchmark.resultsDir}: where to write the results, default {@code build/benchmark-results}</li>
+ * <li>{@code benchmark.warmupIterations}: default 3</li>
+ * <li>{@code benchmark.measurementIterations}: default 5</li>
+ * <li>{@code benchmark.iterationMillis}: the minimum duration of an iteration, default 200</li>
+ * </ul>
+ */
+final class BenchmarkHarness {
+
+    private static final String MODE = "avgt";
+    private static final String SCORE_UNIT = "ns/op";
+
+    /**
+     * Student's t quantiles for a two-sided 99.9% interval, by degrees of freedom from 1.
+     */
+    private static final double[] T_999 = {
+            636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+            4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850
+    };
+    private static final double Z_999 = 3.291;
+
+    private final String mSuite;
+    private final int mWarmupIterations;
+    private final int mMeasurementIterations;
+    private final long mIterationNanos;
+    private final List<JsonObject> mResults = new ArrayList<>();
+
+    /**
+     * Consumes the results of the measured operations, so the JIT cannot discard them as dead code.
+     */
+    private volatile int mSink;
+
+    BenchmarkHarness(final String suite) {
+        mSuite = suite;
+        mWarmupIterations = Integer.getInteger("benchmark.warmupIterations", 3);
+        mMeasurementIterations = Math.max(1, Integer.getInteger("benchmark.measurementIterations", 5));
+        mIterationNanos = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("benchmark.iterationMillis", 200));
+    }
+
+    /**
+     * Measure an operation.
+     *
+     * @param name      The name of the benchmark, within the suite.
+     * @param operation The operation. Its result is consumed so that the work is not optimized away.
+     * @return The score, in nanoseconds per operation.
+     */
+    double measure(final String name, final Callable<?> operation) throws Exception {
+        return measure(name, new LinkedHashMap<String, String>(), operation);
+    }
+
+    /**
+     * Measure an operation which is run with parameters, such as the size of the cache.
+     *
+     * @param name      The name of the benchmark, within the suite.
+     * @param params    The parameters, reported with the result.
+     * @param operation The operation. Its result is consumed so that the work is not optimized away.
+     * @return The score, in nanoseconds per operation.
+     */
+    double measure(final String name,
+                   final Map<String, String> params,
+                   final Callable<?> operation) throws Exception {
+        for (int i = 0; i < mWarmupIterations; i++) {
+            runIteration(operation);
+        }
+
+        final double[] iterationScores = new double[mMeasurementIterations];
+        for (int i = 0; i < mMeasurementIterations; i++) {
+            iterationScores[i] = runIteration(operation);
+        }
+
+        final double score = mean(iterationScores);
+        final double error = error(iterationScores, score);
+        mResults.add(toJson(name, params, score, error, iterationScores));
+
+        System.out.println(String.format("%s.%s%s: %.1f ± %.1f %s",
+                mSuite, name, params.isEmpty() ? "" : params.toString(), score, error, SCORE_UNIT));
+
+        return score;
+    }
+
+    /**
+     * Write the results measured so far to {@code <benchmark.resultsDir>/<suite>.json}.
+     */
+    void writeResults() throws IOException {
+        final File directory = new File(System.getProperty("benchmark.resultsDir", "build/benchmark-results"));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        final JsonArray results = new JsonArray();
+        for (final JsonObject result : mResults) {
+            results.add(result);
+        }
+
+        final File file = new File(directory, mSuite + ".json");
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create().toJson(results, writer);
+        } finally {
+            writer.close();
+        }
+
+        System.out.println("Benchmark results written to " + file.getAbsolutePath());
+    }
+
+    /**
+     * Run the operation in batches until the iteration has lasted its minimum duration.
+     *
+     * @return The mean time per operation, in nanoseconds.
+     */
+    private double runIteration(final Callable<?> operation) throws Exception {
+        long operations = 0;
+        long batchSize = 1;
+        int sink = 0;
+        final long start = System.nanoTime();
+        long elapsed;
+
+        do {
+            for (long i = 0; i < batchSize; i++) {
+                final Object result = operation.call();
+                sink += null == result ? 0 : System.identityHashCode(result);
+            }
+
+            operations += batchSize;
+            batchSize = Math.min(batchSize * 2, 1 << 16);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < mIterationNanos);
+
+        mSink += sink;
+
+        return (double) elapsed / operations;
+    }
+
+    private JsonObject toJson(final String name,
+                              final Map<String, String> params,
+                              final double score,
+                              final double error,
+                              final double[] iterationScores) {
+        final JsonArray rawData = new JsonArray();
+        for (final double iterationScore : iterationScores) {
+            rawData.add(iterationScore);
+        }
+
+        // One fork: JMH nests the iteration scores in an array per fork
+        final JsonArray forks = new JsonArray();
+        forks.add(rawData);
+
+        final JsonObject primaryMetric = new JsonObject();
+        primaryMetric.addProperty("score", score);
+        primaryMetric.addProperty("scoreError", error);
+        primaryMetric.addProperty("scoreUnit", SCORE_UNIT);
+        primaryMetric.add("rawData", forks);
+
+        final JsonObject result = new JsonObject();
+        result.addProperty("benchmark", getClass().getPackage().getName() + "." + mSuite + "." + name);
+        result.addProperty("mode", MODE);
+        result.addProperty("threads", 1);
+        result.addProperty("forks", 1);
+        result.addProperty("jvm", System.getProperty("java.vm.name"));
+        result.addProperty("jdkVersion", System.getProperty("java.version"));
+        result.addProperty("warmupIterations", mWarmupIterations);
+        result.addProperty("warmupTime", TimeUnit.NANOSECONDS.toMillis(mIterationNanos) + " ms");
+        result.addProperty("measurementIterations", mMeasurementIterations);
+        result.addProperty("measurementTime", TimeUnit.NANOSECONDS.toMillis(mIterationNanos) + " ms");
+
+        if (!params.isEmpty()) {
+            final JsonObject jsonParams = new JsonObject();
+            for (final Map.Entry<String, String> param : params.entrySet()) {
+                jsonParams.addProperty(param.getKey(), param.getValue());
+            }
+            result.add("params", jsonParams);
+        }
+
+        result.add("primaryMetric", primaryMetric);
+
+        return result;
+    }
+
+    private static double mean(final double[] values) {
+        double sum = 0;
+        for (final double value : values) {
+            sum += value;
+        }
+
+        return sum / values.length;
+    }
+
+    private static double error(final double[] values, final double mean) {
+        if (values.length < 2) {
+            return Double.NaN;
+        }
+
+        double squares = 0;
+        for (final double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+
+        final int degreesOfFreedom = values.length - 1;
+        final double standardDeviation = Math.sqrt(squares / degreesOfFreedom);
+        final double t = degreesOfFreedom <= T_999.length ? T_999[degreesOfFreedom - 1] : Z_999;
+
+        return t * standardDeviation / Math.sqrt(values.length);
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmark;
+
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+
+/**
+ * Builds in-memory credential caches for the benchmarks. Every account "uid{i}.utid" has an
+ * account record, an access token and a refresh token for "client-id" in the environment
+ * "login.microsoftonline.com", so a cache of n accounts holds 3n entries.
+ */
+final class CredentialCacheFixture {
+
+    private CredentialCacheFixture() {
+    }
+
+    static SharedPreferencesAccountCredentialCache createCache(final int accounts) {
+        final SharedPreferencesAccountCredentialCache cache = new SharedPreferencesAccountCredentialCache(
+                new CacheKeyValueDelegate(),
+                new InMemorySharedPreferencesFileManager()
+        );
+
+        for (int i = 0; i < accounts; i++) {
+            final String homeAccountId = "uid" + i + ".utid";
+
+            cache.saveAccount(createAccount(i));
+            cache.saveCredential(createAccessToken(homeAccountId));
+
+            final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+            initialize(refreshToken, homeAccountId, CredentialType.RefreshToken);
+            cache.saveCredential(refreshToken);
+        }
+
+        return cache;
+    }
+
+    static AccountRecord createAccount(final int index) {
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId("uid" + index + ".utid");
+        account.setEnvironment("login.microsoftonline.com");
+        account.setRealm("utid");
+        account.setLocalAccountId("uid" + index);
+        account.setUsername("user" + index + "@contoso.com");
+        account.setAuthorityType("MSSTS");
+        return account;
+    }
+
+    static AccessTokenRecord createAccessToken(final String homeAccountId) {
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        initialize(accessToken, homeAccountId, CredentialType.AccessToken);
+        accessToken.setRealm("utid");
+        accessToken.setTarget("user.read");
+        accessToken.setExpiresOn("1500003600");
+        return accessToken;
+    }
+
+    private static void initialize(final Credential credential,
+                                   final String homeAccountId,
+                                   final CredentialType credentialType) {
+        credential.setHomeAccountId(homeAccountId);
+        credential.setEnvironment("login.microsoftonline.com");
+        credential.setCredentialType(credentialType.name());
+        credential.setClientId("client-id");
+        credential.setSecret("secret");
+        credential.setCachedAt("1500000000");
+    }
+}
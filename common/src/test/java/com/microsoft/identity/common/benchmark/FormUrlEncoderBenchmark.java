@@ -0,0 +1,97 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.benchmark;
+
+import com.microsoft.identity.common.internal.net.FormUrlEncoder;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.util.UUID;
+
+/**
+ * Compares encoding a refresh token request through the JSON round trip of
+ * {@link ObjectMapper#serializeObjectToFormUrlEncoded(Object)} with {@link FormUrlEncoder}.
+ */
+public final class FormUrlEncoderBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5000;
+    private static final int MEASURED_ITERATIONS = 50000;
+
+    @Test
+    public void benchmarkRefreshTokenRequestEncoding() throws UnsupportedEncodingException {
+        final MicrosoftStsTokenRequest request = createRefreshTokenRequest();
+        Assert.assertArrayEquals(encodeWithObjectMapper(request), FormUrlEncoder.encode(request));
+
+        run(request, WARMUP_ITERATIONS, false);
+        run(request, WARMUP_ITERATIONS, true);
+
+        report("ObjectMapper", request, false);
+        report("FormUrlEncoder", request, true);
+    }
+
+    private static void report(final String name, final TokenRequest request, final boolean direct)
+            throws UnsupportedEncodingException {
+        final long start = System.nanoTime();
+        run(request, MEASURED_ITERATIONS, direct);
+        final long elapsedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Refresh token request %s: %.2f us/op", name,
+                elapsedNanos / 1000.0 / MEASURED_ITERATIONS));
+    }
+
+    private static void run(final TokenRequest request, final int iterations, final boolean direct)
+            throws UnsupportedEncodingException {
+        int totalLength = 0;
+        for (int i = 0; i < iterations; i++) {
+            totalLength += (direct ? FormUrlEncoder.encode(request) : encodeWithObjectMapper(request)).length;
+        }
+
+        Assert.assertTrue(totalLength > 0);
+    }
+
+    private static byte[] encodeWithObjectMapper(final TokenRequest request) throws UnsupportedEncodingException {
+        return ObjectMapper.serializeObjectToFormUrlEncoded(request).getBytes(ObjectMapper.ENCODING_SCHEME);
+    }
+
+    private static MicrosoftStsTokenRequest createRefreshTokenRequest() {
+        final StringBuilder refreshToken = new StringBuilder();
+        while (refreshToken.length() < 1200) {
+            refreshToken.append("OAQABAAAAAADXzZ3ifr-GRbDT45zNSEFE");
+        }
+
+        final MicrosoftStsTokenRequest request = new MicrosoftStsTokenRequest();
+        request.setGrantType(TokenRequest.GrantTypes.REFRESH_TOKEN);
+        request.setClientId("4b0db8c2-9f26-4417-8bde-3f0e3656f8e0");
+        request.setRedirectUri("msauth://com.microsoft.identity.client.sample/1wIqXSqBj7w%2Bh11ZifsnqwgyKrY%3D");
+        request.setScope("https://graph.microsoft.com/user.read openid offline_access profile");
+        request.setRefreshToken(refreshToken.toString());
+        request.setCorrelationId(UUID.randomUUID());
+        return request;
+    }
+}
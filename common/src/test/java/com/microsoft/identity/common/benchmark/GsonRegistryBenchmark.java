@@ -0,0 +1,80 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.benchmark;
+
+import com.google.gson.Gson;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Compares deserializing with a new {@link Gson} per call (cold: reflective type adapters are
+ * rebuilt every time) against the shared instance from {@link GsonRegistry} (warm).
+ */
+public final class GsonRegistryBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int MEASURED_ITERATIONS = 20000;
+
+    private static final String TOKEN_RESPONSE = "{\"token_type\":\"Bearer\",\"scope\":\"user.read\","
+            + "\"expires_in\":3599,\"ext_expires_in\":7199,\"access_token\":\"access\","
+            + "\"refresh_token\":\"refresh\",\"id_token\":\"id\",\"client_info\":\"info\"}";
+
+    private static final String ACCESS_TOKEN_RECORD = "{\"home_account_id\":\"uid.utid\","
+            + "\"environment\":\"login.microsoftonline.com\",\"credential_type\":\"AccessToken\","
+            + "\"client_id\":\"client\",\"secret\":\"secret\",\"realm\":\"utid\",\"target\":\"user.read\","
+            + "\"cached_at\":\"1500000000\",\"expires_on\":\"1500003600\"}";
+
+    @Test
+    public void benchmarkGsonCreation() {
+        run(WARMUP_ITERATIONS, false);
+        run(WARMUP_ITERATIONS, true);
+
+        report("cold (new Gson per call)", false);
+        report("warm (GsonRegistry)", true);
+    }
+
+    private static void report(final String name, final boolean warm) {
+        final long start = System.nanoTime();
+        run(MEASURED_ITERATIONS, warm);
+        final long elapsedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Gson %s: %.2f us/op", name,
+                elapsedNanos / 1000.0 / MEASURED_ITERATIONS));
+    }
+
+    private static void run(final int iterations, final boolean warm) {
+        for (int i = 0; i < iterations; i++) {
+            final Gson gson = warm ? GsonRegistry.getDefault() : new Gson();
+            final MicrosoftStsTokenResponse tokenResponse =
+                    gson.fromJson(TOKEN_RESPONSE, MicrosoftStsTokenResponse.class);
+            final AccessTokenRecord accessTokenRecord = gson.fromJson(ACCESS_TOKEN_RECORD, AccessTokenRecord.class);
+            Assert.assertNotNull(tokenResponse.getAccessToken());
+            Assert.assertNotNull(accessTokenRecord.getSecret());
+        }
+    }
+}
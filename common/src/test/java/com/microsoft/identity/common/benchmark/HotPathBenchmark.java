@@ -0,0 +1,242 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmark;
+
+import android.content.Context;
+
+import com.microsoft.identity.common.adal.internal.AuthenticationSettings;
+import com.microsoft.identity.common.adal.internal.cache.StorageHelper;
+import com.microsoft.identity.common.internal.cache.CacheKeyValueDelegate;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.IDToken;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Measures the hot paths of a silent request with {@link BenchmarkHarness}: cache key and value
+ * serialization, credential lookups at increasing cache sizes, encryption, request serialization,
+ * ID token parsing and discarded log calls. The results are written to
+ * {@code HotPathBenchmark.json} for comparison between releases.
+ */
+public final class HotPathBenchmark {
+
+    private static final int[] CACHE_SIZES = {10, 100, 1000};
+
+    private static final BenchmarkHarness HARNESS = new BenchmarkHarness(HotPathBenchmark.class.getSimpleName());
+
+    @AfterClass
+    public static void writeResults() throws Exception {
+        HARNESS.writeResults();
+    }
+
+    @Test
+    public void benchmarkCacheKeyValueDelegate() throws Exception {
+        final CacheKeyValueDelegate delegate = new CacheKeyValueDelegate();
+        final AccessTokenRecord accessToken = CredentialCacheFixture.createAccessToken("uid0.utid");
+        final String cacheValue = delegate.generateCacheValue(accessToken);
+        Assert.assertEquals(accessToken, delegate.fromCacheValue(cacheValue, AccessTokenRecord.class));
+
+        HARNESS.measure("generateCacheKey", new Callable<String>() {
+            @Override
+            public String call() {
+                return delegate.generateCacheKey(accessToken);
+            }
+        });
+        HARNESS.measure("generateCacheValue", new Callable<String>() {
+            @Override
+            public String call() {
+                return delegate.generateCacheValue(accessToken);
+            }
+        });
+        HARNESS.measure("fromCacheValue", new Callable<AccessTokenRecord>() {
+            @Override
+            public AccessTokenRecord call() {
+                return delegate.fromCacheValue(cacheValue, AccessTokenRecord.class);
+            }
+        });
+    }
+
+    @Test
+    public void benchmarkGetCredentialsFilteredBy() throws Exception {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.ERROR);
+
+        try {
+            for (final int cacheSize : CACHE_SIZES) {
+                final SharedPreferencesAccountCredentialCache cache = CredentialCacheFixture.createCache(cacheSize);
+                final Callable<List<?>> lookup = new Callable<List<?>>() {
+                    @Override
+                    public List<?> call() {
+                        return cache.getCredentialsFilteredBy(
+                                "uid0.utid",
+                                "login.microsoftonline.com",
+                                null,
+                                "client-id",
+                                null,
+                                null
+                        );
+                    }
+                };
+                Assert.assertEquals(2, lookup.call().size());
+
+                HARNESS.measure(
+                        "getCredentialsFilteredBy",
+                        Collections.singletonMap("accounts", String.valueOf(cacheSize)),
+                        lookup
+                );
+            }
+        } finally {
+            Logger.getInstance().setLogLevel(Logger.LogLevel.VERBOSE);
+        }
+    }
+
+    /**
+     * Runs with a user defined key, as the Android key store is not available off device. Skipped
+     * unless the Android runtime is available, e.g. under Robolectric.
+     */
+    @Test
+    public void benchmarkStorageHelper() throws Exception {
+        final byte[] secretKey = new byte[32];
+        for (int i = 0; i < secretKey.length; i++) {
+            secretKey[i] = (byte) i;
+        }
+        AuthenticationSettings.INSTANCE.setSecretKey(secretKey);
+
+        final Context context = Mockito.mock(Context.class);
+        Mockito.when(context.getApplicationContext()).thenReturn(context);
+        final StorageHelper storageHelper = new StorageHelper(context);
+        // A cache value, as SharedPreferencesFileManager encrypts them
+        final String clearText = new CacheKeyValueDelegate().generateCacheValue(
+                CredentialCacheFixture.createAccessToken("uid0.utid")
+        );
+        final String encrypted;
+
+        try {
+            encrypted = storageHelper.encrypt(clearText);
+        } catch (final RuntimeException | UnsupportedEncodingException e) {
+            // Stubbed framework classes throw, and the JVM does not know Android's "UTF_8" charset alias
+            Assume.assumeNoException("StorageHelper needs the Android runtime", e);
+            return;
+        }
+        Assert.assertEquals(clearText, storageHelper.decrypt(encrypted));
+
+        HARNESS.measure("StorageHelper.encrypt", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return storageHelper.encrypt(clearText);
+            }
+        });
+        HARNESS.measure("StorageHelper.decrypt", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return storageHelper.decrypt(encrypted);
+            }
+        });
+    }
+
+    @Test
+    public void benchmarkSerializeObjectToFormUrlEncoded() throws Exception {
+        final MicrosoftStsTokenRequest request = createRefreshTokenRequest();
+
+        HARNESS.measure("serializeObjectToFormUrlEncoded", new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return ObjectMapper.serializeObjectToFormUrlEncoded(request);
+            }
+        });
+    }
+
+    @Test
+    public void benchmarkParseJwt() throws Exception {
+        final String idToken = new PlainJWT(new JWTClaimsSet.Builder()
+                .issuer("https://login.microsoftonline.com/utid/v2.0")
+                .subject("subject")
+                .audience("client-id")
+                .issueTime(new Date(1500000000000L))
+                .expirationTime(new Date(1500003600000L))
+                .claim("oid", "uid")
+                .claim("tid", "utid")
+                .claim("preferred_username", "user@contoso.com")
+                .claim("name", "User Name")
+                .build()
+        ).serialize();
+        Assert.assertEquals("uid", IDToken.parseJWT(idToken).get("oid"));
+
+        HARNESS.measure("IDToken.parseJWT", new Callable<Map<String, String>>() {
+            @Override
+            public Map<String, String> call() throws Exception {
+                return IDToken.parseJWT(idToken);
+            }
+        });
+    }
+
+    @Test
+    public void benchmarkDisabledLogging() throws Exception {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.ERROR);
+
+        try {
+            HARNESS.measure("Logger.verbose.disabled", new Callable<Object>() {
+                @Override
+                public Object call() {
+                    Logger.verbose("HotPathBenchmark", "Loading Credentials...");
+                    return null;
+                }
+            });
+        } finally {
+            Logger.getInstance().setLogLevel(Logger.LogLevel.VERBOSE);
+        }
+    }
+
+    private static MicrosoftStsTokenRequest createRefreshTokenRequest() {
+        final MicrosoftStsTokenRequest request = new MicrosoftStsTokenRequest();
+        request.setGrantType(TokenRequest.GrantTypes.REFRESH_TOKEN);
+        request.setClientId("4b0db8c2-9f26-4417-8bde-3f0e3656f8e0");
+        request.setRedirectUri("msauth://com.microsoft.identity.client.sample/1wIqXSqBj7w%2Bh11ZifsnqwgyKrY%3D");
+        request.setScope("https://graph.microsoft.com/user.read openid offline_access profile");
+        final StringBuilder refreshToken = new StringBuilder();
+        while (refreshToken.length() < 1200) {
+            refreshToken.append("OAQABAAAAAADXzZ3ifr-GRbDT45zNSEFE");
+        }
+        request.setRefreshToken(refreshToken.toString());
+        request.setCorrelationId(UUID.randomUUID());
+        return request;
+    }
+}
@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.benchmark;
+
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.HttpResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Compares per-request latency of {@link HttpRequest} against a local HTTPS stub with connection
+ * reuse disabled (a new TCP and TLS handshake per request) and enabled.
+ */
+public final class HttpRequestConnectionReuseBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int MEASURED_ITERATIONS = 50;
+    private static final String RESPONSE_BODY = "{\"token_type\":\"Bearer\",\"expires_in\":3599}";
+
+    private LocalHttpsStub mStub;
+    private SSLSocketFactory mDefaultSslSocketFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        mStub = new LocalHttpsStub(HttpURLConnection.HTTP_OK, RESPONSE_BODY);
+        mStub.start();
+        mDefaultSslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HttpsURLConnection.setDefaultSSLSocketFactory(mStub.getClientSslContext().getSocketFactory());
+    }
+
+    @After
+    public void tearDown() {
+        HttpsURLConnection.setDefaultSSLSocketFactory(mDefaultSslSocketFactory);
+        HttpRequest.setConnectionReuseEnabled(false);
+        mStub.stop();
+    }
+
+    @Test
+    public void benchmarkConnectionReuse() throws Exception {
+        final URL url = mStub.getUrl("/common/oauth2/v2.0/token");
+
+        HttpRequest.setConnectionReuseEnabled(false);
+        final long withoutReuseNanos = measure(url);
+        final int withoutReuseConnections = mStub.getConnectionCount();
+
+        HttpRequest.setConnectionReuseEnabled(true);
+        final long withReuseNanos = measure(url);
+        final int withReuseConnections = mStub.getConnectionCount();
+
+        report("without reuse", withoutReuseNanos, withoutReuseConnections);
+        report("with reuse", withReuseNanos, withReuseConnections);
+
+        Assert.assertEquals(MEASURED_ITERATIONS, withoutReuseConnections);
+        Assert.assertTrue(withReuseConnections < MEASURED_ITERATIONS);
+    }
+
+    private long measure(final URL url) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sendRequest(url);
+        }
+
+        mStub.resetCounters();
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sendRequest(url);
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static void sendRequest(final URL url) throws Exception {
+        final HttpResponse response = HttpRequest.sendPost(url, Collections.<String, String>emptyMap(),
+                "grant_type=refresh_token".getBytes("UTF-8"), "application/x-www-form-urlencoded");
+        Assert.assertEquals(HttpURLConnection.HTTP_OK, response.getStatusCode());
+    }
+
+    private static void report(final String name, final long elapsedNanos, final int connections) {
+        System.out.println(String.format("HttpRequest %s: %.3f ms/request, %d connections for %d requests",
+                name, (double) TimeUnit.NANOSECONDS.toMicros(elapsedNanos) / MEASURED_ITERATIONS / 1000,
+                connections, MEASURED_ITERATIONS));
+    }
+}
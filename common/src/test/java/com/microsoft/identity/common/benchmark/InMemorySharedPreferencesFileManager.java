@@ -0,0 +1,72 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmark;
+
+import com.microsoft.identity.common.internal.cache.ISharedPreferencesFileManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An {@link ISharedPreferencesFileManager} backed by a map, so cache benchmarks measure the cache
+ * rather than SharedPreferences or the encryption of its values.
+ */
+final class InMemorySharedPreferencesFileManager implements ISharedPreferencesFileManager {
+
+    private final Map<String, String> mValues = new HashMap<>();
+
+    @Override
+    public void putString(final String key, final String value) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    public String getString(final String key) {
+        return mValues.get(key);
+    }
+
+    @Override
+    public String getSharedPreferencesFileName() {
+        return "in-memory";
+    }
+
+    @Override
+    public Map<String, String> getAll() {
+        return new HashMap<>(mValues);
+    }
+
+    @Override
+    public boolean contains(final String key) {
+        return mValues.containsKey(key);
+    }
+
+    @Override
+    public void clear() {
+        mValues.clear();
+    }
+
+    @Override
+    public void remove(final String key) {
+        mValues.remove(key);
+    }
+}
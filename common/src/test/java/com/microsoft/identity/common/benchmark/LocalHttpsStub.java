@@ -0,0 +1,149 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Local HTTPS server returning a canned response, backed by the self-signed localhost certificate
+ * in the test resources. Records how many requests and distinct client connections it served.
+ */
+final class LocalHttpsStub {
+
+    private static final String KEY_STORE_RESOURCE = "/benchmark-localhost.p12";
+    private static final char[] KEY_STORE_PASSWORD = "benchmark".toCharArray();
+
+    private final HttpsServer mServer;
+    private final SSLContext mSslContext;
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private final Set<Integer> mClientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    LocalHttpsStub(final int statusCode, final String responseBody)
+            throws IOException, GeneralSecurityException {
+        // Avoid Nagle/delayed-ACK stalls dominating the measured latency on loopback
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mSslContext = createSslContext();
+        mServer = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        mServer.setHttpsConfigurator(new HttpsConfigurator(mSslContext));
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                mRequestCount.incrementAndGet();
+                mClientPorts.add(exchange.getRemoteAddress().getPort());
+                drain(exchange.getRequestBody());
+
+                final byte[] body = responseBody.getBytes("UTF-8");
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(statusCode, body.length);
+                final OutputStream outputStream = exchange.getResponseBody();
+                outputStream.write(body);
+                outputStream.close();
+            }
+        });
+    }
+
+    void start() {
+        mServer.start();
+    }
+
+    void stop() {
+        mServer.stop(0);
+    }
+
+    URL getUrl(final String path) throws IOException {
+        return new URL("https://localhost:" + mServer.getAddress().getPort() + path);
+    }
+
+    /**
+     * @return An {@link SSLContext} trusting the stub's self-signed certificate.
+     */
+    SSLContext getClientSslContext() {
+        return mSslContext;
+    }
+
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    int getConnectionCount() {
+        return mClientPorts.size();
+    }
+
+    void resetCounters() {
+        mRequestCount.set(0);
+        mClientPorts.clear();
+    }
+
+    /**
+     * @return An {@link SSLContext} serving and trusting the self-signed localhost certificate.
+     */
+    static SSLContext createSslContext() throws IOException, GeneralSecurityException {
+        final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        final InputStream keyStoreStream = LocalHttpsStub.class.getResourceAsStream(KEY_STORE_RESOURCE);
+        try {
+            keyStore.load(keyStoreStream, KEY_STORE_PASSWORD);
+        } finally {
+            keyStoreStream.close();
+        }
+
+        final KeyManagerFactory keyManagerFactory =
+                KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD);
+
+        final TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    private static void drain(final InputStream inputStream) throws IOException {
+        final byte[] buffer = new byte[1024];
+        while (inputStream.read(buffer) != -1) {
+            // Discard the request body
+        }
+        inputStream.close();
+    }
+}
@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmark;
+
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.ILogMessageSupplier;
+import com.microsoft.identity.common.internal.logging.Logger;
+import com.microsoft.identity.common.internal.util.GsonRegistry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Measures a credential cache scan with logging disabled: no external logger, no logcat and an
+ * {@link Logger.LogLevel#ERROR} level. Every per-key log call made by the scan should cost no
+ * more than the level check.
+ * <p>
+ * The discarded log call is also measured on its own, against the eager form every call used to
+ * take: serialize the request context and concatenate the message, then check the level.
+ */
+public final class LoggingDisabledCacheScanBenchmark {
+
+    private static final int ACCOUNTS = 50;
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 1000;
+    private static final int LOG_CALL_ITERATIONS = 200000;
+    private static final String TAG = LoggingDisabledCacheScanBenchmark.class.getSimpleName();
+
+    @After
+    public void tearDown() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.VERBOSE);
+    }
+
+    @Test
+    public void benchmarkCacheScanWithLoggingDisabled() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.ERROR);
+        Logger.getInstance().setExternalLogger(null);
+        Logger.setAllowLogcat(false);
+
+        final SharedPreferencesAccountCredentialCache cache = CredentialCacheFixture.createCache(ACCOUNTS);
+        Assert.assertEquals(2, scan(cache));
+
+        run(cache, WARMUP_ITERATIONS);
+
+        final long start = System.nanoTime();
+        run(cache, MEASURED_ITERATIONS);
+        final long elapsedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Cache scan of %d entries, logging disabled: %.2f us/op",
+                ACCOUNTS * 3, elapsedNanos / 1000.0 / MEASURED_ITERATIONS));
+    }
+
+    @Test
+    public void benchmarkDisabledLogCall() {
+        Logger.getInstance().setLogLevel(Logger.LogLevel.ERROR);
+        Logger.getInstance().setExternalLogger(null);
+        Logger.setAllowLogcat(false);
+
+        logCalls(LOG_CALL_ITERATIONS / 10, true);
+        logCalls(LOG_CALL_ITERATIONS / 10, false);
+
+        reportLogCalls("eager", true);
+        reportLogCalls("lazy", false);
+    }
+
+    private static void reportLogCalls(final String name, final boolean eager) {
+        final long start = System.nanoTime();
+        logCalls(LOG_CALL_ITERATIONS, eager);
+        final long elapsedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Disabled log call, %s: %.1f ns/op",
+                name, (double) elapsedNanos / LOG_CALL_ITERATIONS));
+    }
+
+    private static void logCalls(final int iterations, final boolean eager) {
+        for (int i = 0; i < iterations; i++) {
+            final String cacheKey = "uid" + (i & 63) + ".utid-login.microsoftonline.com-refreshtoken-client-id--";
+
+            if (eager) {
+                Logger.verbosePII(
+                        TAG,
+                        GsonRegistry.getDefault().toJson(DiagnosticContext.getRequestContext()),
+                        "Evaluating cache key: [" + cacheKey + "]"
+                );
+            } else {
+                Logger.verbosePII(TAG, new ILogMessageSupplier() {
+                    @Override
+                    public String getMessage() {
+                        return "Evaluating cache key: [" + cacheKey + "]";
+                    }
+                });
+            }
+        }
+    }
+
+    private static void run(final SharedPreferencesAccountCredentialCache cache, final int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            scan(cache);
+        }
+    }
+
+    private static int scan(final SharedPreferencesAccountCredentialCache cache) {
+        final List<Credential> credentials = cache.getCredentialsFilteredBy(
+                "uid0.utid",
+                "login.microsoftonline.com",
+                null,
+                "client-id",
+                null,
+                null
+        );
+
+        return credentials.size();
+    }
+}
@@ -0,0 +1,317 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmark;
+
+import com.microsoft.identity.common.internal.net.RetryPolicy;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.security.GeneralSecurityException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * Local HTTPS stand-in for the Microsoft STS, backed by the same self-signed localhost certificate
+ * as {@link LocalHttpsStub}. It serves:
+ * <ul>
+ * <li>{@code GET /{tenant}/v2.0/.well-known/openid-configuration}: a discovery document pointing
+ * at the stub's own token endpoint.</li>
+ * <li>{@code POST /{tenant}/oAuth2/v2.0/token}: refresh token grants. The outcome is chosen by the
+ * refresh token, formatted as {@code <behavior>|<uid>.<utid>}; see {@link #createRefreshToken}.</li>
+ * </ul>
+ * Issued access tokens are already expired, so replaying a grant for the same account hits the
+ * token endpoint again. The issued refresh token is the one that was redeemed.
+ */
+final class MockStsServer {
+
+    /**
+     * Refresh tokens which are redeemed normally.
+     */
+    static final String BEHAVIOR_OK = "ok";
+
+    /**
+     * Refresh tokens for which every other grant is throttled with a 429 and {@code Retry-After: 0}.
+     */
+    static final String BEHAVIOR_THROTTLED = "throttled";
+
+    /**
+     * Refresh tokens which are rejected with {@code invalid_grant}.
+     */
+    static final String BEHAVIOR_REVOKED = "revoked";
+
+    private static final String DISCOVERY_SUFFIX = "/v2.0/.well-known/openid-configuration";
+    private static final String TOKEN_SUFFIX = "/oAuth2/v2.0/token";
+    private static final String AUTHORIZE_SUFFIX = "/oAuth2/v2.0/authorize";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String INVALID_GRANT_RESPONSE = "{\"error\":\"invalid_grant\","
+            + "\"error_description\":\"AADSTS70000: The refresh token was revoked.\",\"error_codes\":[70000]}";
+    private static final String THROTTLED_RESPONSE = "{\"error\":\"temporarily_unavailable\","
+            + "\"error_description\":\"AADSTS50196: Too many requests.\",\"error_codes\":[50196]}";
+
+    private final HttpsServer mServer;
+    private final ExecutorService mExecutor;
+    private final SSLContext mSslContext;
+    private final AtomicInteger mDiscoveryRequestCount = new AtomicInteger();
+    private final AtomicInteger mTokenRequestCount = new AtomicInteger();
+    private final AtomicInteger mThrottledCount = new AtomicInteger();
+    private volatile long mLatencyMillis;
+
+    MockStsServer(final int threads) throws IOException, GeneralSecurityException {
+        // Avoid Nagle/delayed-ACK stalls dominating the measured latency on loopback
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mSslContext = LocalHttpsStub.createSslContext();
+        mExecutor = Executors.newFixedThreadPool(threads);
+        mServer = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        mServer.setHttpsConfigurator(new HttpsConfigurator(mSslContext));
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    dispatch(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    void start() {
+        mServer.start();
+    }
+
+    void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * @param tenant The tenant, e.g. "common".
+     * @return The authority of the tenant, e.g. https://localhost:port/common
+     */
+    URL getAuthorityUrl(final String tenant) throws IOException {
+        return new URL("https://localhost:" + mServer.getAddress().getPort() + "/" + tenant);
+    }
+
+    /**
+     * @return An {@link SSLContext} trusting the stub's self-signed certificate.
+     */
+    SSLContext getClientSslContext() {
+        return mSslContext;
+    }
+
+    /**
+     * Sets the time the stub takes to answer a token request, to mimic the service's own latency.
+     */
+    void setLatencyMillis(final long latencyMillis) {
+        mLatencyMillis = latencyMillis;
+    }
+
+    int getDiscoveryRequestCount() {
+        return mDiscoveryRequestCount.get();
+    }
+
+    int getTokenRequestCount() {
+        return mTokenRequestCount.get();
+    }
+
+    int getThrottledCount() {
+        return mThrottledCount.get();
+    }
+
+    void resetCounters() {
+        mDiscoveryRequestCount.set(0);
+        mTokenRequestCount.set(0);
+        mThrottledCount.set(0);
+    }
+
+    /**
+     * @param behavior One of the {@code BEHAVIOR_} constants.
+     * @param uid      The uid of the account.
+     * @param utid     The utid of the account.
+     * @return A refresh token the stub redeems with the given behavior, for the given account.
+     */
+    static String createRefreshToken(final String behavior, final String uid, final String utid) {
+        return behavior + "|" + uid + "." + utid;
+    }
+
+    /**
+     * @return An unsigned v2.0 ID token as issued by the stub for the given account.
+     */
+    static String createIdToken(final String uid, final String utid) {
+        final long nowMillis = System.currentTimeMillis();
+
+        return new PlainJWT(new JWTClaimsSet.Builder()
+                .issuer("https://login.microsoftonline.com/" + utid + "/v2.0")
+                .subject("subject-" + uid)
+                .audience("client-id")
+                .issueTime(new Date(nowMillis))
+                .expirationTime(new Date(nowMillis + 3600000L))
+                .claim("oid", uid)
+                .claim("tid", utid)
+                .claim("name", "User " + uid)
+                .claim("preferred_username", uid + "@contoso.com")
+                .claim("ver", "2.0")
+                .build()).serialize();
+    }
+
+    /**
+     * @return The base64url encoded client_info of the given account.
+     */
+    static String createClientInfo(final String uid, final String utid) {
+        return Base64URL.encode("{\"uid\":\"" + uid + "\",\"utid\":\"" + utid + "\"}").toString();
+    }
+
+    private void dispatch(final HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        final byte[] requestBody = readFully(exchange.getRequestBody());
+
+        if ("GET".equals(exchange.getRequestMethod()) && path.endsWith(DISCOVERY_SUFFIX)) {
+            mDiscoveryRequestCount.incrementAndGet();
+            final String tenantPath = path.substring(0, path.length() - DISCOVERY_SUFFIX.length());
+            respond(exchange, HttpURLConnection.HTTP_OK, createDiscoveryDocument(tenantPath));
+        } else if ("POST".equals(exchange.getRequestMethod()) && path.endsWith(TOKEN_SUFFIX)) {
+            mTokenRequestCount.incrementAndGet();
+            sleep(mLatencyMillis);
+            handleTokenRequest(exchange, parseForm(new String(requestBody, "UTF-8")));
+        } else {
+            respond(exchange, HttpURLConnection.HTTP_NOT_FOUND, "{\"error\":\"not_found\"}");
+        }
+    }
+
+    private void handleTokenRequest(final HttpExchange exchange, final Map<String, String> form) throws IOException {
+        final String refreshToken = form.get("refresh_token");
+        final int separator = null == refreshToken ? -1 : refreshToken.indexOf('|');
+        final int accountSeparator = null == refreshToken ? -1 : refreshToken.lastIndexOf('.');
+
+        if (!"refresh_token".equals(form.get("grant_type")) || separator < 0 || accountSeparator < separator) {
+            respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, INVALID_GRANT_RESPONSE);
+            return;
+        }
+
+        final String behavior = refreshToken.substring(0, separator);
+
+        if (BEHAVIOR_REVOKED.equals(behavior)) {
+            respond(exchange, HttpURLConnection.HTTP_BAD_REQUEST, INVALID_GRANT_RESPONSE);
+            return;
+        }
+
+        if (BEHAVIOR_THROTTLED.equals(behavior) && mThrottledCount.getAndIncrement() % 2 == 0) {
+            exchange.getResponseHeaders().add(RetryPolicy.HEADER_RETRY_AFTER, "0");
+            respond(exchange, RetryPolicy.HTTP_TOO_MANY_REQUESTS, THROTTLED_RESPONSE);
+            return;
+        }
+
+        final String uid = refreshToken.substring(separator + 1, accountSeparator);
+        final String utid = refreshToken.substring(accountSeparator + 1);
+        final String scope = form.get("scope");
+
+        respond(exchange, HttpURLConnection.HTTP_OK, "{\"token_type\":\"Bearer\""
+                + ",\"scope\":\"" + (null == scope ? "" : scope) + "\""
+                + ",\"expires_in\":0,\"ext_expires_in\":0"
+                + ",\"access_token\":\"access-" + System.nanoTime() + "\""
+                + ",\"refresh_token\":\"" + refreshToken + "\""
+                + ",\"id_token\":\"" + createIdToken(uid, utid) + "\""
+                + ",\"client_info\":\"" + createClientInfo(uid, utid) + "\""
+                + ",\"foci\":\"1\"}");
+    }
+
+    private String createDiscoveryDocument(final String tenantPath) {
+        final String base = "https://localhost:" + mServer.getAddress().getPort() + tenantPath;
+
+        return "{\"issuer\":\"" + base + "/v2.0\""
+                + ",\"authorization_endpoint\":\"" + base + AUTHORIZE_SUFFIX + "\""
+                + ",\"token_endpoint\":\"" + base + TOKEN_SUFFIX + "\""
+                + ",\"response_types_supported\":[\"code\",\"id_token\"]"
+                + ",\"scopes_supported\":[\"openid\",\"profile\",\"email\",\"offline_access\"]}";
+    }
+
+    private static void respond(final HttpExchange exchange, final int statusCode, final String body)
+            throws IOException {
+        final byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPE_JSON);
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        final OutputStream outputStream = exchange.getResponseBody();
+        outputStream.write(bytes);
+        outputStream.close();
+    }
+
+    private static Map<String, String> parseForm(final String body) throws UnsupportedEncodingException {
+        final Map<String, String> form = new HashMap<>();
+
+        for (final String pair : body.split("&")) {
+            final int separator = pair.indexOf('=');
+            if (separator > 0) {
+                form.put(
+                        URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8")
+                );
+            }
+        }
+
+        return form;
+    }
+
+    private static byte[] readFully(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+
+    private static void sleep(final long millis) {
+        if (millis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
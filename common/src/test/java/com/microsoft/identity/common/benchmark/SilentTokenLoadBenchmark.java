@@ -0,0 +1,595 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+package com.microsoft.identity.common.benchmark;
+
+import android.content.Context;
+import android.content.Intent;
+import android.support.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.identity.common.adal.internal.AuthenticationConstants;
+import com.microsoft.identity.common.exception.ClientException;
+import com.microsoft.identity.common.internal.cache.ICacheRecord;
+import com.microsoft.identity.common.internal.cache.MicrosoftStsAccountCredentialAdapter;
+import com.microsoft.identity.common.internal.cache.MsalOAuth2TokenCache;
+import com.microsoft.identity.common.internal.cache.SharedPreferencesAccountCredentialCache;
+import com.microsoft.identity.common.internal.controllers.BaseController;
+import com.microsoft.identity.common.internal.controllers.TokenCommand;
+import com.microsoft.identity.common.internal.dto.AccessTokenRecord;
+import com.microsoft.identity.common.internal.dto.AccountRecord;
+import com.microsoft.identity.common.internal.dto.Credential;
+import com.microsoft.identity.common.internal.dto.CredentialType;
+import com.microsoft.identity.common.internal.dto.IdTokenRecord;
+import com.microsoft.identity.common.internal.dto.RefreshTokenRecord;
+import com.microsoft.identity.common.internal.logging.DiagnosticContext;
+import com.microsoft.identity.common.internal.logging.RequestContext;
+import com.microsoft.identity.common.internal.metrics.HistogramSnapshot;
+import com.microsoft.identity.common.internal.metrics.MetricsRegistry;
+import com.microsoft.identity.common.internal.metrics.MetricsSnapshot;
+import com.microsoft.identity.common.internal.net.HttpRequest;
+import com.microsoft.identity.common.internal.net.RetryPolicy;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Configuration;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsOAuth2Strategy;
+import com.microsoft.identity.common.internal.providers.oauth2.OAuth2TokenCache;
+import com.microsoft.identity.common.internal.providers.oauth2.OpenIDProviderConfigurationClient;
+import com.microsoft.identity.common.internal.request.AcquireTokenOperationParameters;
+import com.microsoft.identity.common.internal.request.AcquireTokenSilentOperationParameters;
+import com.microsoft.identity.common.internal.request.ILocalAuthenticationCallback;
+import com.microsoft.identity.common.internal.result.AcquireTokenResult;
+import com.microsoft.identity.common.internal.result.LocalAuthenticationResult;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * End-to-end load test of the silent token flow: {@link TokenCommand} through a
+ * {@link BaseController}, {@link MicrosoftStsOAuth2Strategy} and {@link HttpRequest} against a
+ * {@link MockStsServer}, with a {@link MsalOAuth2TokenCache} holding a realistic number of
+ * unrelated accounts. Concurrent workers replay a weighted mix of scenarios:
+ * <ul>
+ * <li>{@code cache_hit}: a valid access token is served from the cache.</li>
+ * <li>{@code expired_at}: the access token has expired and the refresh token is redeemed.</li>
+ * <li>{@code foci}: the app has no refresh token and a family refresh token of another app is
+ * redeemed. The tokens saved for the app are removed afterwards, outside the measurement.</li>
+ * <li>{@code throttled}: as {@code expired_at}, but every other grant is answered with a 429 and
+ * retried, as the run opts in to {@link RetryPolicy.Builder#setTooManyRequestsRetried(boolean)}.</li>
+ * <li>{@code invalid_grant}: the refresh token has been revoked.</li>
+ * </ul>
+ * Reports p50/p99 latency and requests per second per scenario and overall, and writes them with
+ * a snapshot of the {@link MetricsRegistry} to {@code <benchmark.resultsDir>/silent-token-load.json}.
+ * <p>
+ * Runs with {@code -Pbenchmark} and needs the Android runtime (e.g. Robolectric's android-all) on
+ * the test classpath; it is skipped when the framework classes are stubbed. System properties:
+ * <ul>
+ * <li>{@code loadtest.threads}: concurrent workers, default 8</li>
+ * <li>{@code loadtest.warmupMillis}: default 2000</li>
+ * <li>{@code loadtest.durationMillis}: default 10000</li>
+ * <li>{@code loadtest.accounts}: accounts per scenario, default 32</li>
+ * <li>{@code loadtest.cacheAccounts}: unrelated accounts in the cache, default 200</li>
+ * <li>{@code loadtest.mix}: scenario weights, default
+ * {@code cache_hit=70,expired_at=15,foci=5,throttled=5,invalid_grant=5}</li>
+ * <li>{@code loadtest.stsLatencyMillis}: latency added by the STS to token requests, default 0</li>
+ * <li>{@code loadtest.seed}: seed of the scenario choices, default 42</li>
+ * </ul>
+ */
+public final class SilentTokenLoadBenchmark {
+
+    private static final String CLIENT_ID = "client-id";
+    private static final String FAMILY_CLIENT_ID = "family-client-id";
+    private static final String FAMILY_ID = "1";
+    private static final String TENANT = "common";
+    private static final String UTID = "utid";
+    private static final String ENVIRONMENT = "localhost";
+    private static final String SCOPE = "User.Read";
+    private static final String TARGET = "openid profile offline_access " + SCOPE;
+    private static final String LATENCY_METRIC = "loadtest.latency_us";
+    private static final String REQUEST_METRIC = "loadtest.requests";
+    private static final String DEFAULT_MIX = "cache_hit=70,expired_at=15,foci=5,throttled=5,invalid_grant=5";
+    private static final String RESULTS_FILE = "silent-token-load.json";
+
+    private final int mThreads = Integer.getInteger("loadtest.threads", 8);
+    private final long mWarmupMillis = Long.getLong("loadtest.warmupMillis", 2000);
+    private final long mDurationMillis = Long.getLong("loadtest.durationMillis", 10000);
+    private final int mAccounts = Integer.getInteger("loadtest.accounts", 32);
+    private final int mCacheAccounts = Integer.getInteger("loadtest.cacheAccounts", 200);
+    private final String mMix = System.getProperty("loadtest.mix", DEFAULT_MIX);
+    private final long mStsLatencyMillis = Long.getLong("loadtest.stsLatencyMillis", 0);
+    private final long mSeed = Long.getLong("loadtest.seed", 42);
+
+    private MockStsServer mSts;
+    private SSLSocketFactory mDefaultSslSocketFactory;
+    private SharedPreferencesAccountCredentialCache mAccountCredentialCache;
+    private MsalOAuth2TokenCache mTokenCache;
+    private LoadTestController mController;
+    private Context mContext;
+    private ILocalAuthenticationCallback mCallback;
+    private Scenario[] mWeightedScenarios;
+
+    @Before
+    public void setUp() throws Exception {
+        try {
+            android.util.Base64.encodeToString(new byte[1], android.util.Base64.NO_WRAP);
+            Charset.forName(AuthenticationConstants.ENCODING_UTF8);
+        } catch (final RuntimeException e) {
+            // Stubbed framework classes throw, and the JVM does not know Android's "UTF_8" charset alias
+            Assume.assumeNoException("The silent flow needs the Android runtime", e);
+        }
+
+        mWeightedScenarios = parseMix(mMix);
+        mSts = new MockStsServer(mThreads);
+        mSts.setLatencyMillis(mStsLatencyMillis);
+        mSts.start();
+        mDefaultSslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HttpsURLConnection.setDefaultSSLSocketFactory(mSts.getClientSslContext().getSocketFactory());
+        HttpRequest.setConnectionReuseEnabled(true);
+        HttpRequest.setRetryPolicy(new RetryPolicy.Builder().setTooManyRequestsRetried(true).build());
+
+        final URL authorityUrl = mSts.getAuthorityUrl(TENANT);
+        // Discovery is fetched once up front, as the strategy only consults the cached document
+        new OpenIDProviderConfigurationClient().getOpenIDProviderConfiguration(
+                OpenIDProviderConfigurationClient.getOpenIDProviderConfigurationUrl(authorityUrl + "/v2.0")
+        );
+
+        final MicrosoftStsOAuth2Configuration config = Mockito.mock(MicrosoftStsOAuth2Configuration.class);
+        Mockito.when(config.getAuthorityUrl()).thenReturn(authorityUrl);
+        Mockito.when(config.getTokenEndpoint()).thenReturn(new URL(authorityUrl + "/oAuth2/v2.0/token"));
+
+        mContext = Mockito.mock(Context.class);
+        mCallback = Mockito.mock(ILocalAuthenticationCallback.class);
+        mAccountCredentialCache = CredentialCacheFixture.createCache(mCacheAccounts);
+        mTokenCache = new MsalOAuth2TokenCache(
+                mContext,
+                mAccountCredentialCache,
+                new MicrosoftStsAccountCredentialAdapter()
+        );
+        mController = new LoadTestController(new MicrosoftStsOAuth2Strategy(config));
+
+        for (final Scenario scenario : Scenario.values()) {
+            for (int i = 0; i < getPoolSize(scenario); i++) {
+                seedAccount(scenario, i);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (null == mSts) {
+            return;
+        }
+
+        HttpsURLConnection.setDefaultSSLSocketFactory(mDefaultSslSocketFactory);
+        HttpRequest.setConnectionReuseEnabled(false);
+        HttpRequest.setRetryPolicy(null);
+        DiagnosticContext.clear();
+        mSts.stop();
+    }
+
+    @Test
+    public void benchmarkSilentTokenLoad() throws Exception {
+        runWorkers(mWarmupMillis);
+        MetricsRegistry.reset();
+        mSts.resetCounters();
+
+        final long elapsedNanos = runWorkers(mDurationMillis);
+        final MetricsSnapshot snapshot = MetricsRegistry.getSnapshot();
+
+        final JsonObject results = new JsonObject();
+        results.add("config", getConfig());
+        final JsonObject scenarios = new JsonObject();
+        for (final Scenario scenario : Scenario.values()) {
+            final JsonObject summary = summarize(scenario.mName, snapshot.getHistogram(
+                    MetricsRegistry.name(LATENCY_METRIC, "scenario", scenario.mName)), elapsedNanos);
+            if (null != summary) {
+                summary.addProperty("failures", snapshot.getCounter(MetricsRegistry.name(
+                        REQUEST_METRIC, "scenario", scenario.mName, "outcome", "failure")));
+                scenarios.add(scenario.mName, summary);
+            }
+        }
+        results.add("scenarios", scenarios);
+        results.add("overall", summarize("overall", snapshot.getHistogram(LATENCY_METRIC), elapsedNanos));
+        results.addProperty("stsTokenRequests", mSts.getTokenRequestCount());
+        results.addProperty("stsThrottledResponses", mSts.getThrottledCount());
+        results.add("metrics", new JsonParser().parse(snapshot.toJson()));
+        writeResults(results);
+
+        // Served from the cache, so these never fail; revoked refresh tokens always do
+        Assert.assertEquals(0, snapshot.getCounter(MetricsRegistry.name(
+                REQUEST_METRIC, "scenario", Scenario.CACHE_HIT.mName, "outcome", "failure")));
+        Assert.assertEquals(0, snapshot.getCounter(MetricsRegistry.name(
+                REQUEST_METRIC, "scenario", Scenario.INVALID_GRANT.mName, "outcome", "success")));
+        Assert.assertEquals(0, snapshot.getCounter(MetricsRegistry.name(
+                REQUEST_METRIC, "scenario", Scenario.EXPIRED_AT.mName, "outcome", "failure")));
+    }
+
+    /**
+     * Runs the workers for the given duration, failing on the first unexpected exception.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    private long runWorkers(final long durationMillis) throws Exception {
+        final CountDownLatch done = new CountDownLatch(mThreads);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+        for (int i = 0; i < mThreads; i++) {
+            final int worker = i;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final Random random = new Random(mSeed + worker);
+                    try {
+                        while (System.nanoTime() < deadline && null == failure.get()) {
+                            runRequest(mWeightedScenarios[random.nextInt(mWeightedScenarios.length)], worker, random);
+                        }
+                    } catch (final Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "loadtest-" + i);
+            thread.start();
+        }
+
+        Assert.assertTrue(done.await(durationMillis + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS));
+        final long elapsedNanos = System.nanoTime() - start;
+
+        if (null != failure.get()) {
+            throw new AssertionError(failure.get());
+        }
+
+        return elapsedNanos;
+    }
+
+    private void runRequest(final Scenario scenario, final int worker, final Random random) throws Exception {
+        final AccountRecord account = createAccount(scenario, pickAccount(scenario, worker, random));
+        final AcquireTokenSilentOperationParameters parameters = new AcquireTokenSilentOperationParameters();
+        parameters.setAppContext(mContext);
+        parameters.setClientId(CLIENT_ID);
+        parameters.setTokenCache(mTokenCache);
+        parameters.setAccount(account);
+        parameters.setScopes(new ArrayList<>(Collections.singletonList(SCOPE)));
+
+        final RequestContext requestContext = new RequestContext();
+        requestContext.put(DiagnosticContext.CORRELATION_ID, UUID.randomUUID().toString());
+        DiagnosticContext.setRequestContext(requestContext);
+
+        final TokenCommand command = new TokenCommand(
+                mContext,
+                parameters,
+                Collections.<BaseController>singletonList(mController),
+                mCallback
+        );
+
+        final long startNanos = System.nanoTime();
+        final AcquireTokenResult result = command.execute();
+        final long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+
+        MetricsRegistry.histogram(MetricsRegistry.name(LATENCY_METRIC, "scenario", scenario.mName)).record(latencyMicros);
+        MetricsRegistry.histogram(LATENCY_METRIC).record(latencyMicros);
+        MetricsRegistry.counter(MetricsRegistry.name(
+                REQUEST_METRIC,
+                "scenario", scenario.mName,
+                "outcome", null != result && result.getSucceeded() ? "success" : "failure"
+        )).increment();
+
+        if (Scenario.FOCI == scenario) {
+            removeClientCredentials(account);
+        }
+    }
+
+    /**
+     * Picks an account of the scenario's pool. Family refresh token accounts are partitioned by
+     * worker, so resetting one never races with a request of another worker.
+     */
+    private int pickAccount(final Scenario scenario, final int worker, final Random random) {
+        if (Scenario.FOCI == scenario) {
+            return worker + mThreads * random.nextInt(getPoolSize(scenario) / mThreads);
+        }
+
+        return random.nextInt(getPoolSize(scenario));
+    }
+
+    private int getPoolSize(final Scenario scenario) {
+        if (Scenario.FOCI == scenario) {
+            return Math.max(1, mAccounts / mThreads) * mThreads;
+        }
+
+        return mAccounts;
+    }
+
+    private void seedAccount(final Scenario scenario, final int index) {
+        final AccountRecord account = createAccount(scenario, index);
+        final String homeAccountId = account.getHomeAccountId();
+        mAccountCredentialCache.saveAccount(account);
+
+        if (Scenario.FOCI == scenario) {
+            final RefreshTokenRecord familyRefreshToken = createRefreshToken(
+                    homeAccountId, FAMILY_CLIENT_ID, MockStsServer.BEHAVIOR_OK, account.getLocalAccountId());
+            familyRefreshToken.setFamilyId(FAMILY_ID);
+            mAccountCredentialCache.saveCredential(familyRefreshToken);
+            mAccountCredentialCache.saveCredential(createIdToken(homeAccountId, FAMILY_CLIENT_ID, account.getLocalAccountId()));
+            return;
+        }
+
+        mAccountCredentialCache.saveCredential(createIdToken(homeAccountId, CLIENT_ID, account.getLocalAccountId()));
+        mAccountCredentialCache.saveCredential(createRefreshToken(
+                homeAccountId, CLIENT_ID, scenario.mBehavior, account.getLocalAccountId()));
+
+        final long nowSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        final AccessTokenRecord accessToken = new AccessTokenRecord();
+        initialize(accessToken, homeAccountId, CLIENT_ID, CredentialType.AccessToken);
+        accessToken.setRealm(UTID);
+        accessToken.setTarget(TARGET);
+        accessToken.setSecret("access-" + homeAccountId);
+        accessToken.setAccessTokenType("Bearer");
+        accessToken.setExpiresOn(String.valueOf(Scenario.CACHE_HIT == scenario
+                ? nowSeconds + TimeUnit.DAYS.toSeconds(1)
+                : nowSeconds - TimeUnit.MINUTES.toSeconds(1)));
+        accessToken.setExtendedExpiresOn(accessToken.getExpiresOn());
+        mAccountCredentialCache.saveCredential(accessToken);
+    }
+
+    /**
+     * Removes the tokens saved for the app by a family refresh token grant, so the next request
+     * for the account looks up the family refresh token again.
+     */
+    private void removeClientCredentials(final AccountRecord account) {
+        final List<Credential> credentials = mAccountCredentialCache.getCredentialsFilteredBy(
+                account.getHomeAccountId(),
+                account.getEnvironment(),
+                null,
+                CLIENT_ID,
+                null,
+                null
+        );
+
+        for (final Credential credential : credentials) {
+            mAccountCredentialCache.removeCredential(credential);
+        }
+    }
+
+    private static AccountRecord createAccount(final Scenario scenario, final int index) {
+        final String uid = scenario.mName.replace("_", "") + index;
+        final AccountRecord account = new AccountRecord();
+        account.setHomeAccountId(uid + "." + UTID);
+        account.setEnvironment(ENVIRONMENT);
+        account.setRealm(UTID);
+        account.setLocalAccountId(uid);
+        account.setUsername(uid + "@contoso.com");
+        account.setName("User " + uid);
+        account.setAuthorityType("MSSTS");
+        return account;
+    }
+
+    private static RefreshTokenRecord createRefreshToken(final String homeAccountId,
+                                                         final String clientId,
+                                                         final String behavior,
+                                                         final String uid) {
+        final RefreshTokenRecord refreshToken = new RefreshTokenRecord();
+        initialize(refreshToken, homeAccountId, clientId, CredentialType.RefreshToken);
+        refreshToken.setTarget(TARGET);
+        refreshToken.setSecret(MockStsServer.createRefreshToken(behavior, uid, UTID));
+        return refreshToken;
+    }
+
+    private static IdTokenRecord createIdToken(final String homeAccountId, final String clientId, final String uid) {
+        final IdTokenRecord idToken = new IdTokenRecord();
+        initialize(idToken, homeAccountId, clientId, CredentialType.IdToken);
+        idToken.setRealm(UTID);
+        idToken.setSecret(MockStsServer.createIdToken(uid, UTID));
+        return idToken;
+    }
+
+    private static void initialize(final Credential credential,
+                                   final String homeAccountId,
+                                   final String clientId,
+                                   final CredentialType credentialType) {
+        credential.setHomeAccountId(homeAccountId);
+        credential.setEnvironment(ENVIRONMENT);
+        credential.setCredentialType(credentialType.name());
+        credential.setClientId(clientId);
+        credential.setCachedAt(String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())));
+    }
+
+    /**
+     * Expands "name=weight,..." into an array holding each scenario weight times, to pick from
+     * uniformly.
+     */
+    private static Scenario[] parseMix(final String mix) {
+        final List<Scenario> weighted = new ArrayList<>();
+
+        for (final String entry : mix.split(",")) {
+            final String[] nameAndWeight = entry.trim().split("=");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Invalid loadtest.mix entry: " + entry);
+            }
+
+            final Scenario scenario = Scenario.fromName(nameAndWeight[0].trim());
+            final int weight = Integer.parseInt(nameAndWeight[1].trim());
+            for (int i = 0; i < weight; i++) {
+                weighted.add(scenario);
+            }
+        }
+
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no weight: " + mix);
+        }
+
+        return weighted.toArray(new Scenario[weighted.size()]);
+    }
+
+    private JsonObject getConfig() {
+        final JsonObject config = new JsonObject();
+        config.addProperty("threads", mThreads);
+        config.addProperty("durationMillis", mDurationMillis);
+        config.addProperty("accounts", mAccounts);
+        config.addProperty("cacheAccounts", mCacheAccounts);
+        config.addProperty("mix", mMix);
+        config.addProperty("stsLatencyMillis", mStsLatencyMillis);
+        config.addProperty("seed", mSeed);
+        return config;
+    }
+
+    private static JsonObject summarize(final String name, final HistogramSnapshot histogram, final long elapsedNanos) {
+        if (null == histogram || histogram.getCount() == 0) {
+            return null;
+        }
+
+        final double requestsPerSecond = histogram.getCount() / (elapsedNanos / 1e9);
+        System.out.println(String.format(Locale.US,
+                "Silent token load %-13s %8d requests %10.1f req/s  p50 %8.3f ms  p99 %8.3f ms",
+                name, histogram.getCount(), requestsPerSecond,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0));
+
+        final JsonObject summary = new JsonObject();
+        summary.addProperty("requests", histogram.getCount());
+        summary.addProperty("requestsPerSecond", requestsPerSecond);
+        summary.addProperty("p50Micros", histogram.getValueAtPercentile(50));
+        summary.addProperty("p99Micros", histogram.getValueAtPercentile(99));
+        summary.addProperty("maxMicros", histogram.getMax());
+        return summary;
+    }
+
+    private static void writeResults(final JsonObject results) throws IOException {
+        final File directory = new File(System.getProperty("benchmark.resultsDir", "build/benchmark-results"));
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, RESULTS_FILE)), "UTF-8");
+        try {
+            new GsonBuilder()
+                    .setPrettyPrinting()
+                    .serializeSpecialFloatingPointValues()
+                    .create()
+                    .toJson(results, writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private enum Scenario {
+        CACHE_HIT("cache_hit", MockStsServer.BEHAVIOR_OK),
+        EXPIRED_AT("expired_at", MockStsServer.BEHAVIOR_OK),
+        FOCI("foci", MockStsServer.BEHAVIOR_OK),
+        THROTTLED("throttled", MockStsServer.BEHAVIOR_THROTTLED),
+        INVALID_GRANT("invalid_grant", MockStsServer.BEHAVIOR_REVOKED);
+
+        private final String mName;
+        private final String mBehavior;
+
+        Scenario(final String name, final String behavior) {
+            mName = name;
+            mBehavior = behavior;
+        }
+
+        static Scenario fromName(final String name) {
+            for (final Scenario scenario : values()) {
+                if (scenario.mName.equals(name)) {
+                    return scenario;
+                }
+            }
+
+            throw new IllegalArgumentException("Unknown loadtest.mix scenario: " + name);
+        }
+    }
+
+    /**
+     * Serves silent requests the way MSAL's local controller does: a valid cached access token,
+     * else the app's refresh token, else a family refresh token.
+     */
+    private static final class LoadTestController extends BaseController {
+
+        private final MicrosoftStsOAuth2Strategy mStrategy;
+
+        LoadTestController(@NonNull final MicrosoftStsOAuth2Strategy strategy) {
+            mStrategy = strategy;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public AcquireTokenResult acquireTokenSilent(final AcquireTokenSilentOperationParameters parameters)
+                throws IOException, ClientException {
+            final AcquireTokenResult result = new AcquireTokenResult();
+            final OAuth2TokenCache tokenCache = parameters.getTokenCache();
+            final AccountRecord account = (AccountRecord) parameters.getAccount();
+
+            ICacheRecord cacheRecord = tokenCache.load(parameters.getClientId(), SCOPE, account);
+
+            if (refreshTokenIsNull(cacheRecord)) {
+                cacheRecord = tokenCache.loadByFamilyId(parameters.getClientId(), SCOPE, account);
+            }
+
+            if (!accessTokenIsNull(cacheRecord) && !cacheRecord.getAccessToken().isExpired()) {
+                result.setLocalAuthenticationResult(new LocalAuthenticationResult(cacheRecord));
+            } else if (!refreshTokenIsNull(cacheRecord)) {
+                renewAccessToken(parameters, result, tokenCache, mStrategy, cacheRecord);
+            }
+
+            return result;
+        }
+
+        @Override
+        public AcquireTokenResult acquireToken(final AcquireTokenOperationParameters request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void completeAcquireToken(final int requestCode, final int resultCode, final Intent data) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void throwIfNetworkNotAvailable(final Context context) {
+            // The mock STS is always reachable
+        }
+    }
+}
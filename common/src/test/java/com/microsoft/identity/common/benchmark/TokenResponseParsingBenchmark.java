@@ -0,0 +1,128 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.benchmark;
+
+import com.microsoft.identity.common.internal.net.JsonResponseBodyParser;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares buffering a large token response into a String before deserializing it with reading it
+ * through {@link JsonResponseBodyParser}. The responses carry ID tokens of increasing size.
+ */
+public final class TokenResponseParsingBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 1000;
+    private static final int[] ID_TOKEN_SIZES = {4 * 1024, 64 * 1024, 512 * 1024};
+
+    private static final JsonResponseBodyParser<MicrosoftStsTokenResponse> PARSER =
+            new JsonResponseBodyParser<>(MicrosoftStsTokenResponse.class);
+
+    @Test
+    public void benchmarkTokenResponseParsing() throws Exception {
+        for (final int idTokenSize : ID_TOKEN_SIZES) {
+            final byte[] body = createTokenResponse(idTokenSize);
+            final int iterations = Math.max(20, MEASURED_ITERATIONS * 4 * 1024 / idTokenSize);
+
+            run(body, WARMUP_ITERATIONS, false);
+            run(body, WARMUP_ITERATIONS, true);
+
+            report("buffered", idTokenSize, iterations, body, false);
+            report("streamed", idTokenSize, iterations, body, true);
+        }
+    }
+
+    private static void report(final String name, final int idTokenSize, final int iterations,
+                               final byte[] body, final boolean streamed) throws IOException {
+        final long allocatedBefore = getAllocatedBytes();
+        final long start = System.nanoTime();
+        run(body, iterations, streamed);
+        final long elapsedNanos = System.nanoTime() - start;
+        final long allocatedBytes = getAllocatedBytes() - allocatedBefore;
+
+        System.out.println(String.format("TokenResponse %s id_token=%dKB: %.1f us/op, %d bytes allocated/op",
+                name, idTokenSize / 1024, elapsedNanos / 1000.0 / iterations,
+                allocatedBytes < 0 ? -1 : allocatedBytes / iterations));
+    }
+
+    private static void run(final byte[] body, final int iterations, final boolean streamed) throws IOException {
+        for (int i = 0; i < iterations; i++) {
+            final MicrosoftStsTokenResponse response = streamed ? parseStreamed(body) : parseBuffered(body);
+            Assert.assertNotNull(response.getIdToken());
+        }
+    }
+
+    private static MicrosoftStsTokenResponse parseBuffered(final byte[] body) throws IOException {
+        // Mirrors the raw body path: 1KB char buffer into a StringBuilder, then a String
+        final InputStream inputStream = new ByteArrayInputStream(body);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+        final char[] buffer = new char[1024];
+        final StringBuilder stringBuilder = new StringBuilder();
+        int charsRead;
+        while ((charsRead = reader.read(buffer)) > -1) {
+            stringBuilder.append(buffer, 0, charsRead);
+        }
+
+        return ObjectMapper.deserializeJsonStringToObject(stringBuilder.toString(), MicrosoftStsTokenResponse.class);
+    }
+
+    private static MicrosoftStsTokenResponse parseStreamed(final byte[] body) throws IOException {
+        final InputStream inputStream = new ByteArrayInputStream(body);
+        return PARSER.parse(new BufferedReader(new InputStreamReader(inputStream, "UTF-8"), 1024));
+    }
+
+    private static byte[] createTokenResponse(final int idTokenSize) throws IOException {
+        final StringBuilder idToken = new StringBuilder(idTokenSize);
+        while (idToken.length() < idTokenSize) {
+            idToken.append("eyJ0eXAiOiJKV1QiLCJhbGciOiJSUzI1NiJ9");
+        }
+        idToken.setLength(idTokenSize);
+
+        return ("{\"token_type\":\"Bearer\",\"scope\":\"openid profile user.read\",\"expires_in\":3599,"
+                + "\"ext_expires_in\":7199,\"access_token\":\"" + idToken.substring(0, Math.min(2048, idTokenSize))
+                + "\",\"refresh_token\":\"refresh\",\"id_token\":\"" + idToken
+                + "\",\"client_info\":\"eyJ1aWQiOiIxIiwidXRpZCI6IjIifQ\"}").getBytes("UTF-8");
+    }
+
+    private static long getAllocatedBytes() {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft Corporation.
+// All rights reserved.
+//
+// This code is licensed under the MIT License.
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files(the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and / or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions :
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+package com.microsoft.identity.common.unit;
+
+import com.microsoft.identity.common.internal.net.FormUrlEncoder;
+import com.microsoft.identity.common.internal.net.ObjectMapper;
+import com.microsoft.identity.common.internal.providers.microsoft.azureactivedirectory.AzureActiveDirectoryTokenRequest;
+import com.microsoft.identity.common.internal.providers.microsoft.microsoftsts.MicrosoftStsTokenRequest;
+import com.microsoft.identity.common.internal.providers.oauth2.TokenRequest;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.UnsupportedEncodingException;
+import java.util.UUID;
+
+/**
+ * Verifies that {@link FormUrlEncoder} produces the same bytes as
+ * {@link ObjectMapper#serializeObjectToFormUrlEncoded(Object)}.
+ */
+@RunWith(JUnit4.class)
+public class FormUrlEncoderTest {
+
+    @Test
+    public void testEmptyRequest() throws UnsupportedEncodingException {
+        assertSameEncoding(new TokenRequest());
+    }
+
+    @Test
+    public void testRefreshTokenRequest() throws UnsupportedEncodingException {
+        final MicrosoftStsTokenRequest request = new MicrosoftStsTokenRequest();
+        request.setGrantType(TokenRequest.GrantTypes.REFRESH_TOKEN);
+        request.setClientId("4b0db8c2-9f26-4417-8bde-3f0e3656f8e0");
+        request.setRedirectUri("msauth://com.microsoft.identity.client.sample/1wIqXSqBj7w%2Bh11ZifsnqwgyKrY%3D");
+        request.setScope("https://graph.microsoft.com/user.read openid offline_access profile");
+        request.setRefreshToken("OAQABAAAAAADXzZ3ifr-GRbDT45zNSEFE-_.*~!'()");
+        request.setCorrelationId(UUID.fromString("9b2f0a8e-3c1d-4e5f-8a7b-6c5d4e3f2a1b"));
+
+        assertSameEncoding(request);
+    }
+
+    @Test
+    public void testResourceRequest() throws UnsupportedEncodingException {
+        final AzureActiveDirectoryTokenRequest request = new AzureActiveDirectoryTokenRequest();
+        request.setGrantType("client_credentials");
+        request.setClientSecret("s3cr3t+/=&?#");
+        request.setResourceId("https://graph.windows.net");
+
+        assertSameEncoding(request);
+    }
+
+    @Test
+    public void testNonAsciiValues() throws UnsupportedEncodingException {
+        final TokenRequest request = new TokenRequest();
+        request.setCode("café 中文 😀 <script>\" ");
+        request.setScope("unpaired \ud83d surrogate \ude00 end");
+
+        assertSameEncoding(request);
+    }
+
+    @Test
+    public void testUnsupportedFieldTypesFallBack() throws UnsupportedEncodingException {
+        final RequestWithDouble request = new RequestWithDouble();
+        request.setClientId("client");
+
+        assertSameEncoding(request);
+    }
+
+    private static void assertSameEncoding(final Object request) throws UnsupportedEncodingException {
+        final byte[] expected = ObjectMapper.serializeObjectToFormUrlEncoded(request)
+                .getBytes(ObjectMapper.ENCODING_SCHEME);
+
+        Assert.assertArrayEquals(expected, FormUrlEncoder.encode(request));
+        // Second call is served from the cached field metadata
+        Assert.assertArrayEquals(expected, FormUrlEncoder.encode(request));
+    }
+
+    private static class RequestWithDouble extends TokenRequest {
+        private double mWeight = 1.5;
+    }
+}